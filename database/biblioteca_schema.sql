@@ -21,6 +21,7 @@ CREATE TABLE IF NOT EXISTS personas (
     password VARCHAR(255) NOT NULL,
     fecha_registro TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     INDEX idx_email (email),
+    INDEX idx_apellidos (apellidos),
     INDEX idx_tipo_usuario (tipo_usuario)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
@@ -112,11 +113,28 @@ CREATE TABLE IF NOT EXISTS prestamos (
     FOREIGN KEY (libro_id) REFERENCES libros(id) ON DELETE CASCADE,
     FOREIGN KEY (usuario_id) REFERENCES personas(id) ON DELETE CASCADE,
     INDEX idx_libro_id (libro_id),
-    INDEX idx_usuario_id (usuario_id),
+    INDEX idx_usuario_estado (usuario_id, estado),
     INDEX idx_estado (estado),
     INDEX idx_fecha_prestamo (fecha_prestamo)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- ========================================
+-- TABLA: cambios_datos
+-- Registro de cambios que escriben los triggers de abajo
+-- Cada cliente lee las filas posteriores a la última versión que aplicó
+-- para invalidar solo lo que otros clientes cambiaron (SincronizadorCambios)
+-- cliente: variable de sesión @biblioteca_cliente de la conexión que escribió
+-- ========================================
+CREATE TABLE IF NOT EXISTS cambios_datos (
+    version BIGINT AUTO_INCREMENT PRIMARY KEY,
+    tabla ENUM('libros', 'prestamos', 'personas') NOT NULL,
+    fila_id INT NOT NULL,
+    operacion ENUM('insertado', 'modificado', 'eliminado') NOT NULL,
+    cliente BIGINT,
+    fecha TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_fecha (fecha)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- ========================================
 -- VISTAS ÚTILES
 -- ========================================
@@ -206,6 +224,52 @@ BEGIN
 END//
 DELIMITER ;
 
+-- Registro de cambios: una fila en cambios_datos por cada fila escrita
+-- Los borrados en cascada de prestamos no disparan triggers en MySQL:
+-- el cliente los da por cambiados al ver el borrado del libro o la persona
+CREATE TRIGGER cambios_libros_insert AFTER INSERT ON libros
+FOR EACH ROW INSERT INTO cambios_datos (tabla, fila_id, operacion, cliente) VALUES ('libros', NEW.id, 'insertado', @biblioteca_cliente);
+CREATE TRIGGER cambios_libros_update AFTER UPDATE ON libros
+FOR EACH ROW INSERT INTO cambios_datos (tabla, fila_id, operacion, cliente) VALUES ('libros', NEW.id, 'modificado', @biblioteca_cliente);
+CREATE TRIGGER cambios_libros_delete AFTER DELETE ON libros
+FOR EACH ROW INSERT INTO cambios_datos (tabla, fila_id, operacion, cliente) VALUES ('libros', OLD.id, 'eliminado', @biblioteca_cliente);
+
+CREATE TRIGGER cambios_prestamos_insert AFTER INSERT ON prestamos
+FOR EACH ROW INSERT INTO cambios_datos (tabla, fila_id, operacion, cliente) VALUES ('prestamos', NEW.id, 'insertado', @biblioteca_cliente);
+CREATE TRIGGER cambios_prestamos_update AFTER UPDATE ON prestamos
+FOR EACH ROW INSERT INTO cambios_datos (tabla, fila_id, operacion, cliente) VALUES ('prestamos', NEW.id, 'modificado', @biblioteca_cliente);
+CREATE TRIGGER cambios_prestamos_delete AFTER DELETE ON prestamos
+FOR EACH ROW INSERT INTO cambios_datos (tabla, fila_id, operacion, cliente) VALUES ('prestamos', OLD.id, 'eliminado', @biblioteca_cliente);
+
+CREATE TRIGGER cambios_personas_insert AFTER INSERT ON personas
+FOR EACH ROW INSERT INTO cambios_datos (tabla, fila_id, operacion, cliente) VALUES ('personas', NEW.id, 'insertado', @biblioteca_cliente);
+CREATE TRIGGER cambios_personas_update AFTER UPDATE ON personas
+FOR EACH ROW INSERT INTO cambios_datos (tabla, fila_id, operacion, cliente) VALUES ('personas', NEW.id, 'modificado', @biblioteca_cliente);
+CREATE TRIGGER cambios_personas_delete AFTER DELETE ON personas
+FOR EACH ROW INSERT INTO cambios_datos (tabla, fila_id, operacion, cliente) VALUES ('personas', OLD.id, 'eliminado', @biblioteca_cliente);
+
+-- Los datos de cada tipo de usuario cambian la persona
+CREATE TRIGGER cambios_estudiantes_insert AFTER INSERT ON estudiantes
+FOR EACH ROW INSERT INTO cambios_datos (tabla, fila_id, operacion, cliente) VALUES ('personas', NEW.id, 'modificado', @biblioteca_cliente);
+CREATE TRIGGER cambios_estudiantes_update AFTER UPDATE ON estudiantes
+FOR EACH ROW INSERT INTO cambios_datos (tabla, fila_id, operacion, cliente) VALUES ('personas', NEW.id, 'modificado', @biblioteca_cliente);
+CREATE TRIGGER cambios_estudiantes_delete AFTER DELETE ON estudiantes
+FOR EACH ROW INSERT INTO cambios_datos (tabla, fila_id, operacion, cliente) VALUES ('personas', OLD.id, 'modificado', @biblioteca_cliente);
+
+CREATE TRIGGER cambios_estudiantes_graduados_insert AFTER INSERT ON estudiantes_graduados
+FOR EACH ROW INSERT INTO cambios_datos (tabla, fila_id, operacion, cliente) VALUES ('personas', NEW.id, 'modificado', @biblioteca_cliente);
+CREATE TRIGGER cambios_estudiantes_graduados_update AFTER UPDATE ON estudiantes_graduados
+FOR EACH ROW INSERT INTO cambios_datos (tabla, fila_id, operacion, cliente) VALUES ('personas', NEW.id, 'modificado', @biblioteca_cliente);
+CREATE TRIGGER cambios_estudiantes_graduados_delete AFTER DELETE ON estudiantes_graduados
+FOR EACH ROW INSERT INTO cambios_datos (tabla, fila_id, operacion, cliente) VALUES ('personas', OLD.id, 'modificado', @biblioteca_cliente);
+
+CREATE TRIGGER cambios_profesores_insert AFTER INSERT ON profesores
+FOR EACH ROW INSERT INTO cambios_datos (tabla, fila_id, operacion, cliente) VALUES ('personas', NEW.id, 'modificado', @biblioteca_cliente);
+CREATE TRIGGER cambios_profesores_update AFTER UPDATE ON profesores
+FOR EACH ROW INSERT INTO cambios_datos (tabla, fila_id, operacion, cliente) VALUES ('personas', NEW.id, 'modificado', @biblioteca_cliente);
+CREATE TRIGGER cambios_profesores_delete AFTER DELETE ON profesores
+FOR EACH ROW INSERT INTO cambios_datos (tabla, fila_id, operacion, cliente) VALUES ('personas', OLD.id, 'modificado', @biblioteca_cliente);
+
 -- ========================================
 -- PROCEDIMIENTOS ALMACENADOS
 -- ========================================
@@ -0,0 +1,351 @@
+package com.pointerfaz.busqueda;
+
+import com.pointerfaz.dao.EscuchaCambios;
+import com.pointerfaz.dao.LibroDAO;
+import com.pointerfaz.dao.SincronizadorCambios;
+import com.pointerfaz.modelo.Libro;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Guarda el índice de libros en disco como segmentos inmutables, para no
+ * recorrer todo el catálogo de la base de datos en cada inicio
+ *
+ * Hay un segmento BASE con todo el índice y, detrás, segmentos DELTA con los
+ * cambios que vio este cliente después (propios o de otros clientes); los
+ * cambios se juntan y se escriben cada pocos segundos (y al cerrar) en un
+ * hilo aparte. Al abrir se comprueba el CRC de cada segmento y la huella:
+ * con registro de cambios es la marca de SincronizadorCambios ("cambios:123")
+ * y se aplican los cambios de libros posteriores a ella; sin registro es la
+ * huella del catálogo (cantidad de libros y último id), que tiene que
+ * coincidir con la de la base. Si algo no cuadra se reconstruye desde la
+ * base de datos y se escribe un BASE nuevo.
+ *
+ * Fusión: cuando se juntan demasiados DELTA, o pesan más de un cuarto del
+ * BASE, se escribe un BASE nuevo con el índice que ya está en memoria y se
+ * borran los segmentos anteriores.
+ */
+final class AlmacenSegmentos implements EscuchaCambios<Libro> {
+    
+    private static final String PREFIJO = "segmento-";
+    private static final String EXTENSION = ".seg";
+    private static final String PREFIJO_MARCA = "cambios:";
+    private static final int MAXIMO_DELTAS = Integer.getInteger("biblioteca.indice.maximoDeltas", 8);
+    private static final long INTERVALO_GUARDADO_MS = Long.getLong("biblioteca.indice.intervaloGuardado", 2000);
+    
+    private final Path directorio;
+    private final IndiceLibros indice;
+    private final LibroDAO libroDAO;
+    // Marca del registro de cambios para la huella de los segmentos nuevos (-1 sin registro)
+    private final LongSupplier marcaCambios;
+    private final ScheduledExecutorService hilo = Executors.newSingleThreadScheduledExecutor(tarea -> {
+        Thread hiloSegmentos = new Thread(tarea, "indice-segmentos");
+        hiloSegmentos.setDaemon(true);
+        return hiloSegmentos;
+    });
+    
+    // Cambios confirmados que todavía no están en un segmento, en orden
+    private final List<Cambio> pendientes = new ArrayList<>();
+    private long siguienteNumero = 1;
+    private int deltas;
+    private long tamanoDeltas;
+    private long tamanoBase;
+    
+    private static final class Cambio {
+        final Libro libro;
+        final int id;
+        
+        Cambio(Libro libro, int id) {
+            this.libro = libro;
+            this.id = id;
+        }
+    }
+    
+    AlmacenSegmentos(Path directorio, IndiceLibros indice, LibroDAO libroDAO) {
+        this(directorio, indice, libroDAO, () -> SincronizadorCambios.compartido().getMarca());
+    }
+    
+    /**
+     * Con otra fuente para la marca de cambios; con -1 la huella es siempre la del catálogo
+     */
+    AlmacenSegmentos(Path directorio, IndiceLibros indice, LibroDAO libroDAO, LongSupplier marcaCambios) {
+        this.directorio = directorio;
+        this.indice = indice;
+        this.libroDAO = libroDAO;
+        this.marcaCambios = marcaCambios;
+    }
+    
+    /**
+     * Directorio de los segmentos: biblioteca.indice.directorio o ~/.biblioteca/indice
+     */
+    static Path directorioPorDefecto() {
+        return Path.of(System.getProperty("biblioteca.indice.directorio",
+                Path.of(System.getProperty("user.home"), ".biblioteca", "indice").toString()));
+    }
+    
+    /**
+     * Cargar el índice desde los segmentos, o desde la base de datos si faltan,
+     * están dañados o son de otro estado del catálogo; después empezar a guardar
+     * los cambios en segundo plano
+     * @return false si hubo que reconstruirlo y la base de datos no respondió;
+     * entonces no se escribe nada y el almacén queda cerrado
+     */
+    boolean abrir() {
+        long inicio = System.nanoTime();
+        String origen = "segmentos en disco";
+        try {
+            Files.createDirectories(directorio);
+            if (!cargarSegmentos()) {
+                origen = "la base de datos";
+                if (!indice.reconstruir(libroDAO)) {
+                    return noCargado();
+                }
+                borrarSegmentos(Long.MAX_VALUE);
+                hilo.execute(this::fusionar);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("No se pudieron leer los segmentos del índice (" + e.getMessage() + "); se reconstruye desde la base de datos");
+            origen = "la base de datos";
+            if (!indice.reconstruir(libroDAO)) {
+                return noCargado();
+            }
+            hilo.execute(() -> {
+                borrarSegmentos(Long.MAX_VALUE);
+                fusionar();
+            });
+        }
+        System.out.println("Índice de libros: " + indice.tamano() + " libros desde " + origen + " en "
+                + (System.nanoTime() - inicio) / 1_000_000 + " ms");
+        
+        hilo.scheduleWithFixedDelay(this::guardarPendientes, INTERVALO_GUARDADO_MS, INTERVALO_GUARDADO_MS, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::guardarPendientes, "indice-segmentos-cierre"));
+        return true;
+    }
+    
+    /**
+     * Un índice a medias no se guarda: un BASE vacío se cargaría como bueno en el próximo inicio
+     */
+    private boolean noCargado() {
+        System.out.println("No se pudo leer el catálogo para el índice de libros; se reintenta en la próxima búsqueda");
+        hilo.shutdown();
+        return false;
+    }
+    
+    /**
+     * @return true si el índice quedó cargado con el último BASE y sus DELTA
+     */
+    private boolean cargarSegmentos() throws IOException {
+        List<Path> archivos = listarSegmentos();
+        if (archivos.isEmpty()) {
+            return false;
+        }
+        
+        // Abrir todos (comprueba el CRC) y quedarse con el último BASE
+        List<Segmento.Lector> segmentos = new ArrayList<>();
+        int base = -1;
+        for (Path archivo : archivos) {
+            Segmento.Lector segmento = new Segmento.Lector(archivo);
+            segmentos.add(segmento);
+            if (segmento.tipo() == Segmento.BASE) {
+                base = segmentos.size() - 1;
+            }
+        }
+        if (base < 0) {
+            return false;
+        }
+        
+        String huellaGuardada = segmentos.get(segmentos.size() - 1).huella();
+        long marca = huellaGuardada.startsWith(PREFIJO_MARCA)
+                ? Long.parseLong(huellaGuardada.substring(PREFIJO_MARCA.length())) : -1;
+        if (marca < 0) {
+            String huella = libroDAO.huellaCatalogo();
+            if (huella != null && !huella.equals(huellaGuardada)) {
+                System.out.println("El catálogo cambió desde que se guardó el índice (" + huellaGuardada + " -> " + huella + ")");
+                return false;
+            }
+        }
+        
+        indice.cargarBase(segmentos.get(base));
+        for (int i = base + 1; i < segmentos.size(); i++) {
+            aplicarDelta(segmentos.get(i));
+        }
+        if (marca >= 0 && !SincronizadorCambios.compartido().ponerAlDiaLibros(marca, new EscuchaCambios<Libro>() {
+            // Al índice y a pendientes, para que el próximo DELTA los guarde
+            @Override
+            public void guardado(Libro libro) {
+                indice.guardado(libro);
+                AlmacenSegmentos.this.guardado(libro);
+            }
+            
+            @Override
+            public void eliminado(int id) {
+                indice.eliminado(id);
+                AlmacenSegmentos.this.eliminado(id);
+            }
+        })) {
+            System.out.println("El registro de cambios ya no llega a la versión del índice guardado (" + marca + ")");
+            return false;
+        }
+        
+        siguienteNumero = numero(archivos.get(archivos.size() - 1)) + 1;
+        deltas = segmentos.size() - base - 1;
+        tamanoBase = Files.size(archivos.get(base));
+        tamanoDeltas = 0;
+        for (int i = base + 1; i < archivos.size(); i++) {
+            tamanoDeltas += Files.size(archivos.get(i));
+        }
+        borrarSegmentos(numero(archivos.get(base)));
+        return true;
+    }
+    
+    private void aplicarDelta(Segmento.Lector segmento) throws IOException {
+        while (!segmento.terminado()) {
+            int tipo = segmento.octeto();
+            if (tipo == Segmento.GUARDADO) {
+                indice.guardado(segmento.libro());
+            } else if (tipo == Segmento.ELIMINADO) {
+                indice.eliminado(segmento.varint());
+            } else {
+                throw new IOException("Tipo de cambio desconocido: " + tipo);
+            }
+        }
+    }
+    
+    @Override
+    public void guardado(Libro libro) {
+        synchronized (pendientes) {
+            pendientes.add(new Cambio(new Libro(libro), libro.getId()));
+        }
+    }
+    
+    @Override
+    public void eliminado(int id) {
+        synchronized (pendientes) {
+            pendientes.add(new Cambio(null, id));
+        }
+    }
+    
+    @Override
+    public void desactualizado() {
+        // El índice (que escucha antes) ya se reconstruyó: pasa entero a un BASE nuevo
+        hilo.execute(this::fusionar);
+    }
+    
+    /**
+     * Huella de un segmento nuevo: la marca de SincronizadorCambios o, sin
+     * registro de cambios, la huella del catálogo
+     */
+    private String huellaActual() {
+        long marca = marcaCambios.getAsLong();
+        return marca >= 0 ? PREFIJO_MARCA + marca : libroDAO.huellaCatalogo();
+    }
+    
+    /**
+     * Escribir los cambios pendientes como un segmento DELTA y fusionar si toca
+     */
+    synchronized void guardarPendientes() {
+        synchronized (pendientes) {
+            if (pendientes.isEmpty()) {
+                return;
+            }
+        }
+        // La huella se toma antes de sacar los cambios: todo lo que ella cuenta ya está en pendientes
+        String huella = huellaActual();
+        List<Cambio> cambios;
+        synchronized (pendientes) {
+            cambios = new ArrayList<>(pendientes);
+            pendientes.clear();
+        }
+        
+        Path archivo = archivoSegmento(siguienteNumero++);
+        try (Segmento.Escritor salida = new Segmento.Escritor(archivo, Segmento.DELTA, huella)) {
+            for (Cambio cambio : cambios) {
+                if (cambio.libro != null) {
+                    salida.octeto(Segmento.GUARDADO);
+                    salida.libro(cambio.libro);
+                } else {
+                    salida.octeto(Segmento.ELIMINADO);
+                    salida.varint(cambio.id);
+                }
+            }
+            salida.terminar();
+            deltas++;
+            tamanoDeltas += Files.size(archivo);
+        } catch (IOException e) {
+            // Sin ese DELTA los segmentos quedarían atrasados: mejor que el próximo inicio reconstruya
+            System.out.println("No se pudo guardar el índice en disco: " + e.getMessage());
+            borrarSegmentos(Long.MAX_VALUE);
+            return;
+        }
+        
+        if (deltas >= MAXIMO_DELTAS || tamanoDeltas > tamanoBase / 4) {
+            fusionar();
+        }
+    }
+    
+    /**
+     * Escribir un BASE nuevo con el índice en memoria y borrar los segmentos anteriores
+     */
+    synchronized void fusionar() {
+        String huella = huellaActual();
+        long numero = siguienteNumero++;
+        Path archivo = archivoSegmento(numero);
+        try (Segmento.Escritor salida = new Segmento.Escritor(archivo, Segmento.BASE, huella)) {
+            indice.escribirBase(salida);
+            salida.terminar();
+            borrarSegmentos(numero);
+            deltas = 0;
+            tamanoDeltas = 0;
+            tamanoBase = Files.size(archivo);
+        } catch (IOException e) {
+            System.out.println("No se pudo guardar el índice en disco: " + e.getMessage());
+        }
+    }
+    
+    private List<Path> listarSegmentos() throws IOException {
+        List<Path> archivos = new ArrayList<>();
+        try (DirectoryStream<Path> contenido = Files.newDirectoryStream(directorio, PREFIJO + "*" + EXTENSION)) {
+            contenido.forEach(archivos::add);
+        }
+        archivos.sort((a, b) -> Long.compare(numero(a), numero(b)));
+        return archivos;
+    }
+    
+    /**
+     * Borrar los segmentos con número menor al indicado (y los temporales a medio escribir)
+     */
+    private void borrarSegmentos(long hasta) {
+        try (DirectoryStream<Path> contenido = Files.newDirectoryStream(directorio, PREFIJO + "*")) {
+            for (Path archivo : contenido) {
+                if (archivo.toString().endsWith(".tmp") || numero(archivo) < hasta) {
+                    Files.deleteIfExists(archivo);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("No se pudieron borrar segmentos viejos del índice: " + e.getMessage());
+        }
+    }
+    
+    private Path archivoSegmento(long numero) {
+        return directorio.resolve(String.format("%s%010d%s", PREFIJO, numero, EXTENSION));
+    }
+    
+    // "segmento-0000000012.seg" -> 12 (los nombres que no siguen el formato van al final)
+    private static long numero(Path archivo) {
+        String nombre = archivo.getFileName().toString();
+        int fin = nombre.indexOf('.');
+        try {
+            return Long.parseLong(nombre.substring(PREFIJO.length(), fin < 0 ? nombre.length() : fin));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,546 @@
+package com.pointerfaz.busqueda;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Motor de autocompletado por prefijo con las k sugerencias más populares
+ *
+ * Cada sugerencia se busca por su texto normalizado y por el resto del texto a
+ * partir de cada palabra ("cien anos de soledad", "anos de soledad", "de
+ * soledad", "soledad"), así "sol" sugiere el título completo. Esas claves no se
+ * copian: son posiciones dentro de un único char[] con todos los textos
+ * normalizados, ordenadas alfabéticamente en un int[] (un trie comprimido en un
+ * arreglo: las claves de un prefijo quedan contiguas y se hallan por búsqueda
+ * binaria). Sobre el peso de cada clave hay un árbol de máximos, así las k más
+ * pesadas de un rango salen sin recorrerlo entero.
+ *
+ * Las sugerencias nuevas van a un TreeMap chico de recientes; cuando crece se
+ * rehace el arreglo ordenado. Los cambios de peso se aplican en el momento.
+ */
+public final class Autocompletado {
+    
+    // Palabras desde las que se indexa un texto
+    private static final int MAX_PALABRAS_CLAVE = 8;
+    
+    // Se rehace el arreglo ordenado cuando las claves recientes pasan de este mínimo y de un cuarto de las ordenadas
+    private static final int MINIMO_RECIENTES_REHACER = 1024;
+    
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    
+    // Sugerencias: texto a mostrar, tipo, peso, usos (entidades con ese texto; 0 = quitada)
+    // y su texto normalizado dentro de normalizados[inicio, inicio + largo)
+    private final List<String> textos = new ArrayList<>();
+    private final List<String> tipos = new ArrayList<>();
+    private byte[] tipoDe = new byte[256];
+    private int[] inicio = new int[256];
+    private int[] largo = new int[256];
+    private int[] pesos = new int[256];
+    private int[] usos = new int[256];
+    private int cantidad;
+    private char[] normalizados = new char[4096];
+    private int largoNormalizados;
+    
+    // Tabla hash abierta (tipo, texto normalizado) -> sugerencia + 1 (0 = libre)
+    private int[] tabla = new int[512];
+    
+    // Claves ordenadas de las sugerencias 0..ordenadas-1: sugerencia y posición en normalizados
+    private int[] claveSugerencia = new int[0];
+    private int[] claveInicio = new int[0];
+    private int claves;
+    private int ordenadas;
+    
+    // Árbol de máximos: la hoja i tiene el peso de la clave i (-1 si la sugerencia está quitada)
+    private int[] arbol = {-1, -1};
+    private int hojas = 1;
+    
+    // Claves de las sugerencias nuevas ("clave\0sugerencia" -> sugerencia)
+    private final TreeMap<String, Integer> recientes = new TreeMap<>();
+    private boolean cargando;
+    
+    /**
+     * Agregar un texto (o sumar un uso si ya estaba con el mismo tipo)
+     * @param peso popularidad que aporta esta entidad
+     * @return número de sugerencia, o -1 si el texto no tiene letras ni dígitos
+     */
+    public int agregar(String tipo, String texto, int peso) {
+        String normalizado = String.join(" ", Normalizador.tokens(texto));
+        if (normalizado.isEmpty()) {
+            return -1;
+        }
+        
+        cerrojo.writeLock().lock();
+        try {
+            byte codigo = codigoTipo(tipo);
+            int existente = buscar(codigo, normalizado);
+            if (existente >= 0) {
+                usos[existente]++;
+                pesos[existente] += peso;
+                actualizarHojas(existente);
+                return existente;
+            }
+            
+            int id = nuevaSugerencia(codigo, texto.strip(), normalizado, peso);
+            if (!cargando) {
+                int fin = inicio[id] + largo[id];
+                for (int clave : inicioClaves(id)) {
+                    recientes.put(new String(normalizados, clave, fin - clave) + '\u0000' + id, id);
+                }
+                if (recientes.size() > Math.max(MINIMO_RECIENTES_REHACER, claves / 4)) {
+                    ordenar();
+                }
+            }
+            return id;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Quitar un uso de la sugerencia; con el último deja de sugerirse
+     * @param peso popularidad que aportaba la entidad quitada
+     */
+    public void quitar(int id, int peso) {
+        if (id < 0) {
+            return;
+        }
+        cerrojo.writeLock().lock();
+        try {
+            if (usos[id] > 0) {
+                usos[id]--;
+                pesos[id] -= peso;
+                actualizarHojas(id);
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+    
+    public void sumarPeso(int id, int delta) {
+        if (id < 0) {
+            return;
+        }
+        cerrojo.writeLock().lock();
+        try {
+            pesos[id] += delta;
+            actualizarHojas(id);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Agregar muchas sugerencias seguidas sin ordenar en cada una;
+     * terminarCarga() ordena todo de una vez
+     */
+    public void iniciarCarga() {
+        cerrojo.writeLock().lock();
+        try {
+            cargando = true;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+    
+    public void terminarCarga() {
+        cerrojo.writeLock().lock();
+        try {
+            cargando = false;
+            ordenar();
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Las k sugerencias de más peso que empiezan con el texto (o con alguna de sus palabras)
+     */
+    public List<Sugerencia> sugerir(String prefijo, int k) {
+        List<Sugerencia> resultado = new ArrayList<>();
+        String normalizado = String.join(" ", Normalizador.tokens(prefijo));
+        if (normalizado.isEmpty() || k <= 0) {
+            return resultado;
+        }
+        // "cien " busca la palabra completa
+        if (Character.isWhitespace(prefijo.charAt(prefijo.length() - 1))) {
+            normalizado += " ";
+        }
+        
+        cerrojo.readLock().lock();
+        try {
+            Set<Integer> elegidas = new HashSet<>();
+            List<Integer> candidatas = new ArrayList<>();
+            mejoresOrdenadas(normalizado, k, elegidas, candidatas);
+            for (Integer id : recientes.subMap(normalizado, true, normalizado + Character.MAX_VALUE, true).values()) {
+                if (usos[id] > 0 && elegidas.add(id)) {
+                    candidatas.add(id);
+                }
+            }
+            
+            candidatas.sort((a, b) -> pesos[a] != pesos[b] ? Integer.compare(pesos[b], pesos[a]) : Integer.compare(a, b));
+            for (int id : candidatas.subList(0, Math.min(k, candidatas.size()))) {
+                resultado.add(new Sugerencia(textos.get(id), tipos.get(tipoDe[id]), pesos[id]));
+            }
+            return resultado;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+    
+    /**
+     * @return sugerencias vigentes
+     */
+    public int tamano() {
+        cerrojo.readLock().lock();
+        try {
+            int vigentes = 0;
+            for (int i = 0; i < cantidad; i++) {
+                if (usos[i] > 0) {
+                    vigentes++;
+                }
+            }
+            return vigentes;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+    
+    /**
+     * @return claves buscables (ordenadas y recientes)
+     */
+    public int getClaves() {
+        cerrojo.readLock().lock();
+        try {
+            return claves + recientes.size();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Memoria aproximada en bytes según la capacidad de los arreglos, más los textos
+     * a mostrar (cadenas latin-1 con cabecera de 40 bytes) y las claves recientes
+     */
+    public long memoriaEstimada() {
+        cerrojo.readLock().lock();
+        try {
+            long bytes = (long) normalizados.length * Character.BYTES
+                    + (long) inicio.length * (Integer.BYTES * 4 + 1)
+                    + (long) tabla.length * Integer.BYTES
+                    + (long) claveSugerencia.length * Integer.BYTES * 2
+                    + (long) arbol.length * Integer.BYTES
+                    + (long) textos.size() * Integer.BYTES;
+            for (String texto : textos) {
+                bytes += 40 + texto.length();
+            }
+            // Entrada del TreeMap, la clave como cadena y el Integer
+            bytes += (long) recientes.size() * (40 + 40 + 16 + 32);
+            return bytes;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+    
+    // =============== ARREGLO ORDENADO ===============
+    
+    /**
+     * Las k claves más pesadas del rango del prefijo en el arreglo ordenado
+     * Recorre el árbol de máximos de mayor a menor: solo baja por los nodos
+     * que todavía pueden tener una de las k mejores.
+     */
+    private void mejoresOrdenadas(String prefijo, int k, Set<Integer> elegidas, List<Integer> candidatas) {
+        int desde = primeraClave(prefijo, false);
+        int hasta = primeraClave(prefijo, true);
+        if (desde >= hasta) {
+            return;
+        }
+        
+        PriorityQueue<Integer> nodos = new PriorityQueue<>((a, b) -> Integer.compare(arbol[b], arbol[a]));
+        // Nodos que cubren exactamente [desde, hasta)
+        for (int izquierda = desde + hojas, derecha = hasta + hojas; izquierda < derecha; izquierda >>= 1, derecha >>= 1) {
+            if ((izquierda & 1) == 1) {
+                nodos.add(izquierda++);
+            }
+            if ((derecha & 1) == 1) {
+                nodos.add(--derecha);
+            }
+        }
+        
+        while (!nodos.isEmpty() && candidatas.size() < k) {
+            int nodo = nodos.poll();
+            if (arbol[nodo] < 0) {
+                break;
+            }
+            if (nodo >= hojas) {
+                int id = claveSugerencia[nodo - hojas];
+                if (elegidas.add(id)) {
+                    candidatas.add(id);
+                }
+            } else {
+                nodos.add(2 * nodo);
+                nodos.add(2 * nodo + 1);
+            }
+        }
+    }
+    
+    /**
+     * Primera clave ordenada mayor o igual al prefijo; con despues, la primera
+     * que ya no empieza con él
+     */
+    private int primeraClave(String prefijo, boolean despues) {
+        int bajo = 0;
+        int alto = claves;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            int comparacion = compararPrefijo(claveSugerencia[medio], claveInicio[medio], prefijo);
+            if (comparacion < 0 || (despues && comparacion == 0)) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+    
+    /**
+     * Comparar la clave con el prefijo mirando solo sus primeras letras (0 si empieza con él)
+     */
+    private int compararPrefijo(int id, int desde, String prefijo) {
+        int fin = inicio[id] + largo[id];
+        for (int i = 0; i < prefijo.length(); i++) {
+            if (desde + i == fin) {
+                return -1;
+            }
+            int diferencia = normalizados[desde + i] - prefijo.charAt(i);
+            if (diferencia != 0) {
+                return diferencia;
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * Ordenar las claves de todas las sugerencias y rehacer el árbol de máximos
+     */
+    private void ordenar() {
+        int total = 0;
+        for (int id = 0; id < cantidad; id++) {
+            total += inicioClaves(id).length;
+        }
+        long[] pares = new long[total];
+        int n = 0;
+        for (int id = 0; id < cantidad; id++) {
+            for (int clave : inicioClaves(id)) {
+                pares[n++] = ((long) id << 32) | clave;
+            }
+        }
+        ordenarPares(pares, new long[total], 0, total);
+        
+        claveSugerencia = new int[total];
+        claveInicio = new int[total];
+        for (int i = 0; i < total; i++) {
+            claveSugerencia[i] = (int) (pares[i] >>> 32);
+            claveInicio[i] = (int) pares[i];
+        }
+        claves = total;
+        ordenadas = cantidad;
+        recientes.clear();
+        
+        hojas = Integer.highestOneBit(Math.max(1, total - 1)) << 1;
+        arbol = new int[2 * hojas];
+        Arrays.fill(arbol, -1);
+        for (int i = 0; i < total; i++) {
+            arbol[hojas + i] = pesoHoja(claveSugerencia[i]);
+        }
+        for (int nodo = hojas - 1; nodo >= 1; nodo--) {
+            arbol[nodo] = Math.max(arbol[2 * nodo], arbol[2 * nodo + 1]);
+        }
+    }
+    
+    // Mergesort de pares (sugerencia, inicio de clave) por el texto de la clave y luego por sugerencia
+    private void ordenarPares(long[] pares, long[] auxiliar, int desde, int hasta) {
+        if (hasta - desde < 2) {
+            return;
+        }
+        int medio = (desde + hasta) >>> 1;
+        ordenarPares(pares, auxiliar, desde, medio);
+        ordenarPares(pares, auxiliar, medio, hasta);
+        if (compararPares(pares[medio - 1], pares[medio]) <= 0) {
+            return;
+        }
+        System.arraycopy(pares, desde, auxiliar, desde, hasta - desde);
+        int i = desde;
+        int j = medio;
+        for (int destino = desde; destino < hasta; destino++) {
+            if (j >= hasta || (i < medio && compararPares(auxiliar[i], auxiliar[j]) <= 0)) {
+                pares[destino] = auxiliar[i++];
+            } else {
+                pares[destino] = auxiliar[j++];
+            }
+        }
+    }
+    
+    private int compararPares(long a, long b) {
+        int idA = (int) (a >>> 32);
+        int idB = (int) (b >>> 32);
+        int comparacion = compararClaves(idA, (int) a, idB, (int) b);
+        return comparacion != 0 ? comparacion : Integer.compare(idA, idB);
+    }
+    
+    private int compararClaves(int idA, int desdeA, int idB, int desdeB) {
+        int finA = inicio[idA] + largo[idA];
+        int finB = inicio[idB] + largo[idB];
+        while (desdeA < finA && desdeB < finB) {
+            int diferencia = normalizados[desdeA++] - normalizados[desdeB++];
+            if (diferencia != 0) {
+                return diferencia;
+            }
+        }
+        return Integer.compare(finA - desdeA, finB - desdeB);
+    }
+    
+    /**
+     * Poner el peso actual de la sugerencia en las hojas de sus claves ordenadas
+     */
+    private void actualizarHojas(int id) {
+        if (id >= ordenadas) {
+            return;
+        }
+        int peso = pesoHoja(id);
+        for (int clave : inicioClaves(id)) {
+            int posicion = posicionClave(id, clave);
+            if (posicion < 0) {
+                continue;
+            }
+            int nodo = hojas + posicion;
+            arbol[nodo] = peso;
+            for (nodo >>= 1; nodo >= 1; nodo >>= 1) {
+                arbol[nodo] = Math.max(arbol[2 * nodo], arbol[2 * nodo + 1]);
+            }
+        }
+    }
+    
+    private int posicionClave(int id, int clave) {
+        int bajo = 0;
+        int alto = claves - 1;
+        while (bajo <= alto) {
+            int medio = (bajo + alto) >>> 1;
+            int comparacion = compararClaves(claveSugerencia[medio], claveInicio[medio], id, clave);
+            if (comparacion == 0) {
+                comparacion = Integer.compare(claveSugerencia[medio], id);
+            }
+            if (comparacion == 0) {
+                return medio;
+            } else if (comparacion < 0) {
+                bajo = medio + 1;
+            } else {
+                alto = medio - 1;
+            }
+        }
+        return -1;
+    }
+    
+    private int pesoHoja(int id) {
+        return usos[id] > 0 ? Math.max(0, pesos[id]) : -1;
+    }
+    
+    // =============== SUGERENCIAS ===============
+    
+    private int nuevaSugerencia(byte codigo, String texto, String normalizado, int peso) {
+        int id = cantidad++;
+        if (id == inicio.length) {
+            int capacidad = id * 2;
+            tipoDe = Arrays.copyOf(tipoDe, capacidad);
+            inicio = Arrays.copyOf(inicio, capacidad);
+            largo = Arrays.copyOf(largo, capacidad);
+            pesos = Arrays.copyOf(pesos, capacidad);
+            usos = Arrays.copyOf(usos, capacidad);
+        }
+        if (largoNormalizados + normalizado.length() > normalizados.length) {
+            normalizados = Arrays.copyOf(normalizados, Math.max(normalizados.length * 2, largoNormalizados + normalizado.length()));
+        }
+        normalizado.getChars(0, normalizado.length(), normalizados, largoNormalizados);
+        
+        textos.add(texto);
+        tipoDe[id] = codigo;
+        inicio[id] = largoNormalizados;
+        largo[id] = normalizado.length();
+        pesos[id] = peso;
+        usos[id] = 1;
+        largoNormalizados += normalizado.length();
+        
+        // Mantener la tabla llena a menos de la mitad
+        if (cantidad * 2 > tabla.length) {
+            tabla = new int[tabla.length * 2];
+            for (int i = 0; i < cantidad; i++) {
+                ubicarEnTabla(i);
+            }
+        } else {
+            ubicarEnTabla(id);
+        }
+        return id;
+    }
+    
+    /**
+     * Posición en normalizados donde empieza cada clave de la sugerencia
+     */
+    private int[] inicioClaves(int id) {
+        int[] inicios = new int[MAX_PALABRAS_CLAVE];
+        int n = 0;
+        int fin = inicio[id] + largo[id];
+        inicios[n++] = inicio[id];
+        for (int i = inicio[id]; i < fin && n < MAX_PALABRAS_CLAVE; i++) {
+            if (normalizados[i] == ' ') {
+                inicios[n++] = i + 1;
+            }
+        }
+        return n == inicios.length ? inicios : Arrays.copyOf(inicios, n);
+    }
+    
+    private byte codigoTipo(String tipo) {
+        int codigo = tipos.indexOf(tipo);
+        if (codigo < 0) {
+            codigo = tipos.size();
+            tipos.add(tipo);
+        }
+        return (byte) codigo;
+    }
+    
+    private int buscar(byte codigo, String normalizado) {
+        int mascara = tabla.length - 1;
+        for (int i = mezclar(normalizado.hashCode(), codigo) & mascara; tabla[i] != 0; i = (i + 1) & mascara) {
+            int id = tabla[i] - 1;
+            if (tipoDe[id] == codigo && largo[id] == normalizado.length()
+                    && normalizado.contentEquals(CharBuffer.wrap(normalizados, inicio[id], largo[id]))) {
+                return id;
+            }
+        }
+        return -1;
+    }
+    
+    private void ubicarEnTabla(int id) {
+        // Mismo hash que String.hashCode(), calculado sobre normalizados
+        int hash = 0;
+        for (int i = inicio[id]; i < inicio[id] + largo[id]; i++) {
+            hash = 31 * hash + normalizados[i];
+        }
+        int mascara = tabla.length - 1;
+        int i = mezclar(hash, tipoDe[id]) & mascara;
+        while (tabla[i] != 0) {
+            i = (i + 1) & mascara;
+        }
+        tabla[i] = id + 1;
+    }
+    
+    private static int mezclar(int hash, byte codigo) {
+        int h = hash * 31 + codigo;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,63 @@
+package com.pointerfaz.busqueda;
+
+/**
+ * Distancia de edición entre palabras para la búsqueda aproximada
+ * Cuenta inserciones, borrados, sustituciones y el cambio de dos letras
+ * seguidas ("cervatnes" -> "cervantes") como una sola edición.
+ */
+final class DistanciaEdicion {
+    
+    private DistanciaEdicion() {
+    }
+    
+    /**
+     * Ediciones que se toleran según el largo de la palabra buscada
+     * (las palabras cortas tienen que estar bien escritas)
+     */
+    static int maximaPara(int largo) {
+        if (largo <= 3) {
+            return 0;
+        }
+        return largo <= 7 ? 1 : 2;
+    }
+    
+    /**
+     * @return distancia entre a y b, o maxima + 1 si pasa de maxima
+     * (deja de calcular en cuanto una fila entera pasa del máximo)
+     */
+    static int calcular(String a, String b, int maxima) {
+        if (Math.abs(a.length() - b.length()) > maxima) {
+            return maxima + 1;
+        }
+        
+        int columnas = b.length() + 1;
+        int[] anterior2 = new int[columnas];
+        int[] anterior = new int[columnas];
+        int[] actual = new int[columnas];
+        for (int j = 0; j < columnas; j++) {
+            anterior[j] = j;
+        }
+        
+        for (int i = 1; i <= a.length(); i++) {
+            actual[0] = i;
+            int minimoFila = i;
+            for (int j = 1; j < columnas; j++) {
+                int coste = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int valor = Math.min(Math.min(anterior[j] + 1, actual[j - 1] + 1), anterior[j - 1] + coste);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    valor = Math.min(valor, anterior2[j - 2] + 1);
+                }
+                actual[j] = valor;
+                minimoFila = Math.min(minimoFila, valor);
+            }
+            if (minimoFila > maxima) {
+                return maxima + 1;
+            }
+            int[] libre = anterior2;
+            anterior2 = anterior;
+            anterior = actual;
+            actual = libre;
+        }
+        return Math.min(anterior[columnas - 1], maxima + 1);
+    }
+}
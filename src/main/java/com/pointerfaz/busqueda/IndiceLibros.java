@@ -0,0 +1,855 @@
+package com.pointerfaz.busqueda;
+
+import com.pointerfaz.dao.EscuchaCambios;
+import com.pointerfaz.dao.LibroDAO;
+import com.pointerfaz.modelo.Libro;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido en memoria para la búsqueda de libros mientras se escribe
+ *
+ * Cada libro es un documento con un número interno; por campo (título, autor,
+ * ISBN, categoría) se guarda término normalizado -> lista ordenada de documentos
+ * en un int[]. Una búsqueda interseca las listas de sus palabras, y la última
+ * palabra se toma como prefijo ("cerv" encuentra "Cervantes"), sin ir a la base
+ * de datos.
+ *
+ * Los resultados se ordenan por relevancia BM25F: cada campo tiene su refuerzo
+ * (el título pesa más que la editorial), las palabras raras pesan más que las
+ * comunes y los campos cortos más que los largos. Solo se guardan los mejores
+ * en un montículo del tamaño pedido, sin ordenar todas las coincidencias.
+ * Un ISBN escrito completo pone su libro primero.
+ *
+ * Para las facetas (categoría, estado, década y referencia) cada valor tiene un
+ * MapaBits con sus documentos; contar una faceta de un resultado es intersecar
+ * mapas, sin consultas a la base de datos.
+ *
+ * Para la búsqueda aproximada, las palabras de título y autor forman además un
+ * vocabulario con índice de trigramas (ver VocabularioTrigramas).
+ *
+ * El índice se mantiene al día como escucha de LibroDAO: un libro modificado
+ * recibe un documento nuevo y el anterior queda borrado hasta que se compacta.
+ * Se guarda en disco como segmentos (ver AlmacenSegmentos) para arrancar sin
+ * leer todo el catálogo.
+ */
+public class IndiceLibros implements EscuchaCambios<Libro> {
+    
+    static final int TITULO = 0;
+    static final int AUTOR = 1;
+    static final int ISBN = 2;
+    static final int CATEGORIA = 3;
+    static final int EDITORIAL = 4;
+    private static final int CAMPOS = 5;
+    
+    // Refuerzo de cada campo en la relevancia (el ISBN solo cuenta si es exacto)
+    private static final double[] REFUERZOS = {3.0, 2.0, 0.0, 0.5, 1.0};
+    // Parámetros de BM25: saturación de la frecuencia y peso del largo del campo
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    
+    public static final String FACETA_CATEGORIA = "categoria";
+    public static final String FACETA_ESTADO = "estado";
+    public static final String FACETA_DECADA = "decada";
+    public static final String FACETA_REFERENCIA = "referencia";
+    
+    // Se compacta cuando los documentos borrados pasan de este mínimo y de un cuarto del total
+    private static final int MINIMO_BORRADOS_COMPACTAR = 1024;
+    
+    // Se publica recién cargado: quien lo lee sin el monitor de la clase nunca ve un índice a medias
+    private static volatile IndiceLibros compartido;
+    
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private final List<TreeMap<String, ListaEnteros>> terminos = new ArrayList<>();
+    private final VocabularioTrigramas vocabulario = new VocabularioTrigramas();
+    private final Map<Integer, Integer> documentoDeLibro = new HashMap<>();
+    // Faceta -> valor -> documentos vivos con ese valor
+    private final Map<String, Map<String, MapaBits>> facetas = new LinkedHashMap<>();
+    private MapaBits vivos = new MapaBits();
+    private Libro[] documentos = new Libro[1024];
+    // Palabras de cada campo por documento (hasta 255) y su suma entre los vivos
+    private byte[][] longitudes = new byte[CAMPOS][1024];
+    private final long[] sumaLongitudes = new long[CAMPOS];
+    private int totalDocumentos;
+    private int borrados;
+    
+    public IndiceLibros() {
+        for (int i = 0; i < CAMPOS; i++) {
+            terminos.add(new TreeMap<>());
+        }
+        for (String faceta : List.of(FACETA_CATEGORIA, FACETA_ESTADO, FACETA_DECADA, FACETA_REFERENCIA)) {
+            facetas.put(faceta, new HashMap<>());
+        }
+    }
+    
+    /**
+     * Índice de toda la aplicación
+     * La primera llamada lo carga de los segmentos guardados en disco (o, si no
+     * sirven, desde la base de datos) y lo registra en LibroDAO. Si la base de
+     * datos no respondió no se publica un índice vacío: la próxima llamada lo reintenta
+     * @return el índice, o null si no se pudo cargar
+     */
+    public static synchronized IndiceLibros compartido() {
+        if (compartido == null) {
+            IndiceLibros indice = new IndiceLibros();
+            // Registrar antes de cargar: un cambio durante la carga espera al cerrojo y se aplica después
+            LibroDAO.registrarEscucha(indice);
+            AlmacenSegmentos almacen = new AlmacenSegmentos(AlmacenSegmentos.directorioPorDefecto(), indice, new LibroDAO());
+            LibroDAO.registrarEscucha(almacen);
+            if (!almacen.abrir()) {
+                LibroDAO.quitarEscucha(almacen);
+                LibroDAO.quitarEscucha(indice);
+                return null;
+            }
+            compartido = indice;
+        }
+        return compartido;
+    }
+    
+    /**
+     * Índice de toda la aplicación si ya terminó de cargarse, sin esperar
+     * Para el hilo de eventos: compartido() retiene el monitor de la clase durante
+     * toda la carga, y esperarlo congelaría la interfaz
+     * @return el índice, o null mientras se carga, si la carga falló o si nadie pidió cargarlo
+     */
+    public static IndiceLibros siEstaCargado() {
+        return compartido;
+    }
+    
+    /**
+     * Volver a cargar el índice con todo el catálogo
+     * @return false si la lectura del catálogo falló y el índice quedó incompleto
+     */
+    public boolean reconstruir(LibroDAO libroDAO) {
+        cerrojo.writeLock().lock();
+        try {
+            limpiar(1024);
+            return libroDAO.recorrerLibros(this::indexar);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+    
+    private void limpiar(int capacidad) {
+        terminos.forEach(TreeMap::clear);
+        vocabulario.limpiar();
+        facetas.values().forEach(Map::clear);
+        vivos = new MapaBits();
+        documentoDeLibro.clear();
+        documentos = new Libro[capacidad];
+        longitudes = new byte[CAMPOS][capacidad];
+        Arrays.fill(sumaLongitudes, 0);
+        totalDocumentos = 0;
+        borrados = 0;
+    }
+    
+    /**
+     * Buscar libros que contengan todas las palabras del texto
+     * (en cualquiera de los campos indexados; la última puede estar incompleta)
+     * @param limite máximo de libros a devolver
+     * @return copias de los libros encontrados, de más a menos relevante
+     */
+    public List<Libro> buscar(String texto, int limite) {
+        cerrojo.readLock().lock();
+        try {
+            List<PalabraConsulta> palabras = interpretar(texto);
+            int[] encontrados = buscarDocumentos(palabras, Integer.MAX_VALUE);
+            return masRelevantes(new Relevancia(texto, palabras), encontrados, limite);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Buscar con filtros por faceta y contar cuántas coincidencias hay por cada
+     * valor de categoría, estado, década y referencia
+     * Cada faceta se cuenta sin su propio filtro, para que se vean las demás
+     * opciones de esa faceta y no solo la elegida.
+     * @param texto palabras a buscar, como en buscar; vacío para todo el catálogo
+     * @param filtros faceta (FACETA_*) -> valor elegido; los filtros se combinan con "y"
+     * @param limite máximo de libros a devolver, de más a menos relevante (sin texto,
+     * en orden de alta); los conteos son de todas las coincidencias
+     */
+    public ResultadoBusqueda buscarConFacetas(String texto, Map<String, String> filtros, int limite) {
+        cerrojo.readLock().lock();
+        try {
+            boolean sinTexto = texto == null || texto.isBlank();
+            List<PalabraConsulta> palabras = sinTexto ? List.of() : interpretar(texto);
+            MapaBits encontrados;
+            if (sinTexto) {
+                encontrados = vivos;
+            } else {
+                encontrados = new MapaBits();
+                for (int documento : buscarDocumentos(palabras, Integer.MAX_VALUE)) {
+                    encontrados.agregar(documento);
+                }
+            }
+            
+            Map<String, MapaBits> elegidos = new HashMap<>();
+            for (Map.Entry<String, String> filtro : filtros.entrySet()) {
+                MapaBits valor = facetas.getOrDefault(filtro.getKey(), Map.of()).get(filtro.getValue());
+                elegidos.put(filtro.getKey(), valor == null ? new MapaBits() : valor);
+            }
+            MapaBits coincidencias = filtrar(encontrados, elegidos, null);
+            
+            List<Libro> libros = new ArrayList<>();
+            if (sinTexto) {
+                for (int documento = coincidencias.siguiente(0); documento >= 0 && libros.size() < limite;
+                        documento = coincidencias.siguiente(documento + 1)) {
+                    libros.add(new Libro(documentos[documento]));
+                }
+            } else {
+                libros = masRelevantes(new Relevancia(texto, palabras), coincidencias.aArreglo(), limite);
+            }
+            
+            Map<String, Map<String, Integer>> conteos = new LinkedHashMap<>();
+            for (Map.Entry<String, Map<String, MapaBits>> faceta : facetas.entrySet()) {
+                MapaBits base = elegidos.containsKey(faceta.getKey())
+                        ? filtrar(encontrados, elegidos, faceta.getKey())
+                        : coincidencias;
+                conteos.put(faceta.getKey(), contar(faceta.getKey(), faceta.getValue(), base));
+            }
+            return new ResultadoBusqueda(libros, coincidencias.cardinalidad(), conteos);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+    
+    // Intersecar con los filtros elegidos, salvo el de la faceta excluida
+    private static MapaBits filtrar(MapaBits encontrados, Map<String, MapaBits> elegidos, String excluida) {
+        MapaBits resultado = encontrados;
+        for (Map.Entry<String, MapaBits> filtro : elegidos.entrySet()) {
+            if (!filtro.getKey().equals(excluida)) {
+                resultado = resultado.interseccion(filtro.getValue());
+            }
+        }
+        return resultado;
+    }
+    
+    /**
+     * Coincidencias por valor de una faceta, de más a menos (las décadas en orden cronológico)
+     */
+    private static Map<String, Integer> contar(String faceta, Map<String, MapaBits> valores, MapaBits coincidencias) {
+        List<Map.Entry<String, Integer>> conteos = new ArrayList<>();
+        for (Map.Entry<String, MapaBits> valor : valores.entrySet()) {
+            int cantidad = valor.getValue().contarComunes(coincidencias);
+            if (cantidad > 0) {
+                conteos.add(Map.entry(valor.getKey(), cantidad));
+            }
+        }
+        if (FACETA_DECADA.equals(faceta)) {
+            conteos.sort(Map.Entry.comparingByKey());
+        } else {
+            conteos.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        }
+        Map<String, Integer> resultado = new LinkedHashMap<>();
+        conteos.forEach(conteo -> resultado.put(conteo.getKey(), conteo.getValue()));
+        return resultado;
+    }
+    
+    /**
+     * Los limite documentos con más puntaje, de mayor a menor; un montículo con
+     * el peor arriba evita ordenar todos los candidatos
+     */
+    private List<Libro> masRelevantes(Relevancia relevancia, int[] candidatos, int limite) {
+        List<Libro> resultado = new ArrayList<>();
+        if (limite <= 0) {
+            return resultado;
+        }
+        PriorityQueue<Coincidencia> mejores = new PriorityQueue<>(Math.min(limite, candidatos.length) + 1, Coincidencia.PEOR_PRIMERO);
+        for (int documento : candidatos) {
+            double puntaje = relevancia.puntuar(documento);
+            // Con el montículo lleno, solo entra quien supera al peor (a igual puntaje gana el menor número)
+            if (mejores.size() == limite && puntaje <= mejores.peek().puntaje) {
+                continue;
+            }
+            mejores.add(new Coincidencia(documento, puntaje));
+            if (mejores.size() > limite) {
+                mejores.poll();
+            }
+        }
+        
+        List<Coincidencia> ordenadas = new ArrayList<>(mejores);
+        ordenadas.sort(Coincidencia.PEOR_PRIMERO.reversed());
+        for (Coincidencia coincidencia : ordenadas) {
+            resultado.add(new Libro(documentos[coincidencia.documento]));
+        }
+        return resultado;
+    }
+    
+    /**
+     * Documentos vivos que cumplen la búsqueda, en orden, como máximo limite
+     * Se llama con el cerrojo de lectura tomado
+     */
+    int[] buscarDocumentos(String texto, int limite) {
+        return buscarDocumentos(interpretar(texto), limite);
+    }
+    
+    private int[] buscarDocumentos(List<PalabraConsulta> palabras, int limite) {
+        if (palabras.isEmpty() || limite <= 0) {
+            return new int[0];
+        }
+        
+        // Recorrer la palabra con menos documentos y preguntar a las demás por cada candidato
+        palabras.sort(Comparator.comparingLong(PalabraConsulta::total));
+        PalabraConsulta.Recorrido candidatos = palabras.get(0).recorrer();
+        for (int i = 1; i < palabras.size(); i++) {
+            palabras.get(i).prepararComprobacion(palabras.get(0).total());
+        }
+        
+        int[] encontrados = new int[Math.min(limite, 64)];
+        int cantidad = 0;
+        int documento;
+        while (cantidad < limite && (documento = candidatos.siguiente()) >= 0) {
+            if (documentos[documento] == null || !contieneTodas(palabras, documento)) {
+                continue;
+            }
+            if (cantidad == encontrados.length) {
+                encontrados = Arrays.copyOf(encontrados, Math.min(limite, cantidad * 2));
+            }
+            encontrados[cantidad++] = documento;
+        }
+        return Arrays.copyOf(encontrados, cantidad);
+    }
+    
+    private boolean contieneTodas(List<PalabraConsulta> palabras, int documento) {
+        List<String> terminosLibro = null;
+        for (int i = 1; i < palabras.size(); i++) {
+            PalabraConsulta palabra = palabras.get(i);
+            if (terminosLibro == null && palabra.necesitaTerminos()) {
+                terminosLibro = terminosDe(documentos[documento]);
+            }
+            if (!palabra.contiene(documento, terminosLibro)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Pasar el texto a palabras de consulta; la última es prefijo salvo que el texto termine en espacio
+     */
+    private List<PalabraConsulta> interpretar(String texto) {
+        List<PalabraConsulta> consulta = new ArrayList<>();
+        
+        // Un ISBN escrito con guiones ("84-376-04") se busca junto y por prefijo en el campo ISBN
+        String isbn = Normalizador.compactarIsbn(texto);
+        if (isbn.length() >= 3 && texto.indexOf('-') >= 0) {
+            List<ListaEnteros> listas = new ArrayList<>();
+            agregarListas(terminos.get(ISBN), isbn, true, listas);
+            int[] campos = new int[listas.size()];
+            Arrays.fill(campos, ISBN);
+            consulta.add(new PalabraConsulta(isbn, true, listas, campos));
+            return consulta;
+        }
+        
+        List<String> palabras = Normalizador.tokens(texto);
+        boolean ultimaCompleta = !texto.isEmpty() && Character.isWhitespace(texto.charAt(texto.length() - 1));
+        for (int i = 0; i < palabras.size(); i++) {
+            boolean prefijo = i == palabras.size() - 1 && !ultimaCompleta;
+            List<ListaEnteros> listas = new ArrayList<>();
+            List<Integer> campos = new ArrayList<>();
+            for (int campo = 0; campo < CAMPOS; campo++) {
+                agregarListas(terminos.get(campo), palabras.get(i), prefijo, listas);
+                while (campos.size() < listas.size()) {
+                    campos.add(campo);
+                }
+            }
+            consulta.add(new PalabraConsulta(palabras.get(i), prefijo, listas, campos.stream().mapToInt(Integer::intValue).toArray()));
+        }
+        return consulta;
+    }
+    
+    /**
+     * Búsqueda tolerante a errores de escritura en título y autor
+     * Cada palabra acepta términos a una o dos ediciones según su largo
+     * ("garsia marques" encuentra "García Márquez"), sin tildes ni mayúsculas.
+     * @param limite máximo de libros a devolver
+     * @return copias de los libros encontrados, de más a menos parecido
+     */
+    public List<Libro> buscarAproximado(String texto, int limite) {
+        cerrojo.readLock().lock();
+        try {
+            List<String> palabras = Normalizador.tokens(texto);
+            List<Libro> resultado = new ArrayList<>();
+            if (palabras.isEmpty() || limite <= 0) {
+                return resultado;
+            }
+            
+            // Por palabra: términos parecidos con su similitud, y sus listas de documentos
+            List<Map<String, Double>> parecidos = new ArrayList<>();
+            PalabraConsulta masRara = null;
+            for (String palabra : palabras) {
+                Map<String, Double> similitudes = vocabulario.parecidos(palabra, DistanciaEdicion.maximaPara(palabra.length()));
+                if (similitudes.isEmpty()) {
+                    return resultado;
+                }
+                List<ListaEnteros> listas = new ArrayList<>();
+                for (String termino : similitudes.keySet()) {
+                    agregarListas(terminos.get(TITULO), termino, false, listas);
+                    agregarListas(terminos.get(AUTOR), termino, false, listas);
+                }
+                PalabraConsulta consulta = new PalabraConsulta(palabra, false, listas);
+                if (masRara == null || consulta.total() < masRara.total()) {
+                    masRara = consulta;
+                }
+                parecidos.add(similitudes);
+            }
+            
+            // Puntuar los documentos de la palabra más rara y quedarse con los mejores
+            PriorityQueue<Coincidencia> mejores = new PriorityQueue<>(Coincidencia.PEOR_PRIMERO);
+            PalabraConsulta.Recorrido candidatos = masRara.recorrer();
+            int documento;
+            while ((documento = candidatos.siguiente()) >= 0) {
+                if (documentos[documento] == null) {
+                    continue;
+                }
+                double puntaje = puntuar(documentos[documento], parecidos);
+                if (puntaje > 0) {
+                    mejores.add(new Coincidencia(documento, puntaje));
+                    if (mejores.size() > limite) {
+                        mejores.poll();
+                    }
+                }
+            }
+            
+            List<Coincidencia> ordenadas = new ArrayList<>(mejores);
+            ordenadas.sort(Coincidencia.PEOR_PRIMERO.reversed());
+            for (Coincidencia coincidencia : ordenadas) {
+                resultado.add(new Libro(documentos[coincidencia.documento]));
+            }
+            return resultado;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Suma, por palabra buscada, la similitud del término más parecido del libro
+     * @return 0 si alguna palabra no tiene ningún término parecido en el libro
+     */
+    private static double puntuar(Libro libro, List<Map<String, Double>> parecidos) {
+        List<String> terminosLibro = Normalizador.tokens(libro.getTitulo());
+        terminosLibro.addAll(Normalizador.tokens(libro.getAutor()));
+        
+        double puntaje = 0;
+        for (Map<String, Double> similitudes : parecidos) {
+            double mejor = 0;
+            for (String termino : terminosLibro) {
+                mejor = Math.max(mejor, similitudes.getOrDefault(termino, 0.0));
+            }
+            if (mejor == 0) {
+                return 0;
+            }
+            puntaje += mejor;
+        }
+        return puntaje;
+    }
+    
+    /**
+     * Puntaje BM25F de los documentos para una consulta
+     * Por palabra se suman los campos donde aparece, cada uno con su refuerzo y
+     * normalizado por su largo frente al promedio; la suma se satura con K1 y se
+     * multiplica por el idf de la palabra. La frecuencia sale de las listas, que
+     * no guardan repeticiones: en títulos y nombres cortos es casi siempre 1.
+     */
+    private final class Relevancia {
+        
+        private final List<PalabraConsulta> palabras;
+        private final double[] idf;
+        private final double[] longitudMedia = new double[CAMPOS];
+        // Documentos con el ISBN exacto buscado (van primero), o null
+        private final ListaEnteros isbnExacto;
+        
+        Relevancia(String texto, List<PalabraConsulta> palabras) {
+            this.palabras = palabras;
+            int vivosIndice = documentoDeLibro.size();
+            for (int campo = 0; campo < CAMPOS; campo++) {
+                longitudMedia[campo] = vivosIndice == 0 ? 1 : Math.max(1.0, (double) sumaLongitudes[campo] / vivosIndice);
+            }
+            idf = new double[palabras.size()];
+            for (int i = 0; i < idf.length; i++) {
+                double frecuencia = Math.min(palabras.get(i).total(), vivosIndice);
+                idf[i] = Math.log(1 + (vivosIndice - frecuencia + 0.5) / (frecuencia + 0.5));
+            }
+            String isbn = Normalizador.compactarIsbn(texto);
+            isbnExacto = isbn.length() >= 10 ? terminos.get(ISBN).get(isbn) : null;
+        }
+        
+        double puntuar(int documento) {
+            if (isbnExacto != null && isbnExacto.contiene(documento)) {
+                return Double.POSITIVE_INFINITY;
+            }
+            double puntaje = 0;
+            for (int i = 0; i < palabras.size(); i++) {
+                double frecuencia = 0;
+                for (int campo = 0; campo < CAMPOS; campo++) {
+                    if (REFUERZOS[campo] > 0 && palabras.get(i).enCampo(campo).get(documento)) {
+                        double largo = longitudes[campo][documento] & 0xFF;
+                        frecuencia += REFUERZOS[campo] / (1 - B + B * largo / longitudMedia[campo]);
+                    }
+                }
+                puntaje += idf[i] * frecuencia * (K1 + 1) / (K1 + frecuencia);
+            }
+            return puntaje;
+        }
+    }
+    
+    /**
+     * Documento con su puntaje; a igual puntaje va primero el de menor número
+     */
+    private static final class Coincidencia {
+        
+        static final Comparator<Coincidencia> PEOR_PRIMERO = Comparator
+                .comparingDouble((Coincidencia c) -> c.puntaje)
+                .thenComparing(Comparator.comparingInt((Coincidencia c) -> c.documento).reversed());
+        
+        final int documento;
+        final double puntaje;
+        
+        Coincidencia(int documento, double puntaje) {
+            this.documento = documento;
+            this.puntaje = puntaje;
+        }
+    }
+    
+    private static void agregarListas(TreeMap<String, ListaEnteros> campo, String palabra, boolean prefijo, List<ListaEnteros> destino) {
+        if (prefijo) {
+            NavigableMap<String, ListaEnteros> rango = campo.subMap(palabra, true, palabra + Character.MAX_VALUE, true);
+            destino.addAll(rango.values());
+        } else {
+            ListaEnteros lista = campo.get(palabra);
+            if (lista != null) {
+                destino.add(lista);
+            }
+        }
+    }
+    
+    @Override
+    public void guardado(Libro libro) {
+        cerrojo.writeLock().lock();
+        try {
+            indexar(libro);
+            compactarSiConviene();
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void eliminado(int id) {
+        cerrojo.writeLock().lock();
+        try {
+            Integer documento = documentoDeLibro.remove(id);
+            if (documento != null) {
+                borrar(documento);
+            }
+            compactarSiConviene();
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void desactualizado() {
+        reconstruir(new LibroDAO());
+    }
+    
+    /**
+     * @return documentos borrados que esperan la próxima compactación
+     */
+    int documentosBorrados() {
+        cerrojo.readLock().lock();
+        try {
+            return borrados;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+    
+    /**
+     * @return libros en el índice
+     */
+    public int tamano() {
+        cerrojo.readLock().lock();
+        try {
+            return documentoDeLibro.size();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Escribir todo el índice como segmento BASE: los libros vivos numerados sin
+     * huecos, con el largo de cada campo, y por campo sus términos en orden con
+     * sus documentos (cada lista termina con un texto null)
+     * Mientras escribe tiene el cerrojo de lectura: las búsquedas siguen y los cambios esperan.
+     */
+    void escribirBase(Segmento.Escritor salida) throws IOException {
+        cerrojo.readLock().lock();
+        try {
+            int[] nuevoNumero = new int[totalDocumentos];
+            int cantidad = 0;
+            for (int i = 0; i < totalDocumentos; i++) {
+                nuevoNumero[i] = documentos[i] == null ? -1 : cantidad++;
+            }
+            
+            salida.varint(cantidad);
+            for (int i = 0; i < totalDocumentos; i++) {
+                if (documentos[i] != null) {
+                    salida.libro(documentos[i]);
+                    for (int campo = 0; campo < CAMPOS; campo++) {
+                        salida.octeto(longitudes[campo][i]);
+                    }
+                }
+            }
+            
+            int[] lista = new int[64];
+            for (TreeMap<String, ListaEnteros> campo : terminos) {
+                for (Map.Entry<String, ListaEnteros> termino : campo.entrySet()) {
+                    ListaEnteros documentosTermino = termino.getValue();
+                    if (lista.length < documentosTermino.tamano()) {
+                        lista = new int[documentosTermino.tamano()];
+                    }
+                    int vivosTermino = 0;
+                    for (int i = 0; i < documentosTermino.tamano(); i++) {
+                        int nuevo = nuevoNumero[documentosTermino.obtener(i)];
+                        if (nuevo >= 0) {
+                            lista[vivosTermino++] = nuevo;
+                        }
+                    }
+                    if (vivosTermino == 0) {
+                        continue;
+                    }
+                    
+                    salida.texto(termino.getKey());
+                    salida.varint(vivosTermino);
+                    int anterior = 0;
+                    for (int i = 0; i < vivosTermino; i++) {
+                        salida.varint(lista[i] - anterior);
+                        anterior = lista[i];
+                    }
+                }
+                salida.texto(null);
+            }
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Reemplazar el contenido del índice por un segmento BASE
+     * Si el segmento no se puede leer el índice queda vacío y se lanza la excepción.
+     */
+    void cargarBase(Segmento.Lector entrada) throws IOException {
+        cerrojo.writeLock().lock();
+        try {
+            int cantidad = entrada.varint();
+            limpiar(Math.max(1024, cantidad));
+            for (int documento = 0; documento < cantidad; documento++) {
+                Libro libro = entrada.libro();
+                documentos[documento] = libro;
+                documentoDeLibro.put(libro.getId(), documento);
+                for (int campo = 0; campo < CAMPOS; campo++) {
+                    longitudes[campo][documento] = (byte) entrada.octeto();
+                    sumaLongitudes[campo] += longitudes[campo][documento] & 0xFF;
+                }
+            }
+            totalDocumentos = cantidad;
+            
+            for (int campo = 0; campo < CAMPOS; campo++) {
+                String termino;
+                while ((termino = entrada.texto()) != null) {
+                    int[] lista = new int[entrada.varint()];
+                    int documento = 0;
+                    for (int i = 0; i < lista.length; i++) {
+                        documento += entrada.varint();
+                        if (documento >= cantidad) {
+                            throw new IOException("Documento fuera de rango en el término " + termino);
+                        }
+                        lista[i] = documento;
+                    }
+                    terminos.get(campo).put(termino, new ListaEnteros(lista));
+                    if (campo == TITULO || campo == AUTOR) {
+                        vocabulario.agregar(termino);
+                    }
+                }
+            }
+            
+            for (int documento = 0; documento < cantidad; documento++) {
+                agregarAFacetas(documento);
+            }
+        } catch (IOException | RuntimeException e) {
+            limpiar(1024);
+            throw e;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Agregar (o reemplazar) un libro; se llama con el cerrojo de escritura tomado
+     */
+    private void indexar(Libro libro) {
+        Integer anterior = documentoDeLibro.get(libro.getId());
+        if (anterior != null) {
+            borrar(anterior);
+        }
+        
+        int documento = totalDocumentos++;
+        if (documento == documentos.length) {
+            documentos = Arrays.copyOf(documentos, documentos.length * 2);
+            for (int campo = 0; campo < CAMPOS; campo++) {
+                longitudes[campo] = Arrays.copyOf(longitudes[campo], documentos.length);
+            }
+        }
+        documentos[documento] = new Libro(libro);
+        documentoDeLibro.put(libro.getId(), documento);
+        
+        agregarTerminos(TITULO, Normalizador.tokens(libro.getTitulo()), documento);
+        agregarTerminos(AUTOR, Normalizador.tokens(libro.getAutor()), documento);
+        agregarTerminos(CATEGORIA, Normalizador.tokens(libro.getCategoria()), documento);
+        agregarTerminos(EDITORIAL, Normalizador.tokens(libro.getEditorial()), documento);
+        agregarTerminos(ISBN, terminosIsbn(libro), documento);
+        agregarAFacetas(documento);
+    }
+    
+    /**
+     * Marcar un documento como borrado (sus listas se limpian al compactar)
+     */
+    private void borrar(int documento) {
+        quitarDeFacetas(documento);
+        for (int campo = 0; campo < CAMPOS; campo++) {
+            sumaLongitudes[campo] -= longitudes[campo][documento] & 0xFF;
+        }
+        documentos[documento] = null;
+        borrados++;
+    }
+    
+    private void agregarAFacetas(int documento) {
+        Libro libro = documentos[documento];
+        vivos.agregar(documento);
+        facetas.get(FACETA_CATEGORIA).computeIfAbsent(valorCategoria(libro), k -> new MapaBits()).agregar(documento);
+        facetas.get(FACETA_ESTADO).computeIfAbsent(valorEstado(libro), k -> new MapaBits()).agregar(documento);
+        facetas.get(FACETA_DECADA).computeIfAbsent(valorDecada(libro), k -> new MapaBits()).agregar(documento);
+        facetas.get(FACETA_REFERENCIA).computeIfAbsent(valorReferencia(libro), k -> new MapaBits()).agregar(documento);
+    }
+    
+    private void quitarDeFacetas(int documento) {
+        Libro libro = documentos[documento];
+        vivos.quitar(documento);
+        facetas.get(FACETA_CATEGORIA).get(valorCategoria(libro)).quitar(documento);
+        facetas.get(FACETA_ESTADO).get(valorEstado(libro)).quitar(documento);
+        facetas.get(FACETA_DECADA).get(valorDecada(libro)).quitar(documento);
+        facetas.get(FACETA_REFERENCIA).get(valorReferencia(libro)).quitar(documento);
+    }
+    
+    private static String valorCategoria(Libro libro) {
+        String categoria = libro.getCategoria();
+        return categoria == null || categoria.isBlank() ? "Sin categoría" : categoria.strip();
+    }
+    
+    private static String valorEstado(Libro libro) {
+        String estado = libro.getEstado();
+        return estado == null || estado.isBlank() ? "Sin estado" : estado.strip();
+    }
+    
+    // Década como "1990-1999"
+    private static String valorDecada(Libro libro) {
+        int anio = libro.getAnioPublicacion();
+        if (anio <= 0) {
+            return "Sin año";
+        }
+        int decada = anio / 10 * 10;
+        return decada + "-" + (decada + 9);
+    }
+    
+    private static String valorReferencia(Libro libro) {
+        return libro.isEsReferencia() ? "Sí" : "No";
+    }
+    
+    // El ISBN se indexa entero y sin guiones para buscarlo por prefijo
+    private static List<String> terminosIsbn(Libro libro) {
+        String isbn = Normalizador.compactarIsbn(libro.getIsbn());
+        return isbn.isEmpty() ? Normalizador.tokens(libro.getIsbn()) : List.of(isbn);
+    }
+    
+    /**
+     * Todas las palabras indexadas de un libro, de todos los campos
+     */
+    private static List<String> terminosDe(Libro libro) {
+        List<String> terminos = new ArrayList<>(Normalizador.tokens(libro.getTitulo()));
+        terminos.addAll(Normalizador.tokens(libro.getAutor()));
+        terminos.addAll(Normalizador.tokens(libro.getCategoria()));
+        terminos.addAll(Normalizador.tokens(libro.getEditorial()));
+        terminos.addAll(terminosIsbn(libro));
+        return terminos;
+    }
+    
+    private void agregarTerminos(int campo, List<String> palabras, int documento) {
+        longitudes[campo][documento] = (byte) Math.min(palabras.size(), 255);
+        sumaLongitudes[campo] += longitudes[campo][documento] & 0xFF;
+        for (String palabra : palabras) {
+            terminos.get(campo).computeIfAbsent(palabra, k -> new ListaEnteros()).agregar(documento);
+            if (campo == TITULO || campo == AUTOR) {
+                vocabulario.agregar(palabra);
+            }
+        }
+    }
+    
+    /**
+     * Quitar de las listas los documentos borrados y renumerar los vivos
+     */
+    private void compactarSiConviene() {
+        if (borrados < MINIMO_BORRADOS_COMPACTAR || borrados < totalDocumentos / 4) {
+            return;
+        }
+        
+        int[] nuevoNumero = new int[totalDocumentos];
+        int vivos = 0;
+        for (int i = 0; i < totalDocumentos; i++) {
+            if (documentos[i] != null) {
+                nuevoNumero[i] = vivos;
+                documentos[vivos] = documentos[i];
+                for (int campo = 0; campo < CAMPOS; campo++) {
+                    longitudes[campo][vivos] = longitudes[campo][i];
+                }
+                documentoDeLibro.put(documentos[vivos].getId(), vivos);
+                vivos++;
+            } else {
+                nuevoNumero[i] = -1;
+            }
+        }
+        Arrays.fill(documentos, vivos, totalDocumentos, null);
+        totalDocumentos = vivos;
+        borrados = 0;
+        
+        for (TreeMap<String, ListaEnteros> campo : terminos) {
+            campo.values().removeIf(lista -> {
+                lista.renumerar(nuevoNumero);
+                return lista.tamano() == 0;
+            });
+        }
+        
+        facetas.values().forEach(Map::clear);
+        this.vivos = new MapaBits();
+        for (int i = 0; i < totalDocumentos; i++) {
+            agregarAFacetas(i);
+        }
+        
+        // Rehacer el vocabulario sin los términos que quedaron sin documentos
+        vocabulario.limpiar();
+        terminos.get(TITULO).keySet().forEach(vocabulario::agregar);
+        terminos.get(AUTOR).keySet().forEach(vocabulario::agregar);
+    }
+}
@@ -0,0 +1,276 @@
+package com.pointerfaz.busqueda;
+
+import com.pointerfaz.dao.EscuchaCambios;
+import com.pointerfaz.dao.UsuarioDAO;
+import com.pointerfaz.modelo.Estudiante;
+import com.pointerfaz.modelo.Persona;
+import com.pointerfaz.modelo.Profesor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido en memoria para la búsqueda de usuarios mientras se escribe
+ *
+ * Igual que IndiceLibros pero con un solo campo: las palabras de nombres,
+ * apellidos, email y código de estudiante o de empleado, sin tildes ni
+ * mayúsculas, apuntan a la lista ordenada de sus documentos. Un usuario
+ * coincide si tiene todas las palabras escritas; la última puede estar
+ * incompleta. El código se indexa además entero y sin separadores, así
+ * "est2024" encuentra "EST-2024-001".
+ *
+ * Se mantiene al día como escucha de UsuarioDAO: un usuario modificado recibe
+ * un documento nuevo y el anterior queda borrado hasta que se compacta. Guarda
+ * y entrega copias, así nadie cambia un usuario indexado sin reindexarlo.
+ */
+public class IndiceUsuarios implements EscuchaCambios<Persona> {
+    
+    // Se compacta cuando los documentos borrados pasan de este mínimo y de un cuarto del total
+    private static final int MINIMO_BORRADOS_COMPACTAR = 1024;
+    
+    // Se publica recién cargado: quien lo lee sin el monitor de la clase nunca ve un índice a medias
+    private static volatile IndiceUsuarios compartido;
+    
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private final TreeMap<String, ListaEnteros> terminos = new TreeMap<>();
+    private final Map<Integer, Integer> documentoDeUsuario = new HashMap<>();
+    private Persona[] documentos = new Persona[1024];
+    private int totalDocumentos;
+    private int borrados;
+    
+    /**
+     * Índice de toda la aplicación
+     * La primera llamada lo carga desde la base de datos y lo registra en UsuarioDAO
+     */
+    public static synchronized IndiceUsuarios compartido() {
+        if (compartido == null) {
+            IndiceUsuarios indice = new IndiceUsuarios();
+            // Registrar antes de cargar: un cambio durante la carga espera al cerrojo y se aplica después
+            UsuarioDAO.registrarEscucha(indice);
+            long inicio = System.nanoTime();
+            indice.reconstruir(new UsuarioDAO());
+            System.out.println("Índice de usuarios: " + indice.tamano() + " usuarios en "
+                    + (System.nanoTime() - inicio) / 1_000_000 + " ms");
+            compartido = indice;
+        }
+        return compartido;
+    }
+    
+    /**
+     * Volver a cargar el índice con todos los usuarios
+     */
+    public void reconstruir(UsuarioDAO usuarioDAO) {
+        cerrojo.writeLock().lock();
+        try {
+            terminos.clear();
+            documentoDeUsuario.clear();
+            documentos = new Persona[1024];
+            totalDocumentos = 0;
+            borrados = 0;
+            usuarioDAO.recorrerUsuarios(this::indexar);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Buscar usuarios que tengan todas las palabras del texto en su nombre,
+     * apellidos, email o código (la última puede estar incompleta)
+     * @param limite máximo de usuarios a devolver
+     * @return copias de los usuarios encontrados, por id
+     */
+    public List<Persona> buscar(String texto, int limite) {
+        List<Persona> encontrados = new ArrayList<>();
+        cerrojo.readLock().lock();
+        try {
+            List<PalabraConsulta> palabras = interpretar(texto);
+            if (palabras.isEmpty()) {
+                return encontrados;
+            }
+            
+            // Recorrer la palabra con menos documentos y preguntar a las demás por cada candidato
+            palabras.sort(Comparator.comparingLong(PalabraConsulta::total));
+            PalabraConsulta.Recorrido candidatos = palabras.get(0).recorrer();
+            for (int i = 1; i < palabras.size(); i++) {
+                palabras.get(i).prepararComprobacion(palabras.get(0).total());
+            }
+            int documento;
+            while ((documento = candidatos.siguiente()) >= 0) {
+                if (documentos[documento] != null && contieneTodas(palabras, documento)) {
+                    encontrados.add(documentos[documento]);
+                }
+            }
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+        
+        // Los modificados quedan al final de los documentos: ordenar por id como la tabla
+        encontrados.sort(Comparator.comparingInt(Persona::getId));
+        List<Persona> resultado = new ArrayList<>();
+        for (Persona persona : encontrados.subList(0, Math.min(limite, encontrados.size()))) {
+            resultado.add(UsuarioDAO.copiar(persona));
+        }
+        return resultado;
+    }
+    
+    private boolean contieneTodas(List<PalabraConsulta> palabras, int documento) {
+        List<String> terminosUsuario = null;
+        for (int i = 1; i < palabras.size(); i++) {
+            PalabraConsulta palabra = palabras.get(i);
+            if (terminosUsuario == null && palabra.necesitaTerminos()) {
+                terminosUsuario = terminosDe(documentos[documento]);
+            }
+            if (!palabra.contiene(documento, terminosUsuario)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Pasar el texto a palabras de consulta; la última es prefijo salvo que el texto termine en espacio
+     */
+    private List<PalabraConsulta> interpretar(String texto) {
+        List<PalabraConsulta> consulta = new ArrayList<>();
+        List<String> palabras = Normalizador.tokens(texto);
+        boolean ultimaCompleta = !texto.isEmpty() && Character.isWhitespace(texto.charAt(texto.length() - 1));
+        for (int i = 0; i < palabras.size(); i++) {
+            boolean prefijo = i == palabras.size() - 1 && !ultimaCompleta;
+            String palabra = palabras.get(i);
+            List<ListaEnteros> listas = new ArrayList<>();
+            if (prefijo) {
+                NavigableMap<String, ListaEnteros> rango = terminos.subMap(palabra, true, palabra + Character.MAX_VALUE, true);
+                listas.addAll(rango.values());
+            } else if (terminos.containsKey(palabra)) {
+                listas.add(terminos.get(palabra));
+            }
+            consulta.add(new PalabraConsulta(palabra, prefijo, listas));
+        }
+        return consulta;
+    }
+    
+    @Override
+    public void guardado(Persona persona) {
+        cerrojo.writeLock().lock();
+        try {
+            indexar(persona);
+            compactarSiConviene();
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void eliminado(int id) {
+        cerrojo.writeLock().lock();
+        try {
+            Integer documento = documentoDeUsuario.remove(id);
+            if (documento != null) {
+                documentos[documento] = null;
+                borrados++;
+            }
+            compactarSiConviene();
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void desactualizado() {
+        reconstruir(new UsuarioDAO());
+    }
+    
+    /**
+     * @return usuarios en el índice
+     */
+    public int tamano() {
+        cerrojo.readLock().lock();
+        try {
+            return documentoDeUsuario.size();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Agregar (o reemplazar) un usuario; se llama con el cerrojo de escritura tomado
+     */
+    private void indexar(Persona persona) {
+        Integer anterior = documentoDeUsuario.get(persona.getId());
+        if (anterior != null) {
+            documentos[anterior] = null;
+            borrados++;
+        }
+        
+        int documento = totalDocumentos++;
+        if (documento == documentos.length) {
+            documentos = Arrays.copyOf(documentos, documentos.length * 2);
+        }
+        documentos[documento] = UsuarioDAO.copiar(persona);
+        documentoDeUsuario.put(persona.getId(), documento);
+        
+        for (String termino : terminosDe(persona)) {
+            terminos.computeIfAbsent(termino, k -> new ListaEnteros()).agregar(documento);
+        }
+    }
+    
+    private static String codigoDe(Persona persona) {
+        if (persona instanceof Estudiante) {
+            return ((Estudiante) persona).getCodigo();
+        } else if (persona instanceof Profesor) {
+            return ((Profesor) persona).getCodigoEmpleado();
+        }
+        return null;
+    }
+    
+    /**
+     * Todas las palabras indexadas de un usuario
+     */
+    private static List<String> terminosDe(Persona persona) {
+        List<String> terminos = new ArrayList<>(Normalizador.tokens(persona.getNombres()));
+        terminos.addAll(Normalizador.tokens(persona.getApellidos()));
+        terminos.addAll(Normalizador.tokens(persona.getEmail()));
+        List<String> codigo = Normalizador.tokens(codigoDe(persona));
+        terminos.addAll(codigo);
+        if (codigo.size() > 1) {
+            terminos.add(String.join("", codigo));
+        }
+        return terminos;
+    }
+    
+    /**
+     * Quitar de las listas los documentos borrados y renumerar los vivos
+     */
+    private void compactarSiConviene() {
+        if (borrados < MINIMO_BORRADOS_COMPACTAR || borrados < totalDocumentos / 4) {
+            return;
+        }
+        
+        int[] nuevoNumero = new int[totalDocumentos];
+        int vivos = 0;
+        for (int i = 0; i < totalDocumentos; i++) {
+            if (documentos[i] != null) {
+                nuevoNumero[i] = vivos;
+                documentos[vivos] = documentos[i];
+                documentoDeUsuario.put(documentos[vivos].getId(), vivos);
+                vivos++;
+            } else {
+                nuevoNumero[i] = -1;
+            }
+        }
+        Arrays.fill(documentos, vivos, totalDocumentos, null);
+        totalDocumentos = vivos;
+        borrados = 0;
+        
+        terminos.values().removeIf(lista -> {
+            lista.renumerar(nuevoNumero);
+            return lista.tamano() == 0;
+        });
+    }
+}
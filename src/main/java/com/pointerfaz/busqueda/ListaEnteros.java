@@ -0,0 +1,80 @@
+package com.pointerfaz.busqueda;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Lista de documentos de un término (posting list) sobre un int[] que crece
+ * Los documentos se agregan siempre en orden creciente, así la lista queda
+ * ordenada sin reordenar y se puede buscar en ella
+ * por búsqueda binaria o recorrerla en orden.
+ */
+final class ListaEnteros {
+    
+    private int[] valores;
+    private int tamano;
+    
+    ListaEnteros() {
+        valores = new int[4];
+    }
+    
+    /**
+     * Lista ya armada (al cargar un segmento del disco); los valores deben venir ordenados
+     */
+    ListaEnteros(int[] valores) {
+        this.valores = valores;
+        this.tamano = valores.length;
+    }
+    
+    void agregar(int valor) {
+        if (tamano > 0 && valores[tamano - 1] == valor) {
+            return;
+        }
+        if (tamano == valores.length) {
+            valores = Arrays.copyOf(valores, Math.max(4, tamano * 2));
+        }
+        valores[tamano++] = valor;
+    }
+    
+    int tamano() {
+        return tamano;
+    }
+    
+    /**
+     * Quitar los documentos marcados como borrados (al compactar el índice)
+     * @param nuevoNumero número nuevo de cada documento, -1 si se borró
+     */
+    void renumerar(int[] nuevoNumero) {
+        int escritos = 0;
+        for (int i = 0; i < tamano; i++) {
+            int nuevo = nuevoNumero[valores[i]];
+            if (nuevo >= 0) {
+                valores[escritos++] = nuevo;
+            }
+        }
+        tamano = escritos;
+        if (valores.length > 16 && tamano < valores.length / 4) {
+            valores = Arrays.copyOf(valores, Math.max(4, tamano * 2));
+        }
+    }
+    
+    /**
+     * @return true si el documento está en la lista (búsqueda binaria)
+     */
+    boolean contiene(int valor) {
+        return Arrays.binarySearch(valores, 0, tamano, valor) >= 0;
+    }
+    
+    int obtener(int posicion) {
+        return valores[posicion];
+    }
+    
+    /**
+     * Marcar todos los documentos de la lista
+     */
+    void marcarEn(BitSet marcados) {
+        for (int i = 0; i < tamano; i++) {
+            marcados.set(valores[i]);
+        }
+    }
+}
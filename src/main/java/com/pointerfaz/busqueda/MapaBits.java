@@ -0,0 +1,322 @@
+package com.pointerfaz.busqueda;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto de enteros no negativos comprimido al estilo "roaring bitmap"
+ *
+ * Los números se agrupan por sus 16 bits altos. Cada grupo guarda sus 16 bits
+ * bajos en un char[] ordenado mientras tiene pocos (hasta 4096, 8 KB como mucho)
+ * y en un mapa de 65536 bits (8 KB fijos) cuando tiene más. Así un valor de
+ * faceta poco común ocupa poco y uno muy común se cuenta con popcount.
+ */
+final class MapaBits {
+    
+    // Con más valores que esto un grupo ocupa menos como mapa de bits
+    private static final int MAXIMO_ARREGLO = 4096;
+    
+    private char[] claves = new char[4];
+    private Grupo[] grupos = new Grupo[4];
+    private int cantidadGrupos;
+    
+    /**
+     * 16 bits bajos de los números de un grupo: arreglo ordenado o mapa de bits
+     */
+    private static final class Grupo {
+        char[] valores = new char[4];
+        long[] bits;
+        int cantidad;
+        
+        boolean contiene(char valor) {
+            if (bits != null) {
+                return (bits[valor >>> 6] & (1L << valor)) != 0;
+            }
+            return Arrays.binarySearch(valores, 0, cantidad, valor) >= 0;
+        }
+        
+        boolean agregar(char valor) {
+            if (bits != null) {
+                long antes = bits[valor >>> 6];
+                bits[valor >>> 6] = antes | (1L << valor);
+                if (antes == bits[valor >>> 6]) {
+                    return false;
+                }
+                cantidad++;
+                return true;
+            }
+            // Lo habitual es agregar en orden creciente: al final, sin buscar
+            int posicion = cantidad > 0 && valor > valores[cantidad - 1]
+                    ? -cantidad - 1
+                    : Arrays.binarySearch(valores, 0, cantidad, valor);
+            if (posicion >= 0) {
+                return false;
+            }
+            if (cantidad == MAXIMO_ARREGLO) {
+                pasarABits();
+                return agregar(valor);
+            }
+            posicion = -posicion - 1;
+            if (cantidad == valores.length) {
+                valores = Arrays.copyOf(valores, Math.min(MAXIMO_ARREGLO, cantidad * 2));
+            }
+            System.arraycopy(valores, posicion, valores, posicion + 1, cantidad - posicion);
+            valores[posicion] = valor;
+            cantidad++;
+            return true;
+        }
+        
+        boolean quitar(char valor) {
+            if (bits != null) {
+                long antes = bits[valor >>> 6];
+                bits[valor >>> 6] = antes & ~(1L << valor);
+                if (antes == bits[valor >>> 6]) {
+                    return false;
+                }
+                cantidad--;
+                return true;
+            }
+            int posicion = Arrays.binarySearch(valores, 0, cantidad, valor);
+            if (posicion < 0) {
+                return false;
+            }
+            System.arraycopy(valores, posicion + 1, valores, posicion, cantidad - posicion - 1);
+            cantidad--;
+            return true;
+        }
+        
+        private void pasarABits() {
+            bits = new long[1024];
+            for (int i = 0; i < cantidad; i++) {
+                bits[valores[i] >>> 6] |= 1L << valores[i];
+            }
+            valores = null;
+        }
+        
+        /**
+         * Valores en común con otro grupo, sin armar la intersección
+         */
+        int contarComunes(Grupo otro) {
+            if (bits != null && otro.bits != null) {
+                int comunes = 0;
+                for (int i = 0; i < bits.length; i++) {
+                    comunes += Long.bitCount(bits[i] & otro.bits[i]);
+                }
+                return comunes;
+            }
+            if (bits != null || otro.bits != null) {
+                Grupo arreglo = bits == null ? this : otro;
+                Grupo mapa = bits == null ? otro : this;
+                int comunes = 0;
+                for (int i = 0; i < arreglo.cantidad; i++) {
+                    if (mapa.contiene(arreglo.valores[i])) {
+                        comunes++;
+                    }
+                }
+                return comunes;
+            }
+            int comunes = 0;
+            for (int i = 0, j = 0; i < cantidad && j < otro.cantidad;) {
+                if (valores[i] == otro.valores[j]) {
+                    comunes++;
+                    i++;
+                    j++;
+                } else if (valores[i] < otro.valores[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return comunes;
+        }
+        
+        Grupo interseccion(Grupo otro) {
+            Grupo resultado = new Grupo();
+            if (bits != null && otro.bits != null) {
+                resultado.bits = new long[1024];
+                for (int i = 0; i < bits.length; i++) {
+                    resultado.bits[i] = bits[i] & otro.bits[i];
+                    resultado.cantidad += Long.bitCount(resultado.bits[i]);
+                }
+                if (resultado.cantidad <= MAXIMO_ARREGLO) {
+                    resultado.pasarAArreglo();
+                }
+                return resultado;
+            }
+            Grupo arreglo = bits == null ? this : otro;
+            Grupo demas = bits == null ? otro : this;
+            resultado.valores = new char[Math.max(4, Math.min(arreglo.cantidad, demas.cantidad))];
+            for (int i = 0; i < arreglo.cantidad; i++) {
+                if (demas.contiene(arreglo.valores[i])) {
+                    resultado.valores[resultado.cantidad++] = arreglo.valores[i];
+                }
+            }
+            return resultado;
+        }
+        
+        private void pasarAArreglo() {
+            valores = new char[Math.max(4, cantidad)];
+            int n = 0;
+            for (int i = 0; i < bits.length; i++) {
+                for (long palabra = bits[i]; palabra != 0; palabra &= palabra - 1) {
+                    valores[n++] = (char) (i * 64 + Long.numberOfTrailingZeros(palabra));
+                }
+            }
+            bits = null;
+        }
+        
+        /**
+         * Primer valor mayor o igual a desde, o -1
+         */
+        int siguiente(int desde) {
+            if (bits != null) {
+                int palabra = desde >>> 6;
+                if (palabra >= bits.length) {
+                    return -1;
+                }
+                long restante = bits[palabra] & (-1L << desde);
+                while (restante == 0) {
+                    if (++palabra == bits.length) {
+                        return -1;
+                    }
+                    restante = bits[palabra];
+                }
+                return palabra * 64 + Long.numberOfTrailingZeros(restante);
+            }
+            int posicion = Arrays.binarySearch(valores, 0, cantidad, (char) Math.min(desde, 0xFFFF));
+            if (posicion < 0) {
+                posicion = -posicion - 1;
+            }
+            if (desde > 0xFFFF || posicion >= cantidad) {
+                return -1;
+            }
+            return valores[posicion];
+        }
+    }
+    
+    void agregar(int numero) {
+        Grupo grupo = grupo((char) (numero >>> 16), true);
+        grupo.agregar((char) numero);
+    }
+    
+    void quitar(int numero) {
+        Grupo grupo = grupo((char) (numero >>> 16), false);
+        if (grupo != null) {
+            grupo.quitar((char) numero);
+        }
+    }
+    
+    boolean contiene(int numero) {
+        Grupo grupo = grupo((char) (numero >>> 16), false);
+        return grupo != null && grupo.contiene((char) numero);
+    }
+    
+    int cardinalidad() {
+        int total = 0;
+        for (int i = 0; i < cantidadGrupos; i++) {
+            total += grupos[i].cantidad;
+        }
+        return total;
+    }
+    
+    /**
+     * Cantidad de números en ambos conjuntos (sin armar la intersección)
+     */
+    int contarComunes(MapaBits otro) {
+        int comunes = 0;
+        for (int i = 0, j = 0; i < cantidadGrupos && j < otro.cantidadGrupos;) {
+            if (claves[i] == otro.claves[j]) {
+                comunes += grupos[i].contarComunes(otro.grupos[j]);
+                i++;
+                j++;
+            } else if (claves[i] < otro.claves[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return comunes;
+    }
+    
+    MapaBits interseccion(MapaBits otro) {
+        MapaBits resultado = new MapaBits();
+        for (int i = 0, j = 0; i < cantidadGrupos && j < otro.cantidadGrupos;) {
+            if (claves[i] == otro.claves[j]) {
+                Grupo comun = grupos[i].interseccion(otro.grupos[j]);
+                if (comun.cantidad > 0) {
+                    resultado.agregarGrupo(claves[i], comun);
+                }
+                i++;
+                j++;
+            } else if (claves[i] < otro.claves[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return resultado;
+    }
+    
+    /**
+     * Primer número del conjunto mayor o igual a desde, o -1 si no hay
+     */
+    int siguiente(int desde) {
+        int posicion = buscarClave((char) (desde >>> 16));
+        int bajos = desde & 0xFFFF;
+        if (posicion < 0) {
+            posicion = -posicion - 1;
+            bajos = 0;
+        }
+        for (; posicion < cantidadGrupos; posicion++, bajos = 0) {
+            int valor = grupos[posicion].siguiente(bajos);
+            if (valor >= 0) {
+                return (claves[posicion] << 16) | valor;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Todos los números del conjunto, en orden creciente
+     */
+    int[] aArreglo() {
+        int[] numeros = new int[cardinalidad()];
+        int n = 0;
+        for (int numero = siguiente(0); numero >= 0; numero = siguiente(numero + 1)) {
+            numeros[n++] = numero;
+        }
+        return numeros;
+    }
+    
+    private Grupo grupo(char clave, boolean crear) {
+        int posicion = buscarClave(clave);
+        if (posicion >= 0) {
+            return grupos[posicion];
+        }
+        if (!crear) {
+            return null;
+        }
+        Grupo grupo = new Grupo();
+        insertarGrupo(-posicion - 1, clave, grupo);
+        return grupo;
+    }
+    
+    private void agregarGrupo(char clave, Grupo grupo) {
+        insertarGrupo(cantidadGrupos, clave, grupo);
+    }
+    
+    private void insertarGrupo(int posicion, char clave, Grupo grupo) {
+        if (cantidadGrupos == claves.length) {
+            claves = Arrays.copyOf(claves, cantidadGrupos * 2);
+            grupos = Arrays.copyOf(grupos, cantidadGrupos * 2);
+        }
+        System.arraycopy(claves, posicion, claves, posicion + 1, cantidadGrupos - posicion);
+        System.arraycopy(grupos, posicion, grupos, posicion + 1, cantidadGrupos - posicion);
+        claves[posicion] = clave;
+        grupos[posicion] = grupo;
+        cantidadGrupos++;
+    }
+    
+    private int buscarClave(char clave) {
+        return Arrays.binarySearch(claves, 0, cantidadGrupos, clave);
+    }
+}
@@ -0,0 +1,81 @@
+package com.pointerfaz.busqueda;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalización de texto para las búsquedas
+ * Quita tildes y diéresis, pasa a minúsculas y corta en palabras,
+ * así "perez" encuentra "Pérez" y "GARCÍA" encuentra "García".
+ */
+public final class Normalizador {
+    
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    
+    private Normalizador() {
+    }
+    
+    /**
+     * @return texto en minúsculas y sin tildes ("" si es null)
+     */
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        if (esAscii(texto)) {
+            return texto.toLowerCase(Locale.ROOT);
+        }
+        String descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        return MARCAS.matcher(descompuesto).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+    
+    private static boolean esAscii(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Palabras (letras y dígitos) del texto ya normalizadas
+     */
+    public static List<String> tokens(String texto) {
+        String normal = normalizar(texto);
+        List<String> tokens = new ArrayList<>();
+        
+        int inicio = -1;
+        for (int i = 0; i <= normal.length(); i++) {
+            boolean letra = i < normal.length() && Character.isLetterOrDigit(normal.charAt(i));
+            if (letra && inicio < 0) {
+                inicio = i;
+            } else if (!letra && inicio >= 0) {
+                tokens.add(normal.substring(inicio, i));
+                inicio = -1;
+            }
+        }
+        return tokens;
+    }
+    
+    /**
+     * ISBN sin guiones ni espacios ("84-376-0494-x" -> "843760494x"); "" si el texto
+     * tiene otra cosa que dígitos, guiones, espacios o la X final
+     */
+    public static String compactarIsbn(String texto) {
+        String normal = normalizar(texto).strip();
+        StringBuilder compacto = new StringBuilder(normal.length());
+        for (int i = 0; i < normal.length(); i++) {
+            char c = normal.charAt(i);
+            if (c >= '0' && c <= '9' || c == 'x') {
+                compacto.append(c);
+            } else if (c != '-' && c != ' ') {
+                return "";
+            }
+        }
+        return compacto.toString();
+    }
+}
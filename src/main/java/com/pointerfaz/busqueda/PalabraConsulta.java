@@ -0,0 +1,170 @@
+package com.pointerfaz.busqueda;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Una palabra de la consulta: las listas de documentos de todos los términos
+ * que le corresponden (varios campos y, si es prefijo, varios términos)
+ * No se arma la unión completa: la palabra más rara se recorre en orden y las
+ * demás solo responden si contienen cada documento candidato.
+ */
+final class PalabraConsulta {
+    
+    // Costes aproximados, en documentos marcados, de comprobar un candidato:
+    // una búsqueda binaria en una lista, o revisar las palabras de su libro
+    private static final int COSTE_BUSQUEDA_BINARIA = 8;
+    private static final int COSTE_REVISAR_LIBRO = 32;
+    
+    private final String palabra;
+    private final boolean prefijo;
+    private final List<ListaEnteros> listas;
+    // Campo de cada lista (null si no se necesitan para puntuar)
+    private final int[] campos;
+    private final long total;
+    private BitSet marcados;
+    private BitSet[] marcadosPorCampo;
+    private boolean porTerminos;
+    
+    PalabraConsulta(String palabra, boolean prefijo, List<ListaEnteros> listas) {
+        this(palabra, prefijo, listas, null);
+    }
+    
+    PalabraConsulta(String palabra, boolean prefijo, List<ListaEnteros> listas, int[] campos) {
+        this.palabra = palabra;
+        this.prefijo = prefijo;
+        this.listas = listas;
+        this.campos = campos;
+        long suma = 0;
+        for (ListaEnteros lista : listas) {
+            suma += lista.tamano();
+        }
+        this.total = suma;
+    }
+    
+    /**
+     * @return documentos en todas las listas (cota de la cantidad de coincidencias)
+     */
+    long total() {
+        return total;
+    }
+    
+    /**
+     * Elegir la forma más barata de responder contiene() para tantos candidatos:
+     * búsqueda binaria en cada lista, marcar todos sus documentos en un BitSet,
+     * o revisar las palabras del libro de cada candidato
+     */
+    void prepararComprobacion(long candidatos) {
+        long costeBinaria = candidatos * listas.size() * COSTE_BUSQUEDA_BINARIA;
+        long costeTerminos = candidatos * COSTE_REVISAR_LIBRO;
+        if (costeBinaria <= total && costeBinaria <= costeTerminos) {
+            return;
+        }
+        if (total <= costeTerminos) {
+            marcados = new BitSet();
+            listas.forEach(lista -> lista.marcarEn(marcados));
+        } else {
+            porTerminos = true;
+        }
+    }
+    
+    /**
+     * @return true si contiene() necesita las palabras del libro
+     */
+    boolean necesitaTerminos() {
+        return porTerminos;
+    }
+    
+    /**
+     * @param terminos palabras ya normalizadas del libro del documento (solo si necesitaTerminos())
+     */
+    boolean contiene(int documento, List<String> terminos) {
+        if (marcados != null) {
+            return marcados.get(documento);
+        }
+        if (porTerminos) {
+            for (String termino : terminos) {
+                if (prefijo ? termino.startsWith(palabra) : termino.equals(palabra)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (ListaEnteros lista : listas) {
+            if (lista.contiene(documento)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Documentos que tienen la palabra en un campo; se marcan en un BitSet la
+     * primera vez que se piden (recorre una vez las listas de ese campo)
+     */
+    BitSet enCampo(int campo) {
+        if (marcadosPorCampo == null) {
+            marcadosPorCampo = new BitSet[Arrays.stream(campos).max().orElse(0) + 1];
+        }
+        if (campo >= marcadosPorCampo.length) {
+            return new BitSet();
+        }
+        if (marcadosPorCampo[campo] == null) {
+            marcadosPorCampo[campo] = new BitSet();
+            for (int i = 0; i < listas.size(); i++) {
+                if (campos[i] == campo) {
+                    listas.get(i).marcarEn(marcadosPorCampo[campo]);
+                }
+            }
+        }
+        return marcadosPorCampo[campo];
+    }
+    
+    /**
+     * Recorrido en orden creciente y sin repetidos de la unión de las listas
+     * (mezcla de k listas con un montículo: se detiene cuando el llamador deja de pedir)
+     */
+    Recorrido recorrer() {
+        return new Recorrido(listas);
+    }
+    
+    static final class Recorrido {
+        
+        // Cada cursor: {índice de la lista, posición}
+        private final PriorityQueue<int[]> cursores;
+        private final List<ListaEnteros> listas;
+        private int ultimo = -1;
+        
+        private Recorrido(List<ListaEnteros> listas) {
+            this.listas = listas;
+            this.cursores = new PriorityQueue<>(Math.max(1, listas.size()),
+                    (a, b) -> Integer.compare(listas.get(a[0]).obtener(a[1]), listas.get(b[0]).obtener(b[1])));
+            for (int i = 0; i < listas.size(); i++) {
+                if (listas.get(i).tamano() > 0) {
+                    cursores.add(new int[]{i, 0});
+                }
+            }
+        }
+        
+        /**
+         * @return siguiente documento o -1 si no hay más
+         */
+        int siguiente() {
+            while (!cursores.isEmpty()) {
+                int[] cursor = cursores.poll();
+                ListaEnteros lista = listas.get(cursor[0]);
+                int documento = lista.obtener(cursor[1]);
+                if (++cursor[1] < lista.tamano()) {
+                    cursores.add(cursor);
+                }
+                if (documento != ultimo) {
+                    ultimo = documento;
+                    return documento;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.pointerfaz.busqueda;
+
+import com.pointerfaz.modelo.Libro;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Libros encontrados junto con los conteos por faceta de todas las coincidencias
+ * (no solo de las que entraron en el límite). Cada faceta se cuenta sin su
+ * propio filtro.
+ */
+public class ResultadoBusqueda {
+    
+    private final List<Libro> libros;
+    private final int total;
+    private final Map<String, Map<String, Integer>> facetas;
+    
+    ResultadoBusqueda(List<Libro> libros, int total, Map<String, Map<String, Integer>> facetas) {
+        this.libros = libros;
+        this.total = total;
+        this.facetas = facetas;
+    }
+    
+    /**
+     * @return un resultado sin libros ni facetas
+     */
+    public static ResultadoBusqueda vacio() {
+        return new ResultadoBusqueda(List.of(), 0, Map.of());
+    }
+    
+    /**
+     * @return los primeros libros encontrados, como máximo el límite pedido
+     */
+    public List<Libro> getLibros() {
+        return libros;
+    }
+    
+    /**
+     * @return cantidad total de coincidencias
+     */
+    public int getTotal() {
+        return total;
+    }
+    
+    /**
+     * @return faceta (IndiceLibros.FACETA_*) -> valor -> libros con ese valor;
+     * solo los valores con al menos un libro, de más a menos libros
+     */
+    public Map<String, Map<String, Integer>> getFacetas() {
+        return facetas;
+    }
+    
+    /**
+     * @return conteos de una faceta (vacío si no hay coincidencias)
+     */
+    public Map<String, Integer> getFaceta(String faceta) {
+        return facetas.getOrDefault(faceta, Map.of());
+    }
+}
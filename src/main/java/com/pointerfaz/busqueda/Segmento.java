@@ -0,0 +1,253 @@
+package com.pointerfaz.busqueda;
+
+import com.pointerfaz.modelo.Libro;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Formato binario de los segmentos del índice de libros en disco
+ *
+ * Cabecera: magia, versión, tipo (BASE o DELTA) y la huella del catálogo
+ * cuando se escribió. Los enteros no negativos van como varint (1 byte hasta
+ * 127) y los textos como largo + UTF-8; las listas de documentos guardan la
+ * diferencia con el anterior, que casi siempre entra en un byte. Al final va
+ * el CRC32 de todo lo anterior: un segmento cortado o dañado no pasa la
+ * comprobación y el índice se reconstruye desde la base de datos.
+ *
+ * Un segmento no se modifica nunca: se escribe en un temporal y se renombra.
+ */
+final class Segmento {
+    
+    static final byte BASE = 0;
+    static final byte DELTA = 1;
+    
+    // Tipos de cambio dentro de un segmento DELTA
+    static final byte GUARDADO = 0;
+    static final byte ELIMINADO = 1;
+    
+    private static final int MAGIA = 0x42494458; // "BIDX"
+    private static final int VERSION = 1;
+    private static final int MAXIMO_REPETIDOS = 1 << 16;
+    
+    private Segmento() {
+    }
+    
+    /**
+     * Escritura secuencial de un segmento; el CRC se calcula al pasar los bytes
+     */
+    static final class Escritor implements AutoCloseable {
+        
+        private final Path destino;
+        private final Path temporal;
+        private final CheckedOutputStream suma;
+        private final DataOutputStream salida;
+        private boolean terminado;
+        
+        Escritor(Path destino, byte tipo, String huella) throws IOException {
+            this.destino = destino;
+            this.temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+            OutputStream archivo = Files.newOutputStream(temporal);
+            this.suma = new CheckedOutputStream(new BufferedOutputStream(archivo, 1 << 16), new CRC32());
+            this.salida = new DataOutputStream(suma);
+            salida.writeInt(MAGIA);
+            salida.writeInt(VERSION);
+            salida.writeByte(tipo);
+            texto(huella);
+        }
+        
+        void octeto(int valor) throws IOException {
+            salida.writeByte(valor);
+        }
+        
+        /**
+         * Entero no negativo en 1 a 5 bytes (7 bits por byte)
+         */
+        void varint(int valor) throws IOException {
+            while ((valor & ~0x7F) != 0) {
+                salida.writeByte((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            salida.writeByte(valor);
+        }
+        
+        /**
+         * Entero que puede ser negativo (zigzag: 0, -1, 1, -2... -> 0, 1, 2, 3...)
+         */
+        void entero(int valor) throws IOException {
+            varint((valor << 1) ^ (valor >> 31));
+        }
+        
+        /**
+         * Texto como largo + 1 y UTF-8; null se escribe como 0
+         */
+        void texto(String valor) throws IOException {
+            if (valor == null) {
+                varint(0);
+                return;
+            }
+            byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length + 1);
+            salida.write(bytes);
+        }
+        
+        void libro(Libro libro) throws IOException {
+            varint(libro.getId());
+            texto(libro.getIsbn());
+            texto(libro.getTitulo());
+            texto(libro.getAutor());
+            texto(libro.getEditorial());
+            texto(libro.getCategoria());
+            entero(libro.getAnioPublicacion());
+            entero(libro.getNumeroPaginas());
+            texto(libro.getUbicacion());
+            texto(libro.getEstado());
+            octeto(libro.isEsReferencia() ? 1 : 0);
+        }
+        
+        /**
+         * Escribir el CRC y dejar el segmento en su nombre definitivo
+         */
+        void terminar() throws IOException {
+            salida.flush();
+            int crc = (int) suma.getChecksum().getValue();
+            salida.writeInt(crc);
+            salida.close();
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            terminado = true;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (!terminado) {
+                salida.close();
+                Files.deleteIfExists(temporal);
+            }
+        }
+    }
+    
+    /**
+     * Lectura de un segmento mapeado en memoria
+     * Al abrirlo se comprueba el CRC de todo el archivo antes de leer nada.
+     */
+    static final class Lector {
+        
+        private final MappedByteBuffer datos;
+        private final byte tipo;
+        private final String huella;
+        // Búfer reutilizado para copiar los textos antes de decodificarlos
+        private byte[] bytes = new byte[256];
+        // Una sola copia de los textos que se repiten mucho (editorial, categoría, estado...)
+        private final Map<String, String> repetidos = new HashMap<>();
+        
+        Lector(Path archivo) throws IOException {
+            try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+                long tamano = canal.size();
+                if (tamano < 13 || tamano > Integer.MAX_VALUE) {
+                    throw new IOException("Tamaño de segmento inválido: " + archivo);
+                }
+                datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamano);
+            }
+            
+            int fin = datos.limit() - 4;
+            CRC32 crc = new CRC32();
+            crc.update(datos.slice(0, fin));
+            if ((int) crc.getValue() != datos.getInt(fin)) {
+                throw new IOException("El CRC no coincide, segmento dañado: " + archivo);
+            }
+            datos.limit(fin);
+            
+            if (datos.getInt() != MAGIA || datos.getInt() != VERSION) {
+                throw new IOException("No es un segmento de esta versión: " + archivo);
+            }
+            tipo = datos.get();
+            huella = texto();
+        }
+        
+        byte tipo() {
+            return tipo;
+        }
+        
+        /**
+         * @return huella del catálogo cuando se escribió el segmento
+         */
+        String huella() {
+            return huella;
+        }
+        
+        int octeto() {
+            return datos.get() & 0xFF;
+        }
+        
+        int varint() throws IOException {
+            int valor = 0;
+            for (int desplazamiento = 0; desplazamiento < 35; desplazamiento += 7) {
+                int b = datos.get();
+                valor |= (b & 0x7F) << desplazamiento;
+                if ((b & 0x80) == 0) {
+                    return valor;
+                }
+            }
+            throw new IOException("Varint demasiado largo");
+        }
+        
+        int entero() throws IOException {
+            int valor = varint();
+            return (valor >>> 1) ^ -(valor & 1);
+        }
+        
+        String texto() throws IOException {
+            int largo = varint();
+            if (largo == 0) {
+                return null;
+            }
+            if (bytes.length < largo - 1) {
+                bytes = new byte[Math.max(largo - 1, bytes.length * 2)];
+            }
+            datos.get(bytes, 0, largo - 1);
+            return new String(bytes, 0, largo - 1, StandardCharsets.UTF_8);
+        }
+        
+        Libro libro() throws IOException {
+            int id = varint();
+            String isbn = texto();
+            String titulo = texto();
+            String autor = texto();
+            String editorial = repetido(texto());
+            String categoria = repetido(texto());
+            int anio = entero();
+            int paginas = entero();
+            String ubicacion = repetido(texto());
+            Libro libro = new Libro(id, isbn, titulo, autor, editorial, categoria, anio, paginas, ubicacion);
+            libro.setEstado(repetido(texto()));
+            libro.setEsReferencia(octeto() == 1);
+            return libro;
+        }
+        
+        private String repetido(String texto) {
+            if (texto == null || repetidos.size() >= MAXIMO_REPETIDOS) {
+                return texto;
+            }
+            return repetidos.computeIfAbsent(texto, valor -> valor);
+        }
+        
+        /**
+         * @return true si ya se leyó todo (sin contar el CRC)
+         */
+        boolean terminado() {
+            return !datos.hasRemaining();
+        }
+    }
+}
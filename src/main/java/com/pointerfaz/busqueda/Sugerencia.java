@@ -0,0 +1,38 @@
+package com.pointerfaz.busqueda;
+
+/**
+ * Una sugerencia del autocompletado: el texto a mostrar, de qué es
+ * (título, autor, usuario...) y su popularidad
+ */
+public final class Sugerencia {
+    
+    private final String texto;
+    private final String tipo;
+    private final long peso;
+    
+    Sugerencia(String texto, String tipo, long peso) {
+        this.texto = texto;
+        this.tipo = tipo;
+        this.peso = peso;
+    }
+    
+    public String getTexto() {
+        return texto;
+    }
+    
+    public String getTipo() {
+        return tipo;
+    }
+    
+    /**
+     * @return popularidad (préstamos) con la que se ordenó
+     */
+    public long getPeso() {
+        return peso;
+    }
+    
+    @Override
+    public String toString() {
+        return texto;
+    }
+}
@@ -0,0 +1,195 @@
+package com.pointerfaz.busqueda;
+
+import com.pointerfaz.dao.EscuchaCambios;
+import com.pointerfaz.dao.LibroDAO;
+import com.pointerfaz.dao.PrestamoDAO;
+import com.pointerfaz.dao.UsuarioDAO;
+import com.pointerfaz.modelo.Estudiante;
+import com.pointerfaz.modelo.Libro;
+import com.pointerfaz.modelo.Persona;
+import com.pointerfaz.modelo.Prestamo;
+import com.pointerfaz.modelo.Profesor;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sugerencias para las cajas de búsqueda de libros y de usuarios
+ *
+ * Libros: títulos y autores. Usuarios: nombre completo, email y código de
+ * estudiante o de empleado. Cada sugerencia pesa tantos préstamos como tengan
+ * sus libros o su usuario, así lo más pedido aparece primero.
+ * Se mantiene al día con las escuchas de LibroDAO, UsuarioDAO y PrestamoDAO.
+ */
+public class SugerenciasBiblioteca {
+    
+    public static final String TITULO = "Título";
+    public static final String AUTOR = "Autor";
+    public static final String USUARIO = "Usuario";
+    public static final String EMAIL = "Email";
+    public static final String CODIGO = "Código";
+    
+    // Se publican recién cargadas: quien las lee sin el monitor de la clase nunca las ve a medias
+    private static volatile SugerenciasBiblioteca compartidas;
+    
+    private final Autocompletado libros = new Autocompletado();
+    private final Autocompletado usuarios = new Autocompletado();
+    
+    // Por entidad: sus sugerencias y sus préstamos (lo que aporta al peso)
+    private final Map<Integer, int[]> sugerenciasDeLibro = new HashMap<>();
+    private final Map<Integer, int[]> sugerenciasDeUsuario = new HashMap<>();
+    private Map<Integer, Integer> prestamosDeLibro = new HashMap<>();
+    private Map<Integer, Integer> prestamosDeUsuario = new HashMap<>();
+    
+    /**
+     * Sugerencias de toda la aplicación
+     * La primera llamada las carga desde la base de datos y las registra en los DAO
+     */
+    public static synchronized SugerenciasBiblioteca compartidas() {
+        if (compartidas == null) {
+            SugerenciasBiblioteca sugerencias = new SugerenciasBiblioteca();
+            sugerencias.registrarEscuchas();
+            sugerencias.cargar(new LibroDAO(), new UsuarioDAO(), new PrestamoDAO());
+            compartidas = sugerencias;
+        }
+        return compartidas;
+    }
+    
+    /**
+     * Sugerencias de toda la aplicación si ya terminaron de cargarse, sin esperar
+     * Para el hilo de eventos: compartidas() retiene el monitor de la clase durante toda la carga
+     * @return las sugerencias, o null mientras se cargan (o si nadie pidió cargarlas)
+     */
+    public static SugerenciasBiblioteca siEstanCargadas() {
+        return compartidas;
+    }
+    
+    /**
+     * Cargar todos los libros y usuarios con sus préstamos
+     */
+    public synchronized void cargar(LibroDAO libroDAO, UsuarioDAO usuarioDAO, PrestamoDAO prestamoDAO) {
+        long inicio = System.nanoTime();
+        prestamosDeLibro = prestamoDAO.contarPrestamosPorLibro();
+        prestamosDeUsuario = prestamoDAO.contarPrestamosPorUsuario();
+        libros.iniciarCarga();
+        usuarios.iniciarCarga();
+        try {
+            libroDAO.recorrerLibros(this::agregarLibro);
+            usuarioDAO.recorrerUsuarios(this::agregarUsuario);
+        } finally {
+            libros.terminarCarga();
+            usuarios.terminarCarga();
+        }
+        
+        System.out.println("Autocompletado: " + libros.tamano() + " sugerencias de libros y "
+                + usuarios.tamano() + " de usuarios (" + (libros.getClaves() + usuarios.getClaves()) + " claves) en "
+                + (System.nanoTime() - inicio) / 1_000_000 + " ms, " + memoriaEstimada() / 1024 + " KB aprox.");
+    }
+    
+    public List<Sugerencia> sugerirLibros(String prefijo, int k) {
+        return libros.sugerir(prefijo, k);
+    }
+    
+    public List<Sugerencia> sugerirUsuarios(String prefijo, int k) {
+        return usuarios.sugerir(prefijo, k);
+    }
+    
+    /**
+     * @return memoria aproximada en bytes de los dos motores
+     */
+    public long memoriaEstimada() {
+        return libros.memoriaEstimada() + usuarios.memoriaEstimada();
+    }
+    
+    private synchronized void agregarLibro(Libro libro) {
+        quitarLibro(libro.getId());
+        int peso = prestamosDeLibro.getOrDefault(libro.getId(), 0);
+        sugerenciasDeLibro.put(libro.getId(), new int[]{
+            libros.agregar(TITULO, libro.getTitulo(), peso),
+            libros.agregar(AUTOR, libro.getAutor(), peso)
+        });
+    }
+    
+    private synchronized void quitarLibro(int id) {
+        int[] anteriores = sugerenciasDeLibro.remove(id);
+        if (anteriores != null) {
+            int peso = prestamosDeLibro.getOrDefault(id, 0);
+            for (int sugerencia : anteriores) {
+                libros.quitar(sugerencia, peso);
+            }
+        }
+    }
+    
+    private synchronized void agregarUsuario(Persona persona) {
+        quitarUsuario(persona.getId());
+        int peso = prestamosDeUsuario.getOrDefault(persona.getId(), 0);
+        String codigo = null;
+        if (persona instanceof Estudiante) {
+            codigo = ((Estudiante) persona).getCodigo();
+        } else if (persona instanceof Profesor) {
+            codigo = ((Profesor) persona).getCodigoEmpleado();
+        }
+        sugerenciasDeUsuario.put(persona.getId(), new int[]{
+            usuarios.agregar(USUARIO, persona.getNombreCompleto(), peso),
+            usuarios.agregar(EMAIL, persona.getEmail(), peso),
+            usuarios.agregar(CODIGO, codigo, peso)
+        });
+    }
+    
+    private synchronized void quitarUsuario(int id) {
+        int[] anteriores = sugerenciasDeUsuario.remove(id);
+        if (anteriores != null) {
+            int peso = prestamosDeUsuario.getOrDefault(id, 0);
+            for (int sugerencia : anteriores) {
+                usuarios.quitar(sugerencia, peso);
+            }
+        }
+    }
+    
+    private synchronized void prestamoRegistrado(Prestamo prestamo) {
+        prestamosDeLibro.merge(prestamo.getLibroId(), 1, Integer::sum);
+        prestamosDeUsuario.merge(prestamo.getUsuarioId(), 1, Integer::sum);
+        for (int sugerencia : sugerenciasDeLibro.getOrDefault(prestamo.getLibroId(), new int[0])) {
+            libros.sumarPeso(sugerencia, 1);
+        }
+        for (int sugerencia : sugerenciasDeUsuario.getOrDefault(prestamo.getUsuarioId(), new int[0])) {
+            usuarios.sumarPeso(sugerencia, 1);
+        }
+    }
+    
+    private void registrarEscuchas() {
+        LibroDAO.registrarEscucha(new EscuchaCambios<Libro>() {
+            @Override
+            public void guardado(Libro libro) {
+                agregarLibro(libro);
+            }
+            
+            @Override
+            public void eliminado(int id) {
+                quitarLibro(id);
+            }
+        });
+        UsuarioDAO.registrarEscucha(new EscuchaCambios<Persona>() {
+            @Override
+            public void guardado(Persona persona) {
+                agregarUsuario(persona);
+            }
+            
+            @Override
+            public void eliminado(int id) {
+                quitarUsuario(id);
+            }
+        });
+        PrestamoDAO.registrarEscucha(new EscuchaCambios<Prestamo>() {
+            @Override
+            public void guardado(Prestamo prestamo) {
+                prestamoRegistrado(prestamo);
+            }
+            
+            @Override
+            public void eliminado(int id) {
+                // Los préstamos no se borran del historial
+            }
+        });
+    }
+}
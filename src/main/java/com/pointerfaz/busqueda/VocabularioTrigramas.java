@@ -0,0 +1,96 @@
+package com.pointerfaz.busqueda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Vocabulario de términos con índice de trigramas, para encontrar palabras
+ * parecidas a una mal escrita sin comparar contra todo el vocabulario
+ *
+ * Cada término se parte en trigramas con relleno ("  perez " -> "  p", " pe",
+ * "per", "ere", "rez", "ez "). Una inserción, borrado o sustitución cambia como
+ * mucho tres trigramas y cambiar dos letras seguidas de lugar cuatro, así que un
+ * término a distancia k comparte al menos (trigramas - 4k) con la palabra buscada;
+ * solo los que pasan ese filtro se comparan con DistanciaEdicion.
+ */
+final class VocabularioTrigramas {
+    
+    private final Map<String, Integer> idDeTermino = new HashMap<>();
+    private final List<String> terminos = new ArrayList<>();
+    private final Map<String, ListaEnteros> terminosDeTrigrama = new HashMap<>();
+    
+    void agregar(String termino) {
+        if (idDeTermino.containsKey(termino)) {
+            return;
+        }
+        int id = terminos.size();
+        idDeTermino.put(termino, id);
+        terminos.add(termino);
+        for (String trigrama : trigramas(termino)) {
+            terminosDeTrigrama.computeIfAbsent(trigrama, k -> new ListaEnteros()).agregar(id);
+        }
+    }
+    
+    void limpiar() {
+        idDeTermino.clear();
+        terminos.clear();
+        terminosDeTrigrama.clear();
+    }
+    
+    /**
+     * Términos a distancia de edición como mucho maxima de la palabra
+     * @return término -> similitud entre 0 y 1 (1 es la palabra exacta)
+     */
+    Map<String, Double> parecidos(String palabra, int maxima) {
+        Map<String, Double> resultado = new HashMap<>();
+        Set<String> trigramasPalabra = trigramas(palabra);
+        int minimoComunes = Math.max(1, trigramasPalabra.size() - 4 * maxima);
+        
+        // Contar trigramas compartidos solo de los términos que aparecen en alguna lista
+        int[] comunes = new int[terminos.size()];
+        int[] tocados = new int[64];
+        int cantidadTocados = 0;
+        for (String trigrama : trigramasPalabra) {
+            ListaEnteros lista = terminosDeTrigrama.get(trigrama);
+            if (lista == null) {
+                continue;
+            }
+            for (int i = 0; i < lista.tamano(); i++) {
+                int id = lista.obtener(i);
+                if (comunes[id]++ == 0) {
+                    if (cantidadTocados == tocados.length) {
+                        tocados = Arrays.copyOf(tocados, cantidadTocados * 2);
+                    }
+                    tocados[cantidadTocados++] = id;
+                }
+            }
+        }
+        
+        for (int i = 0; i < cantidadTocados; i++) {
+            int id = tocados[i];
+            if (comunes[id] < minimoComunes) {
+                continue;
+            }
+            String termino = terminos.get(id);
+            int distancia = DistanciaEdicion.calcular(palabra, termino, maxima);
+            if (distancia <= maxima) {
+                resultado.put(termino, 1.0 - (double) distancia / Math.max(palabra.length(), termino.length()));
+            }
+        }
+        return resultado;
+    }
+    
+    private static Set<String> trigramas(String termino) {
+        String relleno = "  " + termino + " ";
+        Set<String> trigramas = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= relleno.length(); i++) {
+            trigramas.add(relleno.substring(i, i + 3));
+        }
+        return trigramas;
+    }
+}
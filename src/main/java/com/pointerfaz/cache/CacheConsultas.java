@@ -0,0 +1,178 @@
+package com.pointerfaz.cache;
+
+import com.pointerfaz.db.UnidadDeTrabajo;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache de resultados de consultas de listado y de conteo de los DAO
+ *
+ * La clave es el nombre de la consulta más sus parámetros. Cada resultado
+ * anota la versión de las tablas que leyó (ver VersionesTablas) y vale
+ * mientras ninguna cambie y no pasen biblioteca.cache.consultas.ttl
+ * milisegundos; el plazo acota lo que puede atrasarse respecto de cambios
+ * hechos por otros clientes. Así, varias lecturas iguales al armar una
+ * misma pantalla cuestan una sola consulta.
+ *
+ * Dentro de una UnidadDeTrabajo no se usa: la transacción puede ver sus
+ * propios cambios sin confirmar. Se entregan copias del resultado. Una
+ * lectura que falla no se guarda: se entrega el valor de respaldo y el
+ * próximo pedido vuelve a ir a la base.
+ */
+public final class CacheConsultas {
+    
+    private static final int MAXIMO = Integer.getInteger("biblioteca.cache.consultas.maximo", 256);
+    private static final long TTL_MS = Long.getLong("biblioteca.cache.consultas.ttl", 30_000);
+    
+    private static final CacheConsultas COMPARTIDA = new CacheConsultas(MAXIMO, TTL_MS);
+    
+    private final long ttlNanos;
+    private final LinkedHashMap<List<Object>, Entrada> entradas;
+    private long aciertos;
+    private long fallos;
+    
+    /**
+     * Lectura de la base de datos; si falla lanza la SQLException en vez de devolver un resultado vacío
+     */
+    @FunctionalInterface
+    public interface Consulta<T> {
+        T leer() throws SQLException;
+    }
+    
+    private static final class Entrada {
+        final Object resultado;
+        final String[] tablas;
+        final long[] versiones;
+        final long vence;
+        
+        Entrada(Object resultado, String[] tablas, long[] versiones, long vence) {
+            this.resultado = resultado;
+            this.tablas = tablas;
+            this.versiones = versiones;
+            this.vence = vence;
+        }
+    }
+    
+    CacheConsultas(int maximo, long ttlMs) {
+        this.ttlNanos = ttlMs * 1_000_000;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Entrada> mayor) {
+                return size() > maximo;
+            }
+        };
+    }
+    
+    /**
+     * Cache de toda la aplicación
+     */
+    public static CacheConsultas compartida() {
+        return COMPARTIDA;
+    }
+    
+    /**
+     * Resultado de la consulta desde la cache o, si no está o ya no vale, desde la base
+     * @param nombre nombre único de la consulta ("libros.listar", ...)
+     * @param parametros parámetros de la consulta (parte de la clave)
+     * @param tablas tablas que lee la consulta (VersionesTablas.LIBROS, ...)
+     * @param consulta lectura de la base de datos
+     * @param copiar copia del resultado que se guarda y de cada uno que se entrega
+     * @param siFalla resultado a entregar (sin guardarlo) si la consulta falla
+     */
+    public <T> T consultar(String nombre, List<?> parametros, String[] tablas, Consulta<T> consulta,
+            UnaryOperator<T> copiar, Supplier<T> siFalla) {
+        if (UnidadDeTrabajo.estaActiva()) {
+            return leer(consulta, siFalla);
+        }
+        
+        List<Object> clave = new ArrayList<>(parametros.size() + 1);
+        clave.add(nombre);
+        clave.addAll(parametros);
+        synchronized (this) {
+            Entrada entrada = entradas.get(clave);
+            if (entrada != null && vigente(entrada)) {
+                aciertos++;
+                @SuppressWarnings("unchecked")
+                T resultado = (T) entrada.resultado;
+                return copiar.apply(resultado);
+            }
+            fallos++;
+        }
+        
+        // Las versiones se toman antes de leer: si hay una escritura mientras tanto, el resultado nace vencido
+        long[] versiones = VersionesTablas.versiones(tablas);
+        T resultado;
+        try {
+            resultado = consulta.leer();
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return siFalla.get();
+        }
+        synchronized (this) {
+            entradas.put(clave, new Entrada(copiar.apply(resultado), tablas, versiones, System.nanoTime() + ttlNanos));
+        }
+        return resultado;
+    }
+    
+    private static <T> T leer(Consulta<T> consulta, Supplier<T> siFalla) {
+        try {
+            return consulta.leer();
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return siFalla.get();
+        }
+    }
+    
+    private boolean vigente(Entrada entrada) {
+        return System.nanoTime() - entrada.vence < 0
+                && Arrays.equals(entrada.versiones, VersionesTablas.versiones(entrada.tablas));
+    }
+    
+    /**
+     * Copia de una lista con una copia de cada elemento
+     */
+    public static <E> UnaryOperator<ArrayList<E>> copiarLista(UnaryOperator<E> copiarElemento) {
+        return lista -> {
+            ArrayList<E> copia = new ArrayList<>(lista.size());
+            lista.forEach(elemento -> copia.add(copiarElemento.apply(elemento)));
+            return copia;
+        };
+    }
+    
+    /**
+     * Copia de un mapa de conteos
+     */
+    public static <K> UnaryOperator<Map<K, Integer>> copiarConteos() {
+        return HashMap::new;
+    }
+    
+    public synchronized void vaciar() {
+        entradas.clear();
+    }
+    
+    public synchronized int getTamano() {
+        return entradas.size();
+    }
+    
+    public synchronized long getAciertos() {
+        return aciertos;
+    }
+    
+    public synchronized long getFallos() {
+        return fallos;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        long lecturas = aciertos + fallos;
+        return String.format("Cache de consultas: %d resultados, %.1f%% de aciertos (%d aciertos, %d fallos)",
+                entradas.size(), lecturas == 0 ? 0 : aciertos * 100.0 / lecturas, aciertos, fallos);
+    }
+}
@@ -0,0 +1,291 @@
+package com.pointerfaz.cache;
+
+import com.pointerfaz.dao.EscuchaCambios;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache de entidades por id con tamaño máximo, delante de las lecturas de un DAO
+ *
+ * Expulsión W-TinyLFU: las entradas nuevas entran a una ventana LRU chica (1%)
+ * y, al salir de ella, compiten con la próxima víctima de la región principal;
+ * se queda la que más se pidió según un SketchFrecuencia. Así un recorrido de
+ * una sola vez por muchos ids (un reporte, una importación) no desplaza a los
+ * libros y usuarios que se piden todo el tiempo. La región principal es una
+ * LRU segmentada: una entrada pedida dos veces pasa de "prueba" a "protegida"
+ * (80% de la región).
+ *
+ * Se guardan y se entregan copias, para que quien modifique la entidad no
+ * cambie la de la cache. Como escucha del DAO, un guardado reemplaza la copia
+ * (si estaba) y un eliminado la quita. Todos los métodos toman el monitor de
+ * la cache, pero la lectura de la base de datos en un fallo se hace fuera.
+ * @param <V> tipo de la entidad
+ */
+public class CacheEntidades<V> implements EscuchaCambios<V> {
+    
+    private final String nombre;
+    private final int capacidad;
+    private final int capacidadVentana;
+    private final int capacidadPrincipal;
+    private final int capacidadProtegida;
+    private final ToIntFunction<V> id;
+    private final UnaryOperator<V> copiar;
+    private final SketchFrecuencia frecuencias;
+    
+    // En orden de acceso: la primera es la que lleva más tiempo sin pedirse
+    private final LinkedHashMap<Integer, V> ventana = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Integer, V> prueba = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Integer, V> protegida = new LinkedHashMap<>(16, 0.75f, true);
+    
+    // Cambia con cada guardado o eliminado: una lectura que empezó antes no se guarda
+    private long generacion;
+    private long aciertos;
+    private long fallos;
+    private long expulsiones;
+    private long rechazos;
+    
+    /**
+     * @param nombre nombre para las estadísticas ("libros", "usuarios")
+     * @param capacidad máximo de entidades guardadas
+     * @param id id de una entidad
+     * @param copiar constructor de copia de la entidad
+     */
+    public CacheEntidades(String nombre, int capacidad, ToIntFunction<V> id, UnaryOperator<V> copiar) {
+        this.nombre = nombre;
+        this.capacidad = Math.max(2, capacidad);
+        this.capacidadVentana = Math.max(1, this.capacidad / 100);
+        this.capacidadPrincipal = this.capacidad - capacidadVentana;
+        this.capacidadProtegida = capacidadPrincipal * 8 / 10;
+        this.id = id;
+        this.copiar = copiar;
+        this.frecuencias = new SketchFrecuencia(this.capacidad);
+    }
+    
+    /**
+     * Entidad desde la cache o, si no está, desde el cargador (y queda guardada)
+     * @param cargador lectura de la base de datos; puede devolver null
+     * @return copia de la entidad o null si no existe
+     */
+    public V obtener(int clave, IntFunction<V> cargador) {
+        long generacionLectura;
+        synchronized (this) {
+            V guardada = buscar(clave);
+            if (guardada != null) {
+                aciertos++;
+                return copiar.apply(guardada);
+            }
+            fallos++;
+            generacionLectura = generacion;
+        }
+        
+        V cargada = cargador.apply(clave);
+        if (cargada != null) {
+            synchronized (this) {
+                if (generacionLectura == generacion && !contiene(clave)) {
+                    agregar(clave, copiar.apply(cargada));
+                }
+            }
+        }
+        return cargada;
+    }
+    
+    /**
+     * Varias entidades: las que no están se piden juntas al cargador
+     * @param cargador lectura por lote de los ids que faltan; devuelve id -> entidad
+     * @return mapa id -> copia; los ids inexistentes no aparecen
+     */
+    public Map<Integer, V> obtenerTodas(Collection<Integer> claves, Function<List<Integer>, Map<Integer, V>> cargador) {
+        Map<Integer, V> encontradas = new HashMap<>();
+        List<Integer> faltantes = new ArrayList<>();
+        long generacionLectura;
+        synchronized (this) {
+            for (Integer clave : claves) {
+                if (encontradas.containsKey(clave) || faltantes.contains(clave)) {
+                    continue;
+                }
+                V guardada = buscar(clave);
+                if (guardada != null) {
+                    aciertos++;
+                    encontradas.put(clave, copiar.apply(guardada));
+                } else {
+                    fallos++;
+                    faltantes.add(clave);
+                }
+            }
+            generacionLectura = generacion;
+        }
+        if (faltantes.isEmpty()) {
+            return encontradas;
+        }
+        
+        Map<Integer, V> cargadas = cargador.apply(faltantes);
+        synchronized (this) {
+            if (generacionLectura == generacion) {
+                cargadas.forEach((clave, entidad) -> {
+                    if (!contiene(clave)) {
+                        agregar(clave, copiar.apply(entidad));
+                    }
+                });
+            }
+        }
+        encontradas.putAll(cargadas);
+        return encontradas;
+    }
+    
+    /**
+     * Quitar una entidad (se llama apenas se escribe en la base, antes del commit)
+     */
+    public synchronized void invalidar(int clave) {
+        generacion++;
+        ventana.remove(clave);
+        prueba.remove(clave);
+        protegida.remove(clave);
+    }
+    
+    public synchronized void vaciar() {
+        generacion++;
+        ventana.clear();
+        prueba.clear();
+        protegida.clear();
+    }
+    
+    /**
+     * Entidad confirmada en la base: se reemplaza la copia si estaba en la cache
+     */
+    @Override
+    public synchronized void guardado(V entidad) {
+        generacion++;
+        int clave = id.applyAsInt(entidad);
+        V copia = copiar.apply(entidad);
+        if (ventana.containsKey(clave)) {
+            ventana.put(clave, copia);
+        } else if (prueba.containsKey(clave)) {
+            prueba.put(clave, copia);
+        } else if (protegida.containsKey(clave)) {
+            protegida.put(clave, copia);
+        }
+    }
+    
+    @Override
+    public void eliminado(int clave) {
+        invalidar(clave);
+    }
+    
+    @Override
+    public void desactualizado() {
+        vaciar();
+    }
+    
+    /**
+     * Buscar en las tres regiones; una entrada de prueba pedida otra vez pasa a protegida
+     */
+    private V buscar(int clave) {
+        frecuencias.incrementar(clave);
+        V entidad = ventana.get(clave);
+        if (entidad == null) {
+            entidad = protegida.get(clave);
+        }
+        if (entidad == null) {
+            entidad = prueba.remove(clave);
+            if (entidad != null) {
+                protegida.put(clave, entidad);
+                if (protegida.size() > capacidadProtegida) {
+                    // La protegida menos usada vuelve a prueba, como la más reciente
+                    Map.Entry<Integer, V> degradada = quitarPrimera(protegida);
+                    prueba.put(degradada.getKey(), degradada.getValue());
+                }
+            }
+        }
+        return entidad;
+    }
+    
+    private boolean contiene(int clave) {
+        return ventana.containsKey(clave) || prueba.containsKey(clave) || protegida.containsKey(clave);
+    }
+    
+    /**
+     * Agregar a la ventana; la que sale de ella compite por entrar a la región principal
+     */
+    private void agregar(int clave, V entidad) {
+        ventana.put(clave, entidad);
+        if (ventana.size() <= capacidadVentana) {
+            return;
+        }
+        Map.Entry<Integer, V> candidata = quitarPrimera(ventana);
+        if (prueba.size() + protegida.size() < capacidadPrincipal) {
+            prueba.put(candidata.getKey(), candidata.getValue());
+            return;
+        }
+        
+        LinkedHashMap<Integer, V> region = prueba.isEmpty() ? protegida : prueba;
+        int victima = region.keySet().iterator().next();
+        expulsiones++;
+        if (frecuencias.frecuencia(candidata.getKey()) > frecuencias.frecuencia(victima)) {
+            region.remove(victima);
+            prueba.put(candidata.getKey(), candidata.getValue());
+        } else {
+            rechazos++;
+        }
+    }
+    
+    private static <V> Map.Entry<Integer, V> quitarPrimera(LinkedHashMap<Integer, V> region) {
+        Iterator<Map.Entry<Integer, V>> it = region.entrySet().iterator();
+        Map.Entry<Integer, V> primera = it.next();
+        Map.Entry<Integer, V> quitada = Map.entry(primera.getKey(), primera.getValue());
+        it.remove();
+        return quitada;
+    }
+    
+    public synchronized int getTamano() {
+        return ventana.size() + prueba.size() + protegida.size();
+    }
+    
+    public int getCapacidad() {
+        return capacidad;
+    }
+    
+    public synchronized long getAciertos() {
+        return aciertos;
+    }
+    
+    public synchronized long getFallos() {
+        return fallos;
+    }
+    
+    /**
+     * @return entidades que salieron de la cache por falta de lugar
+     */
+    public synchronized long getExpulsiones() {
+        return expulsiones;
+    }
+    
+    /**
+     * @return expulsiones en las que la entidad nueva no entró por pedirse menos que la víctima
+     */
+    public synchronized long getRechazos() {
+        return rechazos;
+    }
+    
+    /**
+     * @return aciertos / (aciertos + fallos), 0 si no hubo lecturas
+     */
+    public synchronized double getTasaAciertos() {
+        long lecturas = aciertos + fallos;
+        return lecturas == 0 ? 0 : (double) aciertos / lecturas;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format("Cache de %s: %d/%d, %.1f%% de aciertos (%d aciertos, %d fallos), %d expulsiones (%d rechazadas al entrar)",
+                nombre, getTamano(), capacidad, getTasaAciertos() * 100, aciertos, fallos, expulsiones, rechazos);
+    }
+}
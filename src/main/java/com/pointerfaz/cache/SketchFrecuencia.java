@@ -0,0 +1,88 @@
+package com.pointerfaz.cache;
+
+/**
+ * Frecuencia aproximada de acceso a cada id (Count-Min Sketch de 4 bits)
+ *
+ * Cada id incrementa 4 contadores de 4 bits (hasta 15) elegidos con hashes
+ * distintos, y su frecuencia es el menor de los 4. Cuando se llevan muchos
+ * incrementos todos los contadores se dividen por 2: así lo que fue popular
+ * hace tiempo va perdiendo peso frente a lo que se pide ahora.
+ */
+final class SketchFrecuencia {
+    
+    private static final long[] SEMILLAS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long MITAD = 0x7777777777777777L;
+    
+    // 16 contadores de 4 bits por long
+    private final long[] tabla;
+    private final int mascara;
+    private final int tamanoMuestra;
+    private int incrementos;
+    
+    /**
+     * @param capacidad cantidad de entradas de la cache (ajusta el tamaño de la tabla)
+     */
+    SketchFrecuencia(int capacidad) {
+        int tamano = Integer.highestOneBit(Math.max(64, capacidad - 1) << 1);
+        tabla = new long[tamano];
+        mascara = tamano - 1;
+        tamanoMuestra = 10 * Math.max(capacidad, 64);
+    }
+    
+    void incrementar(int id) {
+        int hash = mezclar(id);
+        boolean incrementado = false;
+        for (int i = 0; i < SEMILLAS.length; i++) {
+            int indice = indice(hash, i);
+            int desplazamiento = desplazamiento(hash, i);
+            if (((tabla[indice] >>> desplazamiento) & 0xF) < 0xF) {
+                tabla[indice] += 1L << desplazamiento;
+                incrementado = true;
+            }
+        }
+        if (incrementado && ++incrementos == tamanoMuestra) {
+            envejecer();
+        }
+    }
+    
+    /**
+     * @return frecuencia estimada del id, de 0 a 15 (nunca menor que la real hasta envejecer)
+     */
+    int frecuencia(int id) {
+        int hash = mezclar(id);
+        int minimo = 0xF;
+        for (int i = 0; i < SEMILLAS.length; i++) {
+            int contador = (int) (tabla[indice(hash, i)] >>> desplazamiento(hash, i)) & 0xF;
+            minimo = Math.min(minimo, contador);
+        }
+        return minimo;
+    }
+    
+    // Dividir todos los contadores por 2
+    private void envejecer() {
+        for (int i = 0; i < tabla.length; i++) {
+            tabla[i] = (tabla[i] >>> 1) & MITAD;
+        }
+        incrementos /= 2;
+    }
+    
+    private int indice(int hash, int i) {
+        long mezcla = (hash + SEMILLAS[i]) * SEMILLAS[i];
+        mezcla += mezcla >>> 32;
+        return (int) mezcla & mascara;
+    }
+    
+    // Cuál de los 16 contadores del long usa este hash en la fila i
+    private static int desplazamiento(int hash, int i) {
+        return ((hash >>> (i << 3)) & 0xF) << 2;
+    }
+    
+    private static int mezclar(int id) {
+        int hash = id * 0x9E3779B9;
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        return hash ^ (hash >>> 13);
+    }
+}
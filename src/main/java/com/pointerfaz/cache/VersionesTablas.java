@@ -0,0 +1,53 @@
+package com.pointerfaz.cache;
+
+import com.pointerfaz.db.UnidadDeTrabajo;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Un contador por tabla que sube con cada escritura en ella
+ * Un resultado guardado en CacheConsultas anota las versiones de sus tablas
+ * y deja de servir en cuanto alguna cambia.
+ */
+public final class VersionesTablas {
+    
+    public static final String LIBROS = "libros";
+    public static final String PRESTAMOS = "prestamos";
+    public static final String PERSONAS = "personas";
+    
+    private static final ConcurrentHashMap<String, AtomicLong> VERSIONES = new ConcurrentHashMap<>();
+    
+    private VersionesTablas() {
+    }
+    
+    /**
+     * Avisar que se escribió en las tablas
+     * Sube la versión ya (para que no se use un resultado viejo mientras se confirma)
+     * y otra vez después del commit (por si alguien guardó la fila anterior en ese rato)
+     */
+    public static void cambio(String... tablas) {
+        incrementar(tablas);
+        UnidadDeTrabajo.despuesDeConfirmar(() -> incrementar(tablas));
+    }
+    
+    /**
+     * @return versión actual de cada tabla, en el mismo orden
+     */
+    static long[] versiones(String... tablas) {
+        long[] versiones = new long[tablas.length];
+        for (int i = 0; i < tablas.length; i++) {
+            versiones[i] = contador(tablas[i]).get();
+        }
+        return versiones;
+    }
+    
+    private static void incrementar(String... tablas) {
+        for (String tabla : tablas) {
+            contador(tabla).incrementAndGet();
+        }
+    }
+    
+    private static AtomicLong contador(String tabla) {
+        return VERSIONES.computeIfAbsent(tabla, t -> new AtomicLong());
+    }
+}
@@ -1,8 +1,26 @@
 package com.pointerfaz.controlador;
 
+import com.pointerfaz.busqueda.IndiceLibros;
+import com.pointerfaz.busqueda.ResultadoBusqueda;
+import com.pointerfaz.busqueda.Sugerencia;
+import com.pointerfaz.busqueda.SugerenciasBiblioteca;
+import com.pointerfaz.dao.ConsultaLibros;
+import com.pointerfaz.dao.EstadisticasCatalogo;
 import com.pointerfaz.dao.LibroDAO;
+import com.pointerfaz.dao.Pagina;
+import com.pointerfaz.dao.ResultadoCarga;
+import com.pointerfaz.dao.SincronizadorCambios;
+import com.pointerfaz.importacion.FormatoCatalogo;
+import com.pointerfaz.importacion.ImportadorCatalogo;
+import com.pointerfaz.importacion.MetricasImportacion;
 import com.pointerfaz.modelo.Libro;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Controlador NUEVO para gestionar libros de la biblioteca
@@ -28,6 +46,26 @@ public class LibroControladorNuevo {
         libroDAO.agregarLibro(libro);
     }
     
+    /**
+     * Agregar muchos libros de una vez (importación de catálogo)
+     * @return filas insertadas y filas rechazadas con su motivo
+     */
+    public ResultadoCarga agregarLibros(Collection<Libro> libros) {
+        return libroDAO.agregarLibros(libros);
+    }
+    
+    /**
+     * Importar un catálogo de proveedor (CSV o MARC21, según la extensión)
+     * El avance se guarda junto al archivo (archivo + ".progreso"); si la importación
+     * se interrumpe, volver a importar el mismo archivo sigue desde ahí.
+     * @param progreso recibe las métricas después de cada lote (puede ser null)
+     * @return métricas finales de la importación
+     */
+    public MetricasImportacion importarCatalogo(Path archivo, Consumer<MetricasImportacion> progreso) throws IOException, InterruptedException {
+        Path puntoControl = archivo.resolveSibling(archivo.getFileName() + ".progreso");
+        return new ImportadorCatalogo(libroDAO).importar(archivo, FormatoCatalogo.deArchivo(archivo), puntoControl, progreso);
+    }
+    
     /**
      * Listar todos los libros desde la BASE DE DATOS
      */
@@ -35,6 +73,17 @@ public class LibroControladorNuevo {
         return libroDAO.listarLibros();
     }
     
+    /**
+     * Listar libros de a una página desde la BASE DE DATOS
+     * @param orden columna de orden: "id", "isbn", "titulo" o "autor"
+     * @param token token de la página anterior o null para la primera
+     * @param tamano filas por página
+     * @return página con el token de la siguiente
+     */
+    public Pagina<Libro> paginarLibros(String orden, String token, int tamano) {
+        return libroDAO.paginarLibros(orden, token, tamano);
+    }
+    
     /**
      * Buscar libro por ID en la BASE DE DATOS
      * @param id ID del libro a buscar
@@ -44,18 +93,98 @@ public class LibroControladorNuevo {
         return libroDAO.buscarLibro(id);
     }
     
+    /**
+     * Buscar varios libros por ID en la BASE DE DATOS
+     * @param ids IDs de los libros
+     * @return mapa id -> libro
+     */
+    public Map<Integer, Libro> buscarLibros(Collection<Integer> ids) {
+        return libroDAO.buscarLibros(ids);
+    }
+    
     /**
      * Buscar libro por ISBN en la BASE DE DATOS
      * @param isbn ISBN del libro
      * @return libro encontrado o null
      */
     public Libro buscarLibroPorISBN(String isbn) {
-        for (Libro libro : libroDAO.listarLibros()) {
-            if (libro.getIsbn() != null && libro.getIsbn().equals(isbn)) {
-                return libro;
-            }
-        }
-        return null;
+        ArrayList<Libro> libros = libroDAO.consultarLibros(new ConsultaLibros().isbn(isbn).limite(1));
+        return libros.isEmpty() ? null : libros.get(0);
+    }
+    
+    /**
+     * Buscar libros que cumplan varios criterios a la vez en la BASE DE DATOS
+     * @param consulta criterios de búsqueda
+     * @return lista de libros que coinciden
+     */
+    public ArrayList<Libro> consultarLibros(ConsultaLibros consulta) {
+        return libroDAO.consultarLibros(consulta);
+    }
+    
+    /**
+     * Búsqueda mientras se escribe: título, autor, editorial, ISBN o categoría, sin tildes ni mayúsculas
+     * Responde desde el índice en memoria, sin consultar la base de datos
+     * @param texto palabras a buscar (la última puede estar incompleta)
+     * @param limite máximo de libros a devolver
+     * @return libros que contienen todas las palabras, de más a menos relevante
+     * (un ISBN completo trae su libro primero); vacío si el índice no se pudo cargar
+     */
+    public List<Libro> buscarEnCatalogo(String texto, int limite) {
+        IndiceLibros indice = IndiceLibros.compartido();
+        return indice == null ? List.of() : indice.buscar(texto, limite);
+    }
+    
+    /**
+     * Búsqueda tolerante a errores de escritura en título y autor ("servantes", "garsia marques")
+     * Responde desde el índice en memoria, sin consultar la base de datos
+     * @param texto palabras a buscar, completas
+     * @param limite máximo de libros a devolver
+     * @return libros parecidos, de más a menos parecido; vacío si el índice no se pudo cargar
+     */
+    public List<Libro> buscarLibrosAproximado(String texto, int limite) {
+        IndiceLibros indice = IndiceLibros.compartido();
+        return indice == null ? List.of() : indice.buscarAproximado(texto, limite);
+    }
+    
+    /**
+     * Buscar en el índice en memoria con filtros por faceta, junto con los conteos
+     * por categoría, estado, década y referencia de todas las coincidencias
+     * @param filtros faceta (IndiceLibros.FACETA_*) -> valor elegido
+     * @return vacío si el índice no se pudo cargar
+     */
+    public ResultadoBusqueda buscarConFacetas(String texto, Map<String, String> filtros, int limite) {
+        IndiceLibros indice = IndiceLibros.compartido();
+        return indice == null ? ResultadoBusqueda.vacio() : indice.buscarConFacetas(texto, filtros, limite);
+    }
+    
+    /**
+     * Sugerencias de títulos y autores para la caja de búsqueda, los más prestados primero
+     * @param prefijo lo escrito hasta ahora (puede ser el comienzo de cualquier palabra)
+     * @param cantidad máximo de sugerencias
+     */
+    public List<Sugerencia> sugerirLibros(String prefijo, int cantidad) {
+        // Mientras se cargan en segundo plano no hay sugerencias: esperarlas congelaría la caja de búsqueda
+        SugerenciasBiblioteca sugerencias = SugerenciasBiblioteca.siEstanCargadas();
+        return sugerencias == null ? List.of() : sugerencias.sugerirLibros(prefijo, cantidad);
+    }
+    
+    /**
+     * @return true si el índice de búsqueda ya está cargado y buscar en él no espera a la carga
+     */
+    public boolean isBusquedaLista() {
+        return IndiceLibros.siEstaCargado() != null;
+    }
+    
+    /**
+     * Cargar el índice de búsqueda y las sugerencias (la primera vez lee todo el catálogo)
+     * Antes se empieza a seguir lo que cambian otros clientes, para no perder lo de durante la carga
+     * @return true si el índice quedó cargado; si la base de datos no respondió se puede volver a llamar
+     */
+    public boolean prepararBusqueda() {
+        SincronizadorCambios.compartido();
+        boolean indiceCargado = IndiceLibros.compartido() != null;
+        SugerenciasBiblioteca.compartidas();
+        return indiceCargado;
     }
     
     /**
@@ -73,14 +202,7 @@ public class LibroControladorNuevo {
      * @return lista de libros del autor
      */
     public ArrayList<Libro> buscarLibrosPorAutor(String autor) {
-        ArrayList<Libro> librosEncontrados = new ArrayList<>();
-        for (Libro libro : libroDAO.listarLibros()) {
-            if (libro.getAutor() != null && 
-                libro.getAutor().toLowerCase().contains(autor.toLowerCase())) {
-                librosEncontrados.add(libro);
-            }
-        }
-        return librosEncontrados;
+        return libroDAO.consultarLibros(new ConsultaLibros().autorContiene(autor));
     }
     
     /**
@@ -89,13 +211,7 @@ public class LibroControladorNuevo {
      * @return lista de libros de la categoría
      */
     public ArrayList<Libro> buscarLibrosPorCategoria(String categoria) {
-        ArrayList<Libro> librosEncontrados = new ArrayList<>();
-        for (Libro libro : libroDAO.listarLibros()) {
-            if (libro.getCategoria() != null && libro.getCategoria().equals(categoria)) {
-                librosEncontrados.add(libro);
-            }
-        }
-        return librosEncontrados;
+        return libroDAO.consultarLibros(new ConsultaLibros().categoria(categoria));
     }
     
     /**
@@ -120,13 +236,8 @@ public class LibroControladorNuevo {
      * @return lista de libros disponibles
      */
     public ArrayList<Libro> obtenerLibrosDisponibles() {
-        ArrayList<Libro> librosDisponibles = new ArrayList<>();
-        for (Libro libro : libroDAO.listarLibros()) {
-            if (libro.estaDisponible()) {
-                librosDisponibles.add(libro);
-            }
-        }
-        return librosDisponibles;
+        // Mismo criterio que Libro.estaDisponible()
+        return libroDAO.consultarLibros(new ConsultaLibros().estado("Disponible").esReferencia(false));
     }
     
     /**
@@ -134,13 +245,7 @@ public class LibroControladorNuevo {
      * @return lista de libros prestados
      */
     public ArrayList<Libro> obtenerLibrosPrestados() {
-        ArrayList<Libro> librosPrestados = new ArrayList<>();
-        for (Libro libro : libroDAO.listarLibros()) {
-            if ("Prestado".equals(libro.getEstado())) {
-                librosPrestados.add(libro);
-            }
-        }
-        return librosPrestados;
+        return libroDAO.consultarLibros(new ConsultaLibros().estado("Prestado"));
     }
     
     /**
@@ -148,27 +253,15 @@ public class LibroControladorNuevo {
      * @return lista de libros de referencia
      */
     public ArrayList<Libro> obtenerLibrosReferencia() {
-        ArrayList<Libro> librosReferencia = new ArrayList<>();
-        for (Libro libro : libroDAO.listarLibros()) {
-            if (libro.isEsReferencia()) {
-                librosReferencia.add(libro);
-            }
-        }
-        return librosReferencia;
+        return libroDAO.consultarLibros(new ConsultaLibros().esReferencia(true));
     }
     
     /**
      * Obtener todas las categorías disponibles desde la BASE DE DATOS
-     * @return lista de categorías únicas
+     * @return lista de categorías únicas, en orden alfabético
      */
     public ArrayList<String> obtenerCategorias() {
-        ArrayList<String> categorias = new ArrayList<>();
-        for (Libro libro : libroDAO.listarLibros()) {
-            if (libro.getCategoria() != null && !categorias.contains(libro.getCategoria())) {
-                categorias.add(libro.getCategoria());
-            }
-        }
-        return categorias;
+        return libroDAO.listarCategorias();
     }
     
     /**
@@ -186,13 +279,7 @@ public class LibroControladorNuevo {
      * @return cantidad de libros en ese estado
      */
     public int contarLibrosPorEstado(String estado) {
-        int count = 0;
-        for (Libro libro : libroDAO.listarLibros()) {
-            if (libro.getEstado() != null && libro.getEstado().equals(estado)) {
-                count++;
-            }
-        }
-        return count;
+        return libroDAO.contarLibros(new ConsultaLibros().estado(estado));
     }
     
     /**
@@ -201,12 +288,14 @@ public class LibroControladorNuevo {
      * @return cantidad de libros en esa categoría
      */
     public int contarLibrosPorCategoria(String categoria) {
-        int count = 0;
-        for (Libro libro : libroDAO.listarLibros()) {
-            if (libro.getCategoria() != null && libro.getCategoria().equals(categoria)) {
-                count++;
-            }
-        }
-        return count;
+        return libroDAO.contarLibros(new ConsultaLibros().categoria(categoria));
+    }
+    
+    /**
+     * Obtener todos los contadores del catálogo con una sola consulta a la BASE DE DATOS
+     * @return total y conteos por estado, categoría, editorial y década
+     */
+    public EstadisticasCatalogo obtenerEstadisticasCatalogo() {
+        return libroDAO.obtenerEstadisticasCatalogo();
     }
 }
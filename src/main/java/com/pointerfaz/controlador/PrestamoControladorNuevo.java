@@ -1,15 +1,20 @@
 package com.pointerfaz.controlador;
 
 import com.pointerfaz.dao.PrestamoDAO;
+import com.pointerfaz.dao.Pagina;
 import com.pointerfaz.dao.LibroDAO;
 import com.pointerfaz.dao.UsuarioDAO;
+import com.pointerfaz.dao.VerificacionPrestamo;
+import com.pointerfaz.db.UnidadDeTrabajo;
 import com.pointerfaz.modelo.Prestamo;
-import com.pointerfaz.modelo.Libro;
 import com.pointerfaz.modelo.Persona;
 import com.pointerfaz.modelo.Estudiante;
 import com.pointerfaz.modelo.Profesor;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * Controlador NUEVO para gestionar préstamos de libros
@@ -33,43 +38,45 @@ public class PrestamoControladorNuevo {
     
     /**
      * Crear nuevo préstamo en la BASE DE DATOS
+     * Libro y usuario se bloquean y validan en una sola consulta y el préstamo se inserta
+     * en la misma transacción, así dos mostradores no pueden prestar el mismo libro
+     * ni pasar el límite de un usuario al mismo tiempo.
      * @param libroId ID del libro a prestar
      * @param usuarioId ID del usuario que presta
      * @return true si se creó exitosamente, false en caso contrario
      */
     public boolean crearPrestamo(int libroId, int usuarioId) {
-        // Verificar que el libro existe y está disponible
-        Libro libro = libroDAO.buscarLibro(libroId);
-        if (libro == null || !libro.estaDisponible()) {
-            return false;
-        }
-        
-        // Verificar que el usuario existe
-        Persona usuario = usuarioDAO.buscarUsuario(usuarioId);
-        if (usuario == null) {
-            return false;
-        }
-        
-        // Verificar límite de préstamos del usuario
-        if (!puedePrestarMasLibros(usuarioId)) {
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.iniciar()) {
+            // Verificar que el libro y el usuario existen, dejándolos bloqueados hasta el commit
+            VerificacionPrestamo verificacion = prestamoDAO.bloquearParaPrestamo(libroId, usuarioId);
+            if (verificacion == null || !verificacion.isLibroDisponible()) {
+                return false;
+            }
+            
+            // Verificar límite de préstamos del usuario
+            Persona usuario = verificacion.getUsuario();
+            if (verificacion.getPrestamosActivos() >= obtenerLimitePrestamos(usuario)) {
+                return false;
+            }
+            
+            // Determinar días de préstamo según tipo de usuario
+            int diasPrestamo = obtenerDiasPrestamo(usuario);
+            String tipoUsuario = usuario.getClass().getSimpleName();
+            
+            // Crear nuevo préstamo; el trigger de la tabla prestamos marca el libro como prestado
+            Prestamo nuevoPrestamo = new Prestamo(0, libroId, usuarioId, tipoUsuario, 
+                                                 LocalDate.now(), LocalDate.now().plusDays(diasPrestamo));
+            if (!prestamoDAO.registrarPrestamo(nuevoPrestamo)) {
+                return false;
+            }
+            
+            unidad.confirmar();
+            return true;
+            
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
             return false;
         }
-        
-        // Determinar días de préstamo según tipo de usuario
-        int diasPrestamo = obtenerDiasPrestamo(usuario);
-        String tipoUsuario = usuario.getClass().getSimpleName();
-        
-        // Crear nuevo préstamo
-        Prestamo nuevoPrestamo = new Prestamo(0, libroId, usuarioId, tipoUsuario, 
-                                             LocalDate.now(), LocalDate.now().plusDays(diasPrestamo));
-        
-        // Agregar a la base de datos
-        prestamoDAO.agregarPrestamo(nuevoPrestamo);
-        
-        // Cambiar estado del libro en la base de datos
-        libroDAO.actualizarEstadoLibro(libroId, "Prestado");
-        
-        return true;
     }
     
     /**
@@ -80,6 +87,17 @@ public class PrestamoControladorNuevo {
         return prestamoDAO.listarPrestamos();
     }
     
+    /**
+     * Listar préstamos de a una página desde la BASE DE DATOS
+     * @param orden columna de orden: "id" o "fecha_prestamo"
+     * @param token token de la página anterior o null para la primera
+     * @param tamano filas por página
+     * @return página con el token de la siguiente
+     */
+    public Pagina<Prestamo> paginarPrestamos(String orden, String token, int tamano) {
+        return prestamoDAO.paginarPrestamos(orden, token, tamano);
+    }
+    
     /**
      * Buscar préstamo por ID en la BASE DE DATOS
      * @param id ID del préstamo a buscar
@@ -95,13 +113,25 @@ public class PrestamoControladorNuevo {
      * @return lista de préstamos activos
      */
     public ArrayList<Prestamo> obtenerPrestamosUsuario(int usuarioId) {
-        ArrayList<Prestamo> prestamosUsuario = new ArrayList<>();
-        for (Prestamo prestamo : prestamoDAO.listarPrestamos()) {
-            if (prestamo.getUsuarioId() == usuarioId && "Activo".equals(prestamo.getEstado())) {
-                prestamosUsuario.add(prestamo);
-            }
-        }
-        return prestamosUsuario;
+        return prestamoDAO.listarPrestamosActivosUsuario(usuarioId);
+    }
+    
+    /**
+     * Contar préstamos activos de un usuario sin traer el historial
+     * @param usuarioId ID del usuario
+     * @return cantidad de préstamos activos
+     */
+    public int contarPrestamosActivos(int usuarioId) {
+        return prestamoDAO.contarPrestamosActivos(usuarioId);
+    }
+    
+    /**
+     * Contar préstamos activos de varios usuarios a la vez
+     * @param usuarioIds IDs de los usuarios
+     * @return mapa usuario_id -> préstamos activos
+     */
+    public Map<Integer, Integer> contarPrestamosActivos(Collection<Integer> usuarioIds) {
+        return prestamoDAO.contarPrestamosActivos(usuarioIds);
     }
     
     /**
@@ -110,13 +140,7 @@ public class PrestamoControladorNuevo {
      * @return lista de préstamos del libro
      */
     public ArrayList<Prestamo> obtenerPrestamosLibro(int libroId) {
-        ArrayList<Prestamo> prestamosLibro = new ArrayList<>();
-        for (Prestamo prestamo : prestamoDAO.listarPrestamos()) {
-            if (prestamo.getLibroId() == libroId) {
-                prestamosLibro.add(prestamo);
-            }
-        }
-        return prestamosLibro;
+        return prestamoDAO.listarPrestamosLibro(libroId);
     }
     
     /**
@@ -160,11 +184,11 @@ public class PrestamoControladorNuevo {
      */
     public ArrayList<Prestamo> obtenerPrestamosVencidos() {
         ArrayList<Prestamo> prestamosVencidos = new ArrayList<>();
-        for (Prestamo prestamo : prestamoDAO.listarPrestamos()) {
+        prestamoDAO.recorrerPrestamos(prestamo -> {
             if (prestamo.estaVencido()) {
                 prestamosVencidos.add(prestamo);
             }
-        }
+        });
         return prestamosVencidos;
     }
     
@@ -177,15 +201,23 @@ public class PrestamoControladorNuevo {
         ArrayList<Prestamo> prestamosProximos = new ArrayList<>();
         LocalDate fechaLimite = LocalDate.now().plusDays(dias);
         
-        for (Prestamo prestamo : prestamoDAO.listarPrestamos()) {
+        prestamoDAO.recorrerPrestamos(prestamo -> {
             if ("Activo".equals(prestamo.getEstado()) && 
                 prestamo.getFechaDevolucionEsperada().isBefore(fechaLimite)) {
                 prestamosProximos.add(prestamo);
             }
-        }
+        });
         return prestamosProximos;
     }
     
+    /**
+     * Contar cuántas veces se prestó cada libro con una consulta agrupada
+     * @return mapa libro_id -> cantidad de préstamos
+     */
+    public Map<Integer, Integer> contarPrestamosPorLibro() {
+        return prestamoDAO.contarPrestamosPorLibro();
+    }
+    
     /**
      * Verificar si un usuario puede prestar más libros
      * @param usuarioId ID del usuario
@@ -197,7 +229,7 @@ public class PrestamoControladorNuevo {
             return false;
         }
         
-        int prestamosActivos = obtenerPrestamosUsuario(usuarioId).size();
+        int prestamosActivos = prestamoDAO.contarPrestamosActivos(usuarioId);
         int limiteUsuario = obtenerLimitePrestamos(usuario);
         
         return prestamosActivos < limiteUsuario;
@@ -237,13 +269,7 @@ public class PrestamoControladorNuevo {
      * @return monto total de multas
      */
     public double calcularMultaUsuario(int usuarioId) {
-        double multaTotal = 0.0;
-        for (Prestamo prestamo : prestamoDAO.listarPrestamos()) {
-            if (prestamo.getUsuarioId() == usuarioId) {
-                multaTotal += prestamo.getMulta();
-            }
-        }
-        return multaTotal;
+        return prestamoDAO.sumarMultasUsuario(usuarioId);
     }
     
     /**
@@ -251,28 +277,26 @@ public class PrestamoControladorNuevo {
      * @return array con [total, activos, vencidos, devueltos]
      */
     public int[] obtenerEstadisticas() {
-        ArrayList<Prestamo> prestamos = prestamoDAO.listarPrestamos();
-        int total = prestamos.size();
-        int activos = 0;
-        int vencidos = 0;
-        int devueltos = 0;
+        // [total, activos, vencidos, devueltos], acumulados mientras se leen las filas
+        int[] estadisticas = new int[4];
         
-        for (Prestamo prestamo : prestamos) {
+        prestamoDAO.recorrerPrestamos(prestamo -> {
+            estadisticas[0]++;
             switch (prestamo.getEstado()) {
                 case "Activo":
                     if (prestamo.estaVencido()) {
-                        vencidos++;
+                        estadisticas[2]++;
                     } else {
-                        activos++;
+                        estadisticas[1]++;
                     }
                     break;
                 case "Devuelto":
-                    devueltos++;
+                    estadisticas[3]++;
                     break;
             }
-        }
+        });
         
-        return new int[]{total, activos, vencidos, devueltos};
+        return estadisticas;
     }
     
     /**
@@ -1,11 +1,17 @@
 package com.pointerfaz.controlador;
 
+import com.pointerfaz.busqueda.IndiceUsuarios;
+import com.pointerfaz.busqueda.Sugerencia;
+import com.pointerfaz.busqueda.SugerenciasBiblioteca;
 import com.pointerfaz.dao.UsuarioDAO;
+import com.pointerfaz.dao.Pagina;
 import com.pointerfaz.modelo.Estudiante;
-import com.pointerfaz.modelo.EstudianteGraduado;
 import com.pointerfaz.modelo.Profesor;
 import com.pointerfaz.modelo.Persona;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Controlador NUEVO para gestionar usuarios de la biblioteca
@@ -39,6 +45,17 @@ public class UsuarioControladorNuevo {
         return usuarioDAO.listarUsuarios();
     }
     
+    /**
+     * Listar usuarios de a una página desde la BASE DE DATOS
+     * @param orden columna de orden: "id", "apellidos" o "email"
+     * @param token token de la página anterior o null para la primera
+     * @param tamano filas por página
+     * @return página con el token de la siguiente
+     */
+    public Pagina<Persona> paginarUsuarios(String orden, String token, int tamano) {
+        return usuarioDAO.paginarUsuarios(orden, token, tamano);
+    }
+    
     /**
      * Buscar usuario por ID en la BASE DE DATOS
      * @param id ID del usuario a buscar
@@ -48,18 +65,22 @@ public class UsuarioControladorNuevo {
         return usuarioDAO.buscarUsuario(id);
     }
     
+    /**
+     * Buscar varios usuarios por ID en la BASE DE DATOS
+     * @param ids IDs de los usuarios
+     * @return mapa id -> usuario
+     */
+    public Map<Integer, Persona> buscarUsuarios(Collection<Integer> ids) {
+        return usuarioDAO.buscarUsuarios(ids);
+    }
+    
     /**
      * Buscar usuario por email desde la BASE DE DATOS
      * @param email email a buscar
      * @return usuario encontrado o null
      */
     public Persona buscarUsuarioPorEmail(String email) {
-        for (Persona usuario : usuarioDAO.listarUsuarios()) {
-            if (usuario.getEmail() != null && usuario.getEmail().equals(email)) {
-                return usuario;
-            }
-        }
-        return null;
+        return usuarioDAO.buscarUsuarioPorEmail(email);
     }
     
     /**
@@ -68,15 +89,7 @@ public class UsuarioControladorNuevo {
      * @return estudiante encontrado o null
      */
     public Estudiante buscarEstudiantePorCodigo(String codigo) {
-        for (Persona usuario : usuarioDAO.listarUsuarios()) {
-            if (usuario instanceof Estudiante) {
-                Estudiante estudiante = (Estudiante) usuario;
-                if (estudiante.getCodigo() != null && estudiante.getCodigo().equals(codigo)) {
-                    return estudiante;
-                }
-            }
-        }
-        return null;
+        return usuarioDAO.buscarEstudiantePorCodigo(codigo);
     }
     
     /**
@@ -85,15 +98,45 @@ public class UsuarioControladorNuevo {
      * @return profesor encontrado o null
      */
     public Profesor buscarProfesorPorCodigo(String codigoEmpleado) {
-        for (Persona usuario : usuarioDAO.listarUsuarios()) {
-            if (usuario instanceof Profesor) {
-                Profesor profesor = (Profesor) usuario;
-                if (profesor.getCodigoEmpleado() != null && profesor.getCodigoEmpleado().equals(codigoEmpleado)) {
-                    return profesor;
-                }
-            }
-        }
-        return null;
+        return usuarioDAO.buscarProfesorPorCodigo(codigoEmpleado);
+    }
+    
+    /**
+     * Buscar el usuario de un carnet escaneado: email, código de estudiante o de empleado
+     * @param identificacion texto leído del carnet
+     * @return usuario encontrado o null
+     */
+    public Persona buscarPorIdentificacion(String identificacion) {
+        return usuarioDAO.buscarPorIdentificacion(identificacion);
+    }
+    
+    /**
+     * Búsqueda mientras se escribe: nombres, apellidos, email o código, sin tildes ni mayúsculas
+     * Responde desde el índice en memoria, sin consultar la base de datos
+     * @param texto palabras a buscar (la última puede estar incompleta)
+     * @param limite máximo de usuarios a devolver
+     * @return usuarios que contienen todas las palabras, por id
+     */
+    public List<Persona> buscarEnDirectorio(String texto, int limite) {
+        return IndiceUsuarios.compartido().buscar(texto, limite);
+    }
+    
+    /**
+     * Cargar el índice de búsqueda de usuarios (la primera vez lee todos los usuarios)
+     */
+    public void prepararBusqueda() {
+        IndiceUsuarios.compartido();
+    }
+    
+    /**
+     * Sugerencias de nombres, emails y códigos para la caja de búsqueda, los que más piden primero
+     * @param prefijo lo escrito hasta ahora (puede ser el comienzo de cualquier palabra)
+     * @param cantidad máximo de sugerencias
+     */
+    public List<Sugerencia> sugerirUsuarios(String prefijo, int cantidad) {
+        // Igual que en libros: sin sugerencias hasta que termine la carga de fondo
+        SugerenciasBiblioteca sugerencias = SugerenciasBiblioteca.siEstanCargadas();
+        return sugerencias == null ? List.of() : sugerencias.sugerirUsuarios(prefijo, cantidad);
     }
     
     /**
@@ -144,16 +187,7 @@ public class UsuarioControladorNuevo {
      * @return lista de estudiantes activos
      */
     public ArrayList<Estudiante> obtenerEstudiantesActivos() {
-        ArrayList<Estudiante> estudiantesActivos = new ArrayList<>();
-        for (Persona usuario : usuarioDAO.listarUsuarios()) {
-            if (usuario instanceof Estudiante) {
-                Estudiante estudiante = (Estudiante) usuario;
-                if (estudiante.isActivo()) {
-                    estudiantesActivos.add(estudiante);
-                }
-            }
-        }
-        return estudiantesActivos;
+        return usuarioDAO.listarEstudiantesActivos();
     }
     
     /**
@@ -162,16 +196,7 @@ public class UsuarioControladorNuevo {
      * @return lista de profesores del departamento
      */
     public ArrayList<Profesor> obtenerProfesoresPorDepartamento(String departamento) {
-        ArrayList<Profesor> profesoresDepartamento = new ArrayList<>();
-        for (Persona usuario : usuarioDAO.listarUsuarios()) {
-            if (usuario instanceof Profesor) {
-                Profesor profesor = (Profesor) usuario;
-                if (profesor.getDepartamento() != null && profesor.getDepartamento().equals(departamento)) {
-                    profesoresDepartamento.add(profesor);
-                }
-            }
-        }
-        return profesoresDepartamento;
+        return usuarioDAO.listarProfesoresPorDepartamento(departamento);
     }
     
     /**
@@ -180,26 +205,6 @@ public class UsuarioControladorNuevo {
      * @return cantidad de usuarios del tipo especificado
      */
     public int contarUsuariosPorTipo(String tipo) {
-        int count = 0;
-        for (Persona usuario : usuarioDAO.listarUsuarios()) {
-            switch (tipo) {
-                case "Estudiante":
-                    if (usuario instanceof Estudiante && !(usuario instanceof EstudianteGraduado)) {
-                        count++;
-                    }
-                    break;
-                case "EstudianteGraduado":
-                    if (usuario instanceof EstudianteGraduado) {
-                        count++;
-                    }
-                    break;
-                case "Profesor":
-                    if (usuario instanceof Profesor) {
-                        count++;
-                    }
-                    break;
-            }
-        }
-        return count;
+        return usuarioDAO.contarUsuariosPorTipo().getOrDefault(tipo, 0);
     }
 }
@@ -0,0 +1,132 @@
+package com.pointerfaz.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Criterios de búsqueda de libros que LibroDAO convierte en una consulta parametrizada
+ * Cada criterio agrega una condición al WHERE; los que se pueden resolver
+ * con un índice (isbn, autor por prefijo, categoria, estado) lo usan.
+ *
+ * <pre>
+ * ArrayList&lt;Libro&gt; libros = libroDAO.consultarLibros(
+ *         new ConsultaLibros().categoria("Programación").estado("Disponible").anioDesde(2015));
+ * </pre>
+ */
+public class ConsultaLibros {
+    
+    private final List<String> condiciones = new ArrayList<>();
+    private final List<Object> parametros = new ArrayList<>();
+    private int limite;
+    
+    /**
+     * ISBN exacto (idx_isbn)
+     */
+    public ConsultaLibros isbn(String isbn) {
+        return agregar("isbn = ?", isbn);
+    }
+    
+    /**
+     * Autor que empieza con el texto (usa idx_autor)
+     */
+    public ConsultaLibros autorEmpiezaCon(String texto) {
+        return agregar("autor LIKE ?", escaparLike(texto) + "%");
+    }
+    
+    /**
+     * Autor que contiene el texto en cualquier posición (no puede usar el índice)
+     */
+    public ConsultaLibros autorContiene(String texto) {
+        return agregar("autor LIKE ?", "%" + escaparLike(texto) + "%");
+    }
+    
+    /**
+     * Título que contiene el texto en cualquier posición
+     */
+    public ConsultaLibros tituloContiene(String texto) {
+        return agregar("titulo LIKE ?", "%" + escaparLike(texto) + "%");
+    }
+    
+    /**
+     * Categoría exacta (idx_categoria)
+     */
+    public ConsultaLibros categoria(String categoria) {
+        return agregar("categoria = ?", categoria);
+    }
+    
+    /**
+     * Estado exacto (idx_estado); la comparación no distingue mayúsculas como el ENUM de MySQL
+     */
+    public ConsultaLibros estado(String estado) {
+        return agregar("estado = ?", estado);
+    }
+    
+    public ConsultaLibros esReferencia(boolean esReferencia) {
+        return agregar("es_referencia = ?", esReferencia);
+    }
+    
+    /**
+     * Año de publicación mayor o igual
+     */
+    public ConsultaLibros anioDesde(int anio) {
+        return agregar("anio_publicacion >= ?", anio);
+    }
+    
+    /**
+     * Año de publicación menor o igual
+     */
+    public ConsultaLibros anioHasta(int anio) {
+        return agregar("anio_publicacion <= ?", anio);
+    }
+    
+    /**
+     * Devolver como máximo esta cantidad de libros
+     */
+    public ConsultaLibros limite(int limite) {
+        this.limite = limite;
+        return this;
+    }
+    
+    private ConsultaLibros agregar(String condicion, Object parametro) {
+        condiciones.add(condicion);
+        parametros.add(parametro);
+        return this;
+    }
+    
+    /**
+     * @return SELECT con las condiciones en el mismo orden que getParametros()
+     */
+    String construirSql() {
+        StringBuilder sql = new StringBuilder("SELECT * FROM libros");
+        if (!condiciones.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", condiciones));
+        }
+        sql.append(" ORDER BY id");
+        if (limite > 0) {
+            sql.append(" LIMIT ").append(limite);
+        }
+        return sql.toString();
+    }
+    
+    /**
+     * @return SELECT COUNT(*) con las mismas condiciones, sin orden ni límite
+     */
+    String construirSqlConteo() {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM libros");
+        if (!condiciones.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", condiciones));
+        }
+        return sql.toString();
+    }
+    
+    List<Object> getParametros() {
+        return parametros;
+    }
+    
+    /**
+     * Los comodines que escribe el usuario se buscan como texto
+     */
+    private static String escaparLike(String texto) {
+        return texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
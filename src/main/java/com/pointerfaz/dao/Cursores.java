@@ -0,0 +1,109 @@
+package com.pointerfaz.dao;
+
+import com.pointerfaz.db.ConnectionDB;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lectura de tablas completas fila a fila
+ * El ResultSet se abre en modo streaming del driver (solo avance, solo lectura)
+ * y cada fila se convierte al pedirla, así recorrer un millón de filas
+ * no necesita un millón de objetos en memoria.
+ * Mientras el recorrido está abierto su conexión no admite otras consultas:
+ * dentro de una UnidadDeTrabajo no se debe consultar la base desde el visitante.
+ */
+final class Cursores {
+    
+    // Integer.MIN_VALUE: MySQL envía las filas de una en una; con useCursorFetch=true sirve un tamaño positivo
+    private static final int TAMANO_FETCH = Integer.getInteger("biblioteca.db.tamanoFetch", Integer.MIN_VALUE);
+    
+    private Cursores() {
+    }
+    
+    /**
+     * Abrir un recorrido perezoso de una consulta
+     * El Stream tiene la conexión prestada: hay que cerrarlo (try-with-resources)
+     * @return filas convertidas; vacío si la consulta falla
+     */
+    static <T> Stream<T> abrir(String sql, MapeadorFilas<T> mapeador, Object... parametros) {
+        Connection connection = ConnectionDB.conectar();
+        if (connection == null) {
+            return Stream.empty();
+        }
+        
+        try {
+            ResultSet resultSet = consultar(connection, sql, parametros);
+            
+            Spliterator<T> filas = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED) {
+                @Override
+                public boolean tryAdvance(Consumer<? super T> accion) {
+                    try {
+                        if (!resultSet.next()) {
+                            return false;
+                        }
+                        accion.accept(mapeador.mapear(resultSet));
+                        return true;
+                        
+                    } catch (SQLException e) {
+                        System.out.println(e.getMessage());
+                        return false;
+                    }
+                }
+            };
+            return StreamSupport.stream(filas, false).onClose(() -> cerrar(connection));
+            
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            cerrar(connection);
+            return Stream.empty();
+        }
+    }
+    
+    /**
+     * Recorrer una consulta entregando cada fila al visitante; la conexión se cierra al terminar
+     * @return false si no hubo conexión o la lectura falló: el visitante pudo no recibir todas las filas
+     */
+    static <T> boolean recorrer(String sql, MapeadorFilas<T> mapeador, Consumer<? super T> visitante, Object... parametros) {
+        Connection connection = ConnectionDB.conectar();
+        if (connection == null) {
+            return false;
+        }
+        
+        try (ResultSet resultSet = consultar(connection, sql, parametros)) {
+            while (resultSet.next()) {
+                visitante.accept(mapeador.mapear(resultSet));
+            }
+            return true;
+            
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return false;
+        } finally {
+            cerrar(connection);
+        }
+    }
+    
+    private static ResultSet consultar(Connection connection, String sql, Object... parametros) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(TAMANO_FETCH);
+        for (int i = 0; i < parametros.length; i++) {
+            statement.setObject(i + 1, parametros[i]);
+        }
+        return statement.executeQuery();
+    }
+    
+    private static void cerrar(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.pointerfaz.dao;
+
+/**
+ * Recibe los cambios que un DAO confirma en la base de datos
+ * Lo usan las estructuras en memoria (índices de búsqueda, caches) para
+ * mantenerse al día sin volver a leer la tabla entera.
+ * Los avisos llegan después del commit, en el hilo que hizo el cambio; los
+ * cambios de otros clientes, en el hilo de SincronizadorCambios.
+ * @param <T> tipo de la entidad
+ */
+public interface EscuchaCambios<T> {
+    
+    /**
+     * Entidad agregada o modificada, con todos sus datos ya confirmados
+     */
+    void guardado(T entidad);
+    
+    /**
+     * Entidad eliminada
+     */
+    void eliminado(int id);
+    
+    /**
+     * Hubo cambios que no se pueden detallar (de otros clientes que el registro
+     * de cambios ya descartó): hay que volver a leer todo
+     */
+    default void desactualizado() {
+    }
+}
@@ -0,0 +1,86 @@
+package com.pointerfaz.dao;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Conteos del catálogo calculados por la base en una sola consulta
+ * Las categorías y editoriales vienen ordenadas de mayor a menor cantidad;
+ * los libros sin editorial o sin año no aparecen en esos grupos.
+ * Es de solo lectura: la misma instancia se comparte desde CacheConsultas.
+ */
+public class EstadisticasCatalogo {
+    
+    private int totalLibros;
+    // El ENUM de MySQL guarda el estado en minúsculas: se busca sin distinguir mayúsculas
+    private final Map<String, Integer> porEstado = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final Map<String, Integer> porCategoria = new LinkedHashMap<>();
+    private final Map<String, Integer> porEditorial = new LinkedHashMap<>();
+    private final Map<Integer, Integer> porDecada = new TreeMap<>();
+    
+    /**
+     * Sumar una fila de la consulta de LibroDAO
+     * @param grupo "total", "estado", "categoria", "editorial" o "decada"
+     */
+    void agregarFila(String grupo, String clave, int cantidad) {
+        switch (grupo) {
+            case "total":
+                totalLibros = cantidad;
+                break;
+            case "estado":
+                porEstado.merge(clave, cantidad, Integer::sum);
+                break;
+            case "categoria":
+                porCategoria.put(clave, cantidad);
+                break;
+            case "editorial":
+                porEditorial.put(clave, cantidad);
+                break;
+            case "decada":
+                porDecada.put(Integer.parseInt(clave), cantidad);
+                break;
+        }
+    }
+    
+    public int getTotalLibros() {
+        return totalLibros;
+    }
+    
+    /**
+     * @param estado estado a contar ("Disponible", "Prestado", ...)
+     * @return libros en ese estado
+     */
+    public int contarEstado(String estado) {
+        return porEstado.getOrDefault(estado, 0);
+    }
+    
+    /**
+     * @return estado -> cantidad de libros
+     */
+    public Map<String, Integer> getPorEstado() {
+        return Collections.unmodifiableMap(porEstado);
+    }
+    
+    /**
+     * @return categoría -> cantidad de libros
+     */
+    public Map<String, Integer> getPorCategoria() {
+        return Collections.unmodifiableMap(porCategoria);
+    }
+    
+    /**
+     * @return editorial -> cantidad de libros
+     */
+    public Map<String, Integer> getPorEditorial() {
+        return Collections.unmodifiableMap(porEditorial);
+    }
+    
+    /**
+     * @return década (1990, 2000, ...) -> cantidad de libros publicados en ella
+     */
+    public Map<Integer, Integer> getPorDecada() {
+        return Collections.unmodifiableMap(porDecada);
+    }
+}
@@ -1,9 +1,22 @@
 package com.pointerfaz.dao;
 
+import com.pointerfaz.cache.CacheConsultas;
+import com.pointerfaz.cache.CacheEntidades;
+import com.pointerfaz.cache.VersionesTablas;
 import com.pointerfaz.db.ConnectionDB;
+import com.pointerfaz.db.UnidadDeTrabajo;
 import com.pointerfaz.modelo.Libro;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * DAO para gestionar libros en la base de datos
@@ -11,142 +24,606 @@ import java.util.ArrayList;
  */
 public class LibroDAO {
     
+    // Órdenes de paginación: columnas NOT NULL con índice
+    private static final Map<String, String> ORDENES_PAGINA = Map.of(
+            "id", "id", "isbn", "isbn", "titulo", "titulo", "autor", "autor");
+    
+    // Filas por executeBatch (y por commit) en agregarLibros
+    private static final int TAMANO_LOTE_INSERCION = Integer.getInteger("biblioteca.db.tamanoLoteInsercion", 1000);
+    
+    private static final String INSERT_LIBRO = "INSERT INTO libros (isbn, titulo, autor, editorial, categoria, anio_publicacion, numero_paginas, ubicacion, estado, es_referencia) VALUES (?,?,?,?,?,?,?,?,?,?)";
+    
+    // Compartidas por todas las instancias: cada controlador crea su propio LibroDAO
+    private static final CopyOnWriteArrayList<EscuchaCambios<Libro>> ESCUCHAS = new CopyOnWriteArrayList<>();
+    
+    // Listados y conteos de libros: valen hasta la próxima escritura en la tabla
+    private static final CacheConsultas CONSULTAS = CacheConsultas.compartida();
+    private static final String[] TABLAS = {VersionesTablas.LIBROS};
+    
+    // Libros leídos por id; se mantiene al día como una escucha más
+    private static final CacheEntidades<Libro> CACHE = new CacheEntidades<>("libros",
+            Integer.getInteger("biblioteca.cache.libros", 10_000), Libro::getId, Libro::new);
+            
+    static {
+        registrarEscucha(CACHE);
+    }
+    
+    /**
+     * Registrar una escucha de los libros agregados, modificados y eliminados
+     * (incluidos los cambios de estado por préstamos y devoluciones)
+     */
+    public static void registrarEscucha(EscuchaCambios<Libro> escucha) {
+        ESCUCHAS.addIfAbsent(escucha);
+    }
+    
+    public static void quitarEscucha(EscuchaCambios<Libro> escucha) {
+        ESCUCHAS.remove(escucha);
+    }
+    
+    /**
+     * @return cache de buscarLibro y buscarLibros (para ver sus estadísticas)
+     */
+    public static CacheEntidades<Libro> cache() {
+        return CACHE;
+    }
+    
+    private static void avisarGuardado(Libro libro) {
+        VersionesTablas.cambio(VersionesTablas.LIBROS);
+        if (!ESCUCHAS.isEmpty()) {
+            UnidadDeTrabajo.despuesDeConfirmar(() -> ESCUCHAS.forEach(escucha -> escucha.guardado(libro)));
+        }
+    }
+    
+    /**
+     * Avisar que la fila del libro cambió; se relee después del commit
+     * (lo usa también PrestamoDAO cuando un trigger cambia el estado del libro)
+     */
+    static void avisarModificado(int id) {
+        // Ya mismo, para que nadie lea de la cache la fila anterior mientras se confirma
+        CACHE.invalidar(id);
+        VersionesTablas.cambio(VersionesTablas.LIBROS);
+        if (!ESCUCHAS.isEmpty()) {
+            UnidadDeTrabajo.despuesDeConfirmar(() -> {
+                Libro libro = new LibroDAO().leerLibro(id);
+                if (libro != null) {
+                    ESCUCHAS.forEach(escucha -> escucha.guardado(libro));
+                }
+            });
+        }
+    }
+    
+    private static void avisarEliminado(int id) {
+        CACHE.invalidar(id);
+        // ON DELETE CASCADE también borra sus préstamos
+        VersionesTablas.cambio(VersionesTablas.LIBROS, VersionesTablas.PRESTAMOS);
+        if (!ESCUCHAS.isEmpty()) {
+            UnidadDeTrabajo.despuesDeConfirmar(() -> ESCUCHAS.forEach(escucha -> escucha.eliminado(id)));
+        }
+    }
+    
+    /**
+     * Libros que cambiaron otros clientes (los trae SincronizadorCambios)
+     */
+    static void aplicarCambiosExternos(Collection<Integer> guardados, Collection<Integer> eliminados) {
+        guardados.forEach(CACHE::invalidar);
+        eliminados.forEach(CACHE::invalidar);
+        if (eliminados.isEmpty()) {
+            VersionesTablas.cambio(VersionesTablas.LIBROS);
+        } else {
+            // ON DELETE CASCADE también borró sus préstamos
+            VersionesTablas.cambio(VersionesTablas.LIBROS, VersionesTablas.PRESTAMOS);
+        }
+        if (!ESCUCHAS.isEmpty()) {
+            releer(guardados, eliminados, ESCUCHAS);
+        }
+    }
+    
+    /**
+     * Releer juntos los libros guardados y avisar a las escuchas
+     * Un guardado que ya no está en la tabla se salta: su borrado llega como eliminado
+     */
+    static void releer(Collection<Integer> guardados, Collection<Integer> eliminados, List<? extends EscuchaCambios<Libro>> escuchas) {
+        Map<Integer, Libro> libros = guardados.isEmpty() ? Map.of() : new LibroDAO().leerLibros(guardados);
+        for (Libro libro : libros.values()) {
+            escuchas.forEach(escucha -> escucha.guardado(libro));
+        }
+        for (int id : eliminados) {
+            escuchas.forEach(escucha -> escucha.eliminado(id));
+        }
+    }
+    
+    /**
+     * Otros clientes cambiaron libros que ya no se pueden detallar
+     */
+    static void avisarDesactualizado() {
+        VersionesTablas.cambio(VersionesTablas.LIBROS);
+        ESCUCHAS.forEach(EscuchaCambios::desactualizado);
+    }
+    
     /**
      * Agregar nuevo libro
+     * El id generado por la base de datos queda asignado en el libro
      */
     public void agregarLibro(Libro libro) {
-        try {
-            String sql = "INSERT INTO libros (isbn, titulo, autor, editorial, categoria, anio_publicacion, numero_paginas, ubicacion, estado, es_referencia) VALUES (?,?,?,?,?,?,?,?,?,?)";
-            Connection connection = ConnectionDB.conectar();
-            PreparedStatement statement = connection.prepareStatement(sql);
+        try (Connection connection = ConnectionDB.conectar()) {
+            PreparedStatement statement = connection.prepareStatement(INSERT_LIBRO, Statement.RETURN_GENERATED_KEYS);
             
-            statement.setString(1, libro.getIsbn());
-            statement.setString(2, libro.getTitulo());
-            statement.setString(3, libro.getAutor());
-            statement.setString(4, libro.getEditorial());
-            statement.setString(5, libro.getCategoria());
-            statement.setInt(6, libro.getAnioPublicacion());
-            statement.setInt(7, libro.getNumeroPaginas());
-            statement.setString(8, libro.getUbicacion());
-            statement.setString(9, libro.getEstado());
-            statement.setBoolean(10, libro.isEsReferencia());
+            asignarParametros(statement, libro);
             
             statement.executeUpdate();
-            connection.close();
+            
+            ResultSet claves = statement.getGeneratedKeys();
+            if (claves.next()) {
+                libro.setId(claves.getInt(1));
+            }
+            avisarGuardado(libro);
+            
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+    
+    /**
+     * Agregar muchos libros de una vez (altas de catálogo desde una hoja de cálculo)
+     * Usa el tamaño de lote de -Dbiblioteca.db.tamanoLoteInsercion (1000 por defecto)
+     * @return filas insertadas y filas rechazadas con su motivo
+     */
+    public ResultadoCarga agregarLibros(Collection<Libro> libros) {
+        return agregarLibros(libros, TAMANO_LOTE_INSERCION);
+    }
+    
+    /**
+     * Agregar muchos libros de una vez
+     * Los libros se envían con addBatch/executeBatch (el driver los reescribe como
+     * INSERT de varias filas) y cada lote se confirma por separado. Los ISBN vacíos,
+     * repetidos dentro de la carga o ya registrados se rechazan antes de insertar;
+     * si aun así un lote falla, se revierte y se repite fila por fila para anotar
+     * solo las filas culpables.
+     * Dentro de una UnidadDeTrabajo la carga se une a la transacción externa: el
+     * primer lote que falle deja la unidad para rollback y el resto no se intenta.
+     * @param tamanoLote filas por executeBatch y por commit
+     * @return filas insertadas y filas rechazadas con su motivo
+     */
+    public ResultadoCarga agregarLibros(Collection<Libro> libros, int tamanoLote) {
+        if (tamanoLote < 1) {
+            throw new IllegalArgumentException("Tamaño de lote inválido: " + tamanoLote);
+        }
+        
+        ResultadoCarga resultado = new ResultadoCarga();
+        List<Libro> candidatos = new ArrayList<>();
+        List<Integer> posiciones = new ArrayList<>();
+        Set<String> vistos = new HashSet<>();
+        
+        int posicion = 0;
+        for (Libro libro : libros) {
+            String isbn = claveIsbn(libro.getIsbn());
+            if (isbn.isEmpty()) {
+                resultado.agregarFallo(posicion, libro, "ISBN vacío");
+            } else if (!vistos.add(isbn)) {
+                resultado.agregarFallo(posicion, libro, "ISBN repetido en la carga: " + libro.getIsbn());
+            } else {
+                candidatos.add(libro);
+                posiciones.add(posicion);
+            }
+            posicion++;
+        }
+        
+        if (candidatos.isEmpty()) {
+            return resultado;
+        }
+        
+        try (Connection connection = ConnectionDB.conectar()) {
+            boolean enUnidad = UnidadDeTrabajo.estaActiva();
+            
+            // Quitar los ISBN que ya están en el catálogo para que los lotes no choquen con el UNIQUE
+            Set<String> registrados = isbnsRegistrados(connection, vistos);
+            if (!registrados.isEmpty()) {
+                List<Libro> nuevos = new ArrayList<>();
+                List<Integer> posicionesNuevos = new ArrayList<>();
+                for (int i = 0; i < candidatos.size(); i++) {
+                    Libro libro = candidatos.get(i);
+                    if (registrados.contains(claveIsbn(libro.getIsbn()))) {
+                        resultado.agregarFallo(posiciones.get(i), libro, "ISBN ya registrado: " + libro.getIsbn());
+                    } else {
+                        nuevos.add(libro);
+                        posicionesNuevos.add(posiciones.get(i));
+                    }
+                }
+                candidatos = nuevos;
+                posiciones = posicionesNuevos;
+            }
+            
+            connection.setAutoCommit(false);
+            PreparedStatement statement = connection.prepareStatement(INSERT_LIBRO, Statement.RETURN_GENERATED_KEYS);
+            
+            for (int inicio = 0; inicio < candidatos.size(); inicio += tamanoLote) {
+                int fin = Math.min(inicio + tamanoLote, candidatos.size());
+                
+                try {
+                    for (int i = inicio; i < fin; i++) {
+                        asignarParametros(statement, candidatos.get(i));
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    
+                    // Las claves llegan en el orden de las filas del lote
+                    ResultSet claves = statement.getGeneratedKeys();
+                    for (int i = inicio; i < fin && claves.next(); i++) {
+                        candidatos.get(i).setId(claves.getInt(1));
+                    }
+                    connection.commit();
+                    resultado.sumarInsertados(fin - inicio);
+                    candidatos.subList(inicio, fin).forEach(LibroDAO::avisarGuardado);
+                    
+                } catch (BatchUpdateException e) {
+                    statement.clearBatch();
+                    connection.rollback();
+                    
+                    if (enUnidad) {
+                        for (int i = inicio; i < candidatos.size(); i++) {
+                            resultado.agregarFallo(posiciones.get(i), candidatos.get(i), e.getMessage());
+                        }
+                        break;
+                    }
+                    
+                    // Repetir el lote fila por fila: en MySQL una fila rechazada no anula la transacción
+                    List<Libro> insertados = new ArrayList<>();
+                    for (int i = inicio; i < fin; i++) {
+                        try {
+                            asignarParametros(statement, candidatos.get(i));
+                            statement.executeUpdate();
+                            
+                            ResultSet claves = statement.getGeneratedKeys();
+                            if (claves.next()) {
+                                candidatos.get(i).setId(claves.getInt(1));
+                            }
+                            insertados.add(candidatos.get(i));
+                        } catch (SQLException fila) {
+                            resultado.agregarFallo(posiciones.get(i), candidatos.get(i), fila.getMessage());
+                        }
+                    }
+                    connection.commit();
+                    resultado.sumarInsertados(insertados.size());
+                    insertados.forEach(LibroDAO::avisarGuardado);
+                }
+            }
             
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
+        
+        return resultado;
+    }
+    
+    /**
+     * ISBN de la carga que ya existen en la tabla, consultados por lotes
+     */
+    private Set<String> isbnsRegistrados(Connection connection, Collection<String> isbns) throws SQLException {
+        Set<String> registrados = new HashSet<>();
+        List<String> pendientes = new ArrayList<>(isbns);
+        
+        for (int inicio = 0; inicio < pendientes.size(); inicio += Lotes.TAMANO) {
+            List<String> lote = pendientes.subList(inicio, Math.min(inicio + Lotes.TAMANO, pendientes.size()));
+            String sql = "SELECT isbn FROM libros WHERE isbn IN (" + Lotes.marcadores(lote.size()) + ")";
+            PreparedStatement statement = connection.prepareStatement(sql);
+            
+            for (int i = 0; i < lote.size(); i++) {
+                statement.setString(i + 1, lote.get(i));
+            }
+            
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                registrados.add(claveIsbn(resultSet.getString("isbn")));
+            }
+        }
+        return registrados;
+    }
+    
+    /**
+     * ISBN comparable como lo compara la collation de la tabla (sin mayúsculas ni espacios)
+     */
+    private static String claveIsbn(String isbn) {
+        return isbn == null ? "" : isbn.trim().toUpperCase();
+    }
+    
+    private void asignarParametros(PreparedStatement statement, Libro libro) throws SQLException {
+        statement.setString(1, libro.getIsbn());
+        statement.setString(2, libro.getTitulo());
+        statement.setString(3, libro.getAutor());
+        statement.setString(4, libro.getEditorial());
+        statement.setString(5, libro.getCategoria());
+        statement.setInt(6, libro.getAnioPublicacion());
+        statement.setInt(7, libro.getNumeroPaginas());
+        statement.setString(8, libro.getUbicacion());
+        statement.setString(9, libro.getEstado());
+        statement.setBoolean(10, libro.isEsReferencia());
     }
     
     /**
      * Listar todos los libros
      */
     public ArrayList<Libro> listarLibros() {
+        return CONSULTAS.consultar("libros.listar", List.of(), TABLAS,
+                this::leerTodos, CacheConsultas.copiarLista(Libro::new), ArrayList::new);
+    }
+    
+    private ArrayList<Libro> leerTodos() throws SQLException {
         ArrayList<Libro> list = new ArrayList<>();
         
-        try {
+        try (Connection connection = ConnectionDB.conectar()) {
             String sql = "SELECT * FROM libros";
-            Connection connection = ConnectionDB.conectar();
             Statement statement = connection.createStatement();
             ResultSet resultSet = statement.executeQuery(sql);
             
             while (resultSet.next()) {
-                Libro libro = new Libro();
-                libro.setId(resultSet.getInt("id"));
-                libro.setIsbn(resultSet.getString("isbn"));
-                libro.setTitulo(resultSet.getString("titulo"));
-                libro.setAutor(resultSet.getString("autor"));
-                libro.setEditorial(resultSet.getString("editorial"));
-                libro.setCategoria(resultSet.getString("categoria"));
-                libro.setAnioPublicacion(resultSet.getInt("anio_publicacion"));
-                libro.setNumeroPaginas(resultSet.getInt("numero_paginas"));
-                libro.setUbicacion(resultSet.getString("ubicacion"));
-                libro.setEstado(resultSet.getString("estado"));
-                libro.setEsReferencia(resultSet.getBoolean("es_referencia"));
+                Libro libro = mapearLibro(resultSet);
                 
                 list.add(libro);
             }
-            
-            connection.close();
-            
-        } catch (SQLException e) {
-            System.out.println(e.getMessage());
         }
         
         return list;
     }
     
+    /**
+     * Recorrer todos los libros sin cargarlos en una lista
+     * El Stream tiene una conexión abierta: usar con try-with-resources
+     */
+    public Stream<Libro> flujoLibros() {
+        return Cursores.abrir("SELECT * FROM libros", this::mapearLibro);
+    }
+    
+    /**
+     * Entregar cada libro al visitante a medida que se lee de la base
+     * @return false si la lectura falló (el visitante pudo recibir solo parte del catálogo)
+     */
+    public boolean recorrerLibros(Consumer<? super Libro> visitante) {
+        return Cursores.recorrer("SELECT * FROM libros", this::mapearLibro, visitante);
+    }
+    
+    /**
+     * Listar libros de a una página, ordenados por "id", "isbn", "titulo" o "autor"
+     * @param orden columna de orden
+     * @param token token de la página anterior o null para la primera
+     * @param tamano libros por página
+     * @return página de libros con el token de la siguiente
+     */
+    public Pagina<Libro> paginarLibros(String orden, String token, int tamano) {
+        return Paginacion.consultar("SELECT * FROM libros", "id", ORDENES_PAGINA, orden, token, tamano, this::mapearLibro);
+    }
+    
     /**
      * Buscar libro por ID
+     * Fuera de una transacción responde desde la cache si el libro se pidió hace poco
      */
     public Libro buscarLibro(int id) {
-        try {
+        // Dentro de una transacción se lee su conexión, que puede ver cambios sin confirmar
+        if (UnidadDeTrabajo.estaActiva()) {
+            return leerLibro(id);
+        }
+        return CACHE.obtener(id, this::leerLibro);
+    }
+    
+    private Libro leerLibro(int id) {
+        try (Connection connection = ConnectionDB.conectar()) {
             String sql = "SELECT * FROM libros WHERE id = ?";
-            Connection connection = ConnectionDB.conectar();
             PreparedStatement statement = connection.prepareStatement(sql);
             statement.setInt(1, id);
             ResultSet resultSet = statement.executeQuery();
             
             if (resultSet.next()) {
-                Libro libro = new Libro();
-                libro.setId(resultSet.getInt("id"));
-                libro.setIsbn(resultSet.getString("isbn"));
-                libro.setTitulo(resultSet.getString("titulo"));
-                libro.setAutor(resultSet.getString("autor"));
-                libro.setEditorial(resultSet.getString("editorial"));
-                libro.setCategoria(resultSet.getString("categoria"));
-                libro.setAnioPublicacion(resultSet.getInt("anio_publicacion"));
-                libro.setNumeroPaginas(resultSet.getInt("numero_paginas"));
-                libro.setUbicacion(resultSet.getString("ubicacion"));
-                libro.setEstado(resultSet.getString("estado"));
-                libro.setEsReferencia(resultSet.getBoolean("es_referencia"));
+                Libro libro = mapearLibro(resultSet);
                 
-                connection.close();
                 return libro;
             }
             
-            connection.close();
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Buscar varios libros por ID con una consulta por lote de ids
+     * @return mapa id -> libro; los ids inexistentes no aparecen
+     */
+    public Map<Integer, Libro> buscarLibros(Collection<Integer> ids) {
+        if (UnidadDeTrabajo.estaActiva()) {
+            return leerLibros(ids);
+        }
+        // Solo los que no están en la cache van a la base de datos
+        return CACHE.obtenerTodas(ids, this::leerLibros);
+    }
+    
+    private Map<Integer, Libro> leerLibros(Collection<Integer> ids) {
+        Map<Integer, Libro> libros = new HashMap<>();
+        
+        try (Connection connection = ConnectionDB.conectar()) {
+            for (List<Integer> lote : Lotes.partir(ids)) {
+                String sql = "SELECT * FROM libros WHERE id IN (" + Lotes.marcadores(lote.size()) + ")";
+                PreparedStatement statement = connection.prepareStatement(sql);
+                for (int i = 0; i < lote.size(); i++) {
+                    statement.setInt(i + 1, lote.get(i));
+                }
+                ResultSet resultSet = statement.executeQuery();
+                
+                while (resultSet.next()) {
+                    Libro libro = mapearLibro(resultSet);
+                    libros.put(libro.getId(), libro);
+                }
+            }
             
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
         
+        return libros;
+    }
+    
+    /**
+     * Buscar libros que cumplan todos los criterios de la consulta
+     * @return libros encontrados, ordenados por id
+     */
+    public ArrayList<Libro> consultarLibros(ConsultaLibros consulta) {
+        ArrayList<Libro> list = new ArrayList<>();
+        
+        try (Connection connection = ConnectionDB.conectar()) {
+            PreparedStatement statement = connection.prepareStatement(consulta.construirSql());
+            List<Object> parametros = consulta.getParametros();
+            for (int i = 0; i < parametros.size(); i++) {
+                statement.setObject(i + 1, parametros.get(i));
+            }
+            ResultSet resultSet = statement.executeQuery();
+            
+            while (resultSet.next()) {
+                list.add(mapearLibro(resultSet));
+            }
+            
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+        
+        return list;
+    }
+    
+    /**
+     * Contar los libros que cumplen los criterios sin traerlos
+     * @return cantidad de libros, 0 si falla la consulta
+     */
+    public int contarLibros(ConsultaLibros consulta) {
+        try (Connection connection = ConnectionDB.conectar()) {
+            PreparedStatement statement = connection.prepareStatement(consulta.construirSqlConteo());
+            List<Object> parametros = consulta.getParametros();
+            for (int i = 0; i < parametros.size(); i++) {
+                statement.setObject(i + 1, parametros.get(i));
+            }
+            ResultSet resultSet = statement.executeQuery();
+            
+            if (resultSet.next()) {
+                return resultSet.getInt(1);
+            }
+            
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+        return 0;
+    }
+    
+    /**
+     * Huella barata del catálogo: cantidad de libros y último id
+     * Cambia con cada alta o baja de libros, no con las ediciones
+     * @return "cantidad|ultimoId", o null si falla la consulta
+     */
+    public String huellaCatalogo() {
+        try (Connection connection = ConnectionDB.conectar()) {
+            PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*), COALESCE(MAX(id), 0) FROM libros");
+            ResultSet resultSet = statement.executeQuery();
+            
+            if (resultSet.next()) {
+                return resultSet.getLong(1) + "|" + resultSet.getLong(2);
+            }
+            
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
         return null;
     }
     
+    /**
+     * Categorías distintas del catálogo, ordenadas alfabéticamente
+     * Se resuelve recorriendo solo idx_categoria
+     */
+    public ArrayList<String> listarCategorias() {
+        return CONSULTAS.consultar("libros.categorias", List.of(), TABLAS,
+                this::leerCategorias, ArrayList::new, ArrayList::new);
+    }
+    
+    private ArrayList<String> leerCategorias() throws SQLException {
+        ArrayList<String> categorias = new ArrayList<>();
+        
+        try (Connection connection = ConnectionDB.conectar()) {
+            String sql = "SELECT DISTINCT categoria FROM libros WHERE categoria IS NOT NULL ORDER BY categoria";
+            PreparedStatement statement = connection.prepareStatement(sql);
+            ResultSet resultSet = statement.executeQuery();
+            
+            while (resultSet.next()) {
+                categorias.add(resultSet.getString("categoria"));
+            }
+        }
+        
+        return categorias;
+    }
+    
+    /**
+     * Todos los conteos del catálogo (total, por estado, categoría, editorial y década)
+     * Una sola consulta con un GROUP BY por cada agrupación unidos con UNION ALL
+     */
+    public EstadisticasCatalogo obtenerEstadisticasCatalogo() {
+        return CONSULTAS.consultar("libros.estadisticas", List.of(), TABLAS,
+                // De solo lectura: se comparte sin copiar
+                this::leerEstadisticasCatalogo, estadisticas -> estadisticas, EstadisticasCatalogo::new);
+    }
+    
+    private EstadisticasCatalogo leerEstadisticasCatalogo() throws SQLException {
+        EstadisticasCatalogo estadisticas = new EstadisticasCatalogo();
+        
+        try (Connection connection = ConnectionDB.conectar()) {
+            String sql = "SELECT 'total' AS grupo, NULL AS clave, COUNT(*) AS cantidad FROM libros "
+                    + "UNION ALL SELECT 'estado', estado, COUNT(*) FROM libros WHERE estado IS NOT NULL GROUP BY estado "
+                    + "UNION ALL SELECT 'categoria', categoria, COUNT(*) FROM libros WHERE categoria IS NOT NULL GROUP BY categoria "
+                    + "UNION ALL SELECT 'editorial', editorial, COUNT(*) FROM libros WHERE editorial IS NOT NULL GROUP BY editorial "
+                    + "UNION ALL SELECT 'decada', CAST(FLOOR(anio_publicacion / 10) * 10 AS CHAR), COUNT(*) FROM libros "
+                    + "WHERE anio_publicacion > 0 GROUP BY CAST(FLOOR(anio_publicacion / 10) * 10 AS CHAR) "
+                    + "ORDER BY grupo, cantidad DESC";
+            PreparedStatement statement = connection.prepareStatement(sql);
+            ResultSet resultSet = statement.executeQuery();
+            
+            while (resultSet.next()) {
+                estadisticas.agregarFila(resultSet.getString("grupo"), resultSet.getString("clave"), resultSet.getInt("cantidad"));
+            }
+        }
+        
+        return estadisticas;
+    }
+    
+    /**
+     * Crear el Libro de la fila actual de una consulta sobre libros
+     */
+    private Libro mapearLibro(ResultSet resultSet) throws SQLException {
+        Libro libro = new Libro();
+        libro.setId(resultSet.getInt("id"));
+        libro.setIsbn(resultSet.getString("isbn"));
+        libro.setTitulo(resultSet.getString("titulo"));
+        libro.setAutor(resultSet.getString("autor"));
+        libro.setEditorial(resultSet.getString("editorial"));
+        libro.setCategoria(resultSet.getString("categoria"));
+        libro.setAnioPublicacion(resultSet.getInt("anio_publicacion"));
+        libro.setNumeroPaginas(resultSet.getInt("numero_paginas"));
+        libro.setUbicacion(resultSet.getString("ubicacion"));
+        libro.setEstado(resultSet.getString("estado"));
+        libro.setEsReferencia(resultSet.getBoolean("es_referencia"));
+        return libro;
+    }
+    
     /**
      * Buscar libros por título
      */
     public ArrayList<Libro> buscarLibrosPorTitulo(String titulo) {
         ArrayList<Libro> list = new ArrayList<>();
         
-        try {
+        try (Connection connection = ConnectionDB.conectar()) {
             String sql = "SELECT * FROM libros WHERE titulo LIKE ?";
-            Connection connection = ConnectionDB.conectar();
             PreparedStatement statement = connection.prepareStatement(sql);
             statement.setString(1, "%" + titulo + "%");
             ResultSet resultSet = statement.executeQuery();
             
             while (resultSet.next()) {
-                Libro libro = new Libro();
-                libro.setId(resultSet.getInt("id"));
-                libro.setIsbn(resultSet.getString("isbn"));
-                libro.setTitulo(resultSet.getString("titulo"));
-                libro.setAutor(resultSet.getString("autor"));
-                libro.setEditorial(resultSet.getString("editorial"));
-                libro.setCategoria(resultSet.getString("categoria"));
-                libro.setAnioPublicacion(resultSet.getInt("anio_publicacion"));
-                libro.setNumeroPaginas(resultSet.getInt("numero_paginas"));
-                libro.setUbicacion(resultSet.getString("ubicacion"));
-                libro.setEstado(resultSet.getString("estado"));
-                libro.setEsReferencia(resultSet.getBoolean("es_referencia"));
+                Libro libro = mapearLibro(resultSet);
                 
                 list.add(libro);
             }
             
-            connection.close();
-            
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
@@ -158,9 +635,8 @@ public class LibroDAO {
      * Editar libro
      */
     public void editarLibro(int id, Libro nuevoLibro) {
-        try {
+        try (Connection connection = ConnectionDB.conectar()) {
             String sql = "UPDATE libros SET isbn = ?, titulo = ?, autor = ?, editorial = ?, categoria = ?, anio_publicacion = ?, numero_paginas = ?, ubicacion = ?, estado = ?, es_referencia = ? WHERE id = ?";
-            Connection connection = ConnectionDB.conectar();
             PreparedStatement statement = connection.prepareStatement(sql);
             
             statement.setString(1, nuevoLibro.getIsbn());
@@ -175,8 +651,9 @@ public class LibroDAO {
             statement.setBoolean(10, nuevoLibro.isEsReferencia());
             statement.setInt(11, id);
             
-            statement.executeUpdate();
-            connection.close();
+            if (statement.executeUpdate() > 0) {
+                avisarModificado(id);
+            }
             
         } catch (SQLException e) {
             System.out.println(e.getMessage());
@@ -187,13 +664,13 @@ public class LibroDAO {
      * Eliminar libro
      */
     public void eliminarLibro(int id) {
-        try {
+        try (Connection connection = ConnectionDB.conectar()) {
             String sql = "DELETE FROM libros WHERE id = ?";
-            Connection connection = ConnectionDB.conectar();
             PreparedStatement statement = connection.prepareStatement(sql);
             statement.setInt(1, id);
-            statement.executeUpdate();
-            connection.close();
+            if (statement.executeUpdate() > 0) {
+                avisarEliminado(id);
+            }
             
         } catch (SQLException e) {
             System.out.println(e.getMessage());
@@ -204,14 +681,14 @@ public class LibroDAO {
      * Actualizar estado del libro
      */
     public void actualizarEstadoLibro(int id, String estado) {
-        try {
+        try (Connection connection = ConnectionDB.conectar()) {
             String sql = "UPDATE libros SET estado = ? WHERE id = ?";
-            Connection connection = ConnectionDB.conectar();
             PreparedStatement statement = connection.prepareStatement(sql);
             statement.setString(1, estado);
             statement.setInt(2, id);
-            statement.executeUpdate();
-            connection.close();
+            if (statement.executeUpdate() > 0) {
+                avisarModificado(id);
+            }
             
         } catch (SQLException e) {
             System.out.println(e.getMessage());
@@ -0,0 +1,45 @@
+package com.pointerfaz.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Utilidades para consultas con listas IN (?, ?, ...)
+ * Las listas se parten en lotes para no generar sentencias enormes
+ * ni pasar el límite de parámetros de MySQL.
+ */
+final class Lotes {
+    
+    static final int TAMANO = 500;
+    
+    private Lotes() {
+    }
+    
+    /**
+     * Partir los ids en lotes sin repetidos ni nulos
+     * @return lotes de como máximo TAMANO ids
+     */
+    static List<List<Integer>> partir(Collection<Integer> ids) {
+        List<Integer> unicos = new ArrayList<>(new LinkedHashSet<>(ids));
+        unicos.removeIf(id -> id == null);
+        
+        List<List<Integer>> lotes = new ArrayList<>();
+        for (int i = 0; i < unicos.size(); i += TAMANO) {
+            lotes.add(unicos.subList(i, Math.min(i + TAMANO, unicos.size())));
+        }
+        return lotes;
+    }
+    
+    /**
+     * @return "?,?,?" con n marcadores
+     */
+    static String marcadores(int n) {
+        StringBuilder sb = new StringBuilder(n * 2);
+        for (int i = 0; i < n; i++) {
+            sb.append(i == 0 ? "?" : ",?");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,14 @@
+package com.pointerfaz.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Convierte la fila actual de un ResultSet en un objeto del modelo
+ * @param <T> tipo de objeto que se crea
+ */
+@FunctionalInterface
+interface MapeadorFilas<T> {
+    
+    T mapear(ResultSet resultSet) throws SQLException;
+}
@@ -0,0 +1,40 @@
+package com.pointerfaz.dao;
+
+import java.util.ArrayList;
+
+/**
+ * Una página de resultados de una consulta paginada por clave (keyset)
+ * La siguiente página se pide con el token de continuación, que guarda la
+ * posición de la última fila: la consulta salta directo ahí por el índice,
+ * sin recorrer las filas anteriores como haría OFFSET.
+ * @param <T> tipo de los elementos
+ */
+public class Pagina<T> {
+    
+    private final ArrayList<T> elementos;
+    private final String siguiente;
+    
+    /**
+     * @param elementos filas de la página
+     * @param siguiente token de la página siguiente o null si es la última
+     */
+    public Pagina(ArrayList<T> elementos, String siguiente) {
+        this.elementos = elementos;
+        this.siguiente = siguiente;
+    }
+    
+    public ArrayList<T> getElementos() {
+        return elementos;
+    }
+    
+    /**
+     * @return token para pedir la página siguiente, null si no hay más filas
+     */
+    public String getSiguiente() {
+        return siguiente;
+    }
+    
+    public boolean hayMas() {
+        return siguiente != null;
+    }
+}
@@ -0,0 +1,129 @@
+package com.pointerfaz.dao;
+
+import com.pointerfaz.db.ConnectionDB;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Paginación por clave (keyset / seek) para los DAO
+ * Ordena por una columna NOT NULL y por id para desempatar; la página siguiente empieza con
+ * WHERE (col > ? OR (col = ? AND id > ?)), que el índice de la columna resuelve
+ * con la misma rapidez en la primera página que en la número mil.
+ */
+final class Paginacion {
+    
+    private static final String SEPARADOR = "\n";
+    
+    private Paginacion() {
+    }
+    
+    /**
+     * Consultar una página
+     * @param select consulta base sin WHERE ni ORDER BY
+     * @param columnaId columna id calificada (p.ej. "p.id")
+     * @param columnas orden permitido -> columna SQL calificada; solo columnas NOT NULL e indexadas
+     * @param orden clave del orden elegido
+     * @param token token de la página anterior o null para la primera
+     * @param tamano filas por página
+     * @throws IllegalArgumentException si el orden no está permitido o el token no corresponde a ese orden
+     */
+    static <T> Pagina<T> consultar(String select, String columnaId, Map<String, String> columnas, String orden,
+                                   String token, int tamano, MapeadorFilas<T> mapeador) {
+        String columna = columnas.get(orden);
+        if (columna == null) {
+            throw new IllegalArgumentException("Orden no permitido: " + orden + " (permitidos: " + columnas.keySet() + ")");
+        }
+        if (tamano < 1) {
+            throw new IllegalArgumentException("Tamaño de página inválido: " + tamano);
+        }
+        boolean porId = columna.equals(columnaId);
+        String[] posicion = token == null ? null : decodificar(token, orden);
+        
+        StringBuilder sql = new StringBuilder(select);
+        if (posicion != null) {
+            sql.append(porId ? " WHERE " + columnaId + " > ?"
+                             : " WHERE (" + columna + " > ? OR (" + columna + " = ? AND " + columnaId + " > ?))");
+        }
+        sql.append(" ORDER BY ").append(porId ? columnaId : columna + ", " + columnaId);
+        sql.append(" LIMIT ?");
+        
+        ArrayList<T> elementos = new ArrayList<>();
+        String siguiente = null;
+        
+        try (Connection connection = ConnectionDB.conectar()) {
+            PreparedStatement statement = connection.prepareStatement(sql.toString());
+            int i = 1;
+            if (posicion != null) {
+                if (porId) {
+                    statement.setInt(i++, Integer.parseInt(posicion[1]));
+                } else {
+                    statement.setString(i++, posicion[0]);
+                    statement.setString(i++, posicion[0]);
+                    statement.setInt(i++, Integer.parseInt(posicion[1]));
+                }
+            }
+            // Una fila de más indica si hay página siguiente
+            statement.setInt(i, tamano + 1);
+            ResultSet resultSet = statement.executeQuery();
+            
+            String ultimoValor = null;
+            int ultimoId = 0;
+            int leidas = 0;
+            while (resultSet.next()) {
+                if (leidas == tamano) {
+                    siguiente = codificar(orden, ultimoValor, ultimoId);
+                    break;
+                }
+                leidas++;
+                // El mapeador puede descartar una fila devolviendo null; la posición avanza igual
+                T elemento = mapeador.mapear(resultSet);
+                if (elemento != null) {
+                    elementos.add(elemento);
+                }
+                ultimoValor = resultSet.getString(etiqueta(columna));
+                ultimoId = resultSet.getInt(etiqueta(columnaId));
+            }
+            
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+        
+        return new Pagina<>(elementos, siguiente);
+    }
+    
+    /**
+     * Nombre de la columna en el ResultSet: "p.apellidos" -> "apellidos"
+     */
+    private static String etiqueta(String columna) {
+        return columna.substring(columna.indexOf('.') + 1);
+    }
+    
+    static String codificar(String orden, String valor, int id) {
+        // El valor va al final: puede contener el separador
+        String texto = orden + SEPARADOR + id + SEPARADOR + valor;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * @return {valor de la columna, id} de la última fila de la página anterior
+     */
+    static String[] decodificar(String token, String orden) {
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] partes = texto.split(SEPARADOR, 3);
+            if (partes.length == 3 && partes[0].equals(orden)) {
+                Integer.parseInt(partes[1]);
+                return new String[]{partes[2], partes[1]};
+            }
+        } catch (IllegalArgumentException e) {
+            // Base64 o id inválido: se informa abajo
+        }
+        throw new IllegalArgumentException("Token de página inválido para el orden " + orden);
+    }
+}
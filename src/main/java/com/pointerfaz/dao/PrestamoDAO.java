@@ -1,10 +1,24 @@
 package com.pointerfaz.dao;
 
+import com.pointerfaz.cache.CacheConsultas;
+import com.pointerfaz.cache.VersionesTablas;
 import com.pointerfaz.db.ConnectionDB;
+import com.pointerfaz.db.UnidadDeTrabajo;
+import com.pointerfaz.modelo.Estudiante;
+import com.pointerfaz.modelo.EstudianteGraduado;
+import com.pointerfaz.modelo.Persona;
 import com.pointerfaz.modelo.Prestamo;
+import com.pointerfaz.modelo.Profesor;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * DAO para gestionar préstamos en la base de datos
@@ -12,13 +26,65 @@ import java.util.ArrayList;
  */
 public class PrestamoDAO {
     
+    // Órdenes de paginación: columnas NOT NULL con índice
+    private static final Map<String, String> ORDENES_PAGINA = Map.of(
+            "id", "id", "fecha_prestamo", "fecha_prestamo");
+            
+    // Avisos de préstamos nuevos (después del commit)
+    private static final CopyOnWriteArrayList<EscuchaCambios<Prestamo>> ESCUCHAS = new CopyOnWriteArrayList<>();
+    
+    // Listados y conteos de préstamos: valen hasta la próxima escritura en la tabla
+    private static final CacheConsultas CONSULTAS = CacheConsultas.compartida();
+    private static final String[] TABLAS = {VersionesTablas.PRESTAMOS};
+    
+    /**
+     * Registrar una escucha de los préstamos nuevos
+     * Solo avisa altas: las devoluciones y renovaciones no llegan como guardado()
+     */
+    public static void registrarEscucha(EscuchaCambios<Prestamo> escucha) {
+        ESCUCHAS.addIfAbsent(escucha);
+    }
+    
+    public static void quitarEscucha(EscuchaCambios<Prestamo> escucha) {
+        ESCUCHAS.remove(escucha);
+    }
+    
+    private static void avisarRegistrado(Prestamo prestamo) {
+        VersionesTablas.cambio(VersionesTablas.PRESTAMOS);
+        if (!ESCUCHAS.isEmpty()) {
+            UnidadDeTrabajo.despuesDeConfirmar(() -> ESCUCHAS.forEach(escucha -> escucha.guardado(prestamo)));
+        }
+    }
+    
+    /**
+     * Préstamos que cambiaron otros clientes (los trae SincronizadorCambios)
+     * Como con los propios, solo las altas llegan a las escuchas
+     */
+    static void aplicarCambiosExternos(Collection<Integer> insertados) {
+        VersionesTablas.cambio(VersionesTablas.PRESTAMOS);
+        if (!ESCUCHAS.isEmpty() && !insertados.isEmpty()) {
+            for (Prestamo prestamo : new PrestamoDAO().leerPrestamos(insertados)) {
+                ESCUCHAS.forEach(escucha -> escucha.guardado(prestamo));
+            }
+        }
+    }
+    
+    /**
+     * Otros clientes cambiaron préstamos que ya no se pueden detallar
+     */
+    static void avisarDesactualizado() {
+        VersionesTablas.cambio(VersionesTablas.PRESTAMOS);
+        ESCUCHAS.forEach(EscuchaCambios::desactualizado);
+    }
+    
     /**
      * Agregar nuevo préstamo
+     * El préstamo y el cambio de estado del libro se confirman juntos
      */
     public void agregarPrestamo(Prestamo prestamo) {
-        try {
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.iniciar();
+             Connection connection = ConnectionDB.conectar()) {
             String sql = "INSERT INTO prestamos (libro_id, usuario_id, tipo_usuario, fecha_prestamo, fecha_devolucion_esperada, estado, observaciones, multa) VALUES (?,?,?,?,?,?,?,?)";
-            Connection connection = ConnectionDB.conectar();
             PreparedStatement statement = connection.prepareStatement(sql);
             
             statement.setInt(1, prestamo.getLibroId());
@@ -31,125 +97,211 @@ public class PrestamoDAO {
             statement.setDouble(8, prestamo.getMulta());
             
             statement.executeUpdate();
-            connection.close();
+            avisarRegistrado(prestamo);
             
             // Actualizar estado del libro a "Prestado"
             LibroDAO libroDAO = new LibroDAO();
             libroDAO.actualizarEstadoLibro(prestamo.getLibroId(), "Prestado");
             
+            unidad.confirmar();
+            
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+    
+    /**
+     * Bloquear el libro y el usuario para un préstamo y leer lo necesario para validarlo
+     * Debe llamarse dentro de una UnidadDeTrabajo: los bloqueos duran hasta su commit o rollback.
+     * Una sola consulta trae el estado del libro, el tipo de usuario y sus préstamos activos;
+     * el conteo también es una lectura con bloqueo para ver los préstamos recién confirmados.
+     * @return datos del préstamo o null si el libro o el usuario no existen
+     *         (una persona sin fila de estudiante, graduado ni profesor no es un usuario)
+     */
+    public VerificacionPrestamo bloquearParaPrestamo(int libroId, int usuarioId) {
+        try (Connection connection = ConnectionDB.conectar()) {
+            String sql = "SELECT l.estado AS estado_libro, l.es_referencia, pr.tipo_contrato, "
+                    + "e.id AS estudiante_id, eg.id AS graduado_id, pr.id AS profesor_id, "
+                    + "(SELECT COUNT(*) FROM prestamos x WHERE x.usuario_id = p.id AND x.estado IN ('Activo', 'Renovado') FOR SHARE) AS prestamos_activos "
+                    + "FROM libros l "
+                    + "INNER JOIN personas p ON p.id = ? "
+                    + "LEFT JOIN estudiantes e ON e.id = p.id "
+                    + "LEFT JOIN estudiantes_graduados eg ON eg.id = p.id "
+                    + "LEFT JOIN profesores pr ON pr.id = p.id "
+                    + "WHERE l.id = ? "
+                    + "FOR UPDATE";
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setInt(1, usuarioId);
+            statement.setInt(2, libroId);
+            ResultSet rs = statement.executeQuery();
+            
+            if (rs.next()) {
+                Persona usuario;
+                if (rs.getObject("profesor_id") != null) {
+                    Profesor profesor = new Profesor();
+                    profesor.setTipoContrato(rs.getString("tipo_contrato"));
+                    usuario = profesor;
+                } else if (rs.getObject("graduado_id") != null) {
+                    usuario = new EstudianteGraduado();
+                } else if (rs.getObject("estudiante_id") != null) {
+                    usuario = new Estudiante();
+                } else {
+                    // Como buscarUsuario: sin tipo de usuario no hay a quién prestarle
+                    return null;
+                }
+                usuario.setId(usuarioId);
+                
+                return new VerificacionPrestamo(rs.getString("estado_libro"), rs.getBoolean("es_referencia"),
+                        usuario, rs.getInt("prestamos_activos"));
+            }
+            
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
+        
+        return null;
+    }
+    
+    /**
+     * Registrar un préstamo ya validado
+     * No toca libros: el trigger after_prestamo_insert marca el libro como prestado
+     * @return true si se insertó el préstamo
+     */
+    public boolean registrarPrestamo(Prestamo prestamo) {
+        try (Connection connection = ConnectionDB.conectar()) {
+            String sql = "INSERT INTO prestamos (libro_id, usuario_id, tipo_usuario, fecha_prestamo, fecha_devolucion_esperada, estado, observaciones, multa) VALUES (?,?,?,?,?,?,?,?)";
+            PreparedStatement statement = connection.prepareStatement(sql);
+            
+            statement.setInt(1, prestamo.getLibroId());
+            statement.setInt(2, prestamo.getUsuarioId());
+            statement.setString(3, prestamo.getTipoUsuario());
+            statement.setDate(4, Date.valueOf(prestamo.getFechaPrestamo()));
+            statement.setDate(5, Date.valueOf(prestamo.getFechaDevolucionEsperada()));
+            statement.setString(6, prestamo.getEstado());
+            statement.setString(7, prestamo.getObservaciones());
+            statement.setDouble(8, prestamo.getMulta());
+            
+            if (statement.executeUpdate() > 0) {
+                // El trigger cambió el estado del libro
+                LibroDAO.avisarModificado(prestamo.getLibroId());
+                avisarRegistrado(prestamo);
+                return true;
+            }
+            
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+        return false;
     }
     
     /**
      * Listar todos los préstamos
      */
     public ArrayList<Prestamo> listarPrestamos() {
+        return CONSULTAS.consultar("prestamos.listar", List.of(), TABLAS,
+                this::leerTodos, CacheConsultas.copiarLista(Prestamo::new), ArrayList::new);
+    }
+    
+    private ArrayList<Prestamo> leerTodos() throws SQLException {
         ArrayList<Prestamo> list = new ArrayList<>();
         
-        try {
+        try (Connection connection = ConnectionDB.conectar()) {
             String sql = "SELECT * FROM prestamos";
-            Connection connection = ConnectionDB.conectar();
             Statement statement = connection.createStatement();
             ResultSet resultSet = statement.executeQuery(sql);
             
             while (resultSet.next()) {
-                Prestamo prestamo = new Prestamo();
-                prestamo.setId(resultSet.getInt("id"));
-                prestamo.setLibroId(resultSet.getInt("libro_id"));
-                prestamo.setUsuarioId(resultSet.getInt("usuario_id"));
-                prestamo.setTipoUsuario(resultSet.getString("tipo_usuario"));
-                
-                Date fechaPrestamo = resultSet.getDate("fecha_prestamo");
-                if (fechaPrestamo != null) {
-                    prestamo.setFechaPrestamo(fechaPrestamo.toLocalDate());
-                }
-                
-                Date fechaDevEsperada = resultSet.getDate("fecha_devolucion_esperada");
-                if (fechaDevEsperada != null) {
-                    prestamo.setFechaDevolucionEsperada(fechaDevEsperada.toLocalDate());
-                }
-                
-                Date fechaDevReal = resultSet.getDate("fecha_devolucion_real");
-                if (fechaDevReal != null) {
-                    prestamo.setFechaDevolucionReal(fechaDevReal.toLocalDate());
-                }
-                
-                prestamo.setEstado(resultSet.getString("estado"));
-                prestamo.setObservaciones(resultSet.getString("observaciones"));
-                prestamo.setMulta(resultSet.getDouble("multa"));
+                Prestamo prestamo = mapearPrestamo(resultSet);
                 
                 list.add(prestamo);
             }
-            
-            connection.close();
-            
-        } catch (SQLException e) {
-            System.out.println(e.getMessage());
         }
         
         return list;
     }
     
+    /**
+     * Recorrer todos los préstamos sin cargarlos en una lista
+     * El Stream tiene una conexión abierta: usar con try-with-resources
+     */
+    public Stream<Prestamo> flujoPrestamos() {
+        return Cursores.abrir("SELECT * FROM prestamos", this::mapearPrestamo);
+    }
+    
+    /**
+     * Entregar cada préstamo al visitante a medida que se lee de la base
+     */
+    public void recorrerPrestamos(Consumer<? super Prestamo> visitante) {
+        Cursores.recorrer("SELECT * FROM prestamos", this::mapearPrestamo, visitante);
+    }
+    
+    /**
+     * Listar préstamos de a una página, ordenados por "id" o "fecha_prestamo"
+     * @param orden columna de orden
+     * @param token token de la página anterior o null para la primera
+     * @param tamano préstamos por página
+     * @return página de préstamos con el token de la siguiente
+     */
+    public Pagina<Prestamo> paginarPrestamos(String orden, String token, int tamano) {
+        return Paginacion.consultar("SELECT * FROM prestamos", "id", ORDENES_PAGINA, orden, token, tamano, this::mapearPrestamo);
+    }
+    
     /**
      * Buscar préstamo por ID
      */
     public Prestamo buscarPrestamo(int id) {
-        try {
+        try (Connection connection = ConnectionDB.conectar()) {
             String sql = "SELECT * FROM prestamos WHERE id = ?";
-            Connection connection = ConnectionDB.conectar();
             PreparedStatement statement = connection.prepareStatement(sql);
             statement.setInt(1, id);
             ResultSet resultSet = statement.executeQuery();
             
             if (resultSet.next()) {
-                Prestamo prestamo = new Prestamo();
-                prestamo.setId(resultSet.getInt("id"));
-                prestamo.setLibroId(resultSet.getInt("libro_id"));
-                prestamo.setUsuarioId(resultSet.getInt("usuario_id"));
-                prestamo.setTipoUsuario(resultSet.getString("tipo_usuario"));
+                Prestamo prestamo = mapearPrestamo(resultSet);
                 
-                Date fechaPrestamo = resultSet.getDate("fecha_prestamo");
-                if (fechaPrestamo != null) {
-                    prestamo.setFechaPrestamo(fechaPrestamo.toLocalDate());
-                }
-                
-                Date fechaDevEsperada = resultSet.getDate("fecha_devolucion_esperada");
-                if (fechaDevEsperada != null) {
-                    prestamo.setFechaDevolucionEsperada(fechaDevEsperada.toLocalDate());
+                return prestamo;
+            }
+            
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+        
+        return null;
+    }
+    
+    private List<Prestamo> leerPrestamos(Collection<Integer> ids) {
+        List<Prestamo> prestamos = new ArrayList<>();
+        
+        try (Connection connection = ConnectionDB.conectar()) {
+            for (List<Integer> lote : Lotes.partir(ids)) {
+                String sql = "SELECT * FROM prestamos WHERE id IN (" + Lotes.marcadores(lote.size()) + ")";
+                PreparedStatement statement = connection.prepareStatement(sql);
+                for (int i = 0; i < lote.size(); i++) {
+                    statement.setInt(i + 1, lote.get(i));
                 }
+                ResultSet resultSet = statement.executeQuery();
                 
-                Date fechaDevReal = resultSet.getDate("fecha_devolucion_real");
-                if (fechaDevReal != null) {
-                    prestamo.setFechaDevolucionReal(fechaDevReal.toLocalDate());
+                while (resultSet.next()) {
+                    prestamos.add(mapearPrestamo(resultSet));
                 }
-                
-                prestamo.setEstado(resultSet.getString("estado"));
-                prestamo.setObservaciones(resultSet.getString("observaciones"));
-                prestamo.setMulta(resultSet.getDouble("multa"));
-                
-                connection.close();
-                return prestamo;
             }
             
-            connection.close();
-            
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
         
-        return null;
+        return prestamos;
     }
     
     /**
      * Devolver libro (actualizar préstamo)
+     * La consulta del préstamo y el cambio de estado del libro usan la misma conexión y transacción
      * @return true si se procesó exitosamente, false en caso contrario
      */
     public boolean devolverLibro(int prestamoId) {
-        try {
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.iniciar();
+             Connection connection = ConnectionDB.conectar()) {
             String sql = "UPDATE prestamos SET fecha_devolucion_real = ?, estado = ? WHERE id = ?";
-            Connection connection = ConnectionDB.conectar();
             PreparedStatement statement = connection.prepareStatement(sql);
             
             statement.setDate(1, Date.valueOf(LocalDate.now()));
@@ -159,6 +311,8 @@ public class PrestamoDAO {
             int rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
+                VersionesTablas.cambio(VersionesTablas.PRESTAMOS);
+                
                 // Obtener el libro_id del préstamo
                 Prestamo prestamo = buscarPrestamo(prestamoId);
                 if (prestamo != null) {
@@ -166,12 +320,10 @@ public class PrestamoDAO {
                     LibroDAO libroDAO = new LibroDAO();
                     libroDAO.actualizarEstadoLibro(prestamo.getLibroId(), "Disponible");
                 }
-                connection.close();
+                unidad.confirmar();
                 return true;
             }
             
-            connection.close();
-            
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
@@ -189,17 +341,20 @@ public class PrestamoDAO {
                 LocalDate nuevaFechaDevolucion = prestamo.getFechaDevolucionEsperada().plusDays(diasAdicionales);
                 
                 String sql = "UPDATE prestamos SET fecha_devolucion_esperada = ?, estado = ? WHERE id = ?";
-                Connection connection = ConnectionDB.conectar();
-                PreparedStatement statement = connection.prepareStatement(sql);
-                
-                statement.setDate(1, Date.valueOf(nuevaFechaDevolucion));
-                statement.setString(2, "Renovado");
-                statement.setInt(3, prestamoId);
-                
-                int rowsAffected = statement.executeUpdate();
-                connection.close();
-                
-                return rowsAffected > 0;
+                try (Connection connection = ConnectionDB.conectar()) {
+                    PreparedStatement statement = connection.prepareStatement(sql);
+                    
+                    statement.setDate(1, Date.valueOf(nuevaFechaDevolucion));
+                    statement.setString(2, "Renovado");
+                    statement.setInt(3, prestamoId);
+                    
+                    int rowsAffected = statement.executeUpdate();
+                    if (rowsAffected > 0) {
+                        VersionesTablas.cambio(VersionesTablas.PRESTAMOS);
+                    }
+                    
+                    return rowsAffected > 0;
+                }
             }
             
         } catch (SQLException e) {
@@ -212,63 +367,255 @@ public class PrestamoDAO {
      * Listar préstamos activos
      */
     public ArrayList<Prestamo> listarPrestamosActivos() {
+        return CONSULTAS.consultar("prestamos.activos", List.of(), TABLAS,
+                this::leerActivos, CacheConsultas.copiarLista(Prestamo::new), ArrayList::new);
+    }
+    
+    private ArrayList<Prestamo> leerActivos() throws SQLException {
         ArrayList<Prestamo> list = new ArrayList<>();
         
-        try {
+        try (Connection connection = ConnectionDB.conectar()) {
             String sql = "SELECT * FROM prestamos WHERE estado = 'Activo' OR estado = 'Renovado'";
-            Connection connection = ConnectionDB.conectar();
             Statement statement = connection.createStatement();
             ResultSet resultSet = statement.executeQuery(sql);
             
             while (resultSet.next()) {
-                Prestamo prestamo = new Prestamo();
-                prestamo.setId(resultSet.getInt("id"));
-                prestamo.setLibroId(resultSet.getInt("libro_id"));
-                prestamo.setUsuarioId(resultSet.getInt("usuario_id"));
-                prestamo.setTipoUsuario(resultSet.getString("tipo_usuario"));
+                Prestamo prestamo = mapearPrestamo(resultSet);
                 
-                Date fechaPrestamo = resultSet.getDate("fecha_prestamo");
-                if (fechaPrestamo != null) {
-                    prestamo.setFechaPrestamo(fechaPrestamo.toLocalDate());
-                }
-                
-                Date fechaDevEsperada = resultSet.getDate("fecha_devolucion_esperada");
-                if (fechaDevEsperada != null) {
-                    prestamo.setFechaDevolucionEsperada(fechaDevEsperada.toLocalDate());
-                }
-                
-                Date fechaDevReal = resultSet.getDate("fecha_devolucion_real");
-                if (fechaDevReal != null) {
-                    prestamo.setFechaDevolucionReal(fechaDevReal.toLocalDate());
-                }
+                list.add(prestamo);
+            }
+        }
+        
+        return list;
+    }
+    
+    /**
+     * Listar los préstamos activos de un usuario
+     * Usa el índice idx_usuario_estado: no recorre el historial completo
+     */
+    public ArrayList<Prestamo> listarPrestamosActivosUsuario(int usuarioId) {
+        return CONSULTAS.consultar("prestamos.activosUsuario", List.of(usuarioId), TABLAS,
+                () -> leerActivosUsuario(usuarioId), CacheConsultas.copiarLista(Prestamo::new), ArrayList::new);
+    }
+    
+    private ArrayList<Prestamo> leerActivosUsuario(int usuarioId) throws SQLException {
+        ArrayList<Prestamo> list = new ArrayList<>();
+        
+        try (Connection connection = ConnectionDB.conectar()) {
+            String sql = "SELECT * FROM prestamos WHERE usuario_id = ? AND estado IN ('Activo', 'Renovado')";
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setInt(1, usuarioId);
+            ResultSet resultSet = statement.executeQuery();
+            
+            while (resultSet.next()) {
+                Prestamo prestamo = mapearPrestamo(resultSet);
                 
-                prestamo.setEstado(resultSet.getString("estado"));
-                prestamo.setObservaciones(resultSet.getString("observaciones"));
-                prestamo.setMulta(resultSet.getDouble("multa"));
+                list.add(prestamo);
+            }
+        }
+        
+        return list;
+    }
+    
+    /**
+     * Contar los préstamos activos (Activo o Renovado) de un usuario
+     * Se resuelve solo con el índice idx_usuario_estado
+     * @return cantidad de préstamos sin devolver, 0 si falla la consulta
+     */
+    public int contarPrestamosActivos(int usuarioId) {
+        return CONSULTAS.consultar("prestamos.contarActivos", List.of(usuarioId), TABLAS,
+                () -> leerCantidadActivos(usuarioId), cantidad -> cantidad, () -> 0);
+    }
+    
+    private int leerCantidadActivos(int usuarioId) throws SQLException {
+        try (Connection connection = ConnectionDB.conectar()) {
+            String sql = "SELECT COUNT(*) FROM prestamos WHERE usuario_id = ? AND estado IN ('Activo', 'Renovado')";
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setInt(1, usuarioId);
+            ResultSet resultSet = statement.executeQuery();
+            
+            if (resultSet.next()) {
+                return resultSet.getInt(1);
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * Listar todos los préstamos de un libro (todo el historial)
+     * Usa el índice idx_libro_id: no recorre la tabla completa
+     */
+    public ArrayList<Prestamo> listarPrestamosLibro(int libroId) {
+        return CONSULTAS.consultar("prestamos.libro", List.of(libroId), TABLAS,
+                () -> leerPrestamosLibro(libroId), CacheConsultas.copiarLista(Prestamo::new), ArrayList::new);
+    }
+    
+    private ArrayList<Prestamo> leerPrestamosLibro(int libroId) throws SQLException {
+        ArrayList<Prestamo> list = new ArrayList<>();
+        
+        try (Connection connection = ConnectionDB.conectar()) {
+            String sql = "SELECT * FROM prestamos WHERE libro_id = ?";
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setInt(1, libroId);
+            ResultSet resultSet = statement.executeQuery();
+            
+            while (resultSet.next()) {
+                Prestamo prestamo = mapearPrestamo(resultSet);
                 
                 list.add(prestamo);
             }
+        }
+        
+        return list;
+    }
+    
+    /**
+     * Sumar las multas de todos los préstamos de un usuario
+     * La suma la hace la base con el índice idx_usuario_estado
+     * @return total de multas, 0 si no tiene o si falla la consulta
+     */
+    public double sumarMultasUsuario(int usuarioId) {
+        return CONSULTAS.consultar("prestamos.multasUsuario", List.of(usuarioId), TABLAS,
+                () -> leerMultasUsuario(usuarioId), multa -> multa, () -> 0.0);
+    }
+    
+    private double leerMultasUsuario(int usuarioId) throws SQLException {
+        try (Connection connection = ConnectionDB.conectar()) {
+            String sql = "SELECT COALESCE(SUM(multa), 0) FROM prestamos WHERE usuario_id = ?";
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setInt(1, usuarioId);
+            ResultSet resultSet = statement.executeQuery();
             
-            connection.close();
+            if (resultSet.next()) {
+                return resultSet.getDouble(1);
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * Contar los préstamos activos de varios usuarios con una consulta por lote de ids
+     * @return mapa usuario_id -> préstamos activos; los usuarios sin préstamos aparecen con 0
+     */
+    public Map<Integer, Integer> contarPrestamosActivos(Collection<Integer> usuarioIds) {
+        Map<Integer, Integer> conteos = new HashMap<>();
+        
+        try (Connection connection = ConnectionDB.conectar()) {
+            for (List<Integer> lote : Lotes.partir(usuarioIds)) {
+                String sql = "SELECT usuario_id, COUNT(*) AS activos FROM prestamos "
+                        + "WHERE usuario_id IN (" + Lotes.marcadores(lote.size()) + ") AND estado IN ('Activo', 'Renovado') "
+                        + "GROUP BY usuario_id";
+                PreparedStatement statement = connection.prepareStatement(sql);
+                for (int i = 0; i < lote.size(); i++) {
+                    statement.setInt(i + 1, lote.get(i));
+                    conteos.put(lote.get(i), 0);
+                }
+                ResultSet resultSet = statement.executeQuery();
+                
+                while (resultSet.next()) {
+                    conteos.put(resultSet.getInt("usuario_id"), resultSet.getInt("activos"));
+                }
+            }
             
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
         
-        return list;
+        return conteos;
+    }
+    
+    /**
+     * Contar cuántas veces se prestó cada libro (todo el historial)
+     * @return mapa libro_id -> préstamos; los libros nunca prestados no aparecen
+     */
+    public Map<Integer, Integer> contarPrestamosPorLibro() {
+        return CONSULTAS.consultar("prestamos.porLibro", List.of(), TABLAS,
+                this::leerPrestamosPorLibro, CacheConsultas.copiarConteos(), HashMap::new);
+    }
+    
+    private Map<Integer, Integer> leerPrestamosPorLibro() throws SQLException {
+        Map<Integer, Integer> conteos = new HashMap<>();
+        
+        try (Connection connection = ConnectionDB.conectar()) {
+            String sql = "SELECT libro_id, COUNT(*) AS veces FROM prestamos GROUP BY libro_id";
+            PreparedStatement statement = connection.prepareStatement(sql);
+            ResultSet resultSet = statement.executeQuery();
+            
+            while (resultSet.next()) {
+                conteos.put(resultSet.getInt("libro_id"), resultSet.getInt("veces"));
+            }
+        }
+        
+        return conteos;
+    }
+    
+    /**
+     * Contar cuántos préstamos hizo cada usuario (todo el historial)
+     * @return mapa usuario_id -> préstamos; los usuarios sin préstamos no aparecen
+     */
+    public Map<Integer, Integer> contarPrestamosPorUsuario() {
+        return CONSULTAS.consultar("prestamos.porUsuario", List.of(), TABLAS,
+                this::leerPrestamosPorUsuario, CacheConsultas.copiarConteos(), HashMap::new);
+    }
+    
+    private Map<Integer, Integer> leerPrestamosPorUsuario() throws SQLException {
+        Map<Integer, Integer> conteos = new HashMap<>();
+        
+        try (Connection connection = ConnectionDB.conectar()) {
+            String sql = "SELECT usuario_id, COUNT(*) AS veces FROM prestamos GROUP BY usuario_id";
+            PreparedStatement statement = connection.prepareStatement(sql);
+            ResultSet resultSet = statement.executeQuery();
+            
+            while (resultSet.next()) {
+                conteos.put(resultSet.getInt("usuario_id"), resultSet.getInt("veces"));
+            }
+        }
+        
+        return conteos;
+    }
+    
+    /**
+     * Crear el Prestamo de la fila actual de una consulta sobre prestamos
+     */
+    private Prestamo mapearPrestamo(ResultSet resultSet) throws SQLException {
+        Prestamo prestamo = new Prestamo();
+        prestamo.setId(resultSet.getInt("id"));
+        prestamo.setLibroId(resultSet.getInt("libro_id"));
+        prestamo.setUsuarioId(resultSet.getInt("usuario_id"));
+        prestamo.setTipoUsuario(resultSet.getString("tipo_usuario"));
+        
+        Date fechaPrestamo = resultSet.getDate("fecha_prestamo");
+        if (fechaPrestamo != null) {
+            prestamo.setFechaPrestamo(fechaPrestamo.toLocalDate());
+        }
+        
+        Date fechaDevEsperada = resultSet.getDate("fecha_devolucion_esperada");
+        if (fechaDevEsperada != null) {
+            prestamo.setFechaDevolucionEsperada(fechaDevEsperada.toLocalDate());
+        }
+        
+        Date fechaDevReal = resultSet.getDate("fecha_devolucion_real");
+        if (fechaDevReal != null) {
+            prestamo.setFechaDevolucionReal(fechaDevReal.toLocalDate());
+        }
+        
+        prestamo.setEstado(resultSet.getString("estado"));
+        prestamo.setObservaciones(resultSet.getString("observaciones"));
+        prestamo.setMulta(resultSet.getDouble("multa"));
+        return prestamo;
     }
     
     /**
      * Eliminar préstamo
      */
     public void eliminarPrestamo(int id) {
-        try {
+        try (Connection connection = ConnectionDB.conectar()) {
             String sql = "DELETE FROM prestamos WHERE id = ?";
-            Connection connection = ConnectionDB.conectar();
             PreparedStatement statement = connection.prepareStatement(sql);
             statement.setInt(1, id);
-            statement.executeUpdate();
-            connection.close();
+            if (statement.executeUpdate() > 0) {
+                VersionesTablas.cambio(VersionesTablas.PRESTAMOS);
+            }
             
         } catch (SQLException e) {
             System.out.println(e.getMessage());
@@ -0,0 +1,51 @@
+package com.pointerfaz.dao;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Filas de la tabla cambios_datos, para SincronizadorCambios
+ * Cada lectura devuelve null si falla la consulta.
+ */
+interface RegistroCambios {
+    
+    /**
+     * Una fila del registro: la versión y qué fila de qué tabla cambió quién
+     */
+    final class Fila {
+        final long version;
+        final String tabla;
+        final int id;
+        final String operacion;
+        final long cliente;
+        
+        Fila(long version, String tabla, int id, String operacion, long cliente) {
+            this.version = version;
+            this.tabla = tabla;
+            this.id = id;
+            this.operacion = operacion;
+            this.cliente = cliente;
+        }
+    }
+    
+    /**
+     * @return primera y última versión del registro (0 y 0 si está vacío), o null
+     */
+    long[] extremos();
+    
+    /**
+     * @param tabla solo las de esa tabla, o null para todas
+     * @return hasta limite filas con versión mayor que la dada, por versión, o null
+     */
+    List<Fila> posteriores(long version, String tabla, int limite);
+    
+    /**
+     * @return las filas de esas versiones que ya se ven, por versión, o null
+     */
+    List<Fila> versiones(Collection<Long> versiones);
+    
+    /**
+     * Borrar las filas escritas antes de la fecha y con versión menor que la dada
+     */
+    void depurar(long fechaLimite, long versionLimite);
+}
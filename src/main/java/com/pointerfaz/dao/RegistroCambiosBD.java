@@ -0,0 +1,99 @@
+package com.pointerfaz.dao;
+
+import com.pointerfaz.db.ConnectionDB;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Registro de cambios leído de la tabla cambios_datos
+ */
+final class RegistroCambiosBD implements RegistroCambios {
+    
+    private static final String COLUMNAS = "SELECT version, tabla, fila_id, operacion, cliente FROM cambios_datos WHERE ";
+    
+    @Override
+    public long[] extremos() {
+        try (Connection connection = ConnectionDB.conectar()) {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT COALESCE(MIN(version), 0), COALESCE(MAX(version), 0) FROM cambios_datos");
+            ResultSet resultSet = statement.executeQuery();
+            
+            if (resultSet.next()) {
+                return new long[]{resultSet.getLong(1), resultSet.getLong(2)};
+            }
+            
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+        return null;
+    }
+    
+    @Override
+    public List<Fila> posteriores(long version, String tabla, int limite) {
+        try (Connection connection = ConnectionDB.conectar()) {
+            PreparedStatement statement = connection.prepareStatement(COLUMNAS
+                    + (tabla == null ? "" : "tabla = ? AND ") + "version > ? ORDER BY version LIMIT " + limite);
+            int parametro = 1;
+            if (tabla != null) {
+                statement.setString(parametro++, tabla);
+            }
+            statement.setLong(parametro, version);
+            return leer(statement);
+            
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+        return null;
+    }
+    
+    @Override
+    public List<Fila> versiones(Collection<Long> versiones) {
+        if (versiones.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try (Connection connection = ConnectionDB.conectar()) {
+            PreparedStatement statement = connection.prepareStatement(COLUMNAS + "version IN ("
+                    + String.join(",", Collections.nCopies(versiones.size(), "?")) + ") ORDER BY version");
+            int parametro = 1;
+            for (long version : versiones) {
+                statement.setLong(parametro++, version);
+            }
+            return leer(statement);
+            
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+        return null;
+    }
+    
+    private static List<Fila> leer(PreparedStatement statement) throws SQLException {
+        List<Fila> filas = new ArrayList<>();
+        ResultSet resultSet = statement.executeQuery();
+        while (resultSet.next()) {
+            filas.add(new Fila(resultSet.getLong("version"), resultSet.getString("tabla"),
+                    resultSet.getInt("fila_id"), resultSet.getString("operacion"), resultSet.getLong("cliente")));
+        }
+        return filas;
+    }
+    
+    @Override
+    public void depurar(long fechaLimite, long versionLimite) {
+        try (Connection connection = ConnectionDB.conectar()) {
+            PreparedStatement statement = connection.prepareStatement(
+                    "DELETE FROM cambios_datos WHERE fecha < ? AND version < ?");
+            statement.setTimestamp(1, new Timestamp(fechaLimite));
+            statement.setLong(2, versionLimite);
+            statement.executeUpdate();
+            
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.pointerfaz.dao;
+
+import com.pointerfaz.modelo.Libro;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de una carga masiva de libros
+ * Las filas rechazadas (ISBN repetido, datos inválidos...) no detienen la carga:
+ * quedan anotadas aquí con su posición en la colección original y el motivo.
+ */
+public class ResultadoCarga {
+    
+    /**
+     * Una fila que no se pudo insertar
+     */
+    public static class Fallo {
+        private final int posicion;
+        private final Libro libro;
+        private final String motivo;
+        
+        Fallo(int posicion, Libro libro, String motivo) {
+            this.posicion = posicion;
+            this.libro = libro;
+            this.motivo = motivo;
+        }
+        
+        /**
+         * @return posición de la fila en la colección recibida (desde 0)
+         */
+        public int getPosicion() {
+            return posicion;
+        }
+        
+        public Libro getLibro() {
+            return libro;
+        }
+        
+        public String getMotivo() {
+            return motivo;
+        }
+    }
+    
+    private int insertados;
+    private final ArrayList<Fallo> fallos = new ArrayList<>();
+    
+    void sumarInsertados(int cantidad) {
+        insertados += cantidad;
+    }
+    
+    void agregarFallo(int posicion, Libro libro, String motivo) {
+        fallos.add(new Fallo(posicion, libro, motivo));
+    }
+    
+    public int getInsertados() {
+        return insertados;
+    }
+    
+    public List<Fallo> getFallos() {
+        return fallos;
+    }
+    
+    public boolean hayFallos() {
+        return !fallos.isEmpty();
+    }
+}
@@ -0,0 +1,377 @@
+package com.pointerfaz.dao;
+
+import com.pointerfaz.cache.VersionesTablas;
+import com.pointerfaz.dao.RegistroCambios.Fila;
+import com.pointerfaz.db.ConnectionDB;
+import com.pointerfaz.modelo.Libro;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Mantiene las caches e índices de este cliente al día con lo que escriben
+ * los demás clientes en la misma base de datos
+ *
+ * Los triggers de libros, prestamos y personas (y de las tablas de cada tipo
+ * de usuario) agregan una fila a cambios_datos por cada fila escrita, con una
+ * versión creciente y el id del cliente que escribió. Cada pocos segundos se
+ * leen las filas posteriores a la última versión leída y, por cada id que
+ * cambió otro cliente, el DAO invalida su cache, relee la fila y avisa a sus
+ * escuchas (índices, sugerencias); los resultados de CacheConsultas caen con
+ * la versión de su tabla. Lo que escribió este cliente se salta: ya se avisó
+ * al escribirlo.
+ *
+ * La versión se asigna al insertar pero se ve recién con el commit, así que
+ * una transacción lenta deja un hueco que se llena después: los huecos se
+ * vuelven a pedir hasta que aparecen o pasan ESPERA_HUECO_MS (un rollback
+ * los deja para siempre). La marca es la versión hasta la que se aplicó todo,
+ * sin huecos; el índice de libros la guarda con sus segmentos.
+ *
+ * Las filas más viejas que biblioteca.sincronizacion.retencion se borran. Si
+ * el cliente pasó tanto tiempo sin leer que el registro ya no llega a su
+ * marca, los DAO avisan desactualizado() y cada escucha vuelve a leer todo.
+ */
+public final class SincronizadorCambios {
+    
+    private static final long INTERVALO_MS = Long.getLong("biblioteca.sincronizacion.intervalo", 2000);
+    private static final long RETENCION_MS = Long.getLong("biblioteca.sincronizacion.retencion", 86_400_000);
+    
+    private static final int FILAS_POR_LECTURA = 1000;
+    // Más que la transacción más larga de la aplicación (un lote de agregarLibros)
+    private static final long ESPERA_HUECO_MS = 10_000;
+    private static final long INTERVALO_DEPURACION_MS = 600_000;
+    
+    private static final String INSERTADO = "insertado";
+    private static final String MODIFICADO = "modificado";
+    private static final String ELIMINADO = "eliminado";
+    
+    private static SincronizadorCambios compartido;
+    
+    private final RegistroCambios registro;
+    private final Destino destino;
+    private final LongSupplier reloj;
+    private final ScheduledExecutorService hilo = Executors.newSingleThreadScheduledExecutor(tarea -> {
+        Thread hiloSincronizacion = new Thread(tarea, "sincronizacion-cambios");
+        hiloSincronizacion.setDaemon(true);
+        return hiloSincronizacion;
+    });
+    
+    // -1 mientras no haya registro de cambios
+    private volatile long marca = -1;
+    private long leidaHasta;
+    // Versiones mayores que la marca ya aplicadas, y huecos -> cuándo se vieron
+    private final Set<Long> aplicadas = new HashSet<>();
+    private final Map<Long, Long> huecos = new HashMap<>();
+    private long ultimaLectura;
+    private long ultimaDepuracion;
+    private long cambiosAplicados;
+    
+    /**
+     * A dónde van los cambios de otros clientes: los DAO, que invalidan sus
+     * caches, releen las filas y avisan a sus escuchas
+     */
+    interface Destino {
+        
+        void libros(Collection<Integer> guardados, Collection<Integer> eliminados);
+        
+        void usuarios(Collection<Integer> guardados, Collection<Integer> eliminados);
+        
+        void prestamos(Collection<Integer> insertados);
+        
+        /**
+         * El registro ya no llega a la marca: todos vuelven a leer todo
+         */
+        void desactualizado();
+    }
+    
+    private static final Destino DAOS = new Destino() {
+        @Override
+        public void libros(Collection<Integer> guardados, Collection<Integer> eliminados) {
+            LibroDAO.aplicarCambiosExternos(guardados, eliminados);
+        }
+        
+        @Override
+        public void usuarios(Collection<Integer> guardados, Collection<Integer> eliminados) {
+            UsuarioDAO.aplicarCambiosExternos(guardados, eliminados);
+        }
+        
+        @Override
+        public void prestamos(Collection<Integer> insertados) {
+            PrestamoDAO.aplicarCambiosExternos(insertados);
+        }
+        
+        @Override
+        public void desactualizado() {
+            LibroDAO.avisarDesactualizado();
+            UsuarioDAO.avisarDesactualizado();
+            PrestamoDAO.avisarDesactualizado();
+        }
+    };
+    
+    SincronizadorCambios(RegistroCambios registro, Destino destino, LongSupplier reloj) {
+        this.registro = registro;
+        this.destino = destino;
+        this.reloj = reloj;
+    }
+    
+    /**
+     * Sincronizador de toda la aplicación
+     * La primera llamada toma la última versión del registro y empieza a leer
+     * cada biblioteca.sincronizacion.intervalo ms (0 = solo con sincronizar());
+     * conviene llamarlo antes de cargar índices y caches
+     */
+    public static synchronized SincronizadorCambios compartido() {
+        if (compartido == null) {
+            SincronizadorCambios sincronizador = new SincronizadorCambios(new RegistroCambiosBD(), DAOS, System::currentTimeMillis);
+            if (sincronizador.iniciar() && INTERVALO_MS > 0) {
+                sincronizador.hilo.scheduleWithFixedDelay(sincronizador::sincronizarEnSegundoPlano,
+                        INTERVALO_MS, INTERVALO_MS, TimeUnit.MILLISECONDS);
+            }
+            compartido = sincronizador;
+        }
+        return compartido;
+    }
+    
+    /**
+     * Empezar desde la última versión del registro
+     * @return false si no hay registro de cambios
+     */
+    synchronized boolean iniciar() {
+        long[] extremos = registro.extremos();
+        if (extremos == null) {
+            System.out.println("Sin registro de cambios (cambios_datos): los cambios de otros clientes se verán al vencer las caches");
+            return false;
+        }
+        marca = extremos[1];
+        leidaHasta = marca;
+        ultimaLectura = reloj.getAsLong();
+        ultimaDepuracion = ultimaLectura;
+        return true;
+    }
+    
+    private void sincronizarEnSegundoPlano() {
+        try {
+            sincronizar();
+        } catch (RuntimeException e) {
+            // Una excepción cancelaría las próximas lecturas
+            System.out.println("Error al sincronizar cambios: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Leer y aplicar los cambios de otros clientes posteriores a la última lectura
+     * @return filas de otros clientes aplicadas
+     */
+    public synchronized int sincronizar() {
+        if (marca < 0) {
+            return 0;
+        }
+        long ahora = reloj.getAsLong();
+        if (ahora - ultimaLectura > RETENCION_MS / 2 && !cubre(marca)) {
+            recargarTodo();
+            return 0;
+        }
+        
+        // Los huecos se piden por versión, de a FILAS_POR_LECTURA: un rango acotado por
+        // LIMIT dejaría sin volver a pedir los huecos que quedan detrás de mil filas ya aplicadas
+        int aplicados = 0;
+        List<Long> pendientes = new ArrayList<>(huecos.keySet());
+        for (int desde = 0; desde < pendientes.size(); desde += FILAS_POR_LECTURA) {
+            List<Fila> llenados = registro.versiones(pendientes.subList(desde, Math.min(desde + FILAS_POR_LECTURA, pendientes.size())));
+            if (llenados == null) {
+                return 0;
+            }
+            aplicados += aplicar(llenados, ahora);
+        }
+        boolean leida;
+        boolean completa;
+        do {
+            List<Fila> filas = registro.posteriores(leidaHasta, null, FILAS_POR_LECTURA);
+            leida = filas != null;
+            completa = leida && filas.size() == FILAS_POR_LECTURA;
+            if (leida) {
+                aplicados += aplicar(filas, ahora);
+            }
+        } while (completa);
+        
+        avanzarMarca(ahora);
+        cambiosAplicados += aplicados;
+        // Solo una lectura completa cuenta para saber si el registro todavía llega a la marca
+        if (leida) {
+            ultimaLectura = ahora;
+        }
+        if (leida && ahora - ultimaDepuracion > INTERVALO_DEPURACION_MS) {
+            ultimaDepuracion = ahora;
+            depurar(ahora);
+        }
+        return aplicados;
+    }
+    
+    /**
+     * Pasar las filas a cada DAO, agrupadas por tabla y con un solo cambio por id
+     */
+    private int aplicar(List<Fila> filas, long ahora) {
+        Map<String, Map<Integer, String>> porTabla = new HashMap<>();
+        int aplicados = 0;
+        for (Fila fila : filas) {
+            huecos.remove(fila.version);
+            if (fila.version > marca && !aplicadas.add(fila.version)) {
+                continue;
+            }
+            for (long hueco = leidaHasta + 1; hueco < fila.version; hueco++) {
+                huecos.put(hueco, ahora);
+            }
+            leidaHasta = Math.max(leidaHasta, fila.version);
+            if (fila.cliente != ConnectionDB.getIdCliente()) {
+                porTabla.computeIfAbsent(fila.tabla, tabla -> new LinkedHashMap<>())
+                        .merge(fila.id, fila.operacion, SincronizadorCambios::combinar);
+                aplicados++;
+            }
+        }
+        
+        porTabla.forEach((tabla, cambios) -> {
+            if (VersionesTablas.LIBROS.equals(tabla)) {
+                destino.libros(conOperacion(cambios, false), conOperacion(cambios, true));
+            } else if (VersionesTablas.PERSONAS.equals(tabla)) {
+                destino.usuarios(conOperacion(cambios, false), conOperacion(cambios, true));
+            } else if (VersionesTablas.PRESTAMOS.equals(tabla)) {
+                List<Integer> insertados = new ArrayList<>();
+                cambios.forEach((id, operacion) -> {
+                    if (INSERTADO.equals(operacion)) {
+                        insertados.add(id);
+                    }
+                });
+                destino.prestamos(insertados);
+            }
+        });
+        return aplicados;
+    }
+    
+    // Dos cambios de la misma fila: vale el último, pero un alta modificada sigue siendo un alta
+    private static String combinar(String anterior, String nuevo) {
+        return INSERTADO.equals(anterior) && MODIFICADO.equals(nuevo) ? anterior : nuevo;
+    }
+    
+    private static List<Integer> conOperacion(Map<Integer, String> cambios, boolean eliminados) {
+        List<Integer> ids = new ArrayList<>();
+        cambios.forEach((id, operacion) -> {
+            if (ELIMINADO.equals(operacion) == eliminados) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+    
+    /**
+     * Avanzar la marca mientras la versión siguiente esté aplicada o sea un hueco vencido
+     */
+    private void avanzarMarca(long ahora) {
+        long nueva = marca;
+        while (true) {
+            long siguiente = nueva + 1;
+            Long visto = huecos.get(siguiente);
+            if (aplicadas.remove(siguiente)) {
+                nueva = siguiente;
+            } else if (visto != null && ahora - visto >= ESPERA_HUECO_MS) {
+                huecos.remove(siguiente);
+                nueva = siguiente;
+            } else {
+                break;
+            }
+        }
+        marca = nueva;
+    }
+    
+    private void recargarTodo() {
+        long[] extremos = registro.extremos();
+        if (extremos == null) {
+            return;
+        }
+        System.out.println("El registro de cambios ya no llega a la versión " + marca + ": se vuelve a leer todo");
+        // Primero la marca: lo que cambie mientras se recarga llega en la próxima lectura
+        marca = extremos[1];
+        leidaHasta = marca;
+        aplicadas.clear();
+        huecos.clear();
+        ultimaLectura = reloj.getAsLong();
+        destino.desactualizado();
+    }
+    
+    /**
+     * Aplicar a una escucha los cambios de libros posteriores a una versión,
+     * de cualquier cliente (por ejemplo, al abrir un índice guardado en disco)
+     * Toma el mismo monitor que sincronizar(): no se mezcla con sus relecturas
+     * @return false si el registro ya no llega hasta esa versión
+     */
+    public synchronized boolean ponerAlDiaLibros(long desde, EscuchaCambios<Libro> escucha) {
+        if (!cubre(desde)) {
+            return false;
+        }
+        
+        Map<Integer, String> cambios = new LinkedHashMap<>();
+        List<Fila> filas;
+        long ultima = desde;
+        do {
+            filas = registro.posteriores(ultima, VersionesTablas.LIBROS, FILAS_POR_LECTURA);
+            if (filas == null) {
+                return false;
+            }
+            for (Fila fila : filas) {
+                cambios.merge(fila.id, fila.operacion, SincronizadorCambios::combinar);
+                ultima = fila.version;
+            }
+        } while (filas.size() == FILAS_POR_LECTURA);
+        
+        LibroDAO.releer(conOperacion(cambios, false), conOperacion(cambios, true), List.of(escucha));
+        return true;
+    }
+    
+    /**
+     * @return true si el registro todavía tiene todos los cambios posteriores a la versión
+     */
+    private boolean cubre(long desde) {
+        long[] extremos = registro.extremos();
+        if (extremos == null) {
+            return false;
+        }
+        // La depuración deja siempre la última fila: vacío es que nunca hubo cambios
+        if (extremos[1] == 0) {
+            return desde == 0;
+        }
+        return extremos[0] <= desde + 1 && extremos[1] >= desde;
+    }
+    
+    /**
+     * Borrar las filas vencidas; la última que aplicó este cliente se queda
+     */
+    private void depurar(long ahora) {
+        registro.depurar(ahora - RETENCION_MS, marca);
+    }
+    
+    /**
+     * @return versión hasta la que se aplicaron todos los cambios, o -1 sin registro de cambios
+     */
+    public long getMarca() {
+        return marca;
+    }
+    
+    public boolean estaActivo() {
+        return marca >= 0;
+    }
+    
+    /**
+     * @return cambios de otros clientes aplicados desde el inicio
+     */
+    public synchronized long getCambiosAplicados() {
+        return cambiosAplicados;
+    }
+}
@@ -1,9 +1,21 @@
 package com.pointerfaz.dao;
 
+import com.pointerfaz.cache.CacheConsultas;
+import com.pointerfaz.cache.CacheEntidades;
+import com.pointerfaz.cache.VersionesTablas;
 import com.pointerfaz.db.ConnectionDB;
+import com.pointerfaz.db.UnidadDeTrabajo;
 import com.pointerfaz.modelo.*;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * DAO para gestionar usuarios en la base de datos
@@ -11,14 +23,130 @@ import java.util.ArrayList;
  */
 public class UsuarioDAO {
     
+    // Órdenes de paginación: columnas NOT NULL con índice
+    private static final Map<String, String> ORDENES_PAGINA = Map.of(
+            "id", "p.id", "apellidos", "p.apellidos", "email", "p.email");
+    
+    /**
+     * Consulta base de usuarios: la persona con los datos de su tabla específica en una sola fila
+     * No usa vista_estudiantes ni vista_profesores porque filtran por tipo_usuario
+     * y no incluyen todos los datos de los graduados
+     */
+    private static final String SELECT_USUARIOS = "SELECT p.id, p.nombres, p.apellidos, p.email, p.telefono, p.tipo_usuario, "
+            + "e.id AS estudiante_id, e.codigo, e.carrera, e.semestre, e.estado, "
+            + "eg.id AS graduado_id, eg.titulo_obtenido, eg.fecha_graduacion, eg.programa_posgrado, eg.empresa_trabajo, "
+            + "pr.id AS profesor_id, pr.codigo_empleado, pr.departamento, pr.especialidad, pr.tipo_contrato, pr.titulo, pr.anios_experiencia "
+            + "FROM personas p "
+            + "LEFT JOIN estudiantes e ON e.id = p.id "
+            + "LEFT JOIN estudiantes_graduados eg ON eg.id = p.id "
+            + "LEFT JOIN profesores pr ON pr.id = p.id";
+            
+    // Avisos de usuarios agregados y eliminados (después del commit)
+    private static final CopyOnWriteArrayList<EscuchaCambios<Persona>> ESCUCHAS = new CopyOnWriteArrayList<>();
+    
+    // Listados y conteos de usuarios: valen hasta la próxima escritura en la tabla
+    private static final CacheConsultas CONSULTAS = CacheConsultas.compartida();
+    private static final String[] TABLAS = {VersionesTablas.PERSONAS};
+    
+    // Usuarios leídos por id; se mantiene al día como una escucha más
+    private static final CacheEntidades<Persona> CACHE = new CacheEntidades<>("usuarios",
+            Integer.getInteger("biblioteca.cache.usuarios", 10_000), Persona::getId, UsuarioDAO::copiar);
+            
+    static {
+        registrarEscucha(CACHE);
+    }
+    
+    /**
+     * Registrar una escucha de los usuarios agregados y eliminados
+     */
+    public static void registrarEscucha(EscuchaCambios<Persona> escucha) {
+        ESCUCHAS.addIfAbsent(escucha);
+    }
+    
+    public static void quitarEscucha(EscuchaCambios<Persona> escucha) {
+        ESCUCHAS.remove(escucha);
+    }
+    
+    /**
+     * @return cache de buscarUsuario y buscarUsuarios (para ver sus estadísticas)
+     */
+    public static CacheEntidades<Persona> cache() {
+        return CACHE;
+    }
+    
+    /**
+     * Copia del usuario con su clase concreta (Estudiante, EstudianteGraduado o Profesor)
+     */
+    public static Persona copiar(Persona persona) {
+        if (persona instanceof EstudianteGraduado) {
+            return new EstudianteGraduado((EstudianteGraduado) persona);
+        } else if (persona instanceof Estudiante) {
+            return new Estudiante((Estudiante) persona);
+        } else if (persona instanceof Profesor) {
+            return new Profesor((Profesor) persona);
+        }
+        return new Persona(persona);
+    }
+    
+    private static void avisarGuardado(Persona persona) {
+        VersionesTablas.cambio(VersionesTablas.PERSONAS);
+        if (!ESCUCHAS.isEmpty()) {
+            UnidadDeTrabajo.despuesDeConfirmar(() -> ESCUCHAS.forEach(escucha -> escucha.guardado(persona)));
+        }
+    }
+    
+    private static void avisarEliminado(int id) {
+        CACHE.invalidar(id);
+        // ON DELETE CASCADE también borra sus préstamos
+        VersionesTablas.cambio(VersionesTablas.PERSONAS, VersionesTablas.PRESTAMOS);
+        if (!ESCUCHAS.isEmpty()) {
+            UnidadDeTrabajo.despuesDeConfirmar(() -> ESCUCHAS.forEach(escucha -> escucha.eliminado(id)));
+        }
+    }
+    
+    /**
+     * Usuarios que cambiaron otros clientes (los trae SincronizadorCambios)
+     * Los guardados se releen juntos; uno que ya no está llega después como eliminado
+     */
+    static void aplicarCambiosExternos(Collection<Integer> guardados, Collection<Integer> eliminados) {
+        guardados.forEach(CACHE::invalidar);
+        eliminados.forEach(CACHE::invalidar);
+        if (eliminados.isEmpty()) {
+            VersionesTablas.cambio(VersionesTablas.PERSONAS);
+        } else {
+            // ON DELETE CASCADE también borró sus préstamos
+            VersionesTablas.cambio(VersionesTablas.PERSONAS, VersionesTablas.PRESTAMOS);
+        }
+        if (ESCUCHAS.isEmpty()) {
+            return;
+        }
+        
+        Map<Integer, Persona> usuarios = guardados.isEmpty() ? Map.of() : new UsuarioDAO().leerUsuarios(guardados);
+        for (Persona persona : usuarios.values()) {
+            ESCUCHAS.forEach(escucha -> escucha.guardado(persona));
+        }
+        for (int id : eliminados) {
+            ESCUCHAS.forEach(escucha -> escucha.eliminado(id));
+        }
+    }
+    
+    /**
+     * Otros clientes cambiaron usuarios que ya no se pueden detallar
+     */
+    static void avisarDesactualizado() {
+        VersionesTablas.cambio(VersionesTablas.PERSONAS);
+        ESCUCHAS.forEach(EscuchaCambios::desactualizado);
+    }
+    
     /**
      * Agregar nuevo usuario (Estudiante, Profesor o EstudianteGraduado)
+     * Las filas de personas y de la tabla específica se insertan en una sola transacción
      */
     public void agregarUsuario(Persona persona) {
-        try {
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.iniciar();
+             Connection connection = ConnectionDB.conectar()) {
             // Primero insertar en tabla personas
             String sqlPersona = "INSERT INTO personas (nombres, apellidos, email, telefono, tipo_usuario, password) VALUES (?,?,?,?,?,?)";
-            Connection connection = ConnectionDB.conectar();
             PreparedStatement statement = connection.prepareStatement(sqlPersona, Statement.RETURN_GENERATED_KEYS);
             
             statement.setString(1, persona.getNombres());
@@ -65,7 +193,8 @@ public class UsuarioDAO {
                 insertarProfesor((Profesor) persona, idGenerado);
             }
             
-            connection.close();
+            avisarGuardado(persona);
+            unidad.confirmar();
             
         } catch (SQLException e) {
             System.out.println(e.getMessage());
@@ -74,196 +203,171 @@ public class UsuarioDAO {
     
     private void insertarEstudiante(Estudiante estudiante, int id) throws SQLException {
         String sql = "INSERT INTO estudiantes (id, codigo, carrera, semestre, estado) VALUES (?,?,?,?,?)";
-        Connection connection = ConnectionDB.conectar();
-        PreparedStatement statement = connection.prepareStatement(sql);
-        
-        statement.setInt(1, id);
-        statement.setString(2, estudiante.getCodigo());
-        statement.setString(3, estudiante.getCarrera());
-        statement.setInt(4, estudiante.getSemestre());
-        statement.setString(5, estudiante.getEstado());
-        
-        statement.executeUpdate();
-        connection.close();
+        try (Connection connection = ConnectionDB.conectar()) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            
+            statement.setInt(1, id);
+            statement.setString(2, estudiante.getCodigo());
+            statement.setString(3, estudiante.getCarrera());
+            statement.setInt(4, estudiante.getSemestre());
+            statement.setString(5, estudiante.getEstado());
+            
+            statement.executeUpdate();
+        }
     }
     
     private void insertarEstudianteGraduado(EstudianteGraduado graduado, int id) throws SQLException {
         String sql = "INSERT INTO estudiantes_graduados (id, titulo_obtenido, fecha_graduacion, programa_posgrado, empresa_trabajo) VALUES (?,?,?,?,?)";
-        Connection connection = ConnectionDB.conectar();
-        PreparedStatement statement = connection.prepareStatement(sql);
-        
-        statement.setInt(1, id);
-        statement.setString(2, graduado.getTituloObtenido());
-        statement.setString(3, graduado.getFechaGraduacion());
-        statement.setString(4, graduado.getProgramaPosgrado());
-        statement.setString(5, graduado.getEmpresaTrabajo());
-        
-        statement.executeUpdate();
-        connection.close();
+        try (Connection connection = ConnectionDB.conectar()) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            
+            statement.setInt(1, id);
+            statement.setString(2, graduado.getTituloObtenido());
+            statement.setString(3, graduado.getFechaGraduacion());
+            statement.setString(4, graduado.getProgramaPosgrado());
+            statement.setString(5, graduado.getEmpresaTrabajo());
+            
+            statement.executeUpdate();
+        }
     }
     
     private void insertarProfesor(Profesor profesor, int id) throws SQLException {
         String sql = "INSERT INTO profesores (id, codigo_empleado, departamento, especialidad, tipo_contrato, titulo, anios_experiencia) VALUES (?,?,?,?,?,?,?)";
-        Connection connection = ConnectionDB.conectar();
-        PreparedStatement statement = connection.prepareStatement(sql);
-        
-        statement.setInt(1, id);
-        statement.setString(2, profesor.getCodigoEmpleado());
-        statement.setString(3, profesor.getDepartamento());
-        statement.setString(4, profesor.getEspecialidad());
-        statement.setString(5, profesor.getTipoContrato());
-        statement.setString(6, profesor.getTitulo());
-        statement.setInt(7, profesor.getAniosExperiencia());
-        
-        statement.executeUpdate();
-        connection.close();
+        try (Connection connection = ConnectionDB.conectar()) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            
+            statement.setInt(1, id);
+            statement.setString(2, profesor.getCodigoEmpleado());
+            statement.setString(3, profesor.getDepartamento());
+            statement.setString(4, profesor.getEspecialidad());
+            statement.setString(5, profesor.getTipoContrato());
+            statement.setString(6, profesor.getTitulo());
+            statement.setInt(7, profesor.getAniosExperiencia());
+            
+            statement.executeUpdate();
+        }
     }
     
     /**
      * Listar todos los usuarios
+     * Una sola consulta para todos los tipos, sin una consulta extra por usuario
      */
     public ArrayList<Persona> listarUsuarios() {
+        return CONSULTAS.consultar("usuarios.listar", List.of(), TABLAS,
+                this::leerTodos, CacheConsultas.copiarLista(UsuarioDAO::copiar), ArrayList::new);
+    }
+    
+    private ArrayList<Persona> leerTodos() throws SQLException {
         ArrayList<Persona> list = new ArrayList<>();
         
-        try {
-            String sql = "SELECT * FROM personas";
-            Connection connection = ConnectionDB.conectar();
+        try (Connection connection = ConnectionDB.conectar()) {
             Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery(sql);
+            ResultSet resultSet = statement.executeQuery(SELECT_USUARIOS);
             
             while (resultSet.next()) {
-                int id = resultSet.getInt("id");
-                String tipoUsuario = resultSet.getString("tipo_usuario");
-                
-                Persona persona = null;
-                
-                if (tipoUsuario.equals("Estudiante") || tipoUsuario.equals("EstudianteGraduado")) {
-                    persona = cargarEstudiante(id, tipoUsuario);
-                } else if (tipoUsuario.equals("Profesor")) {
-                    persona = cargarProfesor(id);
-                }
+                Persona persona = mapearPersona(resultSet);
                 
                 if (persona != null) {
                     list.add(persona);
                 }
             }
-            
-            connection.close();
-            
-        } catch (SQLException e) {
-            System.out.println(e.getMessage());
         }
         
         return list;
     }
     
-    private Estudiante cargarEstudiante(int id, String tipoUsuario) throws SQLException {
-        String sql = "SELECT p.*, e.* FROM personas p INNER JOIN estudiantes e ON p.id = e.id WHERE p.id = ?";
-        Connection connection = ConnectionDB.conectar();
-        PreparedStatement statement = connection.prepareStatement(sql);
-        statement.setInt(1, id);
-        ResultSet rs = statement.executeQuery();
-        
-        Estudiante estudiante = null;
-        
-        if (rs.next()) {
-            if (tipoUsuario.equals("EstudianteGraduado")) {
-                estudiante = new EstudianteGraduado();
-                cargarDatosGraduado((EstudianteGraduado) estudiante, id);
-            } else {
-                estudiante = new Estudiante();
-            }
-            
-            estudiante.setId(rs.getInt("id"));
-            estudiante.setNombres(rs.getString("nombres"));
-            estudiante.setApellidos(rs.getString("apellidos"));
-            estudiante.setEmail(rs.getString("email"));
-            estudiante.setTelefono(rs.getString("telefono"));
-            estudiante.setCodigo(rs.getString("codigo"));
-            estudiante.setCarrera(rs.getString("carrera"));
-            estudiante.setSemestre(rs.getInt("semestre"));
-            estudiante.setEstado(rs.getString("estado"));
-        }
-        
-        connection.close();
-        return estudiante;
+    /**
+     * Recorrer todos los usuarios sin cargarlos en una lista
+     * El Stream tiene una conexión abierta: usar con try-with-resources
+     */
+    public Stream<Persona> flujoUsuarios() {
+        return Cursores.abrir(SELECT_USUARIOS, this::mapearPersona).filter(Objects::nonNull);
     }
     
-    private void cargarDatosGraduado(EstudianteGraduado graduado, int id) throws SQLException {
-        String sql = "SELECT * FROM estudiantes_graduados WHERE id = ?";
-        Connection connection = ConnectionDB.conectar();
-        PreparedStatement statement = connection.prepareStatement(sql);
-        statement.setInt(1, id);
-        ResultSet rs = statement.executeQuery();
-        
-        if (rs.next()) {
-            graduado.setTituloObtenido(rs.getString("titulo_obtenido"));
-            graduado.setFechaGraduacion(rs.getString("fecha_graduacion"));
-            graduado.setProgramaPosgrado(rs.getString("programa_posgrado"));
-            graduado.setEmpresaTrabajo(rs.getString("empresa_trabajo"));
+    /**
+     * Entregar cada usuario al visitante a medida que se lee de la base
+     */
+    public void recorrerUsuarios(Consumer<? super Persona> visitante) {
+        try (Stream<Persona> usuarios = flujoUsuarios()) {
+            usuarios.forEach(visitante);
         }
-        
-        connection.close();
     }
     
-    private Profesor cargarProfesor(int id) throws SQLException {
-        String sql = "SELECT p.*, pr.* FROM personas p INNER JOIN profesores pr ON p.id = pr.id WHERE p.id = ?";
-        Connection connection = ConnectionDB.conectar();
-        PreparedStatement statement = connection.prepareStatement(sql);
-        statement.setInt(1, id);
-        ResultSet rs = statement.executeQuery();
-        
-        Profesor profesor = null;
+    /**
+     * Listar usuarios de a una página, ordenados por "id", "apellidos" o "email"
+     * @param orden columna de orden
+     * @param token token de la página anterior o null para la primera
+     * @param tamano usuarios por página
+     * @return página de usuarios con el token de la siguiente
+     */
+    public Pagina<Persona> paginarUsuarios(String orden, String token, int tamano) {
+        return Paginacion.consultar(SELECT_USUARIOS, "p.id", ORDENES_PAGINA, orden, token, tamano, this::mapearPersona);
+    }
+    
+    /**
+     * Crear el Estudiante, EstudianteGraduado o Profesor de la fila actual de SELECT_USUARIOS
+     * El tipo sale de la tabla específica en la que existe la persona
+     * @return usuario o null si la persona no tiene datos de estudiante ni de profesor
+     */
+    private Persona mapearPersona(ResultSet rs) throws SQLException {
+        Persona persona;
         
-        if (rs.next()) {
-            profesor = new Profesor();
-            profesor.setId(rs.getInt("id"));
-            profesor.setNombres(rs.getString("nombres"));
-            profesor.setApellidos(rs.getString("apellidos"));
-            profesor.setEmail(rs.getString("email"));
-            profesor.setTelefono(rs.getString("telefono"));
+        if (rs.getObject("profesor_id") != null) {
+            Profesor profesor = new Profesor();
             profesor.setCodigoEmpleado(rs.getString("codigo_empleado"));
             profesor.setDepartamento(rs.getString("departamento"));
             profesor.setEspecialidad(rs.getString("especialidad"));
             profesor.setTipoContrato(rs.getString("tipo_contrato"));
             profesor.setTitulo(rs.getString("titulo"));
             profesor.setAniosExperiencia(rs.getInt("anios_experiencia"));
+            persona = profesor;
+            
+        } else if (rs.getObject("estudiante_id") != null) {
+            Estudiante estudiante;
+            if (rs.getObject("graduado_id") != null || "EstudianteGraduado".equals(rs.getString("tipo_usuario"))) {
+                EstudianteGraduado graduado = new EstudianteGraduado();
+                graduado.setTituloObtenido(rs.getString("titulo_obtenido"));
+                graduado.setFechaGraduacion(rs.getString("fecha_graduacion"));
+                graduado.setProgramaPosgrado(rs.getString("programa_posgrado"));
+                graduado.setEmpresaTrabajo(rs.getString("empresa_trabajo"));
+                estudiante = graduado;
+            } else {
+                estudiante = new Estudiante();
+            }
+            estudiante.setCodigo(rs.getString("codigo"));
+            estudiante.setCarrera(rs.getString("carrera"));
+            estudiante.setSemestre(rs.getInt("semestre"));
+            estudiante.setEstado(rs.getString("estado"));
+            persona = estudiante;
+            
+        } else {
+            return null;
         }
         
-        connection.close();
-        return profesor;
+        persona.setId(rs.getInt("id"));
+        persona.setNombres(rs.getString("nombres"));
+        persona.setApellidos(rs.getString("apellidos"));
+        persona.setEmail(rs.getString("email"));
+        persona.setTelefono(rs.getString("telefono"));
+        
+        return persona;
     }
     
     /**
      * Buscar usuario por email y password (para login)
      */
     public Persona authenticar(String email, String password) {
-        try {
-            String sql = "SELECT * FROM personas WHERE email = ? AND password = ?";
-            Connection connection = ConnectionDB.conectar();
+        try (Connection connection = ConnectionDB.conectar()) {
+            String sql = SELECT_USUARIOS + " WHERE p.email = ? AND p.password = ?";
             PreparedStatement statement = connection.prepareStatement(sql);
             statement.setString(1, email);
             statement.setString(2, password);
             ResultSet rs = statement.executeQuery();
             
             if (rs.next()) {
-                int id = rs.getInt("id");
-                String tipoUsuario = rs.getString("tipo_usuario");
-                
-                Persona persona = null;
-                
-                if (tipoUsuario.equals("Estudiante") || tipoUsuario.equals("EstudianteGraduado")) {
-                    persona = cargarEstudiante(id, tipoUsuario);
-                } else if (tipoUsuario.equals("Profesor")) {
-                    persona = cargarProfesor(id);
-                }
-                
-                connection.close();
-                return persona;
+                return mapearPersona(rs);
             }
             
-            connection.close();
-            
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
@@ -273,31 +377,163 @@ public class UsuarioDAO {
     
     /**
      * Buscar usuario por ID
+     * Fuera de una transacción responde desde la cache si el usuario se pidió hace poco
      */
     public Persona buscarUsuario(int id) {
-        try {
-            String sql = "SELECT * FROM personas WHERE id = ?";
-            Connection connection = ConnectionDB.conectar();
+        // Dentro de una transacción se lee su conexión, que puede ver cambios sin confirmar
+        if (UnidadDeTrabajo.estaActiva()) {
+            return leerUsuario(id);
+        }
+        return CACHE.obtener(id, this::leerUsuario);
+    }
+    
+    private Persona leerUsuario(int id) {
+        try (Connection connection = ConnectionDB.conectar()) {
+            String sql = SELECT_USUARIOS + " WHERE p.id = ?";
             PreparedStatement statement = connection.prepareStatement(sql);
             statement.setInt(1, id);
             ResultSet rs = statement.executeQuery();
             
             if (rs.next()) {
-                String tipoUsuario = rs.getString("tipo_usuario");
-                
-                Persona persona = null;
-                
-                if (tipoUsuario.equals("Estudiante") || tipoUsuario.equals("EstudianteGraduado")) {
-                    persona = cargarEstudiante(id, tipoUsuario);
-                } else if (tipoUsuario.equals("Profesor")) {
-                    persona = cargarProfesor(id);
+                return mapearPersona(rs);
+            }
+            
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Buscar usuario por email (usa idx_email)
+     */
+    public Persona buscarUsuarioPorEmail(String email) {
+        return buscarUno(SELECT_USUARIOS + " WHERE p.email = ?", email);
+    }
+    
+    /**
+     * Buscar estudiante o graduado por código (usa idx_codigo)
+     */
+    public Estudiante buscarEstudiantePorCodigo(String codigo) {
+        Persona persona = buscarUno(SELECT_USUARIOS + " WHERE e.codigo = ? AND pr.id IS NULL", codigo);
+        return persona instanceof Estudiante ? (Estudiante) persona : null;
+    }
+    
+    /**
+     * Buscar profesor por código de empleado (usa idx_codigo_empleado)
+     */
+    public Profesor buscarProfesorPorCodigo(String codigoEmpleado) {
+        Persona persona = buscarUno(SELECT_USUARIOS + " WHERE pr.codigo_empleado = ?", codigoEmpleado);
+        return persona instanceof Profesor ? (Profesor) persona : null;
+    }
+    
+    /**
+     * Buscar el usuario de un carnet escaneado en el mostrador: el texto puede ser
+     * el email, el código de estudiante o el código de empleado
+     * Una sola consulta: cada parte del UNION va por su propio índice
+     */
+    public Persona buscarPorIdentificacion(String identificacion) {
+        try (Connection connection = ConnectionDB.conectar()) {
+            String sql = SELECT_USUARIOS + " WHERE p.email = ?"
+                    + " UNION ALL " + SELECT_USUARIOS + " WHERE e.codigo = ?"
+                    + " UNION ALL " + SELECT_USUARIOS + " WHERE pr.codigo_empleado = ?";
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setString(1, identificacion);
+            statement.setString(2, identificacion);
+            statement.setString(3, identificacion);
+            ResultSet rs = statement.executeQuery();
+            
+            while (rs.next()) {
+                Persona persona = mapearPersona(rs);
+                if (persona != null) {
+                    return persona;
                 }
-                
-                connection.close();
-                return persona;
             }
             
-            connection.close();
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Listar estudiantes (y graduados) con estado activo (usa idx_estado)
+     */
+    public ArrayList<Estudiante> listarEstudiantesActivos() {
+        return CONSULTAS.consultar("usuarios.estudiantesActivos", List.of(), TABLAS,
+                this::leerEstudiantesActivos, CacheConsultas.copiarLista(estudiante -> (Estudiante) copiar(estudiante)), ArrayList::new);
+    }
+    
+    private ArrayList<Estudiante> leerEstudiantesActivos() throws SQLException {
+        ArrayList<Estudiante> estudiantes = new ArrayList<>();
+        for (Persona persona : listar(SELECT_USUARIOS + " WHERE e.estado = ? AND pr.id IS NULL", "activo")) {
+            estudiantes.add((Estudiante) persona);
+        }
+        return estudiantes;
+    }
+    
+    /**
+     * Listar profesores de un departamento (usa idx_departamento)
+     */
+    public ArrayList<Profesor> listarProfesoresPorDepartamento(String departamento) {
+        return CONSULTAS.consultar("usuarios.profesoresPorDepartamento", List.of(departamento), TABLAS,
+                () -> leerProfesoresPorDepartamento(departamento), CacheConsultas.copiarLista(Profesor::new), ArrayList::new);
+    }
+    
+    private ArrayList<Profesor> leerProfesoresPorDepartamento(String departamento) throws SQLException {
+        ArrayList<Profesor> profesores = new ArrayList<>();
+        for (Persona persona : listar(SELECT_USUARIOS + " WHERE pr.departamento = ?", departamento)) {
+            profesores.add((Profesor) persona);
+        }
+        return profesores;
+    }
+    
+    /**
+     * Contar usuarios por tipo con una sola consulta agregada
+     * El tipo se decide igual que en mapearPersona: profesor, graduado o estudiante
+     * @return tipo ("Estudiante", "EstudianteGraduado", "Profesor") -> cantidad
+     */
+    public Map<String, Integer> contarUsuariosPorTipo() {
+        return CONSULTAS.consultar("usuarios.porTipo", List.of(), TABLAS,
+                this::leerConteoPorTipo, CacheConsultas.copiarConteos(), HashMap::new);
+    }
+    
+    private Map<String, Integer> leerConteoPorTipo() throws SQLException {
+        Map<String, Integer> conteos = new HashMap<>();
+        
+        try (Connection connection = ConnectionDB.conectar()) {
+            String sql = "SELECT CASE WHEN pr.id IS NOT NULL THEN 'Profesor' "
+                    + "WHEN eg.id IS NOT NULL OR p.tipo_usuario = 'EstudianteGraduado' THEN 'EstudianteGraduado' "
+                    + "ELSE 'Estudiante' END AS tipo, COUNT(*) AS cantidad "
+                    + "FROM personas p "
+                    + "LEFT JOIN estudiantes e ON e.id = p.id "
+                    + "LEFT JOIN estudiantes_graduados eg ON eg.id = p.id "
+                    + "LEFT JOIN profesores pr ON pr.id = p.id "
+                    + "WHERE pr.id IS NOT NULL OR e.id IS NOT NULL "
+                    + "GROUP BY tipo";
+            Statement statement = connection.createStatement();
+            ResultSet rs = statement.executeQuery(sql);
+            
+            while (rs.next()) {
+                conteos.put(rs.getString("tipo"), rs.getInt("cantidad"));
+            }
+        }
+        
+        return conteos;
+    }
+    
+    // Primer usuario de una consulta con un parámetro de texto
+    private Persona buscarUno(String sql, String valor) {
+        try (Connection connection = ConnectionDB.conectar()) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setString(1, valor);
+            ResultSet rs = statement.executeQuery();
+            
+            if (rs.next()) {
+                return mapearPersona(rs);
+            }
             
         } catch (SQLException e) {
             System.out.println(e.getMessage());
@@ -306,17 +542,76 @@ public class UsuarioDAO {
         return null;
     }
     
+    // Usuarios de una consulta con un parámetro de texto
+    private ArrayList<Persona> listar(String sql, String valor) throws SQLException {
+        ArrayList<Persona> list = new ArrayList<>();
+        
+        try (Connection connection = ConnectionDB.conectar()) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setString(1, valor);
+            ResultSet rs = statement.executeQuery();
+            
+            while (rs.next()) {
+                Persona persona = mapearPersona(rs);
+                if (persona != null) {
+                    list.add(persona);
+                }
+            }
+        }
+        
+        return list;
+    }
+    
+    /**
+     * Buscar varios usuarios por ID con una consulta por lote de ids
+     * @return mapa id -> usuario; los ids inexistentes no aparecen
+     */
+    public Map<Integer, Persona> buscarUsuarios(Collection<Integer> ids) {
+        if (UnidadDeTrabajo.estaActiva()) {
+            return leerUsuarios(ids);
+        }
+        // Solo los que no están en la cache van a la base de datos
+        return CACHE.obtenerTodas(ids, this::leerUsuarios);
+    }
+    
+    private Map<Integer, Persona> leerUsuarios(Collection<Integer> ids) {
+        Map<Integer, Persona> usuarios = new HashMap<>();
+        
+        try (Connection connection = ConnectionDB.conectar()) {
+            for (List<Integer> lote : Lotes.partir(ids)) {
+                String sql = SELECT_USUARIOS + " WHERE p.id IN (" + Lotes.marcadores(lote.size()) + ")";
+                PreparedStatement statement = connection.prepareStatement(sql);
+                for (int i = 0; i < lote.size(); i++) {
+                    statement.setInt(i + 1, lote.get(i));
+                }
+                ResultSet rs = statement.executeQuery();
+                
+                while (rs.next()) {
+                    Persona persona = mapearPersona(rs);
+                    if (persona != null) {
+                        usuarios.put(persona.getId(), persona);
+                    }
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+        
+        return usuarios;
+    }
+    
     /**
      * Eliminar usuario
      */
     public void eliminarUsuario(int id) {
-        try {
+        try (Connection connection = ConnectionDB.conectar()) {
             String sql = "DELETE FROM personas WHERE id = ?";
-            Connection connection = ConnectionDB.conectar();
             PreparedStatement statement = connection.prepareStatement(sql);
             statement.setInt(1, id);
-            statement.executeUpdate();
-            connection.close();
+            if (statement.executeUpdate() > 0) {
+                avisarEliminado(id);
+            }
             
         } catch (SQLException e) {
             System.out.println(e.getMessage());
@@ -0,0 +1,53 @@
+package com.pointerfaz.dao;
+
+import com.pointerfaz.modelo.Persona;
+
+/**
+ * Datos necesarios para decidir un préstamo, leídos con el libro y el usuario bloqueados
+ * Mientras la transacción siga abierta ningún otro mostrador puede prestar
+ * el mismo libro ni sumar préstamos al mismo usuario.
+ */
+public class VerificacionPrestamo {
+    
+    private final String estadoLibro;
+    private final boolean esReferencia;
+    private final Persona usuario;
+    private final int prestamosActivos;
+    
+    /**
+     * @param estadoLibro estado actual del libro
+     * @param esReferencia true si el libro es solo de consulta
+     * @param usuario usuario con su tipo (solo id y datos que fijan su límite)
+     * @param prestamosActivos préstamos del usuario sin devolver
+     */
+    public VerificacionPrestamo(String estadoLibro, boolean esReferencia, Persona usuario, int prestamosActivos) {
+        this.estadoLibro = estadoLibro;
+        this.esReferencia = esReferencia;
+        this.usuario = usuario;
+        this.prestamosActivos = prestamosActivos;
+    }
+    
+    /**
+     * Mismo criterio que Libro.estaDisponible(); el ENUM de MySQL guarda el estado en minúsculas
+     * @return true si el libro se puede prestar
+     */
+    public boolean isLibroDisponible() {
+        return "Disponible".equalsIgnoreCase(estadoLibro) && !esReferencia;
+    }
+    
+    public String getEstadoLibro() {
+        return estadoLibro;
+    }
+    
+    public boolean isEsReferencia() {
+        return esReferencia;
+    }
+    
+    public Persona getUsuario() {
+        return usuario;
+    }
+    
+    public int getPrestamosActivos() {
+        return prestamosActivos;
+    }
+}
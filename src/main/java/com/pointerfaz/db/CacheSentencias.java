@@ -0,0 +1,139 @@
+package com.pointerfaz.db;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache LRU de PreparedStatement de una conexión física
+ * La clave es el texto SQL (más las opciones con que se preparó). Al reutilizar
+ * la sentencia se evita volver a analizarla en el driver (sentencias del lado
+ * del cliente) o el PREPARE en el servidor (useServerPrepStmts=true).
+ */
+class CacheSentencias {
+    
+    private final int capacidad;
+    private final PoolConexiones pool;
+    private final LinkedHashMap<String, Entrada> entradas;
+    private long aciertos;
+    private long fallos;
+    
+    /**
+     * Sentencia guardada y si algún DAO la está usando en este momento
+     * Guarda también las opciones con que se preparó, para devolverlas al soltarla
+     */
+    static class Entrada {
+        final PreparedStatement sentencia;
+        final int tamanoFetch;
+        final int maximoFilas;
+        final int tiempoLimiteSeg;
+        boolean enUso;
+        
+        Entrada(PreparedStatement sentencia) throws SQLException {
+            this.sentencia = sentencia;
+            this.tamanoFetch = sentencia.getFetchSize();
+            this.maximoFilas = sentencia.getMaxRows();
+            this.tiempoLimiteSeg = sentencia.getQueryTimeout();
+        }
+    }
+    
+    CacheSentencias(int capacidad, PoolConexiones pool) {
+        this.capacidad = capacidad;
+        this.pool = pool;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true);
+    }
+    
+    /**
+     * Buscar una sentencia libre para la clave
+     * @return entrada marcada en uso, o null si no está (o ya está en uso)
+     */
+    synchronized Entrada tomar(String clave) {
+        Entrada entrada = entradas.get(clave);
+        if (entrada == null || entrada.enUso) {
+            fallos++;
+            pool.registrarFalloCache();
+            return null;
+        }
+        entrada.enUso = true;
+        aciertos++;
+        pool.registrarAciertoCache();
+        return entrada;
+    }
+    
+    /**
+     * Guardar una sentencia recién preparada, ya marcada en uso
+     * Si la cache está llena se cierra la sentencia libre menos usada
+     * @return la entrada, o null si no se pudo guardar (clave ocupada o cache llena de sentencias en uso)
+     */
+    synchronized Entrada guardar(String clave, PreparedStatement sentencia) throws SQLException {
+        if (entradas.containsKey(clave)) {
+            return null;
+        }
+        
+        if (entradas.size() >= capacidad) {
+            Iterator<Map.Entry<String, Entrada>> it = entradas.entrySet().iterator();
+            while (it.hasNext()) {
+                Entrada vieja = it.next().getValue();
+                if (!vieja.enUso) {
+                    it.remove();
+                    cerrarSilencioso(vieja.sentencia);
+                    break;
+                }
+            }
+            if (entradas.size() >= capacidad) {
+                return null;
+            }
+        }
+        
+        Entrada entrada = new Entrada(sentencia);
+        entrada.enUso = true;
+        entradas.put(clave, entrada);
+        return entrada;
+    }
+    
+    synchronized void soltar(Entrada entrada) {
+        entrada.enUso = false;
+    }
+    
+    /**
+     * Quitar una sentencia que falló al reiniciarse
+     */
+    synchronized void descartar(String clave, Entrada entrada) {
+        if (entradas.get(clave) == entrada) {
+            entradas.remove(clave);
+        }
+        cerrarSilencioso(entrada.sentencia);
+    }
+    
+    /**
+     * Cerrar todas las sentencias (al cerrar la conexión física)
+     */
+    synchronized void vaciar() {
+        for (Entrada entrada : entradas.values()) {
+            cerrarSilencioso(entrada.sentencia);
+        }
+        entradas.clear();
+    }
+    
+    synchronized int getTamano() {
+        return entradas.size();
+    }
+    
+    synchronized long getAciertos() {
+        return aciertos;
+    }
+    
+    synchronized long getFallos() {
+        return fallos;
+    }
+    
+    private static void cerrarSilencioso(PreparedStatement sentencia) {
+        try {
+            sentencia.close();
+        } catch (SQLException e) {
+            // La sentencia ya no se usará
+        }
+    }
+}
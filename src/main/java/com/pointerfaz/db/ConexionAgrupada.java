@@ -0,0 +1,216 @@
+package com.pointerfaz.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+
+/**
+ * Vista de una conexión física prestada por el pool
+ * close() devuelve la conexión al pool en lugar de cerrarla,
+ * así los DAO siguen usando connection.close() como antes.
+ * prepareStatement pasa por la CacheSentencias de la conexión física.
+ */
+class ConexionAgrupada implements InvocationHandler {
+    
+    private final PoolConexiones pool;
+    private final ConexionFisica fisica;
+    // La usa el hilo dueño y, al reclamar, el hilo de mantenimiento: siempre con el monitor
+    private final ArrayList<Statement> sentenciasAbiertas = new ArrayList<>();
+    private volatile boolean cerrada;
+    
+    // Datos para el DetectorFugas
+    private final long prestadaEn;
+    private final String hilo;
+    private final Throwable origen;
+    private boolean advertida;
+    
+    private ConexionAgrupada(PoolConexiones pool, ConexionFisica fisica, boolean guardarOrigen) {
+        this.pool = pool;
+        this.fisica = fisica;
+        this.prestadaEn = System.currentTimeMillis();
+        this.hilo = Thread.currentThread().getName();
+        this.origen = guardarOrigen ? new Throwable("Conexión obtenida aquí") : null;
+    }
+    
+    /**
+     * Crea el proxy de Connection que se entrega a los DAO
+     */
+    static Connection crear(PoolConexiones pool, ConexionFisica fisica, DetectorFugas detector) {
+        ConexionAgrupada manejador = new ConexionAgrupada(pool, fisica, detector.isGuardarOrigen());
+        detector.registrar(manejador);
+        return (Connection) Proxy.newProxyInstance(
+                ConexionAgrupada.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                manejador);
+    }
+    
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                devolver();
+                return null;
+            case "isClosed":
+                return cerrada;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "ConexionAgrupada[" + fisica.getConexion() + "]";
+            default:
+                break;
+        }
+        
+        if (cerrada) {
+            throw new SQLException("La conexión ya fue devuelta al pool");
+        }
+        
+        if (method.getName().equals("prepareStatement") && fisica.getCacheSentencias() != null) {
+            String clave = claveCache(args);
+            if (clave != null) {
+                PreparedStatement sentencia = prepararCacheada((Connection) proxy, method, args, clave);
+                registrarSentencia(sentencia);
+                return sentencia;
+            }
+        }
+        
+        try {
+            Object resultado = method.invoke(fisica.getConexion(), args);
+            
+            // Los DAO no cierran sus sentencias; se cierran al devolver la conexión
+            if (resultado instanceof Statement) {
+                registrarSentencia((Statement) resultado);
+            }
+            return resultado;
+            
+        } catch (InvocationTargetException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof SQLException && esErrorDeConexion((SQLException) causa)) {
+                fisica.marcarRota();
+            }
+            throw causa;
+        }
+    }
+    
+    /**
+     * Entrega la sentencia de la cache o la prepara y la guarda
+     */
+    private PreparedStatement prepararCacheada(Connection proxy, Method method, Object[] args, String clave) throws Throwable {
+        CacheSentencias cache = fisica.getCacheSentencias();
+        CacheSentencias.Entrada entrada = cache.tomar(clave);
+        
+        if (entrada == null) {
+            PreparedStatement nueva;
+            try {
+                nueva = (PreparedStatement) method.invoke(fisica.getConexion(), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            
+            try {
+                entrada = cache.guardar(clave, nueva);
+            } catch (SQLException e) {
+                nueva.close();
+                throw e;
+            }
+            if (entrada == null) {
+                // El mismo SQL ya está en uso en esta conexión (llamada anidada): sentencia normal
+                return nueva;
+            }
+        }
+        return SentenciaCacheada.crear(cache, clave, entrada, proxy);
+    }
+    
+    /**
+     * Clave de la cache según la variante de prepareStatement; null si no se cachea
+     */
+    private static String claveCache(Object[] args) {
+        if (args.length == 1) {
+            return (String) args[0];
+        }
+        if (args.length == 2 && args[1] instanceof Integer) {
+            return args[0] + "|claves=" + args[1];
+        }
+        if (args.length == 3) {
+            return args[0] + "|tipo=" + args[1] + "|concurrencia=" + args[2];
+        }
+        return null;
+    }
+    
+    /**
+     * Anotar una sentencia para cerrarla al devolver la conexión
+     * Si la conexión se reclamó mientras se preparaba, se cierra enseguida
+     */
+    private synchronized void registrarSentencia(Statement sentencia) throws SQLException {
+        if (cerrada) {
+            sentencia.close();
+            throw new SQLException("La conexión ya fue devuelta al pool");
+        }
+        sentenciasAbiertas.add(sentencia);
+    }
+    
+    private synchronized void devolver() {
+        if (cerrada) {
+            return;
+        }
+        cerrada = true;
+        
+        for (Statement sentencia : sentenciasAbiertas) {
+            try {
+                sentencia.close();
+            } catch (SQLException e) {
+                fisica.marcarRota();
+            }
+        }
+        sentenciasAbiertas.clear();
+        
+        pool.devolver(this, fisica);
+    }
+    
+    /**
+     * Quita la conexión a su dueño (DetectorFugas): la conexión física se cierra
+     * y su lugar en el pool queda libre; el dueño recibe SQLException si la sigue usando
+     */
+    synchronized void reclamar() {
+        if (cerrada) {
+            return;
+        }
+        fisica.marcarRota();
+        fisica.cerrar();
+        devolver();
+    }
+    
+    synchronized boolean marcarAdvertida() {
+        if (advertida) {
+            return false;
+        }
+        advertida = true;
+        return true;
+    }
+    
+    long getPrestadaEn() {
+        return prestadaEn;
+    }
+    
+    String getHilo() {
+        return hilo;
+    }
+    
+    Throwable getOrigen() {
+        return origen;
+    }
+    
+    /**
+     * Los SQLState de la clase 08 indican que se perdió la comunicación con el servidor
+     */
+    private static boolean esErrorDeConexion(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("08");
+    }
+}
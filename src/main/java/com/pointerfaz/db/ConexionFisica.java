@@ -0,0 +1,73 @@
+package com.pointerfaz.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Conexión física a MySQL administrada por el PoolConexiones
+ * Guarda los datos que el pool necesita para validarla y desalojarla
+ */
+class ConexionFisica {
+    
+    private final Connection conexion;
+    private final CacheSentencias cacheSentencias;
+    private final long creadaEn;
+    private volatile long ultimoUso;
+    private volatile boolean rota;
+    
+    ConexionFisica(Connection conexion, CacheSentencias cacheSentencias) {
+        this.conexion = conexion;
+        this.cacheSentencias = cacheSentencias;
+        this.creadaEn = System.currentTimeMillis();
+        this.ultimoUso = creadaEn;
+    }
+    
+    Connection getConexion() {
+        return conexion;
+    }
+    
+    /**
+     * @return cache de sentencias de esta conexión o null si está desactivada
+     */
+    CacheSentencias getCacheSentencias() {
+        return cacheSentencias;
+    }
+    
+    long getCreadaEn() {
+        return creadaEn;
+    }
+    
+    long getUltimoUso() {
+        return ultimoUso;
+    }
+    
+    void marcarUso() {
+        ultimoUso = System.currentTimeMillis();
+    }
+    
+    /**
+     * Marca la conexión para que el pool la descarte al devolverla
+     * (por ejemplo tras un error de comunicación)
+     */
+    void marcarRota() {
+        rota = true;
+    }
+    
+    boolean isRota() {
+        return rota;
+    }
+    
+    /**
+     * Cierra la conexión física ignorando errores
+     */
+    void cerrar() {
+        if (cacheSentencias != null) {
+            cacheSentencias.vaciar();
+        }
+        try {
+            conexion.close();
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.pointerfaz.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+
+/**
+ * Vista de la conexión de una UnidadDeTrabajo entregada a un DAO
+ * close() solo cierra las sentencias que abrió el DAO; commit, rollback y
+ * setAutoCommit los controla la unidad. Si una sentencia falla, la unidad
+ * queda marcada para rollback.
+ */
+class ConexionTransaccional implements InvocationHandler {
+    
+    private final UnidadDeTrabajo.Contexto contexto;
+    private final ArrayList<Statement> sentenciasAbiertas = new ArrayList<>();
+    private boolean cerrada;
+    
+    private ConexionTransaccional(UnidadDeTrabajo.Contexto contexto) {
+        this.contexto = contexto;
+    }
+    
+    static Connection crear(UnidadDeTrabajo.Contexto contexto) {
+        return (Connection) Proxy.newProxyInstance(
+                ConexionTransaccional.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConexionTransaccional(contexto));
+    }
+    
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                cerrar();
+                return null;
+            case "isClosed":
+                return cerrada || contexto.conexion.isClosed();
+            case "commit":
+            case "setAutoCommit":
+                // La unidad de trabajo confirma una sola vez al final
+                return null;
+            case "rollback":
+                if (args == null) {
+                    contexto.soloRollback = true;
+                    return null;
+                }
+                break;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "ConexionTransaccional[" + contexto.conexion + "]";
+            default:
+                break;
+        }
+        
+        if (cerrada) {
+            throw new SQLException("La conexión ya fue cerrada");
+        }
+        
+        try {
+            Object resultado = method.invoke(contexto.conexion, args);
+            if (resultado instanceof Statement) {
+                Statement sentencia = (Statement) resultado;
+                sentenciasAbiertas.add(sentencia);
+                return vigilar(sentencia, (Connection) proxy);
+            }
+            return resultado;
+            
+        } catch (InvocationTargetException e) {
+            contexto.soloRollback = true;
+            throw e.getCause();
+        }
+    }
+    
+    /**
+     * Envuelve la sentencia para marcar la unidad si alguna ejecución falla
+     */
+    private Statement vigilar(Statement sentencia, Connection vista) {
+        Class<?> tipo = sentencia instanceof CallableStatement ? CallableStatement.class
+                : sentencia instanceof PreparedStatement ? PreparedStatement.class
+                : Statement.class;
+                
+        return (Statement) Proxy.newProxyInstance(
+                ConexionTransaccional.class.getClassLoader(),
+                new Class<?>[]{tipo},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getConnection")) {
+                        return vista;
+                    }
+                    try {
+                        return method.invoke(sentencia, args);
+                    } catch (InvocationTargetException e) {
+                        if (method.getName().startsWith("execute")) {
+                            contexto.soloRollback = true;
+                        }
+                        throw e.getCause();
+                    }
+                });
+    }
+    
+    private void cerrar() {
+        if (cerrada) {
+            return;
+        }
+        cerrada = true;
+        
+        for (Statement sentencia : sentenciasAbiertas) {
+            try {
+                sentencia.close();
+            } catch (SQLException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+        sentenciasAbiertas.clear();
+    }
+}
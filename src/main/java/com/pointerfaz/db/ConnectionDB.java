@@ -1,12 +1,14 @@
 package com.pointerfaz.db;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Clase ConnectionDB para gestionar la conexión a MySQL
  * Siguiendo el patrón del profesor
+ * Las conexiones salen de un PoolConexiones; al llamar close() vuelven al pool.
+ * Dentro de una UnidadDeTrabajo se devuelve siempre la conexión de la unidad.
  */
 public class ConnectionDB {
     
@@ -14,14 +16,44 @@ public class ConnectionDB {
     private static final String USER = "root";
     private static final String PASSWORD = "";
     
+    // Configuración del pool (se puede cambiar con -Dbiblioteca.pool.maximo=20, etc.)
+    private static final int POOL_MINIMO = Integer.getInteger("biblioteca.pool.minimo", 2);
+    private static final int POOL_MAXIMO = Integer.getInteger("biblioteca.pool.maximo", 10);
+    private static final long POOL_ESPERA_MS = Long.getLong("biblioteca.pool.esperaMs", 5000);
+    private static final long POOL_INACTIVIDAD_MS = Long.getLong("biblioteca.pool.inactividadMs", 300000);
+    private static final long POOL_VALIDAR_TRAS_MS = Long.getLong("biblioteca.pool.validarTrasMs", 500);
+    
+    // Detección de fugas: aviso por conexión retenida y reclamo de conexiones abandonadas (0 = desactivado)
+    private static final long FUGA_AVISO_MS = Long.getLong("biblioteca.pool.avisoFugaMs", 10000);
+    private static final long FUGA_ABANDONO_MS = Long.getLong("biblioteca.pool.abandonoMs", 300000);
+    // La pila de quien pidió cada conexión cuesta un Throwable por préstamo: solo para buscar una fuga
+    private static final boolean FUGA_GUARDAR_ORIGEN = Boolean.getBoolean("biblioteca.pool.origenFugas");
+    
+    // PreparedStatement guardados por conexión; sirve tanto con sentencias del cliente como del servidor
+    private static final int CACHE_SENTENCIAS = Integer.getInteger("biblioteca.pool.cacheSentencias", 50);
+    private static final boolean PREPARAR_EN_SERVIDOR = Boolean.getBoolean("biblioteca.db.prepararEnServidor");
+    
+    // executeBatch de INSERT se envía como un INSERT de varias filas en lugar de una sentencia por fila
+    private static final boolean REESCRIBIR_LOTES = Boolean.parseBoolean(System.getProperty("biblioteca.db.reescribirLotes", "true"));
+    
+    // Identifica a este proceso en cambios_datos: cada conexión lo deja en @biblioteca_cliente para los triggers
+    private static final long ID_CLIENTE = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    
+    private static PoolConexiones pool;
+    
     /**
      * Método estático para conectar a la base de datos
      * @return Connection objeto de conexión o null si falla
      */
     public static Connection conectar() {
         
+        Connection transaccional = UnidadDeTrabajo.conexionActual();
+        if (transaccional != null) {
+            return transaccional;
+        }
+        
         try {
-            return DriverManager.getConnection(URL, USER, PASSWORD);
+            return getPool().obtenerConexion();
             
         } catch (SQLException e) {
             
@@ -30,4 +62,49 @@ public class ConnectionDB {
             return null;
         }
     }
+    
+    /**
+     * Obtener el pool de conexiones, creándolo la primera vez
+     * @return pool compartido por todos los DAO
+     */
+    public static synchronized PoolConexiones getPool() {
+        if (pool == null) {
+            String url = URL + "?useServerPrepStmts=" + PREPARAR_EN_SERVIDOR
+                    + "&rewriteBatchedStatements=" + REESCRIBIR_LOTES
+                    // Sin SET autocommit, commit ni rollback de más cuando la conexión ya está en ese estado
+                    + "&useLocalSessionState=true&useLocalTransactionState=true"
+                    + "&sessionVariables=@biblioteca_cliente=" + ID_CLIENTE;
+            pool = new PoolConexiones(url, USER, PASSWORD, POOL_MINIMO, POOL_MAXIMO,
+                    POOL_ESPERA_MS, POOL_INACTIVIDAD_MS, POOL_VALIDAR_TRAS_MS,
+                    CACHE_SENTENCIAS, new DetectorFugas(FUGA_AVISO_MS, FUGA_ABANDONO_MS, FUGA_GUARDAR_ORIGEN));
+            pool.iniciar();
+        }
+        return pool;
+    }
+    
+    /**
+     * Id de este cliente en la columna cliente de cambios_datos
+     * (así SincronizadorCambios reconoce y se salta los cambios propios)
+     */
+    public static long getIdCliente() {
+        return ID_CLIENTE;
+    }
+    
+    /**
+     * Conexiones prestadas por el pool que todavía no se han cerrado
+     * @return cantidad de conexiones pendientes
+     */
+    public static int contarConexionesPendientes() {
+        return getPool().getDetector().getConexionesPendientes();
+    }
+    
+    /**
+     * Cerrar el pool y sus conexiones (al salir de la aplicación)
+     */
+    public static synchronized void cerrarPool() {
+        if (pool != null) {
+            pool.cerrar();
+            pool = null;
+        }
+    }
 }
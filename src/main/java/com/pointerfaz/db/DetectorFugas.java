@@ -0,0 +1,140 @@
+package com.pointerfaz.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Detector de fugas de conexiones del pool
+ * Registra quién pidió cada conexión, avisa cuando una conexión se retiene
+ * más de lo normal y puede reclamar las conexiones abandonadas para que
+ * no agoten el pool ni el max_connections de MySQL.
+ */
+public class DetectorFugas {
+    
+    private final long umbralAvisoMs;
+    private final long umbralAbandonoMs;
+    private final boolean guardarOrigen;
+    private final Set<ConexionAgrupada> pendientes = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * @param umbralAvisoMs tiempo de retención a partir del cual se avisa (0 = sin aviso)
+     * @param umbralAbandonoMs tiempo a partir del cual la conexión se reclama a la fuerza (0 = nunca)
+     */
+    public DetectorFugas(long umbralAvisoMs, long umbralAbandonoMs) {
+        this(umbralAvisoMs, umbralAbandonoMs, false);
+    }
+    
+    /**
+     * @param umbralAvisoMs tiempo de retención a partir del cual se avisa (0 = sin aviso)
+     * @param umbralAbandonoMs tiempo a partir del cual la conexión se reclama a la fuerza (0 = nunca)
+     * @param guardarOrigen guardar la pila de quien pide cada conexión (un Throwable por préstamo)
+     */
+    public DetectorFugas(long umbralAvisoMs, long umbralAbandonoMs, boolean guardarOrigen) {
+        this.umbralAvisoMs = umbralAvisoMs;
+        this.umbralAbandonoMs = umbralAbandonoMs;
+        this.guardarOrigen = guardarOrigen;
+    }
+    
+    /**
+     * Indica si hay que revisar periódicamente las conexiones prestadas
+     */
+    boolean isActivo() {
+        return umbralAvisoMs > 0 || umbralAbandonoMs > 0;
+    }
+    
+    /**
+     * Indica si hay que guardar la pila de quien pide cada conexión
+     * Sin ella los avisos solo dicen el hilo y el tiempo retenida
+     */
+    boolean isGuardarOrigen() {
+        return guardarOrigen && isActivo();
+    }
+    
+    void registrar(ConexionAgrupada conexion) {
+        pendientes.add(conexion);
+    }
+    
+    void liberar(ConexionAgrupada conexion) {
+        pendientes.remove(conexion);
+    }
+    
+    /**
+     * Revisa las conexiones prestadas; lo llama periódicamente el pool
+     */
+    void revisar() {
+        long ahora = System.currentTimeMillis();
+        
+        for (ConexionAgrupada conexion : pendientes) {
+            try {
+                revisar(conexion, ahora);
+            } catch (RuntimeException e) {
+                // Una excepción cancelaría las próximas revisiones del pool
+                System.out.println("Error al revisar una conexión prestada: " + e.getMessage());
+            }
+        }
+    }
+    
+    private void revisar(ConexionAgrupada conexion, long ahora) {
+        long retenida = ahora - conexion.getPrestadaEn();
+        
+        if (umbralAbandonoMs > 0 && retenida > umbralAbandonoMs) {
+            System.out.println("Conexión abandonada reclamada tras " + retenida + " ms (hilo " + conexion.getHilo() + ")");
+            imprimirOrigen(conexion);
+            conexion.reclamar();
+            
+        } else if (umbralAvisoMs > 0 && retenida > umbralAvisoMs && conexion.marcarAdvertida()) {
+            System.out.println("Posible fuga: conexión retenida " + retenida + " ms por el hilo " + conexion.getHilo());
+            imprimirOrigen(conexion);
+        }
+    }
+    
+    private void imprimirOrigen(ConexionAgrupada conexion) {
+        if (conexion.getOrigen() != null) {
+            conexion.getOrigen().printStackTrace(System.out);
+        }
+    }
+    
+    /**
+     * @return número de conexiones prestadas que todavía no se han cerrado
+     */
+    public int getConexionesPendientes() {
+        return pendientes.size();
+    }
+    
+    /**
+     * Describe cada conexión pendiente: hilo, tiempo retenida y método que la pidió
+     * @return una línea por conexión pendiente
+     */
+    public List<String> describirPendientes() {
+        long ahora = System.currentTimeMillis();
+        List<String> descripciones = new ArrayList<>();
+        
+        for (ConexionAgrupada conexion : pendientes) {
+            StringBuilder desc = new StringBuilder();
+            desc.append(conexion.getHilo()).append(" - ").append(ahora - conexion.getPrestadaEn()).append(" ms");
+            
+            Throwable origen = conexion.getOrigen();
+            if (origen != null) {
+                for (StackTraceElement elemento : origen.getStackTrace()) {
+                    // Primer marco fuera del paquete db: el DAO o controlador que pidió la conexión
+                    if (!elemento.getClassName().startsWith(DetectorFugas.class.getPackageName())) {
+                        desc.append(" - ").append(elemento);
+                        break;
+                    }
+                }
+            }
+            descripciones.add(desc.toString());
+        }
+        return descripciones;
+    }
+    
+    public long getUmbralAvisoMs() {
+        return umbralAvisoMs;
+    }
+    
+    public long getUmbralAbandonoMs() {
+        return umbralAbandonoMs;
+    }
+}
@@ -0,0 +1,329 @@
+package com.pointerfaz.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool acotado de conexiones JDBC
+ * Reutiliza conexiones físicas en lugar de abrir una nueva por cada consulta.
+ * Soporta tamaño mínimo/máximo, desalojo por inactividad, validación al
+ * prestar y tiempo máximo de espera cuando todas las conexiones están en uso.
+ * Cada préstamo queda registrado en un DetectorFugas y cada conexión física
+ * guarda sus PreparedStatement en una CacheSentencias. El mantenimiento
+ * en segundo plano empieza al llamar iniciar().
+ */
+public class PoolConexiones {
+    
+    private final String url;
+    private final String usuario;
+    private final String password;
+    
+    private final int minimo;
+    private final int maximo;
+    private final long tiempoEsperaMs;
+    private final long tiempoInactividadMs;
+    private final long validarTrasInactividadMs;
+    private final int timeoutValidacionSeg;
+    private final int tamanoCacheSentencias;
+    
+    // Un permiso por conexión que se puede prestar a la vez
+    private final Semaphore permisos;
+    // Conexiones libres, la más recientemente usada primero
+    private final LinkedBlockingDeque<ConexionFisica> libres = new LinkedBlockingDeque<>();
+    private final AtomicInteger totalFisicas = new AtomicInteger();
+    private final ScheduledExecutorService mantenimiento;
+    private final DetectorFugas detector;
+    private final AtomicLong aciertosCache = new AtomicLong();
+    private final AtomicLong fallosCache = new AtomicLong();
+    private volatile boolean cerrado;
+    private boolean iniciado;
+    
+    /**
+     * Constructor del pool
+     *
+     * @param url URL JDBC de la base de datos
+     * @param usuario usuario de MySQL
+     * @param password contraseña de MySQL
+     * @param minimo conexiones que se mantienen abiertas aunque estén inactivas
+     * @param maximo conexiones físicas como máximo
+     * @param tiempoEsperaMs espera máxima por una conexión libre
+     * @param tiempoInactividadMs tiempo tras el cual se cierra una conexión libre sobrante
+     * @param validarTrasInactividadMs inactividad a partir de la cual se valida la conexión al prestarla
+     * @param tamanoCacheSentencias PreparedStatement guardados por conexión (0 = sin cache)
+     * @param detector detector de conexiones retenidas o abandonadas
+     */
+    public PoolConexiones(String url, String usuario, String password, int minimo, int maximo,
+                          long tiempoEsperaMs, long tiempoInactividadMs, long validarTrasInactividadMs,
+                          int tamanoCacheSentencias, DetectorFugas detector) {
+        if (maximo < 1 || minimo < 0 || minimo > maximo) {
+            throw new IllegalArgumentException("Tamaño de pool inválido: minimo=" + minimo + ", maximo=" + maximo);
+        }
+        this.url = url;
+        this.usuario = usuario;
+        this.password = password;
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.tiempoEsperaMs = tiempoEsperaMs;
+        this.tiempoInactividadMs = tiempoInactividadMs;
+        this.validarTrasInactividadMs = validarTrasInactividadMs;
+        this.timeoutValidacionSeg = 2;
+        this.tamanoCacheSentencias = tamanoCacheSentencias;
+        this.permisos = new Semaphore(maximo, true);
+        this.detector = detector;
+        
+        mantenimiento = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "pool-conexiones-mantenimiento");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+    
+    /**
+     * Empezar el mantenimiento en segundo plano: llenado hasta el mínimo, desalojo y revisión de fugas
+     * Se llama una vez, ya construido el pool: desde el constructor el hilo de
+     * mantenimiento podría ver el pool a medio inicializar
+     */
+    public synchronized void iniciar() {
+        if (iniciado || cerrado) {
+            return;
+        }
+        iniciado = true;
+        
+        // El llenado inicial y el desalojo se hacen fuera del hilo que pide conexiones
+        long periodo = Math.max(1000, Math.min(tiempoInactividadMs / 2, 30000));
+        mantenimiento.scheduleWithFixedDelay(this::mantener, 0, periodo, TimeUnit.MILLISECONDS);
+        
+        if (detector.isActivo()) {
+            long umbral = detector.getUmbralAvisoMs() > 0 ? detector.getUmbralAvisoMs() : detector.getUmbralAbandonoMs();
+            long periodoRevision = Math.max(1000, Math.min(umbral / 2, 30000));
+            mantenimiento.scheduleWithFixedDelay(detector::revisar, periodoRevision, periodoRevision, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Obtener una conexión del pool
+     * La conexión devuelta vuelve al pool al llamar close()
+     *
+     * @return conexión prestada
+     * @throws SQLException si se agota el tiempo de espera o no se puede conectar
+     */
+    public Connection obtenerConexion() throws SQLException {
+        if (cerrado) {
+            throw new SQLException("El pool de conexiones está cerrado");
+        }
+        
+        try {
+            if (!permisos.tryAcquire(tiempoEsperaMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Tiempo de espera agotado: las " + maximo + " conexiones del pool están en uso");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido esperando una conexión del pool", e);
+        }
+        
+        try {
+            ConexionFisica fisica;
+            while ((fisica = libres.pollFirst()) != null) {
+                if (esValida(fisica)) {
+                    break;
+                }
+                descartar(fisica);
+            }
+            
+            if (fisica == null) {
+                fisica = crearFisica();
+            }
+            
+            fisica.marcarUso();
+            return ConexionAgrupada.crear(this, fisica, detector);
+            
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+    
+    /**
+     * Recibe una conexión devuelta por ConexionAgrupada
+     */
+    void devolver(ConexionAgrupada prestamo, ConexionFisica fisica) {
+        detector.liberar(prestamo);
+        try {
+            if (!fisica.isRota() && !restablecer(fisica)) {
+                fisica.marcarRota();
+            }
+            
+            if (cerrado || fisica.isRota()) {
+                descartar(fisica);
+            } else {
+                fisica.marcarUso();
+                libres.offerFirst(fisica);
+            }
+        } finally {
+            permisos.release();
+        }
+    }
+    
+    /**
+     * Deja la conexión como recién creada: sin transacción pendiente y en autocommit
+     */
+    private boolean restablecer(ConexionFisica fisica) {
+        try {
+            Connection conexion = fisica.getConexion();
+            if (conexion.isClosed()) {
+                return false;
+            }
+            if (!conexion.getAutoCommit()) {
+                conexion.rollback();
+                conexion.setAutoCommit(true);
+            }
+            if (conexion.isReadOnly()) {
+                conexion.setReadOnly(false);
+            }
+            conexion.clearWarnings();
+            return true;
+            
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return false;
+        }
+    }
+    
+    private boolean esValida(ConexionFisica fisica) {
+        try {
+            // Una conexión usada hace poco se da por buena para no pagar un ping por préstamo
+            if (System.currentTimeMillis() - fisica.getUltimoUso() < validarTrasInactividadMs) {
+                return !fisica.getConexion().isClosed();
+            }
+            return fisica.getConexion().isValid(timeoutValidacionSeg);
+            
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+    
+    private ConexionFisica crearFisica() throws SQLException {
+        Connection conexion = DriverManager.getConnection(url, usuario, password);
+        totalFisicas.incrementAndGet();
+        CacheSentencias cache = tamanoCacheSentencias > 0 ? new CacheSentencias(tamanoCacheSentencias, this) : null;
+        return new ConexionFisica(conexion, cache);
+    }
+    
+    private void descartar(ConexionFisica fisica) {
+        totalFisicas.decrementAndGet();
+        fisica.cerrar();
+    }
+    
+    /**
+     * Tarea periódica: cierra conexiones libres inactivas por encima del mínimo
+     * y vuelve a abrir conexiones hasta llegar al mínimo
+     */
+    private void mantener() {
+        if (cerrado) {
+            return;
+        }
+        
+        long ahora = System.currentTimeMillis();
+        Iterator<ConexionFisica> it = libres.descendingIterator();
+        while (it.hasNext() && totalFisicas.get() > minimo) {
+            ConexionFisica fisica = it.next();
+            if (ahora - fisica.getUltimoUso() > tiempoInactividadMs && libres.removeLastOccurrence(fisica)) {
+                descartar(fisica);
+            }
+        }
+        
+        // Cada conexión del relleno ocupa un permiso mientras se abre, igual que un préstamo:
+        // así un préstamo que abre su propia conexión al mismo tiempo no pasa del máximo
+        while (!cerrado && totalFisicas.get() < minimo && permisos.tryAcquire()) {
+            try {
+                libres.offerLast(crearFisica());
+            } catch (SQLException e) {
+                System.out.println(e.getMessage());
+                break;
+            } finally {
+                permisos.release();
+            }
+        }
+    }
+    
+    /**
+     * Cerrar el pool y todas las conexiones libres
+     * Las conexiones prestadas se cierran cuando sus dueños las devuelven
+     */
+    public synchronized void cerrar() {
+        cerrado = true;
+        mantenimiento.shutdownNow();
+        
+        ConexionFisica fisica;
+        while ((fisica = libres.pollFirst()) != null) {
+            descartar(fisica);
+        }
+    }
+    
+    /**
+     * @return conexiones prestadas en este momento
+     */
+    public int getConexionesEnUso() {
+        return maximo - permisos.availablePermits();
+    }
+    
+    /**
+     * @return conexiones abiertas esperando a ser prestadas
+     */
+    public int getConexionesLibres() {
+        return libres.size();
+    }
+    
+    /**
+     * @return conexiones físicas abiertas (libres + prestadas)
+     */
+    public int getConexionesTotales() {
+        return totalFisicas.get();
+    }
+    
+    void registrarAciertoCache() {
+        aciertosCache.incrementAndGet();
+    }
+    
+    void registrarFalloCache() {
+        fallosCache.incrementAndGet();
+    }
+    
+    /**
+     * @return veces que un prepareStatement se resolvió desde la cache de sentencias
+     */
+    public long getAciertosCacheSentencias() {
+        return aciertosCache.get();
+    }
+    
+    /**
+     * @return veces que hubo que preparar la sentencia en el driver/servidor
+     */
+    public long getFallosCacheSentencias() {
+        return fallosCache.get();
+    }
+    
+    /**
+     * @return detector de fugas asociado al pool
+     */
+    public DetectorFugas getDetector() {
+        return detector;
+    }
+    
+    public int getMinimo() {
+        return minimo;
+    }
+    
+    public int getMaximo() {
+        return maximo;
+    }
+}
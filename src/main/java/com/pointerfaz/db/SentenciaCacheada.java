@@ -0,0 +1,110 @@
+package com.pointerfaz.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+/**
+ * PreparedStatement prestado desde la CacheSentencias
+ * close() cierra los ResultSet abiertos, limpia los parámetros, devuelve
+ * fetchSize, maxRows y queryTimeout a sus valores de origen y deja la
+ * sentencia lista en la cache para la próxima vez que se prepare el mismo SQL
+ */
+class SentenciaCacheada implements InvocationHandler {
+    
+    private final CacheSentencias cache;
+    private final String clave;
+    private final CacheSentencias.Entrada entrada;
+    private final Connection conexionProxy;
+    private final ArrayList<ResultSet> resultadosAbiertos = new ArrayList<>();
+    private boolean cerrada;
+    
+    private SentenciaCacheada(CacheSentencias cache, String clave, CacheSentencias.Entrada entrada, Connection conexionProxy) {
+        this.cache = cache;
+        this.clave = clave;
+        this.entrada = entrada;
+        this.conexionProxy = conexionProxy;
+    }
+    
+    static PreparedStatement crear(CacheSentencias cache, String clave, CacheSentencias.Entrada entrada, Connection conexionProxy) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                SentenciaCacheada.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new SentenciaCacheada(cache, clave, entrada, conexionProxy));
+    }
+    
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                cerrar();
+                return null;
+            case "isClosed":
+                return cerrada;
+            case "getConnection":
+                // Nunca exponer la conexión física: su close() la sacaría del pool
+                return conexionProxy;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "SentenciaCacheada[" + clave + "]";
+            default:
+                break;
+        }
+        
+        if (cerrada) {
+            throw new SQLException("La sentencia ya fue cerrada");
+        }
+        
+        try {
+            Object resultado = method.invoke(entrada.sentencia, args);
+            if (resultado instanceof ResultSet) {
+                resultadosAbiertos.add((ResultSet) resultado);
+            }
+            return resultado;
+            
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+    
+    private void cerrar() {
+        if (cerrada) {
+            return;
+        }
+        cerrada = true;
+        
+        try {
+            for (ResultSet resultado : resultadosAbiertos) {
+                resultado.close();
+            }
+            resultadosAbiertos.clear();
+            entrada.sentencia.clearParameters();
+            entrada.sentencia.clearBatch();
+            entrada.sentencia.clearWarnings();
+            // Lo que un DAO ajustó para su consulta no debe heredarlo el próximo que la prepare
+            if (entrada.sentencia.getFetchSize() != entrada.tamanoFetch) {
+                entrada.sentencia.setFetchSize(entrada.tamanoFetch);
+            }
+            if (entrada.sentencia.getMaxRows() != entrada.maximoFilas) {
+                entrada.sentencia.setMaxRows(entrada.maximoFilas);
+            }
+            if (entrada.sentencia.getQueryTimeout() != entrada.tiempoLimiteSeg) {
+                entrada.sentencia.setQueryTimeout(entrada.tiempoLimiteSeg);
+            }
+            cache.soltar(entrada);
+            
+        } catch (SQLException e) {
+            // Una sentencia que no se deja limpiar no vuelve a la cache
+            cache.descartar(clave, entrada);
+        }
+    }
+}
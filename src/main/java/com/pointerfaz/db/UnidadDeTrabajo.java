@@ -0,0 +1,191 @@
+package com.pointerfaz.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+/**
+ * Unidad de trabajo: una operación de negocio sobre una sola conexión y una sola transacción
+ * Mientras está abierta, ConnectionDB.conectar() devuelve en el mismo hilo la conexión
+ * de la unidad, así los DAO anidados la reutilizan y todo se confirma una sola vez.
+ *
+ * <pre>
+ * try (UnidadDeTrabajo unidad = UnidadDeTrabajo.iniciar()) {
+ *     usuarioDAO.agregarUsuario(persona);
+ *     prestamoDAO.agregarPrestamo(prestamo);
+ *     unidad.confirmar();
+ * }
+ * </pre>
+ *
+ * Si se cierra sin confirmar, o si alguna sentencia falló dentro de ella,
+ * la transacción se revierte. Las unidades anidadas se unen a la externa.
+ */
+public class UnidadDeTrabajo implements AutoCloseable {
+    
+    private static final ThreadLocal<Contexto> ACTUAL = new ThreadLocal<>();
+    
+    /**
+     * Estado compartido por la unidad raíz y las anidadas
+     */
+    static class Contexto {
+        final Connection conexion;
+        boolean soloRollback;
+        boolean confirmadoEnBase;
+        final ArrayList<Runnable> alConfirmar = new ArrayList<>();
+        
+        Contexto(Connection conexion) {
+            this.conexion = conexion;
+        }
+    }
+    
+    private final Contexto contexto;
+    private final boolean raiz;
+    private boolean confirmada;
+    private boolean cerrada;
+    
+    private UnidadDeTrabajo(Contexto contexto, boolean raiz) {
+        this.contexto = contexto;
+        this.raiz = raiz;
+    }
+    
+    /**
+     * Iniciar una unidad de trabajo (o unirse a la que ya está abierta en este hilo)
+     * @return unidad a cerrar con try-with-resources
+     * @throws SQLException si no se puede obtener la conexión
+     */
+    public static UnidadDeTrabajo iniciar() throws SQLException {
+        return iniciar(ConnectionDB.getPool());
+    }
+    
+    /**
+     * Iniciar una unidad de trabajo con una conexión de este pool
+     */
+    static UnidadDeTrabajo iniciar(PoolConexiones pool) throws SQLException {
+        Contexto actual = ACTUAL.get();
+        if (actual != null) {
+            return new UnidadDeTrabajo(actual, false);
+        }
+        
+        Connection conexion = pool.obtenerConexion();
+        try {
+            conexion.setAutoCommit(false);
+        } catch (SQLException e) {
+            conexion.close();
+            throw e;
+        }
+        
+        Contexto contexto = new Contexto(conexion);
+        ACTUAL.set(contexto);
+        return new UnidadDeTrabajo(contexto, true);
+    }
+    
+    /**
+     * @return true si hay una unidad de trabajo abierta en este hilo
+     */
+    public static boolean estaActiva() {
+        return ACTUAL.get() != null;
+    }
+    
+    /**
+     * Ejecutar una acción cuando los cambios ya estén confirmados en la base de datos
+     * Dentro de una unidad abierta, la acción espera al commit de la unidad raíz y se
+     * descarta si la unidad se revierte; sin unidad abierta se ejecuta enseguida.
+     * Sirve para avisar de cambios (índices, caches) sin publicar datos no confirmados.
+     * @param accion acción a ejecutar; sus excepciones se informan y no afectan al commit
+     */
+    public static void despuesDeConfirmar(Runnable accion) {
+        Contexto contexto = ACTUAL.get();
+        if (contexto != null) {
+            contexto.alConfirmar.add(accion);
+        } else {
+            ejecutar(accion);
+        }
+    }
+    
+    private static void ejecutar(Runnable accion) {
+        try {
+            accion.run();
+        } catch (RuntimeException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+    
+    /**
+     * Conexión para los DAO cuando hay una unidad abierta en este hilo
+     * Su close() no devuelve la conexión al pool; solo cierra las sentencias del DAO
+     * @return vista de la conexión de la unidad o null si no hay unidad abierta
+     */
+    static Connection conexionActual() {
+        Contexto contexto = ACTUAL.get();
+        return contexto == null ? null : ConexionTransaccional.crear(contexto);
+    }
+    
+    /**
+     * Confirmar la unidad
+     * En una unidad anidada solo indica que su parte terminó bien; el commit lo hace la raíz
+     * @throws SQLException si falla el commit o alguna operación dejó la unidad para rollback
+     */
+    public void confirmar() throws SQLException {
+        if (cerrada) {
+            throw new SQLException("La unidad de trabajo ya está cerrada");
+        }
+        confirmada = true;
+        
+        if (!raiz) {
+            return;
+        }
+        
+        if (contexto.soloRollback) {
+            contexto.conexion.rollback();
+            throw new SQLException("La unidad de trabajo se revirtió porque una de sus operaciones falló");
+        }
+        contexto.conexion.commit();
+        contexto.confirmadoEnBase = true;
+    }
+    
+    /**
+     * Marcar la unidad para que termine en rollback aunque se confirme
+     */
+    public void marcarSoloRollback() {
+        contexto.soloRollback = true;
+    }
+    
+    /**
+     * Cerrar la unidad: revierte lo no confirmado y, en la raíz, devuelve la conexión al pool
+     */
+    @Override
+    public void close() throws SQLException {
+        if (cerrada) {
+            return;
+        }
+        cerrada = true;
+        
+        if (!confirmada) {
+            contexto.soloRollback = true;
+        }
+        
+        if (!raiz) {
+            return;
+        }
+        
+        ACTUAL.remove();
+        try {
+            if (!confirmada) {
+                contexto.conexion.rollback();
+            } else if (contexto.confirmadoEnBase) {
+                // Tras el commit no hay nada que revertir: así el pool no manda un rollback de más
+                contexto.conexion.setAutoCommit(true);
+            }
+        } finally {
+            // En cualquier otro caso el pool revierte y vuelve a autocommit
+            contexto.conexion.close();
+        }
+        
+        // Fuera de la unidad: las acciones pueden abrir sus propias conexiones
+        if (contexto.confirmadoEnBase) {
+            for (Runnable accion : contexto.alConfirmar) {
+                ejecutar(accion);
+            }
+        }
+    }
+}
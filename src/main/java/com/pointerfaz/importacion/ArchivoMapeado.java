@@ -0,0 +1,76 @@
+package com.pointerfaz.importacion;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lectura secuencial de un archivo mapeado en memoria por ventanas
+ * Un MappedByteBuffer no puede pasar de 2 GB, así que el archivo se mapea
+ * de a trozos y la ventana avanza a medida que el lector la recorre.
+ * El sistema operativo trae las páginas bajo demanda: no hay copia a un
+ * buffer de Java ni llamadas read() por cada línea.
+ */
+class ArchivoMapeado implements AutoCloseable {
+    
+    private static final long TAMANO_VENTANA = 64L * 1024 * 1024;
+    
+    private final FileChannel canal;
+    private final long tamano;
+    private MappedByteBuffer ventana;
+    private long inicioVentana;
+    
+    ArchivoMapeado(Path archivo) throws IOException {
+        this.canal = FileChannel.open(archivo, StandardOpenOption.READ);
+        this.tamano = canal.size();
+    }
+    
+    long tamano() {
+        return tamano;
+    }
+    
+    /**
+     * @return byte en la posición absoluta indicada
+     */
+    byte leer(long posicion) throws IOException {
+        if (ventana == null || posicion < inicioVentana || posicion >= inicioVentana + ventana.limit()) {
+            mapear(posicion);
+        }
+        return ventana.get((int) (posicion - inicioVentana));
+    }
+    
+    /**
+     * Copiar un tramo del archivo (un registro completo)
+     */
+    byte[] copiar(long inicio, long fin) throws IOException {
+        byte[] datos = new byte[(int) (fin - inicio)];
+        int copiados = 0;
+        while (copiados < datos.length) {
+            long posicion = inicio + copiados;
+            if (ventana == null || posicion < inicioVentana || posicion >= inicioVentana + ventana.limit()) {
+                mapear(posicion);
+            }
+            int desde = (int) (posicion - inicioVentana);
+            int cantidad = Math.min(datos.length - copiados, ventana.limit() - desde);
+            ventana.get(desde, datos, copiados, cantidad);
+            copiados += cantidad;
+        }
+        return datos;
+    }
+    
+    private void mapear(long posicion) throws IOException {
+        if (posicion < 0 || posicion >= tamano) {
+            throw new IOException("Posición fuera del archivo: " + posicion);
+        }
+        inicioVentana = posicion;
+        ventana = canal.map(FileChannel.MapMode.READ_ONLY, posicion, Math.min(TAMANO_VENTANA, tamano - posicion));
+    }
+    
+    @Override
+    public void close() throws IOException {
+        ventana = null;
+        canal.close();
+    }
+}
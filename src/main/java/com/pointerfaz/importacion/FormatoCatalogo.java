@@ -0,0 +1,32 @@
+package com.pointerfaz.importacion;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Formatos de catálogo que se pueden importar
+ */
+public enum FormatoCatalogo {
+    
+    /** Texto separado por comas o punto y coma, con cabecera */
+    CSV,
+    
+    /** MARC21 en binario (ISO 2709), como lo exportan los proveedores y otros catálogos */
+    MARC21;
+    
+    /**
+     * Deducir el formato por la extensión del archivo
+     * @return MARC21 para .mrc/.marc/.iso, CSV en cualquier otro caso
+     */
+    public static FormatoCatalogo deArchivo(Path archivo) {
+        String nombre = archivo.getFileName().toString().toLowerCase();
+        if (nombre.endsWith(".mrc") || nombre.endsWith(".marc") || nombre.endsWith(".iso")) {
+            return MARC21;
+        }
+        return CSV;
+    }
+    
+    LectorCatalogo abrir(Path archivo, long desde) throws IOException {
+        return this == MARC21 ? new LectorMarc(archivo, desde) : new LectorCsv(archivo, desde);
+    }
+}
@@ -0,0 +1,270 @@
+package com.pointerfaz.importacion;
+
+import com.pointerfaz.dao.LibroDAO;
+import com.pointerfaz.dao.ResultadoCarga;
+import com.pointerfaz.modelo.Libro;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Importación masiva de catálogos de proveedores (CSV o MARC21)
+ *
+ * El archivo pasa por tres etapas unidas por colas acotadas:
+ * <pre>
+ * lector (1 hilo, archivo mapeado) -> intérpretes (N hilos) -> escritor (hilo que llama)
+ * </pre>
+ * Si la base de datos va más lenta que la lectura, las colas se llenan y el
+ * lector se detiene (put bloqueante) en lugar de cargar el archivo en memoria.
+ * El escritor normaliza y descarta ISBN repetidos y guarda los libros con
+ * LibroDAO.agregarLibros por lotes.
+ *
+ * Tras cada lote se guarda en el punto de control la posición hasta la que
+ * todos los registros están confirmados (los intérpretes terminan en otro orden,
+ * así que se avanza solo por el tramo contiguo). Si la importación se corta,
+ * la siguiente ejecución con el mismo punto de control sigue desde ahí; los
+ * registros posteriores que ya llegaron a guardarse se rechazan por ISBN ya
+ * registrado, sin duplicarse.
+ */
+public class ImportadorCatalogo {
+    
+    private static final int HILOS = Integer.getInteger("biblioteca.importacion.hilos",
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    private static final int CAPACIDAD_COLA = Integer.getInteger("biblioteca.importacion.capacidadCola", 10000);
+    private static final int TAMANO_LOTE = Integer.getInteger("biblioteca.db.tamanoLoteInsercion", 1000);
+    
+    /**
+     * Registro ya interpretado (o rechazado) que va del intérprete al escritor
+     */
+    private static class Interpretado {
+        static final Interpretado FIN = new Interpretado(-1, -1, null, null);
+        
+        final long secuencia;
+        final long fin;
+        final Libro libro;
+        final String motivo;
+        
+        Interpretado(long secuencia, long fin, Libro libro, String motivo) {
+            this.secuencia = secuencia;
+            this.fin = fin;
+            this.libro = libro;
+            this.motivo = motivo;
+        }
+    }
+    
+    private final LibroDAO libroDAO;
+    private final int hilos;
+    private final int capacidadCola;
+    private final int tamanoLote;
+    
+    /**
+     * Importador con la configuración por defecto
+     * (-Dbiblioteca.importacion.hilos, -Dbiblioteca.importacion.capacidadCola,
+     * -Dbiblioteca.db.tamanoLoteInsercion)
+     */
+    public ImportadorCatalogo(LibroDAO libroDAO) {
+        this(libroDAO, HILOS, CAPACIDAD_COLA, TAMANO_LOTE);
+    }
+    
+    /**
+     * @param hilos hilos que interpretan registros
+     * @param capacidadCola registros como máximo en cada cola entre etapas
+     * @param tamanoLote libros por inserción en lote (y por punto de control)
+     */
+    public ImportadorCatalogo(LibroDAO libroDAO, int hilos, int capacidadCola, int tamanoLote) {
+        if (hilos < 1 || capacidadCola < 1 || tamanoLote < 1) {
+            throw new IllegalArgumentException("Configuración de importación inválida: hilos=" + hilos
+                    + ", capacidadCola=" + capacidadCola + ", tamanoLote=" + tamanoLote);
+        }
+        this.libroDAO = libroDAO;
+        this.hilos = hilos;
+        this.capacidadCola = capacidadCola;
+        this.tamanoLote = tamanoLote;
+    }
+    
+    /**
+     * Importar un archivo de catálogo
+     *
+     * @param archivo archivo CSV o MARC21
+     * @param formato formato del archivo
+     * @param puntoControl archivo donde guardar el avance (null = sin reanudación);
+     *                     si ya existe y corresponde al mismo archivo, se reanuda
+     * @param progreso recibe las métricas después de cada lote (puede ser null)
+     * @return métricas finales de la importación
+     * @throws IOException si no se puede leer el archivo o la base de datos deja de aceptar lotes;
+     *                     el punto de control queda en el último lote confirmado
+     */
+    public MetricasImportacion importar(Path archivo, FormatoCatalogo formato, Path puntoControl,
+                                        Consumer<MetricasImportacion> progreso) throws IOException, InterruptedException {
+        long desde = puntoControl == null ? 0 : PuntoControl.leer(puntoControl, archivo);
+        
+        try (LectorCatalogo lector = formato.abrir(archivo, desde)) {
+            MetricasImportacion metricas = new MetricasImportacion(lector.tamano(), desde);
+            BlockingQueue<RegistroCrudo> crudos = new ArrayBlockingQueue<>(capacidadCola);
+            BlockingQueue<Interpretado> interpretados = new ArrayBlockingQueue<>(capacidadCola);
+            AtomicReference<IOException> errorLectura = new AtomicReference<>();
+            
+            AtomicInteger numeroHilo = new AtomicInteger();
+            ExecutorService ejecutor = Executors.newFixedThreadPool(hilos + 1, r -> {
+                Thread hilo = new Thread(r, "importacion-catalogo-" + numeroHilo.incrementAndGet());
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            
+            try {
+                ejecutor.execute(() -> leer(lector, crudos, errorLectura));
+                for (int i = 0; i < hilos; i++) {
+                    ejecutor.execute(() -> interpretar(lector, crudos, interpretados));
+                }
+                
+                escribir(interpretados, metricas, archivo, desde, puntoControl, progreso);
+                
+            } finally {
+                // Si el escritor falló, los demás hilos pueden estar bloqueados en una cola llena
+                ejecutor.shutdownNow();
+            }
+            
+            if (errorLectura.get() != null) {
+                throw errorLectura.get();
+            }
+            if (puntoControl != null) {
+                PuntoControl.borrar(puntoControl);
+            }
+            
+            metricas.terminar();
+            if (progreso != null) {
+                progreso.accept(metricas);
+            }
+            return metricas;
+        }
+    }
+    
+    /**
+     * Etapa 1: cortar el archivo en registros
+     */
+    private void leer(LectorCatalogo lector, BlockingQueue<RegistroCrudo> crudos, AtomicReference<IOException> error) {
+        try {
+            RegistroCrudo registro;
+            while ((registro = lector.siguiente()) != null) {
+                crudos.put(registro);
+            }
+        } catch (IOException e) {
+            error.set(e);
+        } catch (InterruptedException e) {
+            return;
+        }
+        
+        // Una marca de fin por intérprete
+        try {
+            for (int i = 0; i < hilos; i++) {
+                crudos.put(RegistroCrudo.FIN);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Etapa 2: interpretar y validar registros (varios hilos)
+     */
+    private void interpretar(LectorCatalogo lector, BlockingQueue<RegistroCrudo> crudos, BlockingQueue<Interpretado> interpretados) {
+        try {
+            while (true) {
+                RegistroCrudo registro = crudos.take();
+                if (registro == RegistroCrudo.FIN) {
+                    interpretados.put(Interpretado.FIN);
+                    return;
+                }
+                
+                Interpretado resultado;
+                try {
+                    resultado = new Interpretado(registro.secuencia, registro.fin, lector.parsear(registro.datos), null);
+                } catch (RuntimeException e) {
+                    String motivo = e instanceof IllegalArgumentException ? e.getMessage() : "Registro ilegible: " + e;
+                    resultado = new Interpretado(registro.secuencia, registro.fin, null, motivo);
+                }
+                interpretados.put(resultado);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Etapa 3: descartar repetidos, insertar por lotes y avanzar el punto de control
+     */
+    private void escribir(BlockingQueue<Interpretado> interpretados, MetricasImportacion metricas, Path archivo,
+                          long desde, Path puntoControl, Consumer<MetricasImportacion> progreso) throws IOException, InterruptedException {
+        Set<String> isbnVistos = new HashSet<>();
+        List<Interpretado> pendientes = new ArrayList<>();
+        List<Libro> lote = new ArrayList<>();
+        
+        TramoConfirmado tramo = new TramoConfirmado(desde);
+        int interpretesActivos = hilos;
+        
+        while (interpretesActivos > 0) {
+            Interpretado registro = interpretados.take();
+            if (registro == Interpretado.FIN) {
+                interpretesActivos--;
+            } else {
+                metricas.registroLeido();
+                pendientes.add(registro);
+                
+                if (registro.libro == null) {
+                    metricas.rechazar(registro.motivo);
+                } else if (!isbnVistos.add(registro.libro.getIsbn())) {
+                    metricas.duplicado(registro.libro.getIsbn());
+                } else {
+                    lote.add(registro.libro);
+                }
+            }
+            
+            if (pendientes.size() >= tamanoLote || (interpretesActivos == 0 && !pendientes.isEmpty())) {
+                guardarLote(lote, metricas);
+                
+                for (Interpretado hecho : pendientes) {
+                    tramo.terminar(hecho.secuencia, hecho.fin);
+                }
+                long confirmado = tramo.getConfirmado();
+                metricas.confirmarHasta(confirmado);
+                if (puntoControl != null) {
+                    PuntoControl.guardar(puntoControl, archivo, confirmado);
+                }
+                
+                pendientes.clear();
+                lote.clear();
+                if (progreso != null) {
+                    progreso.accept(metricas);
+                }
+            }
+        }
+    }
+    
+    private void guardarLote(List<Libro> lote, MetricasImportacion metricas) throws IOException {
+        if (lote.isEmpty()) {
+            return;
+        }
+        
+        ResultadoCarga resultado = libroDAO.agregarLibros(lote, tamanoLote);
+        
+        // agregarLibros solo informa por consola si se pierde la conexión: el lote no quedó resuelto
+        if (resultado.getInsertados() + resultado.getFallos().size() < lote.size()) {
+            throw new IOException("La base de datos no aceptó el lote; la importación se puede reanudar desde el punto de control");
+        }
+        
+        metricas.sumarInsertados(resultado.getInsertados());
+        for (ResultadoCarga.Fallo fallo : resultado.getFallos()) {
+            metricas.rechazar("ISBN " + fallo.getLibro().getIsbn() + ": " + fallo.getMotivo());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.pointerfaz.importacion;
+
+/**
+ * Normalización de ISBN para la importación de catálogos
+ * Los proveedores mezclan ISBN-10 e ISBN-13, con guiones, espacios o texto
+ * detrás ("0-306-40615-2 (pbk.)"). Todo se lleva a ISBN-13 sin separadores
+ * para que el mismo libro no entre dos veces con distinta escritura.
+ */
+public final class Isbn {
+    
+    private Isbn() {
+    }
+    
+    /**
+     * Normalizar un ISBN a ISBN-13
+     * @param texto ISBN tal como viene en el archivo
+     * @return ISBN-13 de 13 dígitos o null si no es un ISBN válido
+     */
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        
+        // Quedarse con el primer bloque de dígitos, guiones y espacios (más la X final del ISBN-10)
+        StringBuilder digitos = new StringBuilder(13);
+        for (int i = 0; i < texto.length() && digitos.length() < 13; i++) {
+            char c = texto.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digitos.append(c);
+            } else if ((c == 'X' || c == 'x') && digitos.length() == 9) {
+                digitos.append('X');
+                break;
+            } else if (c == '-' || c == ' ') {
+                continue;
+            } else if (digitos.length() > 0) {
+                break;
+            }
+        }
+        
+        String isbn = digitos.toString();
+        if (isbn.length() == 10 && esIsbn10Valido(isbn)) {
+            String base = "978" + isbn.substring(0, 9);
+            return base + digitoControl13(base);
+        }
+        if (isbn.length() == 13 && (isbn.startsWith("978") || isbn.startsWith("979"))
+                && digitoControl13(isbn.substring(0, 12)) == isbn.charAt(12)) {
+            return isbn;
+        }
+        return null;
+    }
+    
+    private static boolean esIsbn10Valido(String isbn) {
+        int suma = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = isbn.charAt(i);
+            int valor = c == 'X' ? 10 : c - '0';
+            if (c == 'X' && i != 9) {
+                return false;
+            }
+            suma += valor * (10 - i);
+        }
+        return suma % 11 == 0;
+    }
+    
+    private static char digitoControl13(String doceDigitos) {
+        int suma = 0;
+        for (int i = 0; i < 12; i++) {
+            int valor = doceDigitos.charAt(i) - '0';
+            suma += i % 2 == 0 ? valor : valor * 3;
+        }
+        return (char) ('0' + (10 - suma % 10) % 10);
+    }
+}
@@ -0,0 +1,37 @@
+package com.pointerfaz.importacion;
+
+import com.pointerfaz.modelo.Libro;
+import java.io.IOException;
+
+/**
+ * Lector de un formato de catálogo
+ * siguiente() corta el archivo en registros y lo usa un solo hilo;
+ * parsear() no guarda estado y lo llaman varios hilos a la vez.
+ */
+interface LectorCatalogo extends AutoCloseable {
+    
+    /**
+     * @return siguiente registro o null al llegar al final del archivo
+     */
+    RegistroCrudo siguiente() throws IOException;
+    
+    /**
+     * Interpretar un registro
+     * @return libro con el ISBN ya normalizado a ISBN-13
+     * @throws IllegalArgumentException con el motivo si el registro no es válido
+     */
+    Libro parsear(byte[] datos);
+    
+    /**
+     * @return posición del lector en el archivo (bytes)
+     */
+    long posicion();
+    
+    /**
+     * @return tamaño del archivo (bytes)
+     */
+    long tamano();
+    
+    @Override
+    void close() throws IOException;
+}
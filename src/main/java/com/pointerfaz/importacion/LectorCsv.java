@@ -0,0 +1,218 @@
+package com.pointerfaz.importacion;
+
+import com.pointerfaz.modelo.Libro;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lector de catálogos en CSV (UTF-8, con cabecera)
+ * Las columnas se reconocen por nombre en la cabecera, en cualquier orden:
+ * isbn, titulo, autor son obligatorias; editorial, categoria, anio_publicacion,
+ * numero_paginas y ubicacion son opcionales. El separador es coma o punto y
+ * coma (se deduce de la cabecera) y los campos entre comillas pueden contener
+ * separadores, comillas dobladas ("") y saltos de línea.
+ */
+class LectorCsv implements LectorCatalogo {
+    
+    private static final String CATEGORIA_POR_DEFECTO = "General";
+    
+    // Nombres aceptados en la cabecera (sin tildes ni mayúsculas) -> campo
+    private static final Map<String, String> ALIAS = Map.ofEntries(
+            Map.entry("isbn", "isbn"),
+            Map.entry("titulo", "titulo"), Map.entry("title", "titulo"),
+            Map.entry("autor", "autor"), Map.entry("author", "autor"),
+            Map.entry("editorial", "editorial"), Map.entry("publisher", "editorial"),
+            Map.entry("categoria", "categoria"), Map.entry("category", "categoria"),
+            Map.entry("anio_publicacion", "anio"), Map.entry("anio", "anio"), Map.entry("ano", "anio"), Map.entry("year", "anio"),
+            Map.entry("numero_paginas", "paginas"), Map.entry("paginas", "paginas"), Map.entry("pages", "paginas"),
+            Map.entry("ubicacion", "ubicacion"), Map.entry("location", "ubicacion"));
+    
+    private final ArchivoMapeado archivo;
+    private final byte separador;
+    private final Map<String, Integer> columnas = new HashMap<>();
+    private long posicion;
+    private long secuencia;
+    
+    /**
+     * @param desde posición donde seguir leyendo (0 o la de un punto de control)
+     */
+    LectorCsv(Path ruta, long desde) throws IOException {
+        this.archivo = new ArchivoMapeado(ruta);
+        try {
+            long inicio = tieneBom() ? 3 : 0;
+            long finCabecera = finRegistro(inicio);
+            String cabecera = new String(archivo.copiar(inicio, finCabecera), StandardCharsets.UTF_8);
+            
+            this.separador = (byte) (cabecera.indexOf(';') >= 0 && cabecera.indexOf(',') < 0 ? ';' : ',');
+            List<String> nombres = separarCampos(cabecera.strip(), (char) separador);
+            for (int i = 0; i < nombres.size(); i++) {
+                String campo = ALIAS.get(simplificar(nombres.get(i)));
+                if (campo != null) {
+                    columnas.putIfAbsent(campo, i);
+                }
+            }
+            for (String obligatoria : new String[]{"isbn", "titulo", "autor"}) {
+                if (!columnas.containsKey(obligatoria)) {
+                    throw new IOException("El CSV no tiene la columna obligatoria '" + obligatoria + "'");
+                }
+            }
+            
+            this.posicion = Math.max(desde, finCabecera);
+        } catch (IOException e) {
+            archivo.close();
+            throw e;
+        }
+    }
+    
+    @Override
+    public RegistroCrudo siguiente() throws IOException {
+        while (posicion < archivo.tamano()) {
+            long inicio = posicion;
+            long fin = finRegistro(inicio);
+            posicion = fin;
+            
+            // Sin el salto de línea final (\n o \r\n)
+            long finDatos = fin;
+            while (finDatos > inicio && (archivo.leer(finDatos - 1) == '\n' || archivo.leer(finDatos - 1) == '\r')) {
+                finDatos--;
+            }
+            if (finDatos > inicio) {
+                return new RegistroCrudo(secuencia++, fin, archivo.copiar(inicio, finDatos));
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Posición justo después del salto de línea que cierra el registro
+     * (los saltos dentro de comillas no cuentan)
+     */
+    private long finRegistro(long inicio) throws IOException {
+        boolean entreComillas = false;
+        long tamano = archivo.tamano();
+        for (long i = inicio; i < tamano; i++) {
+            byte b = archivo.leer(i);
+            if (b == '"') {
+                entreComillas = !entreComillas;
+            } else if (b == '\n' && !entreComillas) {
+                return i + 1;
+            }
+        }
+        return tamano;
+    }
+    
+    @Override
+    public Libro parsear(byte[] datos) {
+        List<String> campos = separarCampos(new String(datos, StandardCharsets.UTF_8), (char) separador);
+        
+        String isbnOriginal = campo(campos, "isbn");
+        String isbn = Isbn.normalizar(isbnOriginal);
+        if (isbn == null) {
+            throw new IllegalArgumentException("ISBN inválido: " + isbnOriginal);
+        }
+        String titulo = campo(campos, "titulo");
+        String autor = campo(campos, "autor");
+        if (titulo.isEmpty() || autor.isEmpty()) {
+            throw new IllegalArgumentException("Falta el título o el autor (ISBN " + isbnOriginal + ")");
+        }
+        String categoria = campo(campos, "categoria");
+        
+        return new Libro(0, isbn, titulo, autor, vacioANulo(campo(campos, "editorial")),
+                categoria.isEmpty() ? CATEGORIA_POR_DEFECTO : categoria,
+                entero(campo(campos, "anio")), entero(campo(campos, "paginas")),
+                vacioANulo(campo(campos, "ubicacion")));
+    }
+    
+    private String campo(List<String> campos, String nombre) {
+        Integer indice = columnas.get(nombre);
+        return indice == null || indice >= campos.size() ? "" : campos.get(indice).strip();
+    }
+    
+    /**
+     * Separar una línea en campos respetando las comillas
+     */
+    static List<String> separarCampos(String linea, char separador) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == separador) {
+                campos.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        campos.add(actual.toString());
+        return campos;
+    }
+    
+    /**
+     * Primer número del texto ("352 p." -> 352); 0 si no hay
+     */
+    static int entero(String texto) {
+        int valor = 0;
+        boolean enNumero = false;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (valor > 100_000_000) {
+                    return 0;
+                }
+                valor = valor * 10 + (c - '0');
+                enNumero = true;
+            } else if (enNumero) {
+                break;
+            }
+        }
+        return valor;
+    }
+    
+    private static String vacioANulo(String texto) {
+        return texto.isEmpty() ? null : texto;
+    }
+    
+    private static String simplificar(String nombre) {
+        String sinTildes = Normalizer.normalize(nombre.strip().toLowerCase(), Normalizer.Form.NFD);
+        return sinTildes.replaceAll("\\p{M}", "").replace(' ', '_');
+    }
+    
+    private boolean tieneBom() throws IOException {
+        return archivo.tamano() >= 3 && archivo.leer(0) == (byte) 0xEF
+                && archivo.leer(1) == (byte) 0xBB && archivo.leer(2) == (byte) 0xBF;
+    }
+    
+    @Override
+    public long posicion() {
+        return posicion;
+    }
+    
+    @Override
+    public long tamano() {
+        return archivo.tamano();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        archivo.close();
+    }
+}
@@ -0,0 +1,239 @@
+package com.pointerfaz.importacion;
+
+import com.pointerfaz.modelo.Libro;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lector de registros MARC21 en binario (ISO 2709)
+ * Cada registro empieza con una cabecera (leader) de 24 bytes cuyos 5 primeros
+ * dígitos son su longitud, sigue un directorio de entradas de 12 bytes
+ * (etiqueta, longitud, posición) y los campos, separados por 0x1E; los
+ * subcampos empiezan con 0x1F y el registro termina con 0x1D.
+ *
+ * Campos usados: 020$a ISBN, 245$a$b título, 100/110/700$a autor,
+ * 264/260$b editorial, 264/260$c (o 008) año, 300$a páginas,
+ * 650$a categoría, 090/050$a signatura (ubicación).
+ */
+class LectorMarc implements LectorCatalogo {
+    
+    private static final byte FIN_CAMPO = 0x1E;
+    private static final byte FIN_REGISTRO = 0x1D;
+    private static final byte SUBCAMPO = 0x1F;
+    private static final int LARGO_CABECERA = 24;
+    private static final String CATEGORIA_POR_DEFECTO = "General";
+    
+    private final ArchivoMapeado archivo;
+    private long posicion;
+    private long secuencia;
+    
+    LectorMarc(Path ruta, long desde) throws IOException {
+        this.archivo = new ArchivoMapeado(ruta);
+        this.posicion = desde;
+    }
+    
+    @Override
+    public RegistroCrudo siguiente() throws IOException {
+        long tamano = archivo.tamano();
+        
+        // Algunos volcados separan los registros con saltos de línea
+        while (posicion < tamano && esEspacio(archivo.leer(posicion))) {
+            posicion++;
+        }
+        if (posicion >= tamano) {
+            return null;
+        }
+        
+        long inicio = posicion;
+        long fin = -1;
+        int longitud = longitudDeclarada(inicio);
+        if (longitud >= LARGO_CABECERA && inicio + longitud <= tamano && archivo.leer(inicio + longitud - 1) == FIN_REGISTRO) {
+            fin = inicio + longitud;
+        } else {
+            // Longitud dañada: cortar en el próximo fin de registro; parsear() lo rechazará
+            for (long i = inicio; i < tamano && fin < 0; i++) {
+                if (archivo.leer(i) == FIN_REGISTRO) {
+                    fin = i + 1;
+                }
+            }
+            if (fin < 0) {
+                fin = tamano;
+            }
+        }
+        
+        posicion = fin;
+        return new RegistroCrudo(secuencia++, fin, archivo.copiar(inicio, fin));
+    }
+    
+    private int longitudDeclarada(long inicio) throws IOException {
+        if (inicio + 5 > archivo.tamano()) {
+            return -1;
+        }
+        int longitud = 0;
+        for (int i = 0; i < 5; i++) {
+            byte b = archivo.leer(inicio + i);
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            longitud = longitud * 10 + (b - '0');
+        }
+        return longitud;
+    }
+    
+    @Override
+    public Libro parsear(byte[] datos) {
+        Map<String, List<Map<Character, String>>> campos = leerCampos(datos);
+        
+        String isbn = null;
+        String isbnOriginal = null;
+        for (Map<Character, String> campo : campos.getOrDefault("020", List.of())) {
+            isbnOriginal = campo.get('a');
+            isbn = Isbn.normalizar(isbnOriginal);
+            if (isbn != null) {
+                break;
+            }
+        }
+        if (isbn == null) {
+            throw new IllegalArgumentException("ISBN inválido o ausente: " + isbnOriginal);
+        }
+        
+        String titulo = limpiar(unir(subcampo(campos, 'a', "245"), subcampo(campos, 'b', "245")));
+        String autor = limpiar(subcampo(campos, 'a', "100", "110", "700", "710"));
+        if (titulo.isEmpty() || autor.isEmpty()) {
+            throw new IllegalArgumentException("Falta el título o el autor (ISBN " + isbnOriginal + ")");
+        }
+        
+        String editorial = limpiar(subcampo(campos, 'b', "264", "260"));
+        String categoria = limpiar(subcampo(campos, 'a', "650"));
+        String ubicacion = limpiar(subcampo(campos, 'a', "090", "050"));
+        
+        int anio = LectorCsv.entero(subcampo(campos, 'c', "264", "260"));
+        if (anio == 0) {
+            // 008/07-10: fecha 1 en los datos fijos
+            String fijos = subcampo(campos, ' ', "008");
+            anio = fijos.length() >= 11 ? LectorCsv.entero(fijos.substring(7, 11)) : 0;
+        }
+        
+        return new Libro(0, isbn, titulo, autor, editorial.isEmpty() ? null : editorial,
+                categoria.isEmpty() ? CATEGORIA_POR_DEFECTO : categoria,
+                anio, LectorCsv.entero(subcampo(campos, 'a', "300")),
+                ubicacion.isEmpty() ? null : ubicacion);
+    }
+    
+    /**
+     * Recorrer el directorio y devolver etiqueta -> ocurrencias -> subcampo -> valor
+     * Los campos de control (00X) no tienen subcampos: su valor va con la clave ' '
+     */
+    private static Map<String, List<Map<Character, String>>> leerCampos(byte[] datos) {
+        if (datos.length < LARGO_CABECERA + 1 || datos[datos.length - 1] != FIN_REGISTRO) {
+            throw new IllegalArgumentException("Registro MARC incompleto");
+        }
+        
+        String cabecera = new String(datos, 0, LARGO_CABECERA, StandardCharsets.US_ASCII);
+        int base = LectorCsv.entero(cabecera.substring(12, 17));
+        if (base <= LARGO_CABECERA || base > datos.length) {
+            throw new IllegalArgumentException("Dirección base inválida en el registro MARC");
+        }
+        // Posición 09: 'a' = Unicode; en otro caso MARC-8, que para texto latino se lee como Latin-1
+        Charset juego = cabecera.charAt(9) == 'a' ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+        
+        Map<String, List<Map<Character, String>>> campos = new HashMap<>();
+        for (int entrada = LARGO_CABECERA; entrada + 12 <= base - 1; entrada += 12) {
+            String directorio = new String(datos, entrada, 12, StandardCharsets.US_ASCII);
+            String etiqueta = directorio.substring(0, 3);
+            int largo = LectorCsv.entero(directorio.substring(3, 7));
+            int desde = base + LectorCsv.entero(directorio.substring(7, 12));
+            if (largo == 0 || desde + largo > datos.length) {
+                throw new IllegalArgumentException("Entrada de directorio inválida: " + directorio);
+            }
+            
+            int hasta = desde + largo;
+            if (datos[hasta - 1] == FIN_CAMPO) {
+                hasta--;
+            }
+            
+            Map<Character, String> subcampos = new HashMap<>();
+            if (etiqueta.startsWith("00")) {
+                subcampos.put(' ', new String(datos, desde, hasta - desde, juego));
+            } else {
+                // Los dos primeros bytes son los indicadores
+                int i = desde;
+                while (i < hasta && datos[i] != SUBCAMPO) {
+                    i++;
+                }
+                while (i < hasta) {
+                    int inicio = i + 1;
+                    int fin = inicio;
+                    while (fin < hasta && datos[fin] != SUBCAMPO) {
+                        fin++;
+                    }
+                    if (fin > inicio) {
+                        char codigo = (char) datos[inicio];
+                        subcampos.putIfAbsent(codigo, new String(datos, inicio + 1, fin - inicio - 1, juego));
+                    }
+                    i = fin;
+                }
+            }
+            campos.computeIfAbsent(etiqueta, k -> new ArrayList<>()).add(subcampos);
+        }
+        return campos;
+    }
+    
+    /**
+     * Primer subcampo con valor entre las etiquetas dadas, en orden de preferencia
+     */
+    private static String subcampo(Map<String, List<Map<Character, String>>> campos, char codigo, String... etiquetas) {
+        for (String etiqueta : etiquetas) {
+            for (Map<Character, String> campo : campos.getOrDefault(etiqueta, List.of())) {
+                String valor = campo.get(codigo);
+                if (valor != null && !valor.isBlank()) {
+                    return valor;
+                }
+            }
+        }
+        return "";
+    }
+    
+    private static String unir(String a, String b) {
+        return b.isEmpty() ? a : a + " " + b;
+    }
+    
+    /**
+     * Quitar la puntuación ISBD del final (" /", " :", ",", ".")
+     */
+    private static String limpiar(String valor) {
+        String limpio = valor.strip();
+        while (!limpio.isEmpty() && " /:;,=".indexOf(limpio.charAt(limpio.length() - 1)) >= 0) {
+            limpio = limpio.substring(0, limpio.length() - 1).strip();
+        }
+        if (limpio.endsWith(".") && !limpio.endsWith("..")) {
+            limpio = limpio.substring(0, limpio.length() - 1).strip();
+        }
+        return limpio;
+    }
+    
+    private static boolean esEspacio(byte b) {
+        return b == '\n' || b == '\r' || b == ' ';
+    }
+    
+    @Override
+    public long posicion() {
+        return posicion;
+    }
+    
+    @Override
+    public long tamano() {
+        return archivo.tamano();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        archivo.close();
+    }
+}
@@ -0,0 +1,144 @@
+package com.pointerfaz.importacion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progreso y rendimiento de una importación de catálogo
+ * La escribe el hilo que inserta y se puede leer desde otro hilo (la interfaz)
+ * mientras la importación avanza.
+ */
+public class MetricasImportacion {
+    
+    // Se guardan los primeros rechazos para mostrarlos; el resto solo se cuenta
+    private static final int MAX_RECHAZOS_GUARDADOS = 1000;
+    
+    private final long totalBytes;
+    private final long bytesIniciales;
+    private final long inicioNanos = System.nanoTime();
+    private volatile long finNanos;
+    
+    private final AtomicLong bytesConfirmados = new AtomicLong();
+    private final AtomicLong registrosLeidos = new AtomicLong();
+    private final AtomicLong insertados = new AtomicLong();
+    private final AtomicLong duplicados = new AtomicLong();
+    private final AtomicLong rechazados = new AtomicLong();
+    private final List<String> rechazos = new ArrayList<>();
+    
+    /**
+     * @param totalBytes tamaño del archivo
+     * @param bytesIniciales posición desde la que se reanuda (0 si empieza de cero)
+     */
+    MetricasImportacion(long totalBytes, long bytesIniciales) {
+        this.totalBytes = totalBytes;
+        this.bytesIniciales = bytesIniciales;
+        this.bytesConfirmados.set(bytesIniciales);
+    }
+    
+    void registroLeido() {
+        registrosLeidos.incrementAndGet();
+    }
+    
+    void sumarInsertados(int cantidad) {
+        insertados.addAndGet(cantidad);
+    }
+    
+    void duplicado(String isbn) {
+        duplicados.incrementAndGet();
+        rechazar("ISBN repetido en el archivo: " + isbn);
+    }
+    
+    void rechazar(String motivo) {
+        rechazados.incrementAndGet();
+        synchronized (rechazos) {
+            if (rechazos.size() < MAX_RECHAZOS_GUARDADOS) {
+                rechazos.add(motivo);
+            }
+        }
+    }
+    
+    void confirmarHasta(long posicion) {
+        bytesConfirmados.set(posicion);
+    }
+    
+    void terminar() {
+        finNanos = System.nanoTime();
+    }
+    
+    /**
+     * @return porcentaje del archivo ya guardado en la base de datos (0-100)
+     */
+    public int getPorcentaje() {
+        return totalBytes == 0 ? 100 : (int) (bytesConfirmados.get() * 100 / totalBytes);
+    }
+    
+    /**
+     * @return registros procesados por segundo en esta ejecución
+     */
+    public double getRegistrosPorSegundo() {
+        double segundos = getSegundos();
+        return segundos <= 0 ? 0 : registrosLeidos.get() / segundos;
+    }
+    
+    /**
+     * @return megabytes del archivo procesados por segundo en esta ejecución
+     */
+    public double getMegabytesPorSegundo() {
+        double segundos = getSegundos();
+        return segundos <= 0 ? 0 : (bytesConfirmados.get() - bytesIniciales) / 1048576.0 / segundos;
+    }
+    
+    public double getSegundos() {
+        long fin = finNanos != 0 ? finNanos : System.nanoTime();
+        return (fin - inicioNanos) / 1_000_000_000.0;
+    }
+    
+    public long getRegistrosLeidos() {
+        return registrosLeidos.get();
+    }
+    
+    public long getInsertados() {
+        return insertados.get();
+    }
+    
+    public long getDuplicados() {
+        return duplicados.get();
+    }
+    
+    /**
+     * @return registros no importados: inválidos, repetidos o rechazados por la base de datos
+     */
+    public long getRechazados() {
+        return rechazados.get();
+    }
+    
+    /**
+     * @return motivo de los primeros rechazos (como máximo 1000)
+     */
+    public List<String> getRechazos() {
+        synchronized (rechazos) {
+            return new ArrayList<>(rechazos);
+        }
+    }
+    
+    /**
+     * @return true si la ejecución continuó una importación interrumpida
+     */
+    public boolean isReanudada() {
+        return bytesIniciales > 0;
+    }
+    
+    public boolean isTerminada() {
+        return finNanos != 0;
+    }
+    
+    /**
+     * @return resumen de una línea para mostrar o registrar
+     */
+    public String getResumen() {
+        return String.format("%d%% - %d registros, %d insertados, %d rechazados (%d repetidos) - %.0f registros/s, %.1f MB/s",
+                getPorcentaje(), getRegistrosLeidos(), getInsertados(), getRechazados(), getDuplicados(),
+                getRegistrosPorSegundo(), getMegabytesPorSegundo());
+    }
+}
@@ -0,0 +1,67 @@
+package com.pointerfaz.importacion;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Punto de control de una importación
+ * Guarda la posición del archivo hasta la que todo está confirmado en la base
+ * de datos, junto con el tamaño y la fecha del archivo para no reanudar sobre
+ * un archivo distinto. Se escribe en un temporal y se renombra, así un corte
+ * a mitad de escritura deja el punto de control anterior intacto.
+ */
+final class PuntoControl {
+    
+    private PuntoControl() {
+    }
+    
+    /**
+     * @return posición desde la que reanudar, 0 si no hay punto de control válido
+     */
+    static long leer(Path puntoControl, Path archivo) throws IOException {
+        if (!Files.exists(puntoControl)) {
+            return 0;
+        }
+        
+        Properties datos = new Properties();
+        try (Reader lector = Files.newBufferedReader(puntoControl, StandardCharsets.UTF_8)) {
+            datos.load(lector);
+        }
+        
+        if (!huella(archivo).equals(datos.getProperty("archivo"))) {
+            System.out.println("El punto de control " + puntoControl + " es de otro archivo; se importa desde el principio");
+            return 0;
+        }
+        try {
+            return Long.parseLong(datos.getProperty("posicion", "0"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    static void guardar(Path puntoControl, Path archivo, long posicion) throws IOException {
+        Properties datos = new Properties();
+        datos.setProperty("archivo", huella(archivo));
+        datos.setProperty("posicion", String.valueOf(posicion));
+        
+        Path temporal = puntoControl.resolveSibling(puntoControl.getFileName() + ".tmp");
+        try (Writer escritor = Files.newBufferedWriter(temporal, StandardCharsets.UTF_8)) {
+            datos.store(escritor, "Importación de catálogo");
+        }
+        Files.move(temporal, puntoControl, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    static void borrar(Path puntoControl) throws IOException {
+        Files.deleteIfExists(puntoControl);
+    }
+    
+    private static String huella(Path archivo) throws IOException {
+        return archivo.toAbsolutePath().normalize() + "|" + Files.size(archivo) + "|" + Files.getLastModifiedTime(archivo).toMillis();
+    }
+}
@@ -0,0 +1,22 @@
+package com.pointerfaz.importacion;
+
+/**
+ * Registro tal como sale del archivo, antes de interpretarlo
+ * La secuencia y la posición final permiten calcular hasta dónde está
+ * todo guardado aunque los hilos terminen los registros en otro orden.
+ */
+class RegistroCrudo {
+    
+    // Marca de fin de archivo que circula por las colas
+    static final RegistroCrudo FIN = new RegistroCrudo(-1, -1, null);
+    
+    final long secuencia;
+    final long fin;
+    final byte[] datos;
+    
+    RegistroCrudo(long secuencia, long fin, byte[] datos) {
+        this.secuencia = secuencia;
+        this.fin = fin;
+        this.datos = datos;
+    }
+}
@@ -0,0 +1,50 @@
+package com.pointerfaz.importacion;
+
+import java.util.TreeMap;
+
+/**
+ * Posición del archivo hasta la que todos los registros están guardados
+ * Los intérpretes terminan los registros en otro orden que el del archivo:
+ * la posición solo avanza por el tramo contiguo desde el primer registro,
+ * así un registro pendiente detiene el avance aunque los siguientes estén listos.
+ */
+class TramoConfirmado {
+    
+    // Registros terminados fuera de orden: secuencia -> posición final
+    private final TreeMap<Long, Long> terminados = new TreeMap<>();
+    private long esperada;
+    private long confirmado;
+    
+    /**
+     * @param desde posición desde la que empezó la lectura (la secuencia empieza en 0)
+     */
+    TramoConfirmado(long desde) {
+        this.confirmado = desde;
+    }
+    
+    /**
+     * Anotar un registro guardado
+     * @param secuencia número del registro en esta lectura
+     * @param fin posición justo después del registro
+     * @return posición confirmada tras anotarlo
+     */
+    long terminar(long secuencia, long fin) {
+        terminados.put(secuencia, fin);
+        while (terminados.containsKey(esperada)) {
+            confirmado = terminados.remove(esperada);
+            esperada++;
+        }
+        return confirmado;
+    }
+    
+    long getConfirmado() {
+        return confirmado;
+    }
+    
+    /**
+     * @return registros terminados que esperan a uno anterior
+     */
+    int getEnEspera() {
+        return terminados.size();
+    }
+}
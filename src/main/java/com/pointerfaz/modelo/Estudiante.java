@@ -55,6 +55,19 @@ public class Estudiante extends Persona {
         this.estado = "Activo";
     }
     
+    /**
+     * Constructor de copia
+     * 
+     * @param otro estudiante a copiar
+     */
+    public Estudiante(Estudiante otro) {
+        super(otro);
+        this.codigo = otro.codigo;
+        this.carrera = otro.carrera;
+        this.semestre = otro.semestre;
+        this.estado = otro.estado;
+    }
+    
     // Métodos getter y setter específicos de Estudiante
     
     public String getCodigo() {
@@ -56,6 +56,19 @@ public class EstudianteGraduado extends Estudiante {
         setEstado("Graduado");
     }
     
+    /**
+     * Constructor de copia
+     * 
+     * @param otro graduado a copiar
+     */
+    public EstudianteGraduado(EstudianteGraduado otro) {
+        super(otro);
+        this.tituloObtenido = otro.tituloObtenido;
+        this.fechaGraduacion = otro.fechaGraduacion;
+        this.programaPosgrado = otro.programaPosgrado;
+        this.empresaTrabajo = otro.empresaTrabajo;
+    }
+    
     // Métodos getter y setter específicos
     
     public String getTituloObtenido() {
@@ -70,6 +70,18 @@ public class Libro {
         this.esReferencia = false;
     }
     
+    /**
+     * Constructor de copia
+     * 
+     * @param otro libro a copiar
+     */
+    public Libro(Libro otro) {
+        this(otro.id, otro.isbn, otro.titulo, otro.autor, otro.editorial,
+             otro.categoria, otro.anioPublicacion, otro.numeroPaginas, otro.ubicacion);
+        this.estado = otro.estado;
+        this.esReferencia = otro.esReferencia;
+    }
+    
     // Métodos getter y setter
     
     public int getId() {
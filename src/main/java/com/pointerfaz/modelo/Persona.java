@@ -50,6 +50,15 @@ public class Persona {
         this.email = email;
     }
     
+    /**
+     * Constructor de copia
+     * 
+     * @param otra persona a copiar
+     */
+    public Persona(Persona otra) {
+        this(otra.id, otra.nombres, otra.apellidos, otra.email, otra.telefono);
+    }
+    
     // Métodos getter y setter para demostrar encapsulamiento
     
     public int getId() {
@@ -74,6 +74,20 @@ public class Prestamo {
         this.multa = 0.0;
     }
     
+    /**
+     * Constructor de copia
+     * 
+     * @param otro préstamo a copiar
+     */
+    public Prestamo(Prestamo otro) {
+        this(otro.id, otro.libroId, otro.usuarioId, otro.tipoUsuario,
+             otro.fechaPrestamo, otro.fechaDevolucionEsperada);
+        this.fechaDevolucionReal = otro.fechaDevolucionReal;
+        this.estado = otro.estado;
+        this.observaciones = otro.observaciones;
+        this.multa = otro.multa;
+    }
+    
     // Métodos getter y setter
     
     public int getId() {
@@ -65,6 +65,21 @@ public class Profesor extends Persona {
         this.aniosExperiencia = aniosExperiencia;
     }
     
+    /**
+     * Constructor de copia
+     * 
+     * @param otro profesor a copiar
+     */
+    public Profesor(Profesor otro) {
+        super(otro);
+        this.codigoEmpleado = otro.codigoEmpleado;
+        this.departamento = otro.departamento;
+        this.especialidad = otro.especialidad;
+        this.tipoContrato = otro.tipoContrato;
+        this.titulo = otro.titulo;
+        this.aniosExperiencia = otro.aniosExperiencia;
+    }
+    
     // Métodos getter y setter específicos
     
     public String getCodigoEmpleado() {
@@ -52,6 +52,18 @@ public class Constantes {
     public static final int MARGEN_ESTANDAR = 20;
     public static final int MARGEN_PEQUENO = 10;
     
+    // Filas que se cargan de una vez en las tablas principales; el resto al desplazarse
+    public static final int TAMANO_PAGINA_TABLA = 200;
+    
+    // Resultados como máximo de la búsqueda mientras se escribe (no se paginan)
+    public static final int MAX_RESULTADOS_BUSQUEDA = 1000;
+    
+    // Sugerencias que se muestran debajo de las cajas de búsqueda
+    public static final int MAX_SUGERENCIAS = 8;
+    
+    // Primera opción de los filtros por faceta (sin filtrar)
+    public static final String FACETA_TODAS = "Todas";
+    
     // BORDES ELEGANTES
     public static final Border BORDE_CAMPO_TEXTO = BorderFactory.createCompoundBorder(
         BorderFactory.createLineBorder(COLOR_SECUNDARIO, 1),
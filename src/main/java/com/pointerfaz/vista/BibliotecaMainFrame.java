@@ -1,8 +1,13 @@
 package com.pointerfaz.vista;
 
+import com.pointerfaz.busqueda.IndiceLibros;
+import com.pointerfaz.busqueda.ResultadoBusqueda;
 import com.pointerfaz.controlador.UsuarioControladorNuevo;
 import com.pointerfaz.controlador.LibroControladorNuevo;
 import com.pointerfaz.controlador.PrestamoControladorNuevo;
+import com.pointerfaz.dao.EstadisticasCatalogo;
+import com.pointerfaz.dao.Pagina;
+import com.pointerfaz.importacion.MetricasImportacion;
 import com.pointerfaz.modelo.Libro;
 import com.pointerfaz.modelo.Persona;
 import com.pointerfaz.modelo.Prestamo;
@@ -12,6 +17,11 @@ import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 
 /**
@@ -50,6 +60,13 @@ public class BibliotecaMainFrame extends JFrame {
     private JButton btnAgregarLibro;
     private JButton btnEditarLibro;
     private JButton btnEliminarLibro;
+    private JButton btnImportarCatalogo;
+    
+    // Filtros por faceta de la búsqueda de libros: faceta -> combo con "valor (cantidad)"
+    private final Map<String, JComboBox<String>> combosFacetasLibros = new LinkedHashMap<>();
+    private boolean actualizandoFacetas;
+    // Solo desde el hilo de eventos: evita lanzar otra carga del índice mientras hay una en curso
+    private boolean cargandoIndiceLibros;
     
     // Componentes de préstamos
     private JTable tablaPrestamos;
@@ -58,6 +75,14 @@ public class BibliotecaMainFrame extends JFrame {
     private JButton btnDevolverLibro;
     private JButton btnRenovarPrestamo;
     
+    // Paginación de las tablas principales: token de la página siguiente, null si ya se cargó todo
+    private String siguienteUsuarios;
+    private String siguienteLibros;
+    private String siguientePrestamos;
+    
+    // Búsqueda de usuarios en curso (se filtra fuera del hilo de eventos)
+    private SwingWorker<List<Persona>, Void> busquedaUsuarios;
+    
     // Panel de información
     private JLabel lblUsuarioActual;
     private JLabel lblEstadisticas;
@@ -83,6 +108,32 @@ public class BibliotecaMainFrame extends JFrame {
         usuarioControlador = new UsuarioControladorNuevo();
         libroControlador = new LibroControladorNuevo();
         prestamoControlador = new PrestamoControladorNuevo();
+        
+        // Cargar el índice de búsqueda de libros y las sugerencias en segundo plano
+        cargarIndiceLibros();
+    }
+    
+    /**
+     * Cargar el índice de búsqueda en segundo plano, salvo que ya se esté cargando
+     * Si la base de datos no respondió, la próxima búsqueda de libros lo vuelve a intentar
+     */
+    private void cargarIndiceLibros() {
+        if (cargandoIndiceLibros) {
+            return;
+        }
+        cargandoIndiceLibros = true;
+        Thread cargaIndice = new Thread(() -> {
+            boolean cargado = libroControlador.prepararBusqueda();
+            SwingUtilities.invokeLater(() -> {
+                cargandoIndiceLibros = false;
+                if (cargado) {
+                    alCargarIndiceLibros();
+                }
+            });
+            usuarioControlador.prepararBusqueda();
+        }, "indice-libros");
+        cargaIndice.setDaemon(true);
+        cargaIndice.start();
     }
     
     /**
@@ -194,6 +245,11 @@ public class BibliotecaMainFrame extends JFrame {
         
         JScrollPane scrollUsuarios = new JScrollPane(tablaUsuarios);
         scrollUsuarios.setBorder(BorderFactory.createLineBorder(Constantes.COLOR_SECUNDARIO, 1));
+        scrollUsuarios.getVerticalScrollBar().addAdjustmentListener(e -> {
+            if (siguienteUsuarios != null && cercaDelFinal(e)) {
+                cargarPaginaUsuarios();
+            }
+        });
         
         // Panel de botones
         JPanel panelBotonesUsuarios = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 15));
@@ -246,6 +302,20 @@ public class BibliotecaMainFrame extends JFrame {
         panelSuperiorLibros.add(lblTituloLibros, BorderLayout.WEST);
         panelSuperiorLibros.add(panelBusquedaLibros, BorderLayout.EAST);
         
+        // Filtros con la cantidad de libros de cada valor
+        JPanel panelFacetasLibros = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        panelFacetasLibros.setBackground(Constantes.COLOR_FONDO_PRINCIPAL);
+        
+        JLabel lblFiltrarLibros = new JLabel("Filtrar:");
+        lblFiltrarLibros.setFont(Constantes.FUENTE_NORMAL);
+        panelFacetasLibros.add(lblFiltrarLibros);
+        agregarComboFaceta(panelFacetasLibros, "Categoría", IndiceLibros.FACETA_CATEGORIA);
+        agregarComboFaceta(panelFacetasLibros, "Estado", IndiceLibros.FACETA_ESTADO);
+        agregarComboFaceta(panelFacetasLibros, "Década", IndiceLibros.FACETA_DECADA);
+        agregarComboFaceta(panelFacetasLibros, "Referencia", IndiceLibros.FACETA_REFERENCIA);
+        
+        panelSuperiorLibros.add(panelFacetasLibros, BorderLayout.SOUTH);
+        
         // Tabla de libros
         String[] columnasLibros = {"ID", "ISBN", "Título", "Autor", "Categoría", "Año", "Estado"};
         modeloTablaLibros = new DefaultTableModel(columnasLibros, 0) {
@@ -260,6 +330,11 @@ public class BibliotecaMainFrame extends JFrame {
         
         JScrollPane scrollLibros = new JScrollPane(tablaLibros);
         scrollLibros.setBorder(BorderFactory.createLineBorder(Constantes.COLOR_SECUNDARIO, 1));
+        scrollLibros.getVerticalScrollBar().addAdjustmentListener(e -> {
+            if (siguienteLibros != null && cercaDelFinal(e)) {
+                cargarPaginaLibros();
+            }
+        });
         
         // Panel de botones
         JPanel panelBotonesLibros = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 15));
@@ -268,10 +343,12 @@ public class BibliotecaMainFrame extends JFrame {
         btnAgregarLibro = crearBotonElegante("➕ Agregar Libro", Constantes.COLOR_EXITO);
         btnEditarLibro = crearBotonElegante("✏️ Editar Libro", Constantes.COLOR_ACCENT);
         btnEliminarLibro = crearBotonElegante("🗑️ Eliminar Libro", Constantes.COLOR_ERROR);
+        btnImportarCatalogo = crearBotonElegante("📥 Importar Catálogo", Constantes.COLOR_ACCENT);
         
         panelBotonesLibros.add(btnAgregarLibro);
         panelBotonesLibros.add(btnEditarLibro);
         panelBotonesLibros.add(btnEliminarLibro);
+        panelBotonesLibros.add(btnImportarCatalogo);
         
         panelLibros.add(panelSuperiorLibros, BorderLayout.NORTH);
         panelLibros.add(scrollLibros, BorderLayout.CENTER);
@@ -312,6 +389,11 @@ public class BibliotecaMainFrame extends JFrame {
         
         JScrollPane scrollPrestamos = new JScrollPane(tablaPrestamos);
         scrollPrestamos.setBorder(BorderFactory.createLineBorder(Constantes.COLOR_SECUNDARIO, 1));
+        scrollPrestamos.getVerticalScrollBar().addAdjustmentListener(e -> {
+            if (siguientePrestamos != null && cercaDelFinal(e)) {
+                cargarPaginaPrestamos();
+            }
+        });
         
         // Panel de botones
         JPanel panelBotonesPrestamos = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 15));
@@ -481,6 +563,15 @@ public class BibliotecaMainFrame extends JFrame {
         });
     }
     
+    /**
+     * Indica si el desplazamiento llegó a la última pantalla de filas cargadas
+     */
+    private boolean cercaDelFinal(java.awt.event.AdjustmentEvent evento) {
+        JScrollBar barra = (JScrollBar) evento.getAdjustable();
+        return !evento.getValueIsAdjusting()
+            && barra.getValue() + barra.getVisibleAmount() >= barra.getMaximum() - barra.getVisibleAmount();
+    }
+    
     /**
      * Configura las propiedades de la ventana
      */
@@ -503,26 +594,33 @@ public class BibliotecaMainFrame extends JFrame {
         btnEditarUsuario.addActionListener(e -> editarUsuario());
         btnEliminarUsuario.addActionListener(e -> eliminarUsuario());
         
-        // Búsqueda en tiempo real para usuarios
+        // Búsqueda en tiempo real para usuarios (las flechas solo mueven la selección de sugerencias)
         txtBuscarUsuario.addKeyListener(new java.awt.event.KeyAdapter() {
             @Override
             public void keyReleased(java.awt.event.KeyEvent evt) {
-                buscarUsuarios();
+                if (!evt.isActionKey()) {
+                    buscarUsuarios();
+                }
             }
         });
+        new SugerenciasPopup(txtBuscarUsuario, usuarioControlador::sugerirUsuarios, texto -> buscarUsuarios());
         
         // Eventos de libros
         btnAgregarLibro.addActionListener(e -> agregarLibro());
         btnEditarLibro.addActionListener(e -> editarLibro());
         btnEliminarLibro.addActionListener(e -> eliminarLibro());
+        btnImportarCatalogo.addActionListener(e -> importarCatalogo());
         
         // Búsqueda en tiempo real para libros
         txtBuscarLibro.addKeyListener(new java.awt.event.KeyAdapter() {
             @Override
             public void keyReleased(java.awt.event.KeyEvent evt) {
-                buscarLibros();
+                if (!evt.isActionKey()) {
+                    buscarLibros();
+                }
             }
         });
+        new SugerenciasPopup(txtBuscarLibro, libroControlador::sugerirLibros, texto -> buscarLibros());
         
         // Eventos de préstamos
         btnNuevoPrestamo.addActionListener(e -> nuevoPrestamo());
@@ -561,23 +659,35 @@ public class BibliotecaMainFrame extends JFrame {
      */
     private void cargarUsuarios() {
         modeloTablaUsuarios.setRowCount(0);
+        siguienteUsuarios = null;
+        cargarPaginaUsuarios();
+    }
+    
+    /**
+     * Agrega a la tabla la siguiente página de usuarios (la primera si la tabla está vacía)
+     */
+    private void cargarPaginaUsuarios() {
+        Pagina<Persona> pagina = usuarioControlador.paginarUsuarios("id", siguienteUsuarios, Constantes.TAMANO_PAGINA_TABLA);
+        siguienteUsuarios = pagina.getSiguiente();
         
-        usuarioControlador.listarUsuarios().forEach(usuario -> {
-            Object[] fila = {
-                usuario.getId(),
-                usuario.getClass().getSimpleName(),
-                usuario instanceof com.pointerfaz.modelo.Estudiante ? 
-                    ((com.pointerfaz.modelo.Estudiante) usuario).getCodigo() : 
-                    (usuario instanceof com.pointerfaz.modelo.Profesor ? 
-                        ((com.pointerfaz.modelo.Profesor) usuario).getCodigoEmpleado() : "N/A"),
-                usuario.getNombres(),
-                usuario.getApellidos(),
-                usuario.getEmail(),
-                usuario instanceof com.pointerfaz.modelo.Estudiante ? 
-                    ((com.pointerfaz.modelo.Estudiante) usuario).getEstado() : "Activo"
-            };
-            modeloTablaUsuarios.addRow(fila);
-        });
+        pagina.getElementos().forEach(this::agregarFilaUsuario);
+    }
+    
+    private void agregarFilaUsuario(Persona usuario) {
+        Object[] fila = {
+            usuario.getId(),
+            usuario.getClass().getSimpleName(),
+            usuario instanceof com.pointerfaz.modelo.Estudiante ? 
+                ((com.pointerfaz.modelo.Estudiante) usuario).getCodigo() : 
+                (usuario instanceof com.pointerfaz.modelo.Profesor ? 
+                    ((com.pointerfaz.modelo.Profesor) usuario).getCodigoEmpleado() : "N/A"),
+            usuario.getNombres(),
+            usuario.getApellidos(),
+            usuario.getEmail(),
+            usuario instanceof com.pointerfaz.modelo.Estudiante ? 
+                ((com.pointerfaz.modelo.Estudiante) usuario).getEstado() : "Activo"
+        };
+        modeloTablaUsuarios.addRow(fila);
     }
     
     /**
@@ -585,8 +695,18 @@ public class BibliotecaMainFrame extends JFrame {
      */
     private void cargarLibros() {
         modeloTablaLibros.setRowCount(0);
+        siguienteLibros = null;
+        cargarPaginaLibros();
+    }
+    
+    /**
+     * Agrega a la tabla la siguiente página de libros (la primera si la tabla está vacía)
+     */
+    private void cargarPaginaLibros() {
+        Pagina<Libro> pagina = libroControlador.paginarLibros("id", siguienteLibros, Constantes.TAMANO_PAGINA_TABLA);
+        siguienteLibros = pagina.getSiguiente();
         
-        libroControlador.listarLibros().forEach(libro -> {
+        pagina.getElementos().forEach(libro -> {
             Object[] fila = {
                 libro.getId(),
                 libro.getIsbn(),
@@ -605,8 +725,18 @@ public class BibliotecaMainFrame extends JFrame {
      */
     private void cargarPrestamos() {
         modeloTablaPrestamos.setRowCount(0);
+        siguientePrestamos = null;
+        cargarPaginaPrestamos();
+    }
+    
+    /**
+     * Agrega a la tabla la siguiente página de préstamos (la primera si la tabla está vacía)
+     */
+    private void cargarPaginaPrestamos() {
+        Pagina<Prestamo> pagina = prestamoControlador.paginarPrestamos("id", siguientePrestamos, Constantes.TAMANO_PAGINA_TABLA);
+        siguientePrestamos = pagina.getSiguiente();
         
-        prestamoControlador.listarPrestamos().forEach(prestamo -> {
+        pagina.getElementos().forEach(prestamo -> {
             Object[] fila = {
                 prestamo.getId(),
                 "Libro ID: " + prestamo.getLibroId(),
@@ -762,126 +892,191 @@ public class BibliotecaMainFrame extends JFrame {
     
     /**
      * Buscar usuarios en tiempo real
+     * Se filtra en el índice en memoria fuera del hilo de eventos; si se sigue
+     * escribiendo, el resultado de la búsqueda anterior se descarta
      */
     private void buscarUsuarios() {
-        String textoBusqueda = txtBuscarUsuario.getText().trim().toLowerCase();
+        String textoBusqueda = txtBuscarUsuario.getText();
         
-        // Limpiar tabla
-        modeloTablaUsuarios.setRowCount(0);
+        if (busquedaUsuarios != null) {
+            busquedaUsuarios.cancel(false);
+        }
         
         // Si no hay texto de búsqueda, mostrar todos
-        if (textoBusqueda.isEmpty()) {
+        if (textoBusqueda.trim().isEmpty()) {
+            busquedaUsuarios = null;
             cargarUsuarios();
             return;
         }
         
-        // Filtrar usuarios que coincidan con la búsqueda
-        usuarioControlador.listarUsuarios().forEach(usuario -> {
-            boolean coincide = false;
-            
-            // Buscar en nombres
-            if (usuario.getNombres() != null && 
-                usuario.getNombres().toLowerCase().contains(textoBusqueda)) {
-                coincide = true;
-            }
-            
-            // Buscar en apellidos
-            if (usuario.getApellidos() != null && 
-                usuario.getApellidos().toLowerCase().contains(textoBusqueda)) {
-                coincide = true;
-            }
-            
-            // Buscar en email
-            if (usuario.getEmail() != null && 
-                usuario.getEmail().toLowerCase().contains(textoBusqueda)) {
-                coincide = true;
-            }
-            
-            // Buscar en código
-            String codigo = "";
-            if (usuario instanceof com.pointerfaz.modelo.Estudiante) {
-                codigo = ((com.pointerfaz.modelo.Estudiante) usuario).getCodigo();
-            } else if (usuario instanceof com.pointerfaz.modelo.Profesor) {
-                codigo = ((com.pointerfaz.modelo.Profesor) usuario).getCodigoEmpleado();
-            }
-            if (codigo != null && codigo.toLowerCase().contains(textoBusqueda)) {
-                coincide = true;
+        busquedaUsuarios = new SwingWorker<List<Persona>, Void>() {
+            @Override
+            protected List<Persona> doInBackground() {
+                // Nombres, apellidos, email y código, sin tildes; la última palabra puede estar incompleta
+                return usuarioControlador.buscarEnDirectorio(textoBusqueda, Constantes.MAX_RESULTADOS_BUSQUEDA);
             }
             
-            // Si coincide, agregar a la tabla
-            if (coincide) {
-                Object[] fila = {
-                    usuario.getId(),
-                    usuario.getClass().getSimpleName(),
-                    codigo,
-                    usuario.getNombres(),
-                    usuario.getApellidos(),
-                    usuario.getEmail(),
-                    usuario instanceof com.pointerfaz.modelo.Estudiante ? 
-                        ((com.pointerfaz.modelo.Estudiante) usuario).getEstado() : "Activo"
-                };
-                modeloTablaUsuarios.addRow(fila);
+            @Override
+            protected void done() {
+                if (isCancelled() || busquedaUsuarios != this) {
+                    return;
+                }
+                busquedaUsuarios = null;
+                
+                try {
+                    List<Persona> encontrados = get();
+                    
+                    // Los resultados de búsqueda no se paginan
+                    modeloTablaUsuarios.setRowCount(0);
+                    siguienteUsuarios = null;
+                    encontrados.forEach(BibliotecaMainFrame.this::agregarFilaUsuario);
+                    
+                } catch (Exception e) {
+                    System.out.println(e.getMessage());
+                }
             }
-        });
+        };
+        busquedaUsuarios.execute();
     }
     
     /**
      * Buscar libros en tiempo real
      */
     private void buscarLibros() {
-        String textoBusqueda = txtBuscarLibro.getText().trim().toLowerCase();
+        String textoBusqueda = txtBuscarLibro.getText();
+        Map<String, String> filtros = filtrosLibros();
+        
+        // Mientras el índice se carga (o si no se pudo cargar, hasta reintentarlo) se muestra el listado;
+        // alCargarIndiceLibros repite la búsqueda
+        if (!libroControlador.isBusquedaLista()) {
+            cargarIndiceLibros();
+            cargarLibros();
+            return;
+        }
         
         // Limpiar tabla
         modeloTablaLibros.setRowCount(0);
         
-        // Si no hay texto de búsqueda, mostrar todos
-        if (textoBusqueda.isEmpty()) {
+        // Buscar en el índice en memoria (título, autor, editorial, ISBN y categoría, sin tildes), por relevancia
+        ResultadoBusqueda resultado = libroControlador.buscarConFacetas(textoBusqueda, filtros, Constantes.MAX_RESULTADOS_BUSQUEDA);
+        actualizarFacetasLibros(resultado);
+        
+        // Si no hay texto de búsqueda ni filtros, mostrar todos
+        if (textoBusqueda.trim().isEmpty() && filtros.isEmpty()) {
             cargarLibros();
             return;
         }
         
-        // Filtrar libros que coincidan con la búsqueda
-        libroControlador.listarLibros().forEach(libro -> {
-            boolean coincide = false;
-            
-            // Buscar en título
-            if (libro.getTitulo() != null && 
-                libro.getTitulo().toLowerCase().contains(textoBusqueda)) {
-                coincide = true;
-            }
-            
-            // Buscar en autor
-            if (libro.getAutor() != null && 
-                libro.getAutor().toLowerCase().contains(textoBusqueda)) {
-                coincide = true;
-            }
-            
-            // Buscar en ISBN
-            if (libro.getIsbn() != null && 
-                libro.getIsbn().toLowerCase().contains(textoBusqueda)) {
-                coincide = true;
-            }
-            
-            // Buscar en categoría
-            if (libro.getCategoria() != null && 
-                libro.getCategoria().toLowerCase().contains(textoBusqueda)) {
-                coincide = true;
+        // Los resultados de búsqueda no se paginan
+        siguienteLibros = null;
+        
+        List<Libro> encontrados = resultado.getLibros();
+        
+        // Sin coincidencias exactas, probar con errores de escritura en título y autor
+        if (encontrados.isEmpty() && filtros.isEmpty()) {
+            encontrados = libroControlador.buscarLibrosAproximado(textoBusqueda, Constantes.MAX_RESULTADOS_BUSQUEDA);
+        }
+        
+        encontrados.forEach(libro -> {
+            Object[] fila = {
+                libro.getId(),
+                libro.getIsbn(),
+                libro.getTitulo(),
+                libro.getAutor(),
+                libro.getCategoria(),
+                libro.getAnioPublicacion(),
+                libro.getEstado()
+            };
+            modeloTablaLibros.addRow(fila);
+        });
+    }
+    
+    private void agregarComboFaceta(JPanel panel, String etiqueta, String faceta) {
+        JLabel lblFaceta = new JLabel(etiqueta + ":");
+        lblFaceta.setFont(Constantes.FUENTE_NORMAL);
+        
+        JComboBox<String> combo = new JComboBox<>(new String[]{Constantes.FACETA_TODAS});
+        combo.setFont(Constantes.FUENTE_NORMAL);
+        combo.addActionListener(e -> {
+            if (!actualizandoFacetas) {
+                buscarLibros();
             }
-            
-            // Si coincide, agregar a la tabla
-            if (coincide) {
-                Object[] fila = {
-                    libro.getId(),
-                    libro.getIsbn(),
-                    libro.getTitulo(),
-                    libro.getAutor(),
-                    libro.getCategoria(),
-                    libro.getAnioPublicacion(),
-                    libro.getEstado()
-                };
-                modeloTablaLibros.addRow(fila);
+        });
+        
+        combosFacetasLibros.put(faceta, combo);
+        panel.add(lblFaceta);
+        panel.add(combo);
+    }
+    
+    /**
+     * Valores elegidos en los combos de facetas (sin los que están en "Todas")
+     */
+    private Map<String, String> filtrosLibros() {
+        Map<String, String> filtros = new LinkedHashMap<>();
+        combosFacetasLibros.forEach((faceta, combo) -> {
+            String elegido = (String) combo.getSelectedItem();
+            if (elegido != null && !elegido.equals(Constantes.FACETA_TODAS)) {
+                filtros.put(faceta, valorFaceta(elegido));
             }
         });
+        return filtros;
+    }
+    
+    /**
+     * Contar los libros por faceta sin buscar nada (al terminar de cargar el índice)
+     */
+    private void refrescarFacetasLibros() {
+        actualizarFacetasLibros(libroControlador.buscarConFacetas("", filtrosLibros(), 0));
+    }
+    
+    /**
+     * Al terminar de cargar el índice: buscar lo que se escribió mientras cargaba
+     * o, si no hay nada escrito, solo contar las facetas
+     */
+    private void alCargarIndiceLibros() {
+        if (txtBuscarLibro.getText().trim().isEmpty() && filtrosLibros().isEmpty()) {
+            refrescarFacetasLibros();
+        } else {
+            buscarLibros();
+        }
+    }
+    
+    /**
+     * Poner en los combos los valores con sus cantidades, manteniendo lo elegido
+     */
+    private void actualizarFacetasLibros(ResultadoBusqueda resultado) {
+        actualizandoFacetas = true;
+        try {
+            combosFacetasLibros.forEach((faceta, combo) -> {
+                String elegido = (String) combo.getSelectedItem();
+                String valorElegido = elegido == null || elegido.equals(Constantes.FACETA_TODAS) ? null : valorFaceta(elegido);
+                
+                combo.removeAllItems();
+                combo.addItem(Constantes.FACETA_TODAS);
+                String seleccion = Constantes.FACETA_TODAS;
+                for (Map.Entry<String, Integer> valor : resultado.getFaceta(faceta).entrySet()) {
+                    String item = valor.getKey() + " (" + valor.getValue() + ")";
+                    combo.addItem(item);
+                    if (valor.getKey().equals(valorElegido)) {
+                        seleccion = item;
+                    }
+                }
+                // El valor elegido se mantiene aunque ya no tenga libros
+                if (valorElegido != null && seleccion.equals(Constantes.FACETA_TODAS)) {
+                    seleccion = valorElegido + " (0)";
+                    combo.addItem(seleccion);
+                }
+                combo.setSelectedItem(seleccion);
+            });
+        } finally {
+            actualizandoFacetas = false;
+        }
+    }
+    
+    // "Novela (12)" -> "Novela"
+    private static String valorFaceta(String item) {
+        int parentesis = item.lastIndexOf(" (");
+        return parentesis < 0 ? item : item.substring(0, parentesis);
     }
     
     // =============== MÉTODOS DE FUNCIONALIDAD DE LIBROS ===============
@@ -915,6 +1110,89 @@ public class BibliotecaMainFrame extends JFrame {
         }
     }
     
+    /**
+     * Importar un catálogo de proveedor (CSV o MARC21)
+     * La importación corre en segundo plano; el diálogo muestra el avance
+     */
+    private void importarCatalogo() {
+        JFileChooser selector = new JFileChooser();
+        selector.setDialogTitle("Importar catálogo");
+        selector.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+            "Catálogos (CSV, MARC21)", "csv", "txt", "mrc", "marc", "iso"));
+            
+        if (selector.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        java.nio.file.Path archivo = selector.getSelectedFile().toPath();
+        
+        JDialog dialogoProgreso = new JDialog(this, "📥 Importando " + archivo.getFileName(), false);
+        JProgressBar barra = new JProgressBar(0, 100);
+        barra.setStringPainted(true);
+        JLabel lblEstado = new JLabel("Leyendo archivo...");
+        lblEstado.setFont(Constantes.FUENTE_NORMAL);
+        
+        JPanel panelProgreso = new JPanel(new BorderLayout(10, 10));
+        panelProgreso.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+        panelProgreso.add(barra, BorderLayout.NORTH);
+        panelProgreso.add(lblEstado, BorderLayout.CENTER);
+        dialogoProgreso.add(panelProgreso);
+        dialogoProgreso.setSize(650, 130);
+        dialogoProgreso.setLocationRelativeTo(this);
+        dialogoProgreso.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        
+        btnImportarCatalogo.setEnabled(false);
+        dialogoProgreso.setVisible(true);
+        
+        new SwingWorker<MetricasImportacion, MetricasImportacion>() {
+            @Override
+            protected MetricasImportacion doInBackground() throws Exception {
+                return libroControlador.importarCatalogo(archivo, this::publish);
+            }
+            
+            @Override
+            protected void process(java.util.List<MetricasImportacion> avances) {
+                MetricasImportacion ultimo = avances.get(avances.size() - 1);
+                barra.setValue(ultimo.getPorcentaje());
+                lblEstado.setText(ultimo.getResumen());
+            }
+            
+            @Override
+            protected void done() {
+                dialogoProgreso.dispose();
+                btnImportarCatalogo.setEnabled(true);
+                
+                try {
+                    MetricasImportacion metricas = get();
+                    StringBuilder resumen = new StringBuilder();
+                    resumen.append(metricas.isReanudada() ? "Importación reanudada y completada\n" : "Importación completada\n");
+                    resumen.append(metricas.getResumen()).append("\n");
+                    metricas.getRechazos().stream().limit(20)
+                        .forEach(motivo -> resumen.append("\n- ").append(motivo));
+                    if (metricas.getRechazados() > 20) {
+                        resumen.append("\n... y ").append(metricas.getRechazados() - 20).append(" rechazos más");
+                    }
+                    
+                    JTextArea areaResumen = new JTextArea(resumen.toString());
+                    areaResumen.setEditable(false);
+                    JScrollPane scrollResumen = new JScrollPane(areaResumen);
+                    scrollResumen.setPreferredSize(new Dimension(650, 300));
+                    
+                    JOptionPane.showMessageDialog(BibliotecaMainFrame.this, scrollResumen,
+                        "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                        
+                } catch (Exception e) {
+                    Throwable causa = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(BibliotecaMainFrame.this,
+                        Constantes.ICONO_ERROR + " Error al importar: " + causa.getMessage(),
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                }
+                
+                cargarLibros();
+            }
+        }.execute();
+    }
+    
     /**
      * Editar libro seleccionado
      */
@@ -1166,16 +1444,15 @@ public class BibliotecaMainFrame extends JFrame {
         panelTarjetas.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         
         // Calcular estadísticas
+        EstadisticasCatalogo catalogo = libroControlador.obtenerEstadisticasCatalogo();
         int totalUsuarios = usuarioControlador.listarUsuarios().size();
-        int totalLibros = libroControlador.listarLibros().size();
+        int totalLibros = catalogo.getTotalLibros();
         int totalPrestamos = prestamoControlador.listarPrestamos().size();
         int prestamosActivos = (int) prestamoControlador.listarPrestamos().stream()
             .filter(p -> "Activo".equals(p.getEstado())).count();
         int prestamosVencidos = prestamoControlador.obtenerPrestamosVencidos().size();
-        int librosDisponibles = (int) libroControlador.listarLibros().stream()
-            .filter(l -> "Disponible".equals(l.getEstado())).count();
-        int librosPrestados = (int) libroControlador.listarLibros().stream()
-            .filter(l -> "Prestado".equals(l.getEstado())).count();
+        int librosDisponibles = catalogo.contarEstado("Disponible");
+        int librosPrestados = catalogo.contarEstado("Prestado");
         int prestamosDevueltos = (int) prestamoControlador.listarPrestamos().stream()
             .filter(p -> "Devuelto".equals(p.getEstado())).count();
         
@@ -1283,7 +1560,12 @@ public class BibliotecaMainFrame extends JFrame {
         modeloUsuariosReporte.addColumn("Código");
         modeloUsuariosReporte.addColumn("Préstamos Activos");
         
-        usuarioControlador.listarUsuarios().forEach(usuario -> {
+        ArrayList<Persona> usuariosReporte = usuarioControlador.listarUsuarios();
+        // Un conteo agrupado por lote de usuarios en lugar de recorrer todos los préstamos por fila
+        Map<Integer, Integer> activosPorUsuario = prestamoControlador.contarPrestamosActivos(
+            usuariosReporte.stream().map(Persona::getId).collect(Collectors.toList()));
+            
+        usuariosReporte.forEach(usuario -> {
             String codigo = "";
             if (usuario instanceof com.pointerfaz.modelo.Estudiante) {
                 codigo = ((com.pointerfaz.modelo.Estudiante) usuario).getCodigo();
@@ -1291,9 +1573,7 @@ public class BibliotecaMainFrame extends JFrame {
                 codigo = ((com.pointerfaz.modelo.Profesor) usuario).getCodigoEmpleado();
             }
             
-            long prestamosActivosUsuario = prestamoControlador.listarPrestamos().stream()
-                .filter(p -> p.getUsuarioId() == usuario.getId() && "Activo".equals(p.getEstado()))
-                .count();
+            int prestamosActivosUsuario = activosPorUsuario.getOrDefault(usuario.getId(), 0);
             
             Object[] fila = {
                 usuario.getClass().getSimpleName(),
@@ -1330,15 +1610,12 @@ public class BibliotecaMainFrame extends JFrame {
         panelEstadisticasLibros.setBackground(Constantes.COLOR_FONDO_PRINCIPAL);
         panelEstadisticasLibros.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         
-        // Calcular estadísticas por estado
-        long disponibles = libroControlador.listarLibros().stream()
-            .filter(l -> "Disponible".equals(l.getEstado())).count();
-        long prestados = libroControlador.listarLibros().stream()
-            .filter(l -> "Prestado".equals(l.getEstado())).count();
-        long enReparacion = libroControlador.listarLibros().stream()
-            .filter(l -> "En Reparación".equals(l.getEstado())).count();
-        long perdidos = libroControlador.listarLibros().stream()
-            .filter(l -> "Perdido".equals(l.getEstado())).count();
+        // Calcular estadísticas por estado (una sola consulta agrupada)
+        EstadisticasCatalogo catalogo = libroControlador.obtenerEstadisticasCatalogo();
+        int disponibles = catalogo.contarEstado("Disponible");
+        int prestados = catalogo.contarEstado("Prestado");
+        int enReparacion = catalogo.contarEstado("En Reparación");
+        int perdidos = catalogo.contarEstado("Perdido");
         
         panelEstadisticasLibros.add(crearTarjetaEstadistica("✅ Disponibles", String.valueOf(disponibles), Constantes.COLOR_EXITO));
         panelEstadisticasLibros.add(crearTarjetaEstadistica("📝 Prestados", String.valueOf(prestados), Constantes.COLOR_WARNING));
@@ -1359,10 +1636,10 @@ public class BibliotecaMainFrame extends JFrame {
         modeloLibrosReporte.addColumn("Estado");
         modeloLibrosReporte.addColumn("Veces Prestado");
         
+        Map<Integer, Integer> prestamosPorLibro = prestamoControlador.contarPrestamosPorLibro();
+        
         libroControlador.listarLibros().forEach(libro -> {
-            long vecesPrestado = prestamoControlador.listarPrestamos().stream()
-                .filter(p -> p.getLibroId() == libro.getId())
-                .count();
+            int vecesPrestado = prestamosPorLibro.getOrDefault(libro.getId(), 0);
             
             Object[] fila = {
                 libro.getTitulo(),
@@ -1428,9 +1705,16 @@ public class BibliotecaMainFrame extends JFrame {
         modeloProximosVencer.addColumn("Libro");
         modeloProximosVencer.addColumn("Vence");
         
-        prestamoControlador.obtenerPrestamosProximosVencer(7).forEach(prestamo -> {
-            Persona usuario = usuarioControlador.buscarUsuario(prestamo.getUsuarioId());
-            Libro libro = libroControlador.buscarLibro(prestamo.getLibroId());
+        ArrayList<Prestamo> prestamosProximos = prestamoControlador.obtenerPrestamosProximosVencer(7);
+        // Usuarios y libros de todas las filas se cargan juntos, no uno por préstamo
+        Map<Integer, Persona> usuariosProximos = usuarioControlador.buscarUsuarios(
+            prestamosProximos.stream().map(Prestamo::getUsuarioId).collect(Collectors.toList()));
+        Map<Integer, Libro> librosProximos = libroControlador.buscarLibros(
+            prestamosProximos.stream().map(Prestamo::getLibroId).collect(Collectors.toList()));
+            
+        prestamosProximos.forEach(prestamo -> {
+            Persona usuario = usuariosProximos.get(prestamo.getUsuarioId());
+            Libro libro = librosProximos.get(prestamo.getLibroId());
             
             Object[] fila = {
                 usuario != null ? usuario.getNombres() + " " + usuario.getApellidos() : "Usuario no encontrado",
@@ -1465,9 +1749,15 @@ public class BibliotecaMainFrame extends JFrame {
         modeloPrestamosReporte.addColumn("Fecha Real");
         modeloPrestamosReporte.addColumn("Estado");
         
-        prestamoControlador.listarPrestamos().forEach(prestamo -> {
-            Persona usuario = usuarioControlador.buscarUsuario(prestamo.getUsuarioId());
-            Libro libro = libroControlador.buscarLibro(prestamo.getLibroId());
+        ArrayList<Prestamo> historialPrestamos = prestamoControlador.listarPrestamos();
+        Map<Integer, Persona> usuariosHistorial = usuarioControlador.buscarUsuarios(
+            historialPrestamos.stream().map(Prestamo::getUsuarioId).collect(Collectors.toList()));
+        Map<Integer, Libro> librosHistorial = libroControlador.buscarLibros(
+            historialPrestamos.stream().map(Prestamo::getLibroId).collect(Collectors.toList()));
+            
+        historialPrestamos.forEach(prestamo -> {
+            Persona usuario = usuariosHistorial.get(prestamo.getUsuarioId());
+            Libro libro = librosHistorial.get(prestamo.getLibroId());
             
             Object[] fila = {
                 prestamo.getId(),
@@ -1566,7 +1856,7 @@ public class BibliotecaMainFrame extends JFrame {
         // Estadísticas generales
         reporte.append("ESTADÍSTICAS GENERALES:\n");
         reporte.append("- Total Usuarios: ").append(usuarioControlador.listarUsuarios().size()).append("\n");
-        reporte.append("- Total Libros: ").append(libroControlador.listarLibros().size()).append("\n");
+        reporte.append("- Total Libros: ").append(libroControlador.obtenerEstadisticasCatalogo().getTotalLibros()).append("\n");
         reporte.append("- Total Préstamos: ").append(prestamoControlador.listarPrestamos().size()).append("\n");
         reporte.append("- Préstamos Vencidos: ").append(prestamoControlador.obtenerPrestamosVencidos().size()).append("\n\n");
         
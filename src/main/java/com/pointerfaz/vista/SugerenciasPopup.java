@@ -0,0 +1,182 @@
+package com.pointerfaz.vista;
+
+import com.pointerfaz.busqueda.Sugerencia;
+import com.pointerfaz.util.Constantes;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Lista de sugerencias debajo de una caja de búsqueda
+ * Se actualiza con cada letra; flechas para moverse, Enter o clic para elegir
+ * y Escape para cerrar. El foco se queda siempre en la caja de texto.
+ */
+public class SugerenciasPopup {
+    private final JTextField campo;
+    private final BiFunction<String, Integer, List<Sugerencia>> fuente;
+    private final Consumer<String> alElegir;
+    
+    private final JPopupMenu popup = new JPopupMenu();
+    private final DefaultListModel<Sugerencia> modelo = new DefaultListModel<>();
+    private final JList<Sugerencia> lista = new JList<>(modelo);
+    
+    // true mientras se escribe la sugerencia elegida en la caja (no volver a sugerir)
+    private boolean eligiendo;
+    
+    /**
+     * @param fuente devuelve las sugerencias para un texto y una cantidad máxima
+     * @param alElegir recibe el texto de la sugerencia elegida, ya puesto en la caja
+     */
+    public SugerenciasPopup(JTextField campo, BiFunction<String, Integer, List<Sugerencia>> fuente, Consumer<String> alElegir) {
+        this.campo = campo;
+        this.fuente = fuente;
+        this.alElegir = alElegir;
+        
+        lista.setFont(Constantes.FUENTE_NORMAL);
+        lista.setSelectionBackground(Constantes.COLOR_SELECCION);
+        lista.setFocusable(false);
+        lista.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                Sugerencia sugerencia = (Sugerencia) value;
+                String texto = "<html>" + escapar(sugerencia.getTexto())
+                        + " <font color='gray'>· " + sugerencia.getTipo() + "</font></html>";
+                return super.getListCellRendererComponent(list, texto, index, isSelected, cellHasFocus);
+            }
+        });
+        
+        JScrollPane scroll = new JScrollPane(lista);
+        scroll.setBorder(BorderFactory.createEmptyBorder());
+        popup.setBorder(BorderFactory.createLineBorder(Constantes.COLOR_BORDE));
+        popup.setFocusable(false);
+        popup.add(scroll);
+        
+        configurarEventos();
+    }
+    
+    private void configurarEventos() {
+        campo.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                actualizar();
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                actualizar();
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+        
+        campo.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (!popup.isVisible()) {
+                    return;
+                }
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_DOWN:
+                        mover(1);
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_UP:
+                        mover(-1);
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_ENTER:
+                        if (lista.getSelectedValue() != null) {
+                            elegir(lista.getSelectedValue());
+                            e.consume();
+                        }
+                        break;
+                    case KeyEvent.VK_ESCAPE:
+                        popup.setVisible(false);
+                        e.consume();
+                        break;
+                    default:
+                        break;
+                }
+            }
+        });
+        
+        lista.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int indice = lista.locationToIndex(e.getPoint());
+                if (indice >= 0) {
+                    elegir(modelo.get(indice));
+                }
+            }
+        });
+        
+        campo.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                popup.setVisible(false);
+            }
+        });
+    }
+    
+    /**
+     * Pedir sugerencias para el texto actual (después de que el documento termine de cambiar)
+     */
+    private void actualizar() {
+        if (eligiendo) {
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            String texto = campo.getText();
+            List<Sugerencia> sugerencias = texto.isBlank()
+                    ? List.of()
+                    : fuente.apply(texto, Constantes.MAX_SUGERENCIAS);
+            
+            modelo.clear();
+            sugerencias.forEach(modelo::addElement);
+            if (sugerencias.isEmpty() || !campo.isShowing()) {
+                popup.setVisible(false);
+                return;
+            }
+            lista.setVisibleRowCount(sugerencias.size());
+            popup.setPopupSize(Math.max(campo.getWidth(), 320), lista.getPreferredScrollableViewportSize().height + 4);
+            popup.show(campo, 0, campo.getHeight());
+            campo.requestFocusInWindow();
+        });
+    }
+    
+    private void mover(int paso) {
+        int indice = lista.getSelectedIndex() + paso;
+        if (indice >= 0 && indice < modelo.size()) {
+            lista.setSelectedIndex(indice);
+            lista.ensureIndexIsVisible(indice);
+        }
+    }
+    
+    private void elegir(Sugerencia sugerencia) {
+        popup.setVisible(false);
+        eligiendo = true;
+        try {
+            campo.setText(sugerencia.getTexto());
+        } finally {
+            eligiendo = false;
+        }
+        alElegir.accept(sugerencia.getTexto());
+    }
+    
+    private static String escapar(String texto) {
+        return texto.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -0,0 +1,206 @@
+package com.pointerfaz.busqueda;
+
+import com.pointerfaz.dao.LibroDAO;
+import com.pointerfaz.modelo.Libro;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del índice guardado en segmentos, sin base de datos ni registro de
+ * cambios: la huella es la del catálogo de un LibroDAO en memoria
+ */
+public class AlmacenSegmentosTest {
+    
+    private static final int RELLENO = 200;
+    
+    @TempDir
+    Path directorio;
+    
+    /**
+     * Catálogo fijo que cuenta cuántas veces se lo recorre (una por reconstrucción)
+     * Caído responde como LibroDAO sin base de datos: nada que recorrer y sin huella
+     */
+    private static class CatalogoEnMemoria extends LibroDAO {
+        
+        final Map<Integer, Libro> libros = new TreeMap<>();
+        int recorridos;
+        boolean caido;
+        
+        void poner(Libro libro) {
+            libros.put(libro.getId(), libro);
+        }
+        
+        @Override
+        public boolean recorrerLibros(Consumer<? super Libro> visitante) {
+            recorridos++;
+            if (caido) {
+                return false;
+            }
+            libros.values().forEach(visitante);
+            return true;
+        }
+        
+        @Override
+        public String huellaCatalogo() {
+            if (caido) {
+                return null;
+            }
+            return libros.size() + ":" + libros.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+        }
+    }
+    
+    private static Libro libro(int id, String titulo) {
+        return IndiceLibrosTest.libro(id, "", titulo, "Autor " + id, "Novela", 1990);
+    }
+    
+    private AlmacenSegmentos almacen(IndiceLibros indice, CatalogoEnMemoria catalogo) {
+        return new AlmacenSegmentos(directorio, indice, catalogo, () -> -1);
+    }
+    
+    private List<Path> segmentos() throws IOException {
+        try (var contenido = Files.list(directorio)) {
+            return contenido.filter(archivo -> archivo.toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+    
+    /**
+     * Guardar como BASE el índice de tres libros conocidos y RELLENO más, para
+     * que unos pocos cambios no pasen del cuarto del BASE que dispara la fusión
+     */
+    private CatalogoEnMemoria guardarBase() {
+        CatalogoEnMemoria catalogo = new CatalogoEnMemoria();
+        catalogo.poner(libro(1, "Rayuela"));
+        catalogo.poner(libro(2, "El túnel"));
+        catalogo.poner(libro(3, "Ficciones"));
+        for (int id = 100; id < 100 + RELLENO; id++) {
+            catalogo.poner(libro(id, "Tomo " + id));
+        }
+        IndiceLibros indice = new IndiceLibros();
+        indice.reconstruir(catalogo);
+        almacen(indice, catalogo).fusionar();
+        return catalogo;
+    }
+    
+    /**
+     * Aplicar un cambio al índice y al almacén, en el orden de las escuchas de LibroDAO
+     */
+    private static void guardado(IndiceLibros indice, AlmacenSegmentos almacen, CatalogoEnMemoria catalogo, Libro libro) {
+        catalogo.poner(libro);
+        indice.guardado(libro);
+        almacen.guardado(libro);
+    }
+    
+    private static void eliminado(IndiceLibros indice, AlmacenSegmentos almacen, CatalogoEnMemoria catalogo, int id) {
+        catalogo.libros.remove(id);
+        indice.eliminado(id);
+        almacen.eliminado(id);
+    }
+    
+    @Test
+    @DisplayName("Abrir carga el BASE guardado sin recorrer el catálogo")
+    public void testCargaDesdeDisco() throws IOException {
+        CatalogoEnMemoria catalogo = guardarBase();
+        assertEquals(1, segmentos().size());
+        
+        IndiceLibros indice = new IndiceLibros();
+        catalogo.recorridos = 0;
+        almacen(indice, catalogo).abrir();
+        
+        assertEquals(0, catalogo.recorridos);
+        assertEquals(3 + RELLENO, indice.tamano());
+        assertEquals(List.of(2), IndiceLibrosTest.ids(indice.buscar("tunel", 10)));
+    }
+    
+    @Test
+    @DisplayName("Un byte cambiado en el BASE falla el CRC y se reconstruye desde la base de datos")
+    public void testByteCambiadoReconstruye() throws IOException {
+        CatalogoEnMemoria catalogo = guardarBase();
+        Path base = segmentos().get(0);
+        byte[] bytes = Files.readAllBytes(base);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(base, bytes);
+        
+        IndiceLibros indice = new IndiceLibros();
+        catalogo.recorridos = 0;
+        almacen(indice, catalogo).abrir();
+        
+        assertEquals(1, catalogo.recorridos);
+        assertEquals(3 + RELLENO, indice.tamano());
+        assertEquals(List.of(3), IndiceLibrosTest.ids(indice.buscar("ficciones", 10)));
+    }
+    
+    @Test
+    @DisplayName("Si el catálogo cambió desde que se guardó el índice, se reconstruye")
+    public void testHuellaDistintaReconstruye() {
+        CatalogoEnMemoria catalogo = guardarBase();
+        catalogo.poner(libro(4, "Pedro Páramo"));
+        
+        IndiceLibros indice = new IndiceLibros();
+        catalogo.recorridos = 0;
+        almacen(indice, catalogo).abrir();
+        
+        assertEquals(1, catalogo.recorridos);
+        assertEquals(List.of(4), IndiceLibrosTest.ids(indice.buscar("paramo", 10)));
+    }
+    
+    @Test
+    @DisplayName("Sin segmentos y con la base de datos caída, abrir falla sin escribir un BASE vacío")
+    public void testBaseDeDatosCaida() throws IOException {
+        CatalogoEnMemoria catalogo = new CatalogoEnMemoria();
+        catalogo.poner(libro(1, "Rayuela"));
+        catalogo.caido = true;
+        
+        assertFalse(almacen(new IndiceLibros(), catalogo).abrir());
+        assertTrue(segmentos().isEmpty());
+        
+        // Al reintentar con la base de datos de vuelta se carga el catálogo
+        catalogo.caido = false;
+        IndiceLibros indice = new IndiceLibros();
+        assertTrue(almacen(indice, catalogo).abrir());
+        assertEquals(List.of(1), IndiceLibrosTest.ids(indice.buscar("rayuela", 10)));
+    }
+    
+    @Test
+    @DisplayName("Los borrados y cambios de los DELTA se aplican y sobreviven a la fusión")
+    public void testFusionConservaBorrados() throws IOException {
+        CatalogoEnMemoria catalogo = guardarBase();
+        IndiceLibros indice = new IndiceLibros();
+        AlmacenSegmentos almacen = almacen(indice, catalogo);
+        almacen.abrir();
+        
+        eliminado(indice, almacen, catalogo, 2);
+        guardado(indice, almacen, catalogo, libro(3, "Ficciones completas"));
+        guardado(indice, almacen, catalogo, libro(4, "Pedro Páramo"));
+        almacen.guardarPendientes();
+        assertEquals(2, segmentos().size());
+        
+        // BASE + DELTA
+        IndiceLibros conDelta = new IndiceLibros();
+        catalogo.recorridos = 0;
+        almacen(conDelta, catalogo).abrir();
+        assertEquals(0, catalogo.recorridos);
+        assertEquals(3 + RELLENO, conDelta.tamano());
+        assertTrue(conDelta.buscar("tunel", 10).isEmpty());
+        assertEquals(List.of(3), IndiceLibrosTest.ids(conDelta.buscar("completas", 10)));
+        
+        // Fusionado en un BASE nuevo, que reemplaza a los anteriores
+        almacen.fusionar();
+        assertEquals(1, segmentos().size());
+        IndiceLibros fusionado = new IndiceLibros();
+        almacen(fusionado, catalogo).abrir();
+        assertEquals(0, catalogo.recorridos);
+        assertEquals(3 + RELLENO, fusionado.tamano());
+        assertTrue(fusionado.buscar("tunel", 10).isEmpty());
+        assertEquals(List.of(4), IndiceLibrosTest.ids(fusionado.buscar("paramo", 10)));
+        assertEquals(List.of(3), IndiceLibrosTest.ids(fusionado.buscar("ficciones", 10)));
+    }
+}
@@ -0,0 +1,164 @@
+package com.pointerfaz.busqueda;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del autocompletado: orden por popularidad, palabras en medio del
+ * texto y el paso de las sugerencias recientes al arreglo ordenado
+ */
+public class AutocompletadoTest {
+    
+    private static final String TITULO = "titulo";
+    private static final String AUTOR = "autor";
+    
+    private static List<String> textos(List<Sugerencia> sugerencias) {
+        return sugerencias.stream().map(Sugerencia::getTexto).toList();
+    }
+    
+    private static Autocompletado cargado(String... titulos) {
+        Autocompletado autocompletado = new Autocompletado();
+        autocompletado.iniciarCarga();
+        for (int i = 0; i < titulos.length; i++) {
+            autocompletado.agregar(TITULO, titulos[i], i + 1);
+        }
+        autocompletado.terminarCarga();
+        return autocompletado;
+    }
+    
+    @Test
+    @DisplayName("Devuelve las k más populares del prefijo, de mayor a menor")
+    public void testMasPopulares() {
+        Autocompletado autocompletado = new Autocompletado();
+        autocompletado.iniciarCarga();
+        autocompletado.agregar(TITULO, "Cien años de soledad", 50);
+        autocompletado.agregar(TITULO, "Ciencia ficción", 10);
+        autocompletado.agregar(TITULO, "Cielo rojo", 30);
+        autocompletado.agregar(TITULO, "Ciudad y los perros", 5);
+        autocompletado.agregar(TITULO, "Rayuela", 100);
+        autocompletado.terminarCarga();
+        
+        List<Sugerencia> sugerencias = autocompletado.sugerir("cie", 2);
+        assertEquals(List.of("Cien años de soledad", "Cielo rojo"), textos(sugerencias));
+        assertEquals(50, sugerencias.get(0).getPeso());
+        assertEquals(TITULO, sugerencias.get(0).getTipo());
+        
+        assertEquals(List.of("Cien años de soledad", "Cielo rojo", "Ciencia ficción"),
+                textos(autocompletado.sugerir("cie", 10)));
+    }
+    
+    @Test
+    @DisplayName("sumarPeso reordena las sugerencias en el momento")
+    public void testSumarPeso() {
+        Autocompletado autocompletado = new Autocompletado();
+        autocompletado.iniciarCarga();
+        autocompletado.agregar(TITULO, "Cien años de soledad", 50);
+        int ciencia = autocompletado.agregar(TITULO, "Ciencia ficción", 10);
+        autocompletado.terminarCarga();
+        
+        autocompletado.sumarPeso(ciencia, 45);
+        assertEquals(List.of("Ciencia ficción", "Cien años de soledad"), textos(autocompletado.sugerir("cie", 2)));
+        assertEquals(List.of("Ciencia ficción"), textos(autocompletado.sugerir("cie", 1)));
+        
+        autocompletado.sumarPeso(ciencia, -45);
+        assertEquals(List.of("Cien años de soledad"), textos(autocompletado.sugerir("cie", 1)));
+    }
+    
+    @Test
+    @DisplayName("El mismo texto y tipo suma usos; con el último quitar deja de sugerirse")
+    public void testQuitarUltimoUso() {
+        Autocompletado autocompletado = new Autocompletado();
+        int primero = autocompletado.agregar(AUTOR, "Gabriel García Márquez", 3);
+        int segundo = autocompletado.agregar(AUTOR, "gabriel garcia marquez", 4);
+        assertEquals(primero, segundo);
+        assertEquals(1, autocompletado.tamano());
+        assertEquals(7, autocompletado.sugerir("garc", 5).get(0).getPeso());
+        
+        autocompletado.quitar(primero, 3);
+        assertEquals(List.of("Gabriel García Márquez"), textos(autocompletado.sugerir("garc", 5)));
+        
+        autocompletado.quitar(primero, 4);
+        assertTrue(autocompletado.sugerir("garc", 5).isEmpty());
+        assertEquals(0, autocompletado.tamano());
+        
+        // Lo mismo ya en el arreglo ordenado
+        Autocompletado ordenado = cargado("Rayuela", "Rayos y centellas");
+        ordenado.quitar(1, 2);
+        assertEquals(List.of("Rayuela"), textos(ordenado.sugerir("ray", 5)));
+    }
+    
+    @Test
+    @DisplayName("Una palabra del medio encuentra el texto completo: «sol» sugiere Cien años de soledad")
+    public void testPalabraEnMedio() {
+        Autocompletado autocompletado = cargado("Cien años de soledad", "El sol desnudo", "Consolación");
+        
+        assertEquals(List.of("El sol desnudo", "Cien años de soledad"), textos(autocompletado.sugerir("sol", 5)));
+        assertEquals(List.of("Cien años de soledad"), textos(autocompletado.sugerir("Años de sol", 5)));
+        // Sin tildes ni mayúsculas
+        assertEquals(List.of("Cien años de soledad"), textos(autocompletado.sugerir("ANOS", 5)));
+        
+        // Igual mientras siguen entre las recientes
+        autocompletado.agregar(TITULO, "Tierra de sol y luna", 1);
+        assertEquals(List.of("El sol desnudo", "Cien años de soledad", "Tierra de sol y luna"),
+                textos(autocompletado.sugerir("sol", 5)));
+    }
+    
+    @Test
+    @DisplayName("Con un espacio al final busca la palabra completa")
+    public void testPalabraCompleta() {
+        Autocompletado autocompletado = cargado("Cien años de soledad", "Ciento uno");
+        autocompletado.agregar(TITULO, "Cien sonetos", 1);
+        
+        assertEquals(3, autocompletado.sugerir("cien", 5).size());
+        assertEquals(List.of("Cien años de soledad", "Cien sonetos"), textos(autocompletado.sugerir("cien ", 5)));
+        assertTrue(autocompletado.sugerir("   ", 5).isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Pasar MINIMO_RECIENTES_REHACER y rehacer el arreglo no cambia los resultados")
+    public void testRehacerArreglo() {
+        Autocompletado autocompletado = cargado("Cien años de soledad", "Rayuela");
+        autocompletado.agregar(TITULO, "Ciencia ficción", 30);
+        autocompletado.agregar(TITULO, "Soles negros", 20);
+        List<String> antes = textos(autocompletado.sugerir("so", 5));
+        List<String> antesCie = textos(autocompletado.sugerir("cie", 5));
+        assertEquals(List.of("Soles negros", "Cien años de soledad"), antes);
+        
+        // Dos claves por relleno: con 600 se pasa de las 1024 recientes
+        int claves = autocompletado.getClaves();
+        for (int i = 0; i < 600; i++) {
+            autocompletado.agregar(TITULO, "Relleno " + i, 0);
+        }
+        assertEquals(claves + 1200, autocompletado.getClaves());
+        
+        assertEquals(antes, textos(autocompletado.sugerir("so", 5)));
+        assertEquals(antesCie, textos(autocompletado.sugerir("cie", 5)));
+        assertEquals(5, autocompletado.sugerir("relleno", 5).size());
+        
+        // Los pesos se siguen aplicando sobre el arreglo rehecho
+        autocompletado.sumarPeso(1, 100);
+        assertEquals("Rayuela", autocompletado.sugerir("ray", 1).get(0).getTexto());
+        assertEquals("Relleno 599", autocompletado.sugerir("relleno 599", 1).get(0).getTexto());
+    }
+    
+    @Test
+    @DisplayName("La memoria estimada crece con el contenido")
+    public void testMemoriaEstimada() {
+        Autocompletado autocompletado = new Autocompletado();
+        long vacio = autocompletado.memoriaEstimada();
+        assertTrue(vacio > 0);
+        
+        autocompletado.agregar(TITULO, "Cien años de soledad", 1);
+        long uno = autocompletado.memoriaEstimada();
+        assertTrue(uno > vacio);
+        
+        autocompletado.iniciarCarga();
+        for (int i = 0; i < 2000; i++) {
+            autocompletado.agregar(TITULO, "Libro número " + i, 1);
+        }
+        autocompletado.terminarCarga();
+        assertTrue(autocompletado.memoriaEstimada() > uno + 2000 * 20);
+    }
+}
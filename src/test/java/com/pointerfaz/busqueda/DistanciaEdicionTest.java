@@ -0,0 +1,47 @@
+package com.pointerfaz.busqueda;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la distancia de edición de la búsqueda aproximada
+ */
+public class DistanciaEdicionTest {
+    
+    @Test
+    @DisplayName("Inserción, borrado y sustitución cuentan una edición cada una")
+    public void testEdicionesSimples() {
+        assertEquals(0, DistanciaEdicion.calcular("borges", "borges", 2));
+        assertEquals(1, DistanciaEdicion.calcular("borges", "borgues", 2));
+        assertEquals(2, DistanciaEdicion.calcular("borges", "borje", 2));
+        assertEquals(1, DistanciaEdicion.calcular("borges", "borjes", 2));
+        assertEquals(1, DistanciaEdicion.calcular("borges", "borge", 2));
+        assertEquals(3, DistanciaEdicion.calcular("", "abc", 3));
+    }
+    
+    @Test
+    @DisplayName("Dos letras seguidas cambiadas de lugar son una sola edición")
+    public void testTransposicion() {
+        assertEquals(1, DistanciaEdicion.calcular("cervatnes", "cervantes", 2));
+        assertEquals(1, DistanciaEdicion.calcular("ecsa", "cesa", 1));
+        assertEquals(1, DistanciaEdicion.calcular("ab", "ba", 2));
+    }
+    
+    @Test
+    @DisplayName("Devuelve maxima + 1 en cuanto la distancia pasa del máximo")
+    public void testCorte() {
+        assertEquals(2, DistanciaEdicion.calcular("sabato", "cortazar", 1));
+        assertEquals(2, DistanciaEdicion.calcular("rayuela", "ray", 1));
+        assertEquals(1, DistanciaEdicion.calcular("perez", "lopez", 0));
+    }
+    
+    @Test
+    @DisplayName("Las palabras cortas no toleran errores y las largas hasta dos")
+    public void testMaximaPara() {
+        assertEquals(0, DistanciaEdicion.maximaPara(3));
+        assertEquals(1, DistanciaEdicion.maximaPara(4));
+        assertEquals(1, DistanciaEdicion.maximaPara(7));
+        assertEquals(2, DistanciaEdicion.maximaPara(8));
+    }
+}
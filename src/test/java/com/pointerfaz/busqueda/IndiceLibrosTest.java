@@ -0,0 +1,204 @@
+package com.pointerfaz.busqueda;
+
+import com.pointerfaz.modelo.Libro;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del índice invertido de libros, sin base de datos:
+ * los libros llegan como a una escucha de LibroDAO
+ */
+public class IndiceLibrosTest {
+    
+    private IndiceLibros indice;
+    
+    static Libro libro(int id, String isbn, String titulo, String autor, String categoria, int anio) {
+        return new Libro(id, isbn, titulo, autor, "Editorial " + id, categoria, anio, 100, null);
+    }
+    
+    static List<Integer> ids(List<Libro> libros) {
+        return libros.stream().map(Libro::getId).toList();
+    }
+    
+    @BeforeEach
+    public void crearIndice() {
+        indice = new IndiceLibros();
+        indice.guardado(libro(1, "978-84-376-0494-7", "Cien años de soledad", "Gabriel García Márquez", "Novela", 1967));
+        indice.guardado(libro(2, "9780306406157", "El túnel", "Ernesto Sábato", "Novela", 1948));
+        indice.guardado(libro(3, "9780804429573", "Rayuela", "Julio Cortázar", "Novela", 1963));
+        indice.guardado(libro(4, "9788437604948", "Poesía completa", "César Vallejo", "Poesía", 1988));
+    }
+    
+    @Test
+    @DisplayName("Sin tildes ni mayúsculas: perez encuentra Pérez")
+    public void testTildes() {
+        indice.guardado(libro(5, "9780000000001", "Episodios nacionales", "Benito Pérez Galdós", "Novela", 1873));
+        
+        assertEquals(List.of(5), ids(indice.buscar("perez", 10)));
+        assertEquals(List.of(5), ids(indice.buscar("PÉREZ galdos", 10)));
+        assertEquals(List.of(3), ids(indice.buscar("cortazar", 10)));
+        assertEquals(List.of(1), ids(indice.buscar("garcia MARQUEZ", 10)));
+    }
+    
+    @Test
+    @DisplayName("La última palabra se busca como prefijo salvo que termine en espacio")
+    public void testPrefijo() {
+        assertEquals(List.of(1), ids(indice.buscar("cien añ", 10)));
+        assertEquals(List.of(3), ids(indice.buscar("cort", 10)));
+        assertTrue(indice.buscar("cort ", 10).isEmpty());
+        assertTrue(indice.buscar("rayuela sabato", 10).isEmpty());
+        assertTrue(indice.buscar("", 10).isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Un ISBN con guiones se busca compacto y por prefijo")
+    public void testIsbn() {
+        assertEquals(List.of(1), ids(indice.buscar("978-84-376-0494-7", 10)));
+        assertEquals(Set.of(1, 4), Set.copyOf(ids(indice.buscar("978-84-376", 10))));
+        assertEquals(List.of(2), ids(indice.buscar("9780306406157", 10)));
+    }
+    
+    @Test
+    @DisplayName("Un libro modificado se encuentra por sus datos nuevos y no por los viejos")
+    public void testGuardadoReemplaza() {
+        Libro cambiado = libro(3, "9780804429573", "Los premios", "Julio Cortázar", "Novela", 1960);
+        indice.guardado(cambiado);
+        
+        assertTrue(indice.buscar("rayuela", 10).isEmpty());
+        assertEquals(List.of(3), ids(indice.buscar("premios", 10)));
+        assertEquals(4, indice.tamano());
+        assertEquals(1, indice.documentosBorrados());
+    }
+    
+    @Test
+    @DisplayName("Un libro eliminado deja de aparecer; eliminar un id desconocido no hace nada")
+    public void testEliminado() {
+        indice.eliminado(2);
+        indice.eliminado(99);
+        
+        assertTrue(indice.buscar("tunel", 10).isEmpty());
+        assertEquals(3, indice.tamano());
+        assertEquals(List.of(1, 3), ids(indice.buscar("novela", 10)).stream().sorted().toList());
+    }
+    
+    @Test
+    @DisplayName("Los resultados son copias: cambiarlas no cambia el índice")
+    public void testDevuelveCopias() {
+        indice.buscar("rayuela", 10).get(0).setTitulo("Otro");
+        assertEquals("Rayuela", indice.buscar("rayuela", 10).get(0).getTitulo());
+    }
+    
+    @Test
+    @DisplayName("Al acumular borrados se compacta y las búsquedas siguen igual")
+    public void testCompactacion() {
+        for (int id = 100; id < 1300; id++) {
+            indice.guardado(libro(id, "", "Tomo " + id, "Autor Repetido", "Enciclopedia", 2000));
+        }
+        for (int id = 100; id < 1250; id++) {
+            indice.eliminado(id);
+        }
+        
+        // 1150 borrados: más del mínimo y de un cuarto del total, así que ya se compactó
+        assertTrue(indice.documentosBorrados() < 1024);
+        assertEquals(54, indice.tamano());
+        assertEquals(50, indice.buscar("autor repetido", 100).size());
+        assertEquals(List.of(1299), ids(indice.buscar("tomo 1299", 10)));
+        assertTrue(indice.buscar("tomo 1100", 10).isEmpty());
+        assertEquals(List.of(3), ids(indice.buscar("rayuela", 10)));
+        
+        // Después de renumerar, modificar y eliminar siguen funcionando
+        indice.guardado(libro(1299, "", "Tomo final", "Autor Repetido", "Enciclopedia", 2000));
+        assertEquals(List.of(1299), ids(indice.buscar("final", 10)));
+        indice.eliminado(3);
+        assertTrue(indice.buscar("rayuela", 10).isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Cada faceta se cuenta con los demás filtros pero sin el suyo")
+    public void testFacetas() {
+        Libro prestado = libro(5, "9780140449136", "Ficciones", "Jorge Luis Borges", "Cuento", 1944);
+        prestado.setEstado("Prestado");
+        indice.guardado(prestado);
+        Libro referencia = libro(6, "9788420412146", "Diccionario de dudas", "Manuel Seco", "Novela", 1961);
+        referencia.setEsReferencia(true);
+        indice.guardado(referencia);
+        
+        ResultadoBusqueda todo = indice.buscarConFacetas("", Map.of(), 10);
+        assertEquals(6, todo.getTotal());
+        assertEquals(Map.of("Novela", 4, "Poesía", 1, "Cuento", 1), todo.getFaceta(IndiceLibros.FACETA_CATEGORIA));
+        assertEquals(List.of("Novela", "Cuento", "Poesía"), List.copyOf(todo.getFaceta(IndiceLibros.FACETA_CATEGORIA).keySet()));
+        assertEquals(List.of("1940-1949", "1960-1969", "1980-1989"), List.copyOf(todo.getFaceta(IndiceLibros.FACETA_DECADA).keySet()));
+        
+        ResultadoBusqueda novelas60 = indice.buscarConFacetas("", Map.of(
+                IndiceLibros.FACETA_CATEGORIA, "Novela", IndiceLibros.FACETA_DECADA, "1960-1969"), 10);
+        assertEquals(List.of(1, 3, 6), ids(novelas60.getLibros()));
+        // Categoría sin su filtro: los libros de los 60, de cualquier categoría
+        assertEquals(Map.of("Novela", 3), novelas60.getFaceta(IndiceLibros.FACETA_CATEGORIA));
+        // Década sin su filtro: las novelas de cualquier década
+        assertEquals(Map.of("1940-1949", 1, "1960-1969", 3), novelas60.getFaceta(IndiceLibros.FACETA_DECADA));
+        // Las demás facetas llevan los dos filtros
+        assertEquals(Map.of("No", 2, "Sí", 1), novelas60.getFaceta(IndiceLibros.FACETA_REFERENCIA));
+        
+        ResultadoBusqueda prestados = indice.buscarConFacetas("borges", Map.of(IndiceLibros.FACETA_ESTADO, "Disponible"), 10);
+        assertEquals(0, prestados.getTotal());
+        assertEquals(Map.of("Prestado", 1), prestados.getFaceta(IndiceLibros.FACETA_ESTADO));
+        assertTrue(prestados.getFaceta(IndiceLibros.FACETA_CATEGORIA).isEmpty());
+        
+        assertEquals(0, indice.buscarConFacetas("", Map.of(IndiceLibros.FACETA_CATEGORIA, "Teatro"), 10).getTotal());
+    }
+    
+    @Test
+    @DisplayName("Los conteos siguen a los libros modificados y eliminados")
+    public void testFacetasIncrementales() {
+        indice.guardado(libro(4, "9788437604948", "Poesía completa", "César Vallejo", "Novela", 1988));
+        indice.eliminado(2);
+        
+        Map<String, Integer> categorias = indice.buscarConFacetas("", Map.of(), 0).getFaceta(IndiceLibros.FACETA_CATEGORIA);
+        assertEquals(Map.of("Novela", 3), categorias);
+        assertEquals(Map.of("1960-1969", 2, "1980-1989", 1),
+                indice.buscarConFacetas("", Map.of(), 0).getFaceta(IndiceLibros.FACETA_DECADA));
+    }
+    
+    @Test
+    @DisplayName("El ISBN exacto va primero aunque otros libros coincidan por título o prefijo")
+    public void testIsbnExactoPrimero() {
+        indice.guardado(libro(11, "9780000000002", "Guía 9788437604948", "Varios", "Manual", 2001));
+        indice.guardado(libro(12, "97884376049481", "Otra edición", "César Vallejo", "Poesía", 1990));
+        
+        List<Integer> encontrados = ids(indice.buscar("9788437604948", 10));
+        assertEquals(4, encontrados.get(0));
+        assertEquals(Set.of(4, 11, 12), Set.copyOf(encontrados));
+        assertEquals(List.of(4), ids(indice.buscar("9788437604948", 1)));
+        assertEquals(List.of(1), ids(indice.buscar("978-84-376-0494-7", 1)));
+    }
+    
+    @Test
+    @DisplayName("La palabra en el título pesa más que en autor, editorial y categoría")
+    public void testRefuerzoPorCampo() {
+        indice.guardado(new Libro(20, "", "Sin nombre", "Ana Ruiz", "Planeta", "Sombra", 2000, 100, null));
+        indice.guardado(new Libro(21, "", "Sin nombre", "Ana Sombra", "Planeta", "Ensayo", 2000, 100, null));
+        indice.guardado(new Libro(22, "", "La sombra", "Ana Ruiz", "Planeta", "Ensayo", 2000, 100, null));
+        indice.guardado(new Libro(23, "", "Sin nombre", "Ana Ruiz", "Sombra", "Ensayo", 2000, 100, null));
+        
+        assertEquals(List.of(22, 21, 23, 20), ids(indice.buscar("sombra", 10)));
+        // El montículo de los mejores devuelve lo mismo que ordenar todo y cortar
+        assertEquals(List.of(22, 21), ids(indice.buscar("sombra", 2)));
+    }
+    
+    @Test
+    @DisplayName("Un campo corto pesa más que uno largo; a igual puntaje va primero el más antiguo")
+    public void testBm25() {
+        indice.guardado(libro(30, "", "Novela de la selva", "Horacio Quiroga", "Cuento", 1918));
+        indice.guardado(libro(31, "", "Selva", "Autor Anónimo", "Cuento", 1918));
+        
+        assertEquals(List.of(31, 30), ids(indice.buscar("selva", 10)));
+        // Mismo campo y mismo largo: empatan y va primero el indexado antes
+        assertEquals(List.of(30, 31), ids(indice.buscar("cuento", 10)));
+    }
+}
+
@@ -0,0 +1,142 @@
+package com.pointerfaz.busqueda;
+
+import com.pointerfaz.modelo.Estudiante;
+import com.pointerfaz.modelo.Persona;
+import com.pointerfaz.modelo.Profesor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del índice de usuarios alimentado como escucha de UsuarioDAO, sin base de datos
+ */
+public class IndiceUsuariosTest {
+    
+    static Estudiante estudiante(int id, String nombres, String apellidos, String codigo) {
+        Estudiante estudiante = new Estudiante(nombres, apellidos, nombres.toLowerCase() + "@uni.edu", codigo);
+        estudiante.setId(id);
+        return estudiante;
+    }
+    
+    static Profesor profesor(int id, String nombres, String apellidos, String codigoEmpleado) {
+        Profesor profesor = new Profesor(nombres, apellidos, "prof" + id + "@uni.edu", codigoEmpleado, "Matemáticas");
+        profesor.setId(id);
+        return profesor;
+    }
+    
+    static List<Integer> ids(List<Persona> usuarios) {
+        return usuarios.stream().map(Persona::getId).toList();
+    }
+    
+    private static IndiceUsuarios indice(Persona... usuarios) {
+        IndiceUsuarios indice = new IndiceUsuarios();
+        for (Persona usuario : usuarios) {
+            indice.guardado(usuario);
+        }
+        return indice;
+    }
+    
+    @Test
+    @DisplayName("Sin tildes ni mayúsculas, en nombres, apellidos y email")
+    public void testTildes() {
+        IndiceUsuarios indice = indice(
+                estudiante(1, "José", "Pérez Núñez", "EST-2024-001"),
+                estudiante(2, "Ana", "Gómez", "EST-2024-002"),
+                profesor(3, "Andrés", "Ibáñez", "EMP-17"));
+        
+        assertEquals(List.of(1), ids(indice.buscar("jose perez", 10)));
+        assertEquals(List.of(1), ids(indice.buscar("NUÑEZ", 10)));
+        assertEquals(List.of(3), ids(indice.buscar("ibanez", 10)));
+        assertEquals(List.of(2), ids(indice.buscar("ana@uni", 10)));
+        assertEquals(3, indice.tamano());
+    }
+    
+    @Test
+    @DisplayName("La última palabra es prefijo salvo que el texto termine en espacio")
+    public void testPrefijoUltimaPalabra() {
+        IndiceUsuarios indice = indice(
+                estudiante(1, "Ana", "Gómez", "EST-1"),
+                estudiante(2, "Andrea", "Gómez", "EST-2"),
+                estudiante(3, "Ana", "Rodríguez", "EST-3"));
+        
+        assertEquals(List.of(1, 2, 3), ids(indice.buscar("an", 10)));
+        assertEquals(List.of(1, 3), ids(indice.buscar("ana ", 10)));
+        assertEquals(List.of(1, 2), ids(indice.buscar("gomez an", 10)));
+        // Solo la última puede estar incompleta
+        assertTrue(indice.buscar("gom ana", 10).isEmpty());
+        assertEquals(List.of(1, 2), ids(indice.buscar("an", 2)));
+        assertTrue(indice.buscar("  ", 10).isEmpty());
+    }
+    
+    @Test
+    @DisplayName("El código se encuentra sin separadores: est2024 encuentra EST-2024-001")
+    public void testCodigoSinSeparadores() {
+        IndiceUsuarios indice = indice(
+                estudiante(1, "José", "Pérez", "EST-2024-001"),
+                estudiante(2, "Ana", "Gómez", "EST-2023-001"),
+                profesor(3, "Luis", "Vera", "EMP-2024-9"));
+        
+        assertEquals(List.of(1), ids(indice.buscar("est2024", 10)));
+        assertEquals(List.of(1), ids(indice.buscar("est2024001", 10)));
+        assertEquals(List.of(1, 2), ids(indice.buscar("EST-20", 10)));
+        assertEquals(List.of(1, 3), ids(indice.buscar("2024", 10)));
+        assertEquals(List.of(3), ids(indice.buscar("emp2024", 10)));
+    }
+    
+    @Test
+    @DisplayName("Guarda y entrega copias: cambiar un usuario por fuera no cambia el índice")
+    public void testCopias() {
+        Estudiante jose = estudiante(1, "José", "Pérez", "EST-1");
+        IndiceUsuarios indice = indice(jose);
+        
+        jose.setNombres("Cambiado");
+        Persona encontrado = indice.buscar("jose", 10).get(0);
+        assertEquals("José", encontrado.getNombres());
+        assertInstanceOf(Estudiante.class, encontrado);
+        
+        encontrado.setNombres("Otro");
+        assertEquals("José", indice.buscar("jose", 10).get(0).getNombres());
+        assertTrue(indice.buscar("otro", 10).isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Modificar y eliminar, también después de compactar")
+    public void testModificarEliminarYCompactar() {
+        IndiceUsuarios indice = new IndiceUsuarios();
+        int total = 1500;
+        for (int id = 1; id <= total; id++) {
+            indice.guardado(estudiante(id, "Nombre" + id, "Apellido", "EST-" + id));
+        }
+        
+        indice.guardado(estudiante(7, "Renombrado", "Apellido", "EST-7"));
+        assertEquals(List.of(7), ids(indice.buscar("renombrado", 10)));
+        assertTrue(indice.buscar("nombre7 ", 10).isEmpty());
+        indice.eliminado(8);
+        assertTrue(indice.buscar("nombre8 ", 10).isEmpty());
+        
+        // Cada modificación deja un documento borrado: con más de mil se compacta
+        for (int id = 1; id <= total; id += 2) {
+            indice.guardado(estudiante(id, "Impar" + id, "Apellido", "EST-" + id));
+        }
+        for (int id = 2; id <= 600; id += 2) {
+            indice.eliminado(id);
+        }
+        
+        assertEquals(total - 300, indice.tamano());
+        assertEquals(List.of(7), ids(indice.buscar("impar7 ", 10)));
+        assertTrue(indice.buscar("renombrado", 10).isEmpty());
+        assertTrue(indice.buscar("nombre600 ", 10).isEmpty());
+        assertEquals(List.of(602), ids(indice.buscar("nombre602", 10)));
+        assertEquals(List.of(1499), ids(indice.buscar("est1499", 10)));
+        assertEquals(total / 2, indice.buscar("impar", total).size());
+        assertEquals(total - 300, indice.buscar("apellido", total).size());
+        
+        // Y después de compactar los cambios se siguen aplicando
+        indice.guardado(estudiante(602, "Nuevo", "Apellido", "EST-602"));
+        indice.eliminado(1499);
+        assertEquals(List.of(602), ids(indice.buscar("nuevo", 10)));
+        assertTrue(indice.buscar("nombre602", 10).isEmpty());
+        assertTrue(indice.buscar("impar1499", 10).isEmpty());
+    }
+}
@@ -0,0 +1,42 @@
+package com.pointerfaz.busqueda;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.util.BitSet;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de ListaEnteros (lista de documentos de un término)
+ */
+public class ListaEnterosTest {
+    
+    @Test
+    @DisplayName("Agregar en orden no repite el último y crece")
+    public void testAgregar() {
+        ListaEnteros lista = new ListaEnteros();
+        for (int i = 0; i < 100; i += 2) {
+            lista.agregar(i);
+            lista.agregar(i);
+        }
+        assertEquals(50, lista.tamano());
+        assertTrue(lista.contiene(98));
+        assertFalse(lista.contiene(97));
+        assertEquals(10, lista.obtener(5));
+    }
+    
+    @Test
+    @DisplayName("Renumerar quita los borrados y conserva el orden")
+    public void testRenumerar() {
+        ListaEnteros lista = new ListaEnteros(new int[]{0, 2, 3, 5});
+        int[] nuevoNumero = {0, -1, -1, 1, -1, -1};
+        lista.renumerar(nuevoNumero);
+        
+        assertEquals(2, lista.tamano());
+        assertEquals(0, lista.obtener(0));
+        assertEquals(1, lista.obtener(1));
+        
+        BitSet marcados = new BitSet();
+        lista.marcarEn(marcados);
+        assertEquals("{0, 1}", marcados.toString());
+    }
+}
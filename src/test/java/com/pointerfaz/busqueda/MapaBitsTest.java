@@ -0,0 +1,103 @@
+package com.pointerfaz.busqueda;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.util.BitSet;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del conjunto comprimido de las facetas, comparando con un BitSet
+ * en grupos chicos (arreglo) y grandes (mapa de bits)
+ */
+public class MapaBitsTest {
+    
+    private static MapaBits desde(BitSet numeros) {
+        MapaBits mapa = new MapaBits();
+        numeros.stream().forEach(mapa::agregar);
+        return mapa;
+    }
+    
+    /**
+     * Números al azar en tres grupos de 16 bits altos: uno con pocos, uno con
+     * justo más de los que caben en un arreglo y uno casi lleno
+     */
+    private static BitSet alAzar(Random azar, int densidadMedia) {
+        BitSet numeros = new BitSet();
+        for (int i = 0; i < 300; i++) {
+            numeros.set(azar.nextInt(65536));
+        }
+        for (int i = 0; i < densidadMedia; i++) {
+            numeros.set(65536 + azar.nextInt(65536));
+        }
+        for (int i = 0; i < 60000; i++) {
+            numeros.set(3 * 65536 + azar.nextInt(65536));
+        }
+        return numeros;
+    }
+    
+    @Test
+    @DisplayName("Agregar, quitar y contiene pasando de arreglo a mapa de bits")
+    public void testAgregarQuitar() {
+        MapaBits mapa = new MapaBits();
+        // En orden decreciente, para no agregar siempre al final
+        for (int i = 5000; i >= 0; i--) {
+            mapa.agregar(i * 3);
+        }
+        mapa.agregar(9);
+        assertEquals(5001, mapa.cardinalidad());
+        assertTrue(mapa.contiene(15000));
+        assertFalse(mapa.contiene(15001));
+        
+        mapa.quitar(9);
+        mapa.quitar(9);
+        mapa.quitar(1 << 20);
+        assertEquals(5000, mapa.cardinalidad());
+        assertFalse(mapa.contiene(9));
+        assertTrue(mapa.contiene(12));
+    }
+    
+    @Test
+    @DisplayName("Intersección y conteo de comunes igual que con BitSet")
+    public void testInterseccion() {
+        Random azar = new Random(18);
+        for (int densidad : new int[]{100, 4097, 30000}) {
+            BitSet a = alAzar(azar, densidad);
+            BitSet b = alAzar(azar, 5000);
+            BitSet comunes = (BitSet) a.clone();
+            comunes.and(b);
+            
+            MapaBits mapaA = desde(a);
+            MapaBits mapaB = desde(b);
+            assertEquals(comunes.cardinality(), mapaA.contarComunes(mapaB));
+            assertEquals(comunes.cardinality(), mapaB.contarComunes(mapaA));
+            
+            MapaBits interseccion = mapaA.interseccion(mapaB);
+            assertEquals(comunes.cardinality(), interseccion.cardinalidad());
+            assertArrayEquals(comunes.stream().toArray(), interseccion.aArreglo());
+        }
+    }
+    
+    @Test
+    @DisplayName("Siguiente salta grupos vacíos y devuelve -1 al final")
+    public void testSiguiente() {
+        MapaBits mapa = new MapaBits();
+        mapa.agregar(5);
+        mapa.agregar(65535);
+        mapa.agregar(3 * 65536 + 1);
+        
+        assertEquals(5, mapa.siguiente(0));
+        assertEquals(65535, mapa.siguiente(6));
+        assertEquals(3 * 65536 + 1, mapa.siguiente(65536));
+        assertEquals(-1, mapa.siguiente(3 * 65536 + 2));
+        assertArrayEquals(new int[]{5, 65535, 3 * 65536 + 1}, mapa.aArreglo());
+        
+        Random azar = new Random(7);
+        BitSet numeros = alAzar(azar, 5000);
+        MapaBits grande = desde(numeros);
+        for (int i = 0; i < 2000; i++) {
+            int desde = azar.nextInt(5 * 65536);
+            assertEquals(numeros.nextSetBit(desde), grande.siguiente(desde), "Desde " + desde);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.pointerfaz.busqueda;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del Normalizador de texto para búsquedas
+ */
+public class NormalizadorTest {
+    
+    @Test
+    @DisplayName("Quita tildes y diéresis y pasa a minúsculas")
+    public void testNormalizar() {
+        assertEquals("perez", Normalizador.normalizar("Pérez"));
+        assertEquals("pinguino", Normalizador.normalizar("PINGÜINO"));
+        assertEquals("espana", Normalizador.normalizar("España"));
+        assertEquals("abc", Normalizador.normalizar("ABC"));
+        assertEquals("", Normalizador.normalizar(null));
+    }
+    
+    @Test
+    @DisplayName("Corta en palabras de letras y dígitos")
+    public void testTokens() {
+        assertEquals(List.of("garcia", "marquez", "gabriel"), Normalizador.tokens("García Márquez, Gabriel"));
+        assertEquals(List.of("don", "quijote", "1605"), Normalizador.tokens("  Don Quijote (1605)  "));
+        assertEquals(List.of(), Normalizador.tokens(" -- "));
+    }
+    
+    @Test
+    @DisplayName("Compacta un ISBN y rechaza lo que no lo es")
+    public void testCompactarIsbn() {
+        assertEquals("843760494x", Normalizador.compactarIsbn("84-376-0494-X"));
+        assertEquals("9780306406157", Normalizador.compactarIsbn(" 978 0 306 40615 7 "));
+        assertEquals("", Normalizador.compactarIsbn("Rayuela"));
+    }
+}
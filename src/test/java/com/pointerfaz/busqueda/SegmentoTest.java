@@ -0,0 +1,83 @@
+package com.pointerfaz.busqueda;
+
+import com.pointerfaz.modelo.Libro;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del formato de los segmentos: ida y vuelta y comprobación del CRC
+ */
+public class SegmentoTest {
+    
+    @TempDir
+    Path directorio;
+    
+    private Path escribir(String nombre) throws IOException {
+        Path archivo = directorio.resolve(nombre);
+        Libro libro = new Libro(7, "9780306406157", "El túnel", "Ernesto Sábato", null, "Novela", -5, 158, "A-3");
+        libro.setEsReferencia(true);
+        try (Segmento.Escritor salida = new Segmento.Escritor(archivo, Segmento.DELTA, "2:7")) {
+            salida.varint(300);
+            salida.entero(-300);
+            salida.texto("añoranza");
+            salida.libro(libro);
+            salida.terminar();
+        }
+        return archivo;
+    }
+    
+    @Test
+    @DisplayName("Lo escrito se lee igual, con varint, zigzag, textos nulos y UTF-8")
+    public void testIdaYVuelta() throws IOException {
+        Segmento.Lector entrada = new Segmento.Lector(escribir("uno.seg"));
+        
+        assertEquals(Segmento.DELTA, entrada.tipo());
+        assertEquals("2:7", entrada.huella());
+        assertEquals(300, entrada.varint());
+        assertEquals(-300, entrada.entero());
+        assertEquals("añoranza", entrada.texto());
+        Libro libro = entrada.libro();
+        assertEquals(7, libro.getId());
+        assertEquals("Ernesto Sábato", libro.getAutor());
+        assertNull(libro.getEditorial());
+        assertEquals(-5, libro.getAnioPublicacion());
+        assertEquals("A-3", libro.getUbicacion());
+        assertTrue(libro.isEsReferencia());
+        assertTrue(entrada.terminado());
+    }
+    
+    @Test
+    @DisplayName("Un byte cambiado o un archivo cortado no pasan el CRC")
+    public void testCrc() throws IOException {
+        Path archivo = escribir("dos.seg");
+        byte[] bytes = Files.readAllBytes(archivo);
+        
+        for (int posicion : new int[]{0, bytes.length / 2, bytes.length - 1}) {
+            byte[] danado = bytes.clone();
+            danado[posicion] ^= 0x10;
+            Files.write(archivo, danado);
+            assertThrows(IOException.class, () -> new Segmento.Lector(archivo), "Byte " + posicion);
+        }
+        
+        Files.write(archivo, Arrays.copyOf(bytes, bytes.length - 3));
+        assertThrows(IOException.class, () -> new Segmento.Lector(archivo));
+    }
+    
+    @Test
+    @DisplayName("Un segmento sin terminar no deja archivo ni temporal")
+    public void testSinTerminar() throws IOException {
+        Path archivo = directorio.resolve("tres.seg");
+        try (Segmento.Escritor salida = new Segmento.Escritor(archivo, Segmento.BASE, "x")) {
+            salida.varint(1);
+        }
+        try (var contenido = Files.list(directorio)) {
+            assertEquals(0, contenido.count());
+        }
+    }
+}
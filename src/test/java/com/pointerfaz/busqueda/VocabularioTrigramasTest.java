@@ -0,0 +1,131 @@
+package com.pointerfaz.busqueda;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del vocabulario con índice de trigramas: el filtro no debe
+ * dejar fuera ningún término que DistanciaEdicion daría por parecido
+ */
+public class VocabularioTrigramasTest {
+    
+    private static VocabularioTrigramas vocabulario(String... terminos) {
+        VocabularioTrigramas vocabulario = new VocabularioTrigramas();
+        for (String termino : terminos) {
+            vocabulario.agregar(termino);
+        }
+        return vocabulario;
+    }
+    
+    @Test
+    @DisplayName("Encuentra la palabra mal escrita y deja fuera las lejanas")
+    public void testParecidos() {
+        VocabularioTrigramas vocabulario = vocabulario("cervantes", "cortazar", "borges", "sabato", "cervecera");
+        
+        Map<String, Double> parecidos = vocabulario.parecidos("cervatnes", 2);
+        assertEquals(Set.of("cervantes"), parecidos.keySet());
+        assertEquals(1.0 - 1.0 / 9, parecidos.get("cervantes"), 1e-9);
+        
+        assertEquals(Set.of("borges"), vocabulario.parecidos("borjes", 1).keySet());
+        assertTrue(vocabulario.parecidos("neruda", 1).isEmpty());
+    }
+    
+    @Test
+    @DisplayName("La palabra exacta tiene similitud 1")
+    public void testExacta() {
+        VocabularioTrigramas vocabulario = vocabulario("rayuela", "rayuelo");
+        
+        Map<String, Double> parecidos = vocabulario.parecidos("rayuela", 1);
+        assertEquals(1.0, parecidos.get("rayuela"), 1e-9);
+        assertTrue(parecidos.get("rayuelo") < 1.0);
+    }
+    
+    @Test
+    @DisplayName("Una transposición en una palabra corta pasa el filtro de trigramas")
+    public void testTransposicionCorta() {
+        VocabularioTrigramas vocabulario = vocabulario("cesa", "perez", "ruiz");
+        
+        assertEquals(Set.of("cesa"), vocabulario.parecidos("ecsa", 1).keySet());
+        assertEquals(Set.of("perez"), vocabulario.parecidos("pezer", 2).keySet());
+        assertEquals(Set.of("ruiz"), vocabulario.parecidos("ruzi", 1).keySet());
+    }
+    
+    @Test
+    @DisplayName("Limpiar vacía el vocabulario")
+    public void testLimpiar() {
+        VocabularioTrigramas vocabulario = vocabulario("borges");
+        vocabulario.limpiar();
+        assertTrue(vocabulario.parecidos("borges", 0).isEmpty());
+        
+        vocabulario.agregar("sabato");
+        assertEquals(Set.of("sabato"), vocabulario.parecidos("sabato", 0).keySet());
+    }
+    
+    @Test
+    @DisplayName("Da los mismos términos que comparar contra todo el vocabulario")
+    public void testIgualQueFuerzaBruta() {
+        Random azar = new Random(16);
+        List<String> terminos = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            terminos.add(palabraAlAzar(azar, 3 + azar.nextInt(8)));
+        }
+        VocabularioTrigramas vocabulario = vocabulario(terminos.toArray(new String[0]));
+        
+        for (int i = 0; i < 300; i++) {
+            String original = terminos.get(azar.nextInt(terminos.size()));
+            String palabra = editar(azar, original, 1 + azar.nextInt(2));
+            int maxima = DistanciaEdicion.maximaPara(palabra.length());
+            
+            Set<String> esperados = new HashSet<>();
+            for (String termino : terminos) {
+                if (DistanciaEdicion.calcular(palabra, termino, maxima) <= maxima) {
+                    esperados.add(termino);
+                }
+            }
+            assertEquals(esperados, vocabulario.parecidos(palabra, maxima).keySet(), "Buscando " + palabra);
+        }
+    }
+    
+    private static String palabraAlAzar(Random azar, int largo) {
+        StringBuilder palabra = new StringBuilder(largo);
+        for (int i = 0; i < largo; i++) {
+            // Pocas letras, para que haya términos parecidos entre sí
+            palabra.append((char) ('a' + azar.nextInt(6)));
+        }
+        return palabra.toString();
+    }
+    
+    /**
+     * Aplicar ediciones al azar: sustituir, insertar, borrar o cambiar dos letras seguidas de lugar
+     */
+    private static String editar(Random azar, String palabra, int ediciones) {
+        StringBuilder texto = new StringBuilder(palabra);
+        for (int e = 0; e < ediciones; e++) {
+            int posicion = azar.nextInt(texto.length());
+            switch (azar.nextInt(4)) {
+                case 0 -> texto.setCharAt(posicion, (char) ('a' + azar.nextInt(6)));
+                case 1 -> texto.insert(posicion, (char) ('a' + azar.nextInt(6)));
+                case 2 -> {
+                    if (texto.length() > 1) {
+                        texto.deleteCharAt(posicion);
+                    }
+                }
+                default -> {
+                    if (posicion + 1 < texto.length()) {
+                        char c = texto.charAt(posicion);
+                        texto.setCharAt(posicion, texto.charAt(posicion + 1));
+                        texto.setCharAt(posicion + 1, c);
+                    }
+                }
+            }
+        }
+        return texto.toString();
+    }
+}
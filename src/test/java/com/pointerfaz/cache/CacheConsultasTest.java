@@ -0,0 +1,132 @@
+package com.pointerfaz.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de CacheConsultas con consultas que cuentan sus lecturas
+ * Cada prueba usa sus propias tablas: las versiones de VersionesTablas son globales.
+ * (Que dentro de una UnidadDeTrabajo no se use se prueba en UnidadDeTrabajoTest.)
+ */
+public class CacheConsultasTest {
+    
+    private static final UnaryOperator<ArrayList<String>> COPIAR = ArrayList::new;
+    
+    private final AtomicInteger lecturas = new AtomicInteger();
+    
+    private ArrayList<String> consultar(CacheConsultas cache, String tabla, CacheConsultas.Consulta<ArrayList<String>> consulta) {
+        return cache.consultar("prueba.listar", List.of(tabla), new String[]{tabla}, consulta, COPIAR, ArrayList::new);
+    }
+    
+    private ArrayList<String> consultar(CacheConsultas cache, String tabla) {
+        return consultar(cache, tabla, () -> {
+            lecturas.incrementAndGet();
+            return new ArrayList<>(List.of("fila " + lecturas.get()));
+        });
+    }
+    
+    @Test
+    @DisplayName("Dentro del plazo la misma consulta sale de la cache, como copia")
+    public void testAciertoDentroDelPlazo() {
+        CacheConsultas cache = new CacheConsultas(16, 60_000);
+        
+        ArrayList<String> primera = consultar(cache, "prueba.acierto");
+        primera.add("cambiada por quien la pidió");
+        ArrayList<String> segunda = consultar(cache, "prueba.acierto");
+        
+        assertEquals(1, lecturas.get());
+        assertEquals(List.of("fila 1"), segunda);
+        assertEquals(1, cache.getAciertos());
+        assertEquals(1, cache.getFallos());
+        
+        // Otros parámetros son otra clave
+        consultar(cache, "prueba.acierto.otra");
+        assertEquals(2, lecturas.get());
+        assertEquals(2, cache.getTamano());
+    }
+    
+    @Test
+    @DisplayName("Vencido el plazo se vuelve a leer")
+    public void testVencePlazo() {
+        CacheConsultas cache = new CacheConsultas(16, 0);
+        
+        consultar(cache, "prueba.plazo");
+        assertEquals(List.of("fila 2"), consultar(cache, "prueba.plazo"));
+        assertEquals(0, cache.getAciertos());
+    }
+    
+    @Test
+    @DisplayName("Una escritura en la tabla invalida el resultado; en otra tabla no")
+    public void testInvalidacionPorTabla() {
+        CacheConsultas cache = new CacheConsultas(16, 60_000);
+        consultar(cache, "prueba.propia");
+        
+        VersionesTablas.cambio("prueba.ajena");
+        assertEquals(List.of("fila 1"), consultar(cache, "prueba.propia"));
+        assertEquals(1, lecturas.get());
+        
+        VersionesTablas.cambio("prueba.propia");
+        assertEquals(List.of("fila 2"), consultar(cache, "prueba.propia"));
+        assertEquals(List.of("fila 2"), consultar(cache, "prueba.propia"));
+        assertEquals(2, lecturas.get());
+    }
+    
+    @Test
+    @DisplayName("Si se escribe mientras se lee, el resultado se entrega pero nace vencido")
+    public void testEscrituraDuranteLectura() {
+        CacheConsultas cache = new CacheConsultas(16, 60_000);
+        
+        ArrayList<String> resultado = consultar(cache, "prueba.carrera", () -> {
+            lecturas.incrementAndGet();
+            // Otro hilo confirma una escritura antes de que esta lectura termine
+            VersionesTablas.cambio("prueba.carrera");
+            return new ArrayList<>(List.of("vieja"));
+        });
+        assertEquals(List.of("vieja"), resultado);
+        
+        assertEquals(List.of("fila 2"), consultar(cache, "prueba.carrera"));
+        assertEquals(2, lecturas.get());
+        assertEquals(0, cache.getAciertos());
+    }
+    
+    @Test
+    @DisplayName("Una lectura que falla entrega el respaldo y no se guarda")
+    public void testFalloNoSeGuarda() {
+        CacheConsultas cache = new CacheConsultas(16, 60_000);
+        
+        ArrayList<String> fallida = consultar(cache, "prueba.fallo", () -> {
+            lecturas.incrementAndGet();
+            throw new SQLException("Base de datos no disponible");
+        });
+        assertTrue(fallida.isEmpty());
+        assertEquals(0, cache.getTamano());
+        
+        // La siguiente vuelve a la base y esa sí se guarda
+        assertEquals(List.of("fila 2"), consultar(cache, "prueba.fallo"));
+        assertEquals(List.of("fila 2"), consultar(cache, "prueba.fallo"));
+        assertEquals(2, lecturas.get());
+        assertEquals(1, cache.getTamano());
+    }
+    
+    @Test
+    @DisplayName("Pasado el máximo se descarta el resultado usado hace más tiempo")
+    public void testMaximo() {
+        CacheConsultas cache = new CacheConsultas(2, 60_000);
+        consultar(cache, "prueba.maximo.a");
+        consultar(cache, "prueba.maximo.b");
+        consultar(cache, "prueba.maximo.a");
+        consultar(cache, "prueba.maximo.c");
+        
+        assertEquals(2, cache.getTamano());
+        consultar(cache, "prueba.maximo.a");
+        assertEquals(3, lecturas.get());
+        consultar(cache, "prueba.maximo.b");
+        assertEquals(4, lecturas.get());
+    }
+}
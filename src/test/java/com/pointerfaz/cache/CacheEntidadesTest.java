@@ -0,0 +1,171 @@
+package com.pointerfaz.cache;
+
+import com.pointerfaz.modelo.Libro;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la cache de entidades: copias, escuchas del DAO, admisión
+ * W-TinyLFU y el descarte de lecturas que empezaron antes de un cambio
+ */
+public class CacheEntidadesTest {
+    
+    // Lecturas de "la base de datos" por id
+    private final Map<Integer, Integer> lecturas = new HashMap<>();
+    
+    private static CacheEntidades<Libro> cache(int capacidad) {
+        return new CacheEntidades<>("libros", capacidad, Libro::getId, Libro::new);
+    }
+    
+    private Libro leer(int id) {
+        lecturas.merge(id, 1, Integer::sum);
+        return new Libro(id, "", "Libro " + id, "Autor", "Editorial", "Novela", 2000, 100, null);
+    }
+    
+    private int lecturasDe(int id) {
+        return lecturas.getOrDefault(id, 0);
+    }
+    
+    @Test
+    @DisplayName("Un acierto no lee la base y entrega una copia")
+    public void testCopias() {
+        CacheEntidades<Libro> cache = cache(100);
+        cache.obtener(1, this::leer).setTitulo("Cambiado afuera");
+        Libro libro = cache.obtener(1, this::leer);
+        
+        assertEquals(1, lecturasDe(1));
+        assertEquals("Libro 1", libro.getTitulo());
+        assertEquals(1, cache.getAciertos());
+        assertEquals(1, cache.getFallos());
+        assertNull(cache.obtener(99, id -> null));
+        assertEquals(1, cache.getTamano());
+    }
+    
+    @Test
+    @DisplayName("Un guardado reemplaza la copia guardada y un eliminado la quita")
+    public void testEscuchas() {
+        CacheEntidades<Libro> cache = cache(100);
+        cache.obtener(1, this::leer);
+        
+        Libro modificado = leer(1);
+        modificado.setTitulo("Nuevo título");
+        cache.guardado(modificado);
+        cache.guardado(leer(2));
+        assertEquals("Nuevo título", cache.obtener(1, this::leer).getTitulo());
+        assertEquals(1, cache.getTamano());
+        
+        cache.eliminado(1);
+        cache.obtener(1, this::leer);
+        assertEquals(3, lecturasDe(1));
+    }
+    
+    @Test
+    @DisplayName("Una lectura que empezó antes de un cambio no queda guardada")
+    public void testGeneracion() {
+        CacheEntidades<Libro> cache = cache(100);
+        Libro viejo = cache.obtener(1, id -> {
+            // Otro hilo guarda el libro mientras se lee la versión anterior
+            Libro libro = leer(id);
+            Libro nuevo = leer(id);
+            nuevo.setTitulo("Nuevo título");
+            cache.guardado(nuevo);
+            return libro;
+        });
+        assertEquals("Libro 1", viejo.getTitulo());
+        assertEquals(0, cache.getTamano());
+        
+        Map<Integer, Libro> varios = cache.obtenerTodas(List.of(2, 3), ids -> {
+            Map<Integer, Libro> libros = new HashMap<>();
+            ids.forEach(id -> libros.put(id, leer(id)));
+            cache.eliminado(3);
+            return libros;
+        });
+        assertEquals(2, varios.size());
+        assertEquals(0, cache.getTamano());
+        
+        // Sin cambios en el medio sí se guardan
+        cache.obtenerTodas(List.of(2, 3, 2), ids -> {
+            Map<Integer, Libro> libros = new HashMap<>();
+            ids.forEach(id -> libros.put(id, leer(id)));
+            return libros;
+        });
+        assertEquals(2, lecturasDe(2));
+        assertEquals(2, cache.getTamano());
+    }
+    
+    @Test
+    @DisplayName("Un recorrido de una sola vez no desplaza a los que se piden siempre")
+    public void testAdmisionResisteRecorridos() {
+        CacheEntidades<Libro> cache = cache(100);
+        for (int vuelta = 0; vuelta < 5; vuelta++) {
+            for (int id = 0; id < 99; id++) {
+                cache.obtener(id, this::leer);
+            }
+        }
+        for (int id = 1000; id < 1500; id++) {
+            cache.obtener(id, this::leer);
+        }
+        
+        int siguenGuardados = 0;
+        for (int id = 0; id < 99; id++) {
+            cache.obtener(id, this::leer);
+            if (lecturasDe(id) == 1) {
+                siguenGuardados++;
+            }
+        }
+        assertTrue(siguenGuardados >= 95, "Siguen guardados " + siguenGuardados);
+        assertTrue(cache.getRechazos() >= 450, cache.toString());
+        assertEquals(100, cache.getTamano());
+    }
+    
+    @Test
+    @DisplayName("Un nuevo que se pide más que la víctima entra a la región principal")
+    public void testAdmisionFrecuente() {
+        CacheEntidades<Libro> cache = cache(100);
+        for (int id = 0; id < 100; id++) {
+            cache.obtener(id, this::leer);
+        }
+        
+        // Pedido varias veces mientras está en la ventana, después sale de ella
+        for (int vez = 0; vez < 4; vez++) {
+            cache.obtener(500, this::leer);
+        }
+        cache.obtener(501, this::leer);
+        cache.obtener(500, this::leer);
+        
+        assertEquals(1, lecturasDe(500));
+        assertEquals(100, cache.getTamano());
+    }
+    
+    @Test
+    @DisplayName("La entrada pedida dos veces pasa a protegida y no es víctima de los nuevos")
+    public void testProtegida() {
+        // Ventana de 1 y región principal de 9 (7 protegidas)
+        CacheEntidades<Libro> cache = cache(10);
+        cache.obtener(1, this::leer);
+        cache.obtener(2, this::leer);
+        // 1 ya salió de la ventana a prueba: pedirla otra vez la protege
+        cache.obtener(1, this::leer);
+        for (int id = 3; id <= 10; id++) {
+            cache.obtener(id, this::leer);
+        }
+        
+        // Nuevos más pedidos que los de prueba: reemplazan a los de prueba, del más viejo al más nuevo
+        for (int id = 20; id < 28; id++) {
+            for (int vez = 0; vez < 3; vez++) {
+                cache.obtener(id, this::leer);
+            }
+        }
+        
+        // Solo se rechazó 10, que salió de la ventana pedido una vez como su víctima
+        assertEquals(1, cache.getRechazos());
+        cache.obtener(1, this::leer);
+        assertEquals(1, lecturasDe(1));
+        cache.obtener(2, this::leer);
+        assertEquals(2, lecturasDe(2));
+    }
+}
@@ -0,0 +1,48 @@
+package com.pointerfaz.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del Count-Min Sketch que decide la admisión de CacheEntidades
+ */
+public class SketchFrecuenciaTest {
+    
+    @Test
+    @DisplayName("La frecuencia estimada nunca es menor que la real y se satura en 15")
+    public void testNuncaMenor() {
+        SketchFrecuencia sketch = new SketchFrecuencia(1000);
+        for (int id = 0; id < 200; id++) {
+            for (int vez = 0; vez < id % 12; vez++) {
+                sketch.incrementar(id);
+            }
+        }
+        for (int id = 0; id < 200; id++) {
+            assertTrue(sketch.frecuencia(id) >= id % 12, "Id " + id);
+        }
+        
+        for (int vez = 0; vez < 40; vez++) {
+            sketch.incrementar(-7);
+        }
+        assertEquals(15, sketch.frecuencia(-7));
+        assertEquals(0, new SketchFrecuencia(1000).frecuencia(-7));
+    }
+    
+    @Test
+    @DisplayName("Al llegar a la muestra todos los contadores se dividen por 2")
+    public void testEnvejecer() {
+        // Capacidad 64: se envejece a los 640 incrementos
+        SketchFrecuencia sketch = new SketchFrecuencia(64);
+        for (int vez = 0; vez < 15; vez++) {
+            sketch.incrementar(42);
+        }
+        for (int id = 1000; id < 1000 + 640 - 16; id++) {
+            sketch.incrementar(id);
+        }
+        assertEquals(15, sketch.frecuencia(42));
+        
+        sketch.incrementar(5000);
+        assertEquals(7, sketch.frecuencia(42));
+    }
+}
@@ -0,0 +1,49 @@
+package com.pointerfaz.dao;
+
+import com.pointerfaz.modelo.Libro;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * LibroDAO de prueba que guarda los lotes de agregarLibros en memoria
+ * Rechaza los ISBN ya guardados, como la clave única de la tabla libros,
+ * y puede dejar de aceptar lotes para simular un corte de la base de datos.
+ */
+public class LibroDAOEnMemoria extends LibroDAO {
+    
+    private final Set<String> isbnGuardados = new LinkedHashSet<>();
+    private int lotesAceptados = Integer.MAX_VALUE;
+    private int lotes;
+    
+    /**
+     * Aceptar solo los primeros lotes; los siguientes no se guardan
+     */
+    public void aceptarSolo(int lotes) {
+        this.lotesAceptados = lotes;
+    }
+    
+    public List<String> getIsbnGuardados() {
+        return new ArrayList<>(isbnGuardados);
+    }
+    
+    @Override
+    public ResultadoCarga agregarLibros(Collection<Libro> libros, int tamanoLote) {
+        ResultadoCarga resultado = new ResultadoCarga();
+        if (lotes++ >= lotesAceptados) {
+            return resultado;
+        }
+        int posicion = 0;
+        for (Libro libro : libros) {
+            if (isbnGuardados.add(libro.getIsbn())) {
+                resultado.sumarInsertados(1);
+            } else {
+                resultado.agregarFallo(posicion, libro, "ISBN ya registrado");
+            }
+            posicion++;
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,86 @@
+package com.pointerfaz.dao;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de los tokens de continuación de Paginacion y de Pagina
+ */
+public class PaginacionTest {
+    
+    private static String base64(String texto) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    @DisplayName("El token devuelve el valor y el id de la última fila")
+    public void testIdaYVuelta() {
+        String token = Paginacion.codificar("titulo", "Cien años de soledad", 42);
+        assertArrayEquals(new String[]{"Cien años de soledad", "42"}, Paginacion.decodificar(token, "titulo"));
+    }
+    
+    @Test
+    @DisplayName("El valor puede contener el separador y caracteres fuera de ASCII")
+    public void testValorConSeparador() {
+        String valor = "Pérez\nGarcía\n";
+        String token = Paginacion.codificar("apellidos", valor, 7);
+        assertArrayEquals(new String[]{valor, "7"}, Paginacion.decodificar(token, "apellidos"));
+        // Base64 para URL: se puede pasar tal cual como parámetro
+        assertTrue(token.matches("[A-Za-z0-9_-]+"));
+    }
+    
+    @Test
+    @DisplayName("Un token de otro orden no sirve")
+    public void testOtroOrden() {
+        String token = Paginacion.codificar("titulo", "Rayuela", 3);
+        assertThrows(IllegalArgumentException.class, () -> Paginacion.decodificar(token, "autor"));
+    }
+    
+    @Test
+    @DisplayName("Se rechazan tokens mal formados o alterados")
+    public void testTokensInvalidos() {
+        List<String> invalidos = List.of(
+                "",
+                "esto no es base64!",
+                base64("titulo"),
+                base64("titulo\n42"),
+                base64("titulo\ncuarenta\nRayuela"),
+                base64("titulo\n42; DROP TABLE libros\nRayuela"),
+                base64("\n42\nRayuela"));
+        for (String token : invalidos) {
+            assertThrows(IllegalArgumentException.class, () -> Paginacion.decodificar(token, "titulo"), token);
+        }
+        
+        // Cambiar un carácter del id dentro del token deja un id que no es número
+        String bueno = Paginacion.codificar("id", "", 5);
+        String alterado = base64(new String(Base64.getUrlDecoder().decode(bueno), StandardCharsets.UTF_8).replace("5", "x"));
+        assertThrows(IllegalArgumentException.class, () -> Paginacion.decodificar(alterado, "id"));
+    }
+    
+    @Test
+    @DisplayName("Orden o tamaño inválidos se rechazan antes de consultar")
+    public void testParametrosInvalidos() {
+        Map<String, String> columnas = Map.of("id", "l.id");
+        assertThrows(IllegalArgumentException.class,
+                () -> Paginacion.consultar("SELECT * FROM libros l", "l.id", columnas, "titulo", null, 10, rs -> null));
+        assertThrows(IllegalArgumentException.class,
+                () -> Paginacion.consultar("SELECT * FROM libros l", "l.id", columnas, "id", null, 0, rs -> null));
+        assertThrows(IllegalArgumentException.class,
+                () -> Paginacion.consultar("SELECT * FROM libros l", "l.id", columnas, "id", "basura", 10, rs -> null));
+    }
+    
+    @Test
+    @DisplayName("Una página sin token siguiente es la última")
+    public void testPagina() {
+        Pagina<String> ultima = new Pagina<>(new ArrayList<>(List.of("a")), null);
+        assertFalse(ultima.hayMas());
+        assertEquals(List.of("a"), ultima.getElementos());
+        assertTrue(new Pagina<>(new ArrayList<String>(), "token").hayMas());
+    }
+}
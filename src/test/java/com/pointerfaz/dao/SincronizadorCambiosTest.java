@@ -0,0 +1,271 @@
+package com.pointerfaz.dao;
+
+import com.pointerfaz.cache.VersionesTablas;
+import com.pointerfaz.dao.RegistroCambios.Fila;
+import com.pointerfaz.db.ConnectionDB;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de SincronizadorCambios con un registro en memoria, un reloj
+ * manual y un destino que anota lo que recibiría cada DAO
+ */
+public class SincronizadorCambiosTest {
+    
+    // Valores por defecto de SincronizadorCambios
+    private static final long ESPERA_HUECO_MS = 10_000;
+    private static final long RETENCION_MS = 86_400_000;
+    private static final long INTERVALO_DEPURACION_MS = 600_000;
+    
+    private static final long OTRO_CLIENTE = 7;
+    
+    /**
+     * cambios_datos en memoria: solo se ve lo que ya se agregó (lo confirmado)
+     */
+    private static class RegistroEnMemoria implements RegistroCambios {
+        
+        final TreeMap<Long, Fila> filas = new TreeMap<>();
+        final List<Integer> lecturasPorVersion = new ArrayList<>();
+        final List<long[]> depuraciones = new ArrayList<>();
+        
+        void agregar(long version, String tabla, int id, String operacion, long cliente) {
+            filas.put(version, new Fila(version, tabla, id, operacion, cliente));
+        }
+        
+        @Override
+        public long[] extremos() {
+            return filas.isEmpty() ? new long[]{0, 0} : new long[]{filas.firstKey(), filas.lastKey()};
+        }
+        
+        @Override
+        public List<Fila> posteriores(long version, String tabla, int limite) {
+            return filas.tailMap(version, false).values().stream()
+                    .filter(fila -> tabla == null || tabla.equals(fila.tabla))
+                    .limit(limite)
+                    .toList();
+        }
+        
+        @Override
+        public List<Fila> versiones(Collection<Long> versiones) {
+            lecturasPorVersion.add(versiones.size());
+            return versiones.stream().sorted().map(filas::get).filter(fila -> fila != null).toList();
+        }
+        
+        @Override
+        public void depurar(long fechaLimite, long versionLimite) {
+            depuraciones.add(new long[]{fechaLimite, versionLimite});
+            filas.headMap(versionLimite, false).clear();
+        }
+    }
+    
+    /**
+     * Lo que les llega a los DAO
+     */
+    private static class DestinoAnotado implements SincronizadorCambios.Destino {
+        
+        final List<Integer> librosGuardados = new ArrayList<>();
+        final List<Integer> librosEliminados = new ArrayList<>();
+        final List<Integer> usuariosGuardados = new ArrayList<>();
+        final List<Integer> prestamosInsertados = new ArrayList<>();
+        int desactualizados;
+        
+        @Override
+        public void libros(Collection<Integer> guardados, Collection<Integer> eliminados) {
+            librosGuardados.addAll(guardados);
+            librosEliminados.addAll(eliminados);
+        }
+        
+        @Override
+        public void usuarios(Collection<Integer> guardados, Collection<Integer> eliminados) {
+            usuariosGuardados.addAll(guardados);
+        }
+        
+        @Override
+        public void prestamos(Collection<Integer> insertados) {
+            prestamosInsertados.addAll(insertados);
+        }
+        
+        @Override
+        public void desactualizado() {
+            desactualizados++;
+        }
+    }
+    
+    private RegistroEnMemoria registro;
+    private DestinoAnotado destino;
+    private long ahora;
+    private SincronizadorCambios sincronizador;
+    
+    @BeforeEach
+    public void crear() {
+        registro = new RegistroEnMemoria();
+        destino = new DestinoAnotado();
+        ahora = 1_000_000;
+        sincronizador = new SincronizadorCambios(registro, destino, () -> ahora);
+    }
+    
+    private void libro(long version, int id, String operacion) {
+        registro.agregar(version, VersionesTablas.LIBROS, id, operacion, OTRO_CLIENTE);
+    }
+    
+    @Test
+    @DisplayName("Empieza en la última versión del registro y no aplica lo anterior")
+    public void testIniciar() {
+        libro(1, 10, "insertado");
+        libro(2, 11, "insertado");
+        assertTrue(sincronizador.iniciar());
+        
+        assertEquals(2, sincronizador.getMarca());
+        assertEquals(0, sincronizador.sincronizar());
+        assertTrue(destino.librosGuardados.isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Un commit fuera de orden llena el hueco y la marca avanza recién entonces")
+    public void testHuecoLlenado() {
+        libro(3, 1, "insertado");
+        sincronizador.iniciar();
+        
+        // La versión 5 todavía no se confirmó
+        libro(4, 10, "insertado");
+        libro(6, 12, "modificado");
+        assertEquals(2, sincronizador.sincronizar());
+        assertEquals(4, sincronizador.getMarca());
+        assertEquals(List.of(10, 12), destino.librosGuardados);
+        
+        ahora += 1000;
+        libro(5, 11, "insertado");
+        assertEquals(1, sincronizador.sincronizar());
+        assertEquals(6, sincronizador.getMarca());
+        assertEquals(List.of(10, 12, 11), destino.librosGuardados);
+        assertEquals(3, sincronizador.getCambiosAplicados());
+    }
+    
+    @Test
+    @DisplayName("Un hueco que no aparece en ESPERA_HUECO_MS se da por rollback")
+    public void testHuecoVencido() {
+        libro(3, 1, "insertado");
+        sincronizador.iniciar();
+        libro(4, 10, "insertado");
+        libro(6, 12, "insertado");
+        sincronizador.sincronizar();
+        
+        ahora += ESPERA_HUECO_MS - 1;
+        sincronizador.sincronizar();
+        assertEquals(4, sincronizador.getMarca());
+        
+        ahora += 1;
+        sincronizador.sincronizar();
+        assertEquals(6, sincronizador.getMarca());
+        
+        // Ya no se pide: si apareciera tarde no se aplica
+        libro(5, 11, "insertado");
+        assertEquals(0, sincronizador.sincronizar());
+        assertEquals(List.of(10, 12), destino.librosGuardados);
+    }
+    
+    @Test
+    @DisplayName("Las filas de este cliente se saltan pero cuentan para la marca")
+    public void testPropiasSeSaltan() {
+        sincronizador.iniciar();
+        registro.agregar(1, VersionesTablas.LIBROS, 10, "insertado", ConnectionDB.getIdCliente());
+        registro.agregar(2, VersionesTablas.PERSONAS, 20, "modificado", ConnectionDB.getIdCliente());
+        registro.agregar(3, VersionesTablas.PERSONAS, 21, "modificado", OTRO_CLIENTE);
+        
+        assertEquals(1, sincronizador.sincronizar());
+        assertEquals(3, sincronizador.getMarca());
+        assertTrue(destino.librosGuardados.isEmpty());
+        assertEquals(List.of(21), destino.usuariosGuardados);
+    }
+    
+    @Test
+    @DisplayName("Varios cambios de una fila llegan como uno: un alta modificada sigue siendo alta")
+    public void testCombinar() {
+        sincronizador.iniciar();
+        registro.agregar(1, VersionesTablas.PRESTAMOS, 7, "insertado", OTRO_CLIENTE);
+        registro.agregar(2, VersionesTablas.PRESTAMOS, 7, "modificado", OTRO_CLIENTE);
+        registro.agregar(3, VersionesTablas.PRESTAMOS, 8, "modificado", OTRO_CLIENTE);
+        libro(4, 30, "insertado");
+        libro(5, 30, "modificado");
+        libro(6, 31, "modificado");
+        libro(7, 31, "eliminado");
+        
+        sincronizador.sincronizar();
+        assertEquals(List.of(7), destino.prestamosInsertados);
+        assertEquals(List.of(30), destino.librosGuardados);
+        assertEquals(List.of(31), destino.librosEliminados);
+    }
+    
+    @Test
+    @DisplayName("Si el registro ya no llega a la marca se avisa desactualizado y se sigue desde el final")
+    public void testRegistroRecortado() {
+        libro(1, 10, "insertado");
+        sincronizador.iniciar();
+        
+        // Mucho tiempo sin leer: otro cliente depuró hasta la versión 50
+        for (long version = 2; version <= 60; version++) {
+            libro(version, (int) version, "modificado");
+        }
+        registro.filas.headMap(50L).clear();
+        ahora += RETENCION_MS / 2 + 1;
+        
+        assertEquals(0, sincronizador.sincronizar());
+        assertEquals(1, destino.desactualizados);
+        assertEquals(60, sincronizador.getMarca());
+        assertTrue(destino.librosGuardados.isEmpty());
+        
+        libro(61, 70, "insertado");
+        assertEquals(1, sincronizador.sincronizar());
+        assertEquals(List.of(70), destino.librosGuardados);
+        assertEquals(1, destino.desactualizados);
+    }
+    
+    @Test
+    @DisplayName("Los huecos se vuelven a pedir aunque haya más de mil filas entre ellos")
+    public void testHuecosConMasDeMilFilasEnMedio() {
+        sincronizador.iniciar();
+        // Solo las versiones pares están confirmadas: 1500 filas y 1500 huecos
+        for (long version = 2; version <= 3000; version += 2) {
+            libro(version, (int) version, "insertado");
+        }
+        assertEquals(1500, sincronizador.sincronizar());
+        assertEquals(0, sincronizador.getMarca());
+        
+        ahora += 1000;
+        for (long version = 1; version < 3000; version += 2) {
+            libro(version, (int) version, "insertado");
+        }
+        assertEquals(1500, sincronizador.sincronizar());
+        assertEquals(3000, sincronizador.getMarca());
+        assertEquals(3000, destino.librosGuardados.size());
+        assertTrue(destino.librosGuardados.contains(2999));
+        // Por versión y de a mil como mucho
+        assertEquals(List.of(1000, 500), registro.lecturasPorVersion);
+    }
+    
+    @Test
+    @DisplayName("La depuración borra lo vencido por debajo de la marca")
+    public void testDepurar() {
+        libro(1, 10, "insertado");
+        sincronizador.iniciar();
+        libro(2, 11, "insertado");
+        libro(4, 12, "insertado");
+        
+        ahora += INTERVALO_DEPURACION_MS + 1;
+        sincronizador.sincronizar();
+        
+        assertEquals(1, registro.depuraciones.size());
+        assertArrayEquals(new long[]{ahora - RETENCION_MS, 2}, registro.depuraciones.get(0));
+        // El hueco 3 y lo posterior siguen en el registro
+        assertEquals(List.of(2L, 4L), List.copyOf(registro.filas.keySet()));
+        
+        sincronizador.sincronizar();
+        assertEquals(1, registro.depuraciones.size());
+    }
+}
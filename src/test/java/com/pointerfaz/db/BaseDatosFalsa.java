@@ -0,0 +1,245 @@
+package com.pointerfaz.db;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Driver JDBC de prueba: cada connect() entrega una Connection falsa que
+ * anota lo que se le pide, así el pool y la cache de sentencias se prueban
+ * sin MySQL. Las sentencias cuyo SQL empieza con FALLA fallan al ejecutarse.
+ */
+class BaseDatosFalsa implements Driver, AutoCloseable {
+    
+    private static final AtomicInteger SIGUIENTE = new AtomicInteger();
+    
+    private final String url = "jdbc:prueba:" + SIGUIENTE.incrementAndGet();
+    private final AtomicInteger conexionesAbiertas = new AtomicInteger();
+    private final AtomicInteger sentenciasPreparadas = new AtomicInteger();
+    private final List<String> ordenes = Collections.synchronizedList(new ArrayList<>());
+    private volatile CountDownLatch compuerta;
+    
+    BaseDatosFalsa() throws SQLException {
+        DriverManager.registerDriver(this);
+    }
+    
+    String getUrl() {
+        return url;
+    }
+    
+    /**
+     * @return veces que se abrió una conexión física
+     */
+    int getConexionesAbiertas() {
+        return conexionesAbiertas.get();
+    }
+    
+    /**
+     * @return veces que se preparó una sentencia en el "servidor"
+     */
+    int getSentenciasPreparadas() {
+        return sentenciasPreparadas.get();
+    }
+    
+    /**
+     * @return commit, rollback y setAutoCommit recibidos por las conexiones, en orden
+     */
+    List<String> getOrdenes() {
+        synchronized (ordenes) {
+            return new ArrayList<>(ordenes);
+        }
+    }
+    
+    /**
+     * Hace esperar cada connect() hasta llamar abrirCompuerta()
+     */
+    void cerrarCompuerta() {
+        compuerta = new CountDownLatch(1);
+    }
+    
+    void abrirCompuerta() {
+        compuerta.countDown();
+    }
+    
+    @Override
+    public void close() throws SQLException {
+        DriverManager.deregisterDriver(this);
+    }
+    
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        CountDownLatch espera = compuerta;
+        if (espera != null) {
+            try {
+                espera.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        conexionesAbiertas.incrementAndGet();
+        return nuevaConexion();
+    }
+    
+    private Connection nuevaConexion() {
+        Map<String, Object> estado = new HashMap<>();
+        estado.put("AutoCommit", true);
+        estado.put("ReadOnly", false);
+        estado.put("Closed", false);
+        return (Connection) Proxy.newProxyInstance(
+                BaseDatosFalsa.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                            sentenciasPreparadas.incrementAndGet();
+                            return nuevaSentencia((Connection) proxy, (String) args[0]);
+                        case "close":
+                            estado.put("Closed", true);
+                            return null;
+                        case "isValid":
+                            return !(Boolean) estado.get("Closed");
+                        case "commit":
+                        case "rollback":
+                            ordenes.add(method.getName());
+                            return null;
+                        case "setAutoCommit":
+                            ordenes.add("setAutoCommit(" + args[0] + ")");
+                            break;
+                        default:
+                            break;
+                    }
+                    return propiedad(estado, proxy, method.getName(), args, method.getReturnType());
+                });
+    }
+    
+    private PreparedStatement nuevaSentencia(Connection conexion, String sql) {
+        Map<String, Object> estado = new HashMap<>();
+        estado.put("Closed", false);
+        return (PreparedStatement) Proxy.newProxyInstance(
+                BaseDatosFalsa.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getConnection":
+                            return conexion;
+                        case "executeQuery":
+                        case "executeUpdate":
+                        case "execute":
+                            if (sql.startsWith("FALLA")) {
+                                throw new SQLException("Falla simulada: " + sql);
+                            }
+                            return method.getName().equals("executeQuery") ? nuevoResultado()
+                                    : propiedad(estado, proxy, method.getName(), args, method.getReturnType());
+                        case "close":
+                            estado.put("Closed", true);
+                            return null;
+                        default:
+                            return propiedad(estado, proxy, method.getName(), args, method.getReturnType());
+                    }
+                });
+    }
+    
+    private ResultSet nuevoResultado() {
+        Map<String, Object> estado = new HashMap<>();
+        estado.put("Closed", false);
+        return (ResultSet) Proxy.newProxyInstance(
+                BaseDatosFalsa.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close")) {
+                        estado.put("Closed", true);
+                        return null;
+                    }
+                    return propiedad(estado, proxy, method.getName(), args, method.getReturnType());
+                });
+    }
+    
+    /**
+     * setX(valor) guarda el valor, getX()/isX() lo devuelve; el resto devuelve el valor por defecto del tipo
+     */
+    private static Object propiedad(Map<String, Object> estado, Object proxy, String nombre, Object[] args, Class<?> tipo) {
+        if (nombre.equals("equals")) {
+            return proxy == args[0];
+        }
+        if (nombre.equals("hashCode")) {
+            return System.identityHashCode(proxy);
+        }
+        if (nombre.equals("toString")) {
+            return "falsa@" + System.identityHashCode(proxy);
+        }
+        if (nombre.startsWith("set") && args != null && args.length == 1) {
+            estado.put(nombre.substring(3), args[0]);
+            return null;
+        }
+        String clave = nombre.startsWith("get") ? nombre.substring(3) : nombre.startsWith("is") ? nombre.substring(2) : null;
+        if (clave != null && estado.containsKey(clave)) {
+            return estado.get(clave);
+        }
+        return porDefecto(tipo);
+    }
+    
+    private static Object porDefecto(Class<?> tipo) {
+        if (tipo == boolean.class) {
+            return false;
+        }
+        if (tipo == int.class) {
+            return 0;
+        }
+        if (tipo == long.class) {
+            return 0L;
+        }
+        if (tipo == double.class) {
+            return 0.0;
+        }
+        return null;
+    }
+    
+    @Override
+    public boolean acceptsURL(String url) {
+        return this.url.equals(url);
+    }
+    
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+    
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+    
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+    
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+    
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
@@ -0,0 +1,108 @@
+package com.pointerfaz.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de CacheSentencias y SentenciaCacheada a través de una conexión del pool
+ */
+public class CacheSentenciasTest {
+    
+    private BaseDatosFalsa base;
+    private PoolConexiones pool;
+    private Connection conexion;
+    
+    @BeforeEach
+    public void abrir() throws SQLException {
+        base = new BaseDatosFalsa();
+        pool = new PoolConexiones(base.getUrl(), "", "", 0, 1,
+                200, 60000, 60000, 2, new DetectorFugas(0, 0));
+        conexion = pool.obtenerConexion();
+    }
+    
+    @AfterEach
+    public void cerrar() throws SQLException {
+        conexion.close();
+        pool.cerrar();
+        base.close();
+    }
+    
+    private void usar(String sql) throws SQLException {
+        conexion.prepareStatement(sql).close();
+    }
+    
+    @Test
+    @DisplayName("Una sentencia cerrada se reutiliza al preparar el mismo SQL")
+    public void testReutilizaTrasCerrar() throws SQLException {
+        PreparedStatement primera = conexion.prepareStatement("SELECT * FROM libros WHERE id = ?");
+        primera.setInt(1, 7);
+        primera.close();
+        assertTrue(primera.isClosed());
+        assertThrows(SQLException.class, primera::executeQuery);
+        
+        PreparedStatement segunda = conexion.prepareStatement("SELECT * FROM libros WHERE id = ?");
+        assertFalse(segunda.isClosed());
+        assertSame(conexion, segunda.getConnection());
+        segunda.close();
+        
+        assertEquals(1, base.getSentenciasPreparadas());
+        assertEquals(1, pool.getAciertosCacheSentencias());
+        assertEquals(1, pool.getFallosCacheSentencias());
+    }
+    
+    @Test
+    @DisplayName("Con la cache llena se descarta la sentencia usada hace más tiempo")
+    public void testDesalojaLaMenosReciente() throws SQLException {
+        usar("A");
+        usar("B");
+        usar("A");
+        usar("C");
+        assertEquals(3, base.getSentenciasPreparadas());
+        
+        // A se usó después que B: sigue en la cache y B no
+        usar("A");
+        assertEquals(3, base.getSentenciasPreparadas());
+        usar("B");
+        assertEquals(4, base.getSentenciasPreparadas());
+    }
+    
+    @Test
+    @DisplayName("El mismo SQL preparado mientras está en uso se prepara aparte")
+    public void testSqlAnidadoNoCompartido() throws SQLException {
+        PreparedStatement externa = conexion.prepareStatement("SELECT 1");
+        PreparedStatement anidada = conexion.prepareStatement("SELECT 1");
+        assertNotSame(externa, anidada);
+        assertEquals(2, base.getSentenciasPreparadas());
+        
+        anidada.close();
+        assertTrue(anidada.isClosed());
+        assertFalse(externa.isClosed());
+        externa.close();
+        
+        usar("SELECT 1");
+        assertEquals(2, base.getSentenciasPreparadas());
+    }
+    
+    @Test
+    @DisplayName("fetchSize, maxRows y queryTimeout no pasan al próximo que prepara el SQL")
+    public void testRestableceOpciones() throws SQLException {
+        PreparedStatement primera = conexion.prepareStatement("SELECT * FROM prestamos");
+        primera.setFetchSize(500);
+        primera.setMaxRows(10);
+        primera.setQueryTimeout(3);
+        primera.close();
+        
+        PreparedStatement segunda = conexion.prepareStatement("SELECT * FROM prestamos");
+        assertEquals(0, segunda.getFetchSize());
+        assertEquals(0, segunda.getMaxRows());
+        assertEquals(0, segunda.getQueryTimeout());
+        segunda.close();
+        assertEquals(1, base.getSentenciasPreparadas());
+    }
+}
@@ -0,0 +1,102 @@
+package com.pointerfaz.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del DetectorFugas sobre un pool de conexiones falsas
+ */
+public class DetectorFugasTest {
+    
+    private BaseDatosFalsa base;
+    private PoolConexiones pool;
+    
+    @BeforeEach
+    public void crearBase() throws SQLException {
+        base = new BaseDatosFalsa();
+    }
+    
+    @AfterEach
+    public void cerrar() throws SQLException {
+        if (pool != null) {
+            pool.cerrar();
+        }
+        base.close();
+    }
+    
+    private PoolConexiones crearPool(DetectorFugas detector) {
+        return new PoolConexiones(base.getUrl(), "", "", 0, 1,
+                200, 60000, 60000, 10, detector);
+    }
+    
+    private static ConexionAgrupada manejador(Connection conexion) {
+        return (ConexionAgrupada) Proxy.getInvocationHandler(conexion);
+    }
+    
+    @Test
+    @DisplayName("Una conexión abandonada se reclama y su lugar queda libre")
+    public void testReclamaConexionAbandonada() throws Exception {
+        DetectorFugas detector = new DetectorFugas(0, 20);
+        pool = crearPool(detector);
+        
+        Connection abandonada = pool.obtenerConexion();
+        abandonada.prepareStatement("SELECT 1");
+        Thread.sleep(50);
+        detector.revisar();
+        
+        assertEquals(0, detector.getConexionesPendientes());
+        assertEquals(0, pool.getConexionesEnUso());
+        assertThrows(SQLException.class, () -> abandonada.prepareStatement("SELECT 1"));
+        
+        Connection nueva = pool.obtenerConexion();
+        nueva.close();
+        assertEquals(2, base.getConexionesAbiertas());
+    }
+    
+    @Test
+    @DisplayName("La pila de quien pidió la conexión solo se guarda si se pide")
+    public void testOrigenOpcional() throws SQLException {
+        pool = crearPool(new DetectorFugas(10000, 0));
+        Connection conexion = pool.obtenerConexion();
+        assertNull(manejador(conexion).getOrigen());
+        assertEquals(Thread.currentThread().getName(), manejador(conexion).getHilo());
+        conexion.close();
+        pool.cerrar();
+        
+        pool = crearPool(new DetectorFugas(10000, 0, true));
+        conexion = pool.obtenerConexion();
+        assertNotNull(manejador(conexion).getOrigen());
+        conexion.close();
+    }
+    
+    @Test
+    @DisplayName("Reclamar mientras el dueño prepara sentencias no rompe la revisión")
+    public void testReclamarDuranteUso() throws Exception {
+        DetectorFugas detector = new DetectorFugas(0, 1);
+        pool = crearPool(detector);
+        
+        for (int vuelta = 0; vuelta < 20; vuelta++) {
+            Connection conexion = pool.obtenerConexion();
+            Thread dueno = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 10000; i++) {
+                        conexion.prepareStatement("SELECT " + i);
+                    }
+                } catch (SQLException e) {
+                    // Reclamada: es lo esperado
+                }
+            });
+            dueno.start();
+            Thread.sleep(2);
+            assertDoesNotThrow(detector::revisar);
+            dueno.join(5000);
+            assertEquals(0, pool.getConexionesEnUso());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.pointerfaz.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del PoolConexiones contra conexiones falsas
+ */
+public class PoolConexionesTest {
+    
+    private BaseDatosFalsa base;
+    private PoolConexiones pool;
+    
+    @BeforeEach
+    public void crearBase() throws SQLException {
+        base = new BaseDatosFalsa();
+    }
+    
+    @AfterEach
+    public void cerrar() throws SQLException {
+        if (pool != null) {
+            pool.cerrar();
+        }
+        base.close();
+    }
+    
+    private PoolConexiones crearPool(int minimo, int maximo) {
+        return new PoolConexiones(base.getUrl(), "", "", minimo, maximo,
+                200, 60000, 60000, 0, new DetectorFugas(0, 0));
+    }
+    
+    @Test
+    @DisplayName("Una conexión devuelta se vuelve a prestar sin abrir otra")
+    public void testReutilizaConexionDevuelta() throws SQLException {
+        pool = crearPool(0, 2);
+        
+        Connection primera = pool.obtenerConexion();
+        assertEquals(1, pool.getConexionesEnUso());
+        primera.close();
+        assertTrue(primera.isClosed());
+        assertEquals(0, pool.getConexionesEnUso());
+        assertEquals(1, pool.getConexionesLibres());
+        
+        Connection segunda = pool.obtenerConexion();
+        segunda.close();
+        assertEquals(1, base.getConexionesAbiertas());
+        assertEquals(1, pool.getConexionesTotales());
+    }
+    
+    @Test
+    @DisplayName("Con el máximo prestado se espera y luego se rechaza")
+    public void testRespetaMaximo() throws SQLException {
+        pool = crearPool(0, 2);
+        
+        Connection primera = pool.obtenerConexion();
+        Connection segunda = pool.obtenerConexion();
+        assertThrows(SQLException.class, pool::obtenerConexion);
+        
+        primera.close();
+        Connection tercera = pool.obtenerConexion();
+        assertEquals(2, pool.getConexionesEnUso());
+        assertEquals(2, base.getConexionesAbiertas());
+        
+        segunda.close();
+        tercera.close();
+    }
+    
+    @Test
+    @DisplayName("Una conexión devuelta no se puede seguir usando")
+    public void testConexionDevueltaNoSeUsa() throws SQLException {
+        pool = crearPool(0, 1);
+        
+        Connection conexion = pool.obtenerConexion();
+        conexion.close();
+        conexion.close();
+        assertThrows(SQLException.class, () -> conexion.prepareStatement("SELECT 1"));
+        assertEquals(0, pool.getConexionesEnUso());
+    }
+    
+    @Test
+    @DisplayName("Al devolver se revierte la transacción pendiente y se vuelve a autocommit")
+    public void testRestableceTransaccion() throws SQLException {
+        pool = crearPool(0, 1);
+        
+        Connection conexion = pool.obtenerConexion();
+        conexion.setAutoCommit(false);
+        conexion.close();
+        
+        assertEquals(List.of("setAutoCommit(false)", "rollback", "setAutoCommit(true)"), base.getOrdenes());
+        Connection otra = pool.obtenerConexion();
+        assertTrue(otra.getAutoCommit());
+        otra.close();
+    }
+    
+    @Test
+    @DisplayName("El relleno hasta el mínimo empieza con iniciar(), no al construir")
+    public void testRellenoAlIniciar() throws Exception {
+        pool = crearPool(2, 3);
+        Thread.sleep(100);
+        assertEquals(0, base.getConexionesAbiertas());
+        
+        pool.iniciar();
+        pool.iniciar();
+        for (int i = 0; i < 50 && pool.getConexionesLibres() < 2; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(2, pool.getConexionesLibres());
+        assertEquals(2, base.getConexionesAbiertas());
+        assertEquals(0, pool.getConexionesEnUso());
+    }
+    
+    @Test
+    @DisplayName("El relleno hasta el mínimo no pasa del máximo mientras se presta")
+    public void testRellenoNoPasaDelMaximo() throws Exception {
+        base.cerrarCompuerta();
+        pool = new PoolConexiones(base.getUrl(), "", "", 1, 1,
+                5000, 60000, 60000, 0, new DetectorFugas(0, 0));
+        pool.iniciar();
+        
+        AtomicReference<Connection> prestada = new AtomicReference<>();
+        Thread prestamo = new Thread(() -> {
+            try {
+                prestada.set(pool.obtenerConexion());
+            } catch (SQLException e) {
+                System.out.println(e.getMessage());
+            }
+        });
+        prestamo.start();
+        // El relleno y el préstamo quedan esperando la conexión a la vez
+        Thread.sleep(300);
+        base.abrirCompuerta();
+        prestamo.join(5000);
+        
+        assertNotNull(prestada.get());
+        assertEquals(1, base.getConexionesAbiertas());
+        assertEquals(1, pool.getConexionesTotales());
+        prestada.get().close();
+    }
+}
@@ -0,0 +1,179 @@
+package com.pointerfaz.db;
+
+import com.pointerfaz.cache.CacheConsultas;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de UnidadDeTrabajo sobre un pool de conexiones falsas
+ */
+public class UnidadDeTrabajoTest {
+    
+    private BaseDatosFalsa base;
+    private PoolConexiones pool;
+    
+    @BeforeEach
+    public void abrir() throws SQLException {
+        base = new BaseDatosFalsa();
+        pool = new PoolConexiones(base.getUrl(), "", "", 0, 2,
+                200, 60000, 60000, 0, new DetectorFugas(0, 0));
+    }
+    
+    @AfterEach
+    public void cerrar() throws SQLException {
+        pool.cerrar();
+        base.close();
+    }
+    
+    @Test
+    @DisplayName("Una unidad anidada se une a la externa: una conexión y un solo commit")
+    public void testAnidadaSeUne() throws SQLException {
+        try (UnidadDeTrabajo externa = UnidadDeTrabajo.iniciar(pool)) {
+            assertTrue(UnidadDeTrabajo.estaActiva());
+            try (UnidadDeTrabajo interna = UnidadDeTrabajo.iniciar(pool)) {
+                try (Connection conexion = ConnectionDB.conectar()) {
+                    conexion.prepareStatement("UPDATE libros SET estado = ?").executeUpdate();
+                }
+                interna.confirmar();
+            }
+            assertTrue(UnidadDeTrabajo.estaActiva());
+            assertEquals(List.of("setAutoCommit(false)"), base.getOrdenes());
+            externa.confirmar();
+        }
+        assertFalse(UnidadDeTrabajo.estaActiva());
+        assertEquals(1, base.getConexionesAbiertas());
+        assertEquals(List.of("setAutoCommit(false)", "commit", "setAutoCommit(true)"), base.getOrdenes());
+        assertEquals(0, pool.getConexionesEnUso());
+    }
+    
+    @Test
+    @DisplayName("Si la anidada se cierra sin confirmar, la externa termina en rollback")
+    public void testAnidadaSinConfirmar() throws SQLException {
+        try (UnidadDeTrabajo externa = UnidadDeTrabajo.iniciar(pool)) {
+            try (UnidadDeTrabajo interna = UnidadDeTrabajo.iniciar(pool)) {
+                // Sin confirmar
+            }
+            assertThrows(SQLException.class, externa::confirmar);
+        }
+        assertFalse(base.getOrdenes().contains("commit"));
+        assertTrue(base.getOrdenes().contains("rollback"));
+    }
+    
+    @Test
+    @DisplayName("Una sentencia que falla deja la unidad solo para rollback aunque el error se atrape")
+    public void testSentenciaFallidaMarcaRollback() throws SQLException {
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.iniciar(pool)) {
+            try (Connection conexion = ConnectionDB.conectar()) {
+                PreparedStatement sentencia = conexion.prepareStatement("FALLA INSERT INTO libros VALUES (?)");
+                assertThrows(SQLException.class, sentencia::executeUpdate);
+            }
+            assertThrows(SQLException.class, unidad::confirmar);
+        }
+        assertFalse(base.getOrdenes().contains("commit"));
+        assertTrue(base.getOrdenes().contains("rollback"));
+    }
+    
+    @Test
+    @DisplayName("Cerrar sin confirmar revierte y devuelve la conexión al pool")
+    public void testCerrarSinConfirmar() throws SQLException {
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.iniciar(pool)) {
+            assertEquals(1, pool.getConexionesEnUso());
+        }
+        assertFalse(UnidadDeTrabajo.estaActiva());
+        assertEquals(0, pool.getConexionesEnUso());
+        List<String> ordenes = base.getOrdenes();
+        assertEquals("rollback", ordenes.get(1));
+        assertFalse(ordenes.contains("commit"));
+        assertEquals("setAutoCommit(true)", ordenes.get(ordenes.size() - 1));
+    }
+    
+    @Test
+    @DisplayName("La conexión del DAO ignora commit y setAutoCommit, y su close no la devuelve")
+    public void testConexionDelDao() throws SQLException {
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.iniciar(pool)) {
+            Connection conexion = ConnectionDB.conectar();
+            conexion.setAutoCommit(true);
+            conexion.commit();
+            conexion.close();
+            assertTrue(conexion.isClosed());
+            assertEquals(1, pool.getConexionesEnUso());
+            assertEquals(List.of("setAutoCommit(false)"), base.getOrdenes());
+            
+            // Un rollback del DAO no se hace en el momento: marca la unidad
+            try (Connection otra = ConnectionDB.conectar()) {
+                otra.rollback();
+            }
+            assertEquals(List.of("setAutoCommit(false)"), base.getOrdenes());
+            assertThrows(SQLException.class, unidad::confirmar);
+        }
+    }
+    
+    @Test
+    @DisplayName("despuesDeConfirmar corre tras el commit real y nunca tras un rollback")
+    public void testDespuesDeConfirmar() throws SQLException {
+        List<String> avisos = new ArrayList<>();
+        
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.iniciar(pool)) {
+            try (UnidadDeTrabajo interna = UnidadDeTrabajo.iniciar(pool)) {
+                UnidadDeTrabajo.despuesDeConfirmar(() -> avisos.add("interna"));
+                interna.confirmar();
+            }
+            UnidadDeTrabajo.despuesDeConfirmar(() -> avisos.add("externa"));
+            assertTrue(avisos.isEmpty());
+            unidad.confirmar();
+            // El commit ya se hizo, pero los avisos esperan a que la unidad se cierre
+            assertTrue(avisos.isEmpty());
+        }
+        assertEquals(List.of("interna", "externa"), avisos);
+        
+        avisos.clear();
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.iniciar(pool)) {
+            UnidadDeTrabajo.despuesDeConfirmar(() -> avisos.add("revertida"));
+        }
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.iniciar(pool)) {
+            UnidadDeTrabajo.despuesDeConfirmar(() -> avisos.add("fallida"));
+            unidad.marcarSoloRollback();
+            assertThrows(SQLException.class, unidad::confirmar);
+        }
+        assertTrue(avisos.isEmpty());
+        
+        // Sin unidad abierta corre enseguida
+        UnidadDeTrabajo.despuesDeConfirmar(() -> avisos.add("sin unidad"));
+        assertEquals(List.of("sin unidad"), avisos);
+    }
+    
+    @Test
+    @DisplayName("Dentro de la unidad CacheConsultas lee siempre de la base y no guarda")
+    public void testCacheConsultasNoSeUsa() throws SQLException {
+        CacheConsultas cache = CacheConsultas.compartida();
+        AtomicInteger lecturas = new AtomicInteger();
+        CacheConsultas.Consulta<ArrayList<String>> consulta = () -> {
+            lecturas.incrementAndGet();
+            return new ArrayList<>(List.of("sin confirmar"));
+        };
+        String[] tablas = {"prueba.unidad"};
+        int tamano = cache.getTamano();
+        
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.iniciar(pool)) {
+            cache.consultar("prueba.unidad", List.of(), tablas, consulta, ArrayList::new, ArrayList::new);
+            cache.consultar("prueba.unidad", List.of(), tablas, consulta, ArrayList::new, ArrayList::new);
+            unidad.confirmar();
+        }
+        assertEquals(2, lecturas.get());
+        assertEquals(tamano, cache.getTamano());
+        
+        // Fuera de la unidad vuelve a guardarse
+        cache.consultar("prueba.unidad", List.of(), tablas, consulta, ArrayList::new, ArrayList::new);
+        cache.consultar("prueba.unidad", List.of(), tablas, consulta, ArrayList::new, ArrayList::new);
+        assertEquals(3, lecturas.get());
+    }
+}
@@ -0,0 +1,118 @@
+package com.pointerfaz.importacion;
+
+import com.pointerfaz.dao.LibroDAOEnMemoria;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del avance del punto de control y de la reanudación de ImportadorCatalogo
+ */
+public class ImportadorCatalogoTest {
+    
+    @TempDir
+    Path carpeta;
+    
+    @Test
+    @DisplayName("La posición confirmada solo avanza por registros contiguos")
+    public void testTramoContiguo() {
+        TramoConfirmado tramo = new TramoConfirmado(100);
+        
+        assertEquals(100, tramo.terminar(1, 300));
+        assertEquals(100, tramo.terminar(2, 400));
+        assertEquals(2, tramo.getEnEspera());
+        
+        // Llega el registro 0: se confirman 0, 1 y 2 de una vez
+        assertEquals(400, tramo.terminar(0, 200));
+        assertEquals(0, tramo.getEnEspera());
+        
+        assertEquals(400, tramo.terminar(4, 600));
+        assertEquals(600, tramo.terminar(3, 500));
+        assertEquals(600, tramo.getConfirmado());
+    }
+    
+    /**
+     * CSV con un ISBN válido distinto por fila: 978 + 9 dígitos + control
+     */
+    private Path catalogo(int filas) throws IOException {
+        StringBuilder csv = new StringBuilder("isbn,titulo,autor\n");
+        for (int i = 0; i < filas; i++) {
+            String base = "978" + String.format("%09d", i);
+            csv.append(base).append(control(base)).append(",Libro ").append(i).append(",Autor ").append(i).append('\n');
+        }
+        Path archivo = carpeta.resolve("catalogo.csv");
+        Files.writeString(archivo, csv, StandardCharsets.UTF_8);
+        return archivo;
+    }
+    
+    private static char control(String doce) {
+        int suma = 0;
+        for (int i = 0; i < 12; i++) {
+            suma += (doce.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return (char) ('0' + (10 - suma % 10) % 10);
+    }
+    
+    @Test
+    @DisplayName("Una importación cortada sigue desde el punto de control sin duplicar")
+    public void testReanudaDesdePuntoControl() throws Exception {
+        Path archivo = catalogo(250);
+        Path puntoControl = carpeta.resolve("catalogo.avance");
+        LibroDAOEnMemoria dao = new LibroDAOEnMemoria();
+        dao.aceptarSolo(2);
+        
+        ImportadorCatalogo importador = new ImportadorCatalogo(dao, 3, 16, 50);
+        assertThrows(IOException.class, () -> importador.importar(archivo, FormatoCatalogo.CSV, puntoControl, null));
+        
+        assertTrue(Files.exists(puntoControl));
+        long posicion = PuntoControl.leer(puntoControl, archivo);
+        assertTrue(posicion > 0 && posicion < Files.size(archivo));
+        assertEquals(100, dao.getIsbnGuardados().size());
+        
+        dao.aceptarSolo(Integer.MAX_VALUE);
+        MetricasImportacion metricas = importador.importar(archivo, FormatoCatalogo.CSV, puntoControl, null);
+        
+        List<String> guardados = dao.getIsbnGuardados();
+        assertEquals(250, guardados.size());
+        assertEquals(250, new HashSet<>(guardados).size());
+        assertTrue(metricas.isReanudada());
+        assertTrue(metricas.isTerminada());
+        assertFalse(Files.exists(puntoControl));
+    }
+    
+    @Test
+    @DisplayName("Los ISBN repetidos y los registros inválidos se cuentan sin detener la importación")
+    public void testRepetidosYRechazos() throws Exception {
+        LibroDAOEnMemoria dao = new LibroDAOEnMemoria();
+        ImportadorCatalogo importador = new ImportadorCatalogo(dao, 2, 4, 2);
+        
+        MetricasImportacion metricas = importador.importar(LectorCsvTest.recurso("catalogo.csv"), FormatoCatalogo.CSV, null, null);
+        
+        // 0-306-40615-2 y "978 0 306 40615 7" son el mismo libro
+        assertEquals(5, metricas.getRegistrosLeidos());
+        assertEquals(2, metricas.getInsertados());
+        assertEquals(1, metricas.getDuplicados());
+        assertEquals(3, metricas.getRechazados());
+        assertEquals(100, metricas.getPorcentaje());
+    }
+    
+    @Test
+    @DisplayName("Un punto de control de otro archivo no se usa")
+    public void testPuntoControlDeOtroArchivo() throws Exception {
+        Path archivo = catalogo(10);
+        Path otro = carpeta.resolve("otro.csv");
+        Files.writeString(otro, "isbn,titulo,autor\n", StandardCharsets.UTF_8);
+        Path puntoControl = carpeta.resolve("avance");
+        
+        PuntoControl.guardar(puntoControl, otro, 5);
+        assertEquals(0, PuntoControl.leer(puntoControl, archivo));
+        assertEquals(5, PuntoControl.leer(puntoControl, otro));
+    }
+}
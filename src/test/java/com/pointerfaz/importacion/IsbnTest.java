@@ -0,0 +1,48 @@
+package com.pointerfaz.importacion;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la normalización de ISBN
+ */
+public class IsbnTest {
+    
+    @Test
+    @DisplayName("Un ISBN-10 se pasa a ISBN-13 con su nuevo dígito de control")
+    public void testIsbn10AIsbn13() {
+        assertEquals("9780306406157", Isbn.normalizar("0306406152"));
+        assertEquals("9780306406157", Isbn.normalizar("0-306-40615-2"));
+        assertEquals("9780804429573", Isbn.normalizar("0-8044-2957-X"));
+        assertEquals("9780804429573", Isbn.normalizar("080442957x"));
+    }
+    
+    @Test
+    @DisplayName("Se ignoran guiones, espacios y el texto que sigue al número")
+    public void testTextoAlrededor() {
+        assertEquals("9780306406157", Isbn.normalizar("0-306-40615-2 (pbk.)"));
+        assertEquals("9780306406157", Isbn.normalizar("ISBN 978 0 306 40615 7"));
+        assertEquals("9788437604947", Isbn.normalizar("978-84-376-0494-7 : 25 EUR"));
+    }
+    
+    @Test
+    @DisplayName("ISBN-13 con prefijo 978 o 979 y dígito de control correcto")
+    public void testIsbn13() {
+        assertEquals("9780306406157", Isbn.normalizar("9780306406157"));
+        assertEquals("9791090636071", Isbn.normalizar("979-10-90636-07-1"));
+        assertNull(Isbn.normalizar("9780306406158"));
+        assertNull(Isbn.normalizar("9770306406157"));
+    }
+    
+    @Test
+    @DisplayName("Se rechazan textos que no son ISBN")
+    public void testInvalidos() {
+        assertNull(Isbn.normalizar(null));
+        assertNull(Isbn.normalizar(""));
+        assertNull(Isbn.normalizar("sin isbn"));
+        assertNull(Isbn.normalizar("0306406153"));
+        assertNull(Isbn.normalizar("03064X6152"));
+        assertNull(Isbn.normalizar("12345"));
+    }
+}
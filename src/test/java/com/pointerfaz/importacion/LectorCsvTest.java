@@ -0,0 +1,121 @@
+package com.pointerfaz.importacion;
+
+import com.pointerfaz.modelo.Libro;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del LectorCsv con catalogo.csv: BOM, punto y coma, cabecera con
+ * tildes y alias en inglés, comillas dobladas y saltos de línea entre comillas
+ */
+public class LectorCsvTest {
+    
+    @TempDir
+    Path carpeta;
+    
+    static Path recurso(String nombre) throws URISyntaxException {
+        return Path.of(LectorCsvTest.class.getResource(nombre).toURI());
+    }
+    
+    private static List<RegistroCrudo> leerTodo(LectorCatalogo lector) throws IOException {
+        List<RegistroCrudo> registros = new ArrayList<>();
+        RegistroCrudo registro;
+        while ((registro = lector.siguiente()) != null) {
+            registros.add(registro);
+        }
+        return registros;
+    }
+    
+    @Test
+    @DisplayName("Los campos entre comillas conservan separadores, comillas y saltos de línea")
+    public void testComillas() throws Exception {
+        try (LectorCsv lector = new LectorCsv(recurso("catalogo.csv"), 0)) {
+            List<RegistroCrudo> registros = leerTodo(lector);
+            // La línea vacía no es un registro
+            assertEquals(5, registros.size());
+            
+            Libro primero = lector.parsear(registros.get(0).datos);
+            assertEquals("9780306406157", primero.getIsbn());
+            assertEquals("Cien años de soledad", primero.getTitulo());
+            assertEquals("García Márquez; Gabriel", primero.getAutor());
+            assertEquals("Sudamericana", primero.getEditorial());
+            assertEquals(1967, primero.getAnioPublicacion());
+            assertEquals(471, primero.getNumeroPaginas());
+            assertEquals("A-1", primero.getUbicacion());
+            assertEquals("General", primero.getCategoria());
+            
+            Libro segundo = lector.parsear(registros.get(1).datos);
+            assertEquals("9788437604947", segundo.getIsbn());
+            assertEquals("Rayuela, \"edición\" crítica", segundo.getTitulo());
+            assertNull(segundo.getEditorial());
+            assertEquals(1963, segundo.getAnioPublicacion());
+            assertEquals(0, segundo.getNumeroPaginas());
+            
+            Libro tercero = lector.parsear(registros.get(2).datos);
+            assertEquals("9780306406157", tercero.getIsbn());
+            assertEquals("Un título\nen dos líneas", tercero.getTitulo());
+            
+            assertThrows(IllegalArgumentException.class, () -> lector.parsear(registros.get(3).datos));
+            assertThrows(IllegalArgumentException.class, () -> lector.parsear(registros.get(4).datos));
+            assertEquals(lector.tamano(), lector.posicion());
+        }
+    }
+    
+    @Test
+    @DisplayName("Se puede seguir leyendo desde la posición final de un registro")
+    public void testReanudarDesdePosicion() throws Exception {
+        long finPrimero;
+        try (LectorCsv lector = new LectorCsv(recurso("catalogo.csv"), 0)) {
+            finPrimero = lector.siguiente().fin;
+        }
+        try (LectorCsv lector = new LectorCsv(recurso("catalogo.csv"), finPrimero)) {
+            RegistroCrudo registro = lector.siguiente();
+            assertEquals(0, registro.secuencia);
+            assertEquals("9788437604947", lector.parsear(registro.datos).getIsbn());
+        }
+    }
+    
+    @Test
+    @DisplayName("Coma como separador, fin de línea CRLF y columnas en otro orden")
+    public void testComasYCrlf() throws Exception {
+        Path archivo = carpeta.resolve("proveedor.csv");
+        Files.writeString(archivo, "title,isbn,author,category\r\n"
+                + "\"Ficciones, cuentos\",9780306406157,Borges,Cuento\r\n", StandardCharsets.UTF_8);
+        
+        try (LectorCsv lector = new LectorCsv(archivo, 0)) {
+            List<RegistroCrudo> registros = leerTodo(lector);
+            assertEquals(1, registros.size());
+            Libro libro = lector.parsear(registros.get(0).datos);
+            assertEquals("Ficciones, cuentos", libro.getTitulo());
+            assertEquals("Borges", libro.getAutor());
+            assertEquals("Cuento", libro.getCategoria());
+        }
+    }
+    
+    @Test
+    @DisplayName("Sin columna obligatoria el archivo se rechaza al abrirlo")
+    public void testFaltaColumna() throws Exception {
+        Path archivo = carpeta.resolve("sin_autor.csv");
+        Files.writeString(archivo, "isbn,titulo\n9780306406157,Algo\n", StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> new LectorCsv(archivo, 0));
+    }
+    
+    @Test
+    @DisplayName("separarCampos y entero")
+    public void testAuxiliares() {
+        assertEquals(List.of("a", "b,c", "d\"e", ""), LectorCsv.separarCampos("a,\"b,c\",\"d\"\"e\",", ','));
+        assertEquals(352, LectorCsv.entero("352 p."));
+        assertEquals(1999, LectorCsv.entero("c1999, reimpr. 2005"));
+        assertEquals(0, LectorCsv.entero("s.f."));
+        assertEquals(0, LectorCsv.entero("99999999999999"));
+    }
+}
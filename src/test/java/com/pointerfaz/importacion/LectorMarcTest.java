@@ -0,0 +1,104 @@
+package com.pointerfaz.importacion;
+
+import com.pointerfaz.modelo.Libro;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del LectorMarc con catalogo.mrc: un registro en UTF-8 con
+ * puntuación ISBD, uno en Latin-1 con el año en el campo 008 y un primer 020
+ * inválido, y uno sin título, separado por un salto de línea
+ */
+public class LectorMarcTest {
+    
+    @TempDir
+    Path carpeta;
+    
+    private static List<RegistroCrudo> leerTodo(LectorMarc lector) throws Exception {
+        List<RegistroCrudo> registros = new ArrayList<>();
+        RegistroCrudo registro;
+        while ((registro = lector.siguiente()) != null) {
+            registros.add(registro);
+        }
+        return registros;
+    }
+    
+    @Test
+    @DisplayName("El directorio ubica cada campo y sus subcampos")
+    public void testDirectorio() throws Exception {
+        try (LectorMarc lector = new LectorMarc(LectorCsvTest.recurso("catalogo.mrc"), 0)) {
+            List<RegistroCrudo> registros = leerTodo(lector);
+            assertEquals(3, registros.size());
+            
+            Libro libro = lector.parsear(registros.get(0).datos);
+            assertEquals("9780306406157", libro.getIsbn());
+            assertEquals("Cien años de soledad : novela", libro.getTitulo());
+            assertEquals("García Márquez, Gabriel", libro.getAutor());
+            assertEquals("Sudamericana", libro.getEditorial());
+            assertEquals(1967, libro.getAnioPublicacion());
+            assertEquals(471, libro.getNumeroPaginas());
+            assertEquals("Novela", libro.getCategoria());
+            assertEquals("PQ8180.17", libro.getUbicacion());
+        }
+    }
+    
+    @Test
+    @DisplayName("MARC-8 se lee como Latin-1 y el año sale del campo 008")
+    public void testLatin1Y008() throws Exception {
+        try (LectorMarc lector = new LectorMarc(LectorCsvTest.recurso("catalogo.mrc"), 0)) {
+            List<RegistroCrudo> registros = leerTodo(lector);
+            
+            Libro libro = lector.parsear(registros.get(1).datos);
+            assertEquals("9788437604947", libro.getIsbn());
+            assertEquals("Rayuela", libro.getTitulo());
+            assertEquals("Cortázar, Julio", libro.getAutor());
+            assertEquals(1963, libro.getAnioPublicacion());
+            assertNull(libro.getEditorial());
+            assertEquals("General", libro.getCategoria());
+            
+            assertThrows(IllegalArgumentException.class, () -> lector.parsear(registros.get(2).datos));
+        }
+    }
+    
+    @Test
+    @DisplayName("Una longitud dañada corta en el fin de registro y la lectura sigue")
+    public void testLongitudDanada() throws Exception {
+        byte[] datos = Files.readAllBytes(LectorCsvTest.recurso("catalogo.mrc"));
+        datos[0] = 'x';
+        Path archivo = carpeta.resolve("danado.mrc");
+        Files.write(archivo, datos);
+        
+        try (LectorMarc lector = new LectorMarc(archivo, 0)) {
+            List<RegistroCrudo> registros = leerTodo(lector);
+            assertEquals(3, registros.size());
+            assertEquals("9788437604947", lector.parsear(registros.get(1).datos).getIsbn());
+        }
+    }
+    
+    @Test
+    @DisplayName("Se rechazan registros incompletos o con el directorio fuera del registro")
+    public void testRegistrosInvalidos() throws Exception {
+        try (LectorMarc lector = new LectorMarc(LectorCsvTest.recurso("catalogo.mrc"), 0)) {
+            byte[] bueno = lector.siguiente().datos;
+            
+            byte[] cortado = Arrays.copyOf(bueno, bueno.length - 1);
+            assertThrows(IllegalArgumentException.class, () -> lector.parsear(cortado));
+            
+            // Posición del primer campo (001) llevada más allá del final del registro
+            byte[] fueraDeRango = bueno.clone();
+            byte[] posicion = "99999".getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(posicion, 0, fueraDeRango, 24 + 7, 5);
+            assertThrows(IllegalArgumentException.class, () -> lector.parsear(fueraDeRango));
+            
+            assertThrows(IllegalArgumentException.class, () -> lector.parsear("00010nam".getBytes(StandardCharsets.US_ASCII)));
+        }
+    }
+}